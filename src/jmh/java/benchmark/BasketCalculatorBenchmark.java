@@ -0,0 +1,62 @@
+package benchmark;
+
+import dto.request.Basket;
+import dto.request.CompactBasket;
+import dto.response.BasketTotals;
+import dto.response.ReceiptResponse;
+import entity.MoneyMode;
+import entity.PricingCatalog;
+import org.openjdk.jmh.annotations.*;
+import services.BasketCalculatorImpl;
+import services.PricingCatalogStore;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BasketCalculatorBenchmark {
+    @Param({"DISTINCT_SKUS", "HUGE_QUANTITIES", "CATEGORY_ALES", "WEIGHED_GOODS"})
+    private BasketShape shape;
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    @Param({"DOUBLE", "FIXED_POINT"})
+    private MoneyMode moneyMode;
+
+    private BasketCalculatorImpl calculator;
+    private final BasketTotals totals = new BasketTotals();
+    private Basket basket;
+    private CompactBasket compactBasket;
+
+    @Setup
+    public void setUp() {
+        var baskets = new BenchmarkBaskets();
+        basket = baskets.basket(shape, size);
+        compactBasket = CompactBasket.fromBasket(basket);
+        var catalog = PricingCatalog.compile(
+                baskets.getUniProductPricing(),
+                baskets.getProductCategoryPricing(),
+                baskets.getProductCategoryProductSet());
+        calculator = new BasketCalculatorImpl(new PricingCatalogStore(catalog), moneyMode);
+    }
+
+    @Benchmark
+    public ReceiptResponse calculateBasketPrice() {
+        return calculator.calculateBasketPrice(basket);
+    }
+
+    @Benchmark
+    public ReceiptResponse calculateCompactBasketPrice() {
+        return calculator.calculateBasketPrice(compactBasket);
+    }
+
+    @Benchmark
+    public BasketTotals calculateBasketTotals() {
+        return calculator.calculateBasketTotals(basket, totals);
+    }
+}
@@ -0,0 +1,77 @@
+package benchmark;
+
+import dto.response.ReceiptResponse;
+import entity.ReceiptPrintMode;
+import interfaces.BasketPrinter;
+import org.openjdk.jmh.annotations.*;
+import services.BasketCalculatorImpl;
+import services.BasketPrinterImpl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BasketPrinterBenchmark {
+    @Param({"DISTINCT_SKUS", "HUGE_QUANTITIES", "CATEGORY_ALES", "WEIGHED_GOODS"})
+    private BasketShape shape;
+
+    @Param({"10", "1000"})
+    private int size;
+
+    @Param({"EXPANDED", "COMPACT"})
+    private ReceiptPrintMode printMode;
+
+    private BasketPrinter printer;
+    private ReceiptResponse receipt;
+    private PrintStream originalOut;
+    private StringBuilder output;
+    private WritableByteChannel channel;
+
+    @Setup
+    public void setUp() {
+        var baskets = new BenchmarkBaskets();
+        var basket = baskets.basket(shape, size);
+        receipt = new BasketCalculatorImpl(
+                baskets.getUniProductPricing(),
+                baskets.getProductCategoryPricing(),
+                baskets.getProductCategoryProductSet()).calculateBasketPrice(basket);
+        printer = new BasketPrinterImpl(printMode);
+
+        // Measure formatting and PrintStream cost without the terminal
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        output = new StringBuilder();
+        channel = Channels.newChannel(OutputStream.nullOutputStream());
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void printPriceCalculationBreakDown() {
+        printer.printPriceCalculationBreakDown(receipt);
+    }
+
+    @Benchmark
+    public StringBuilder printToAppendable() throws IOException {
+        output.setLength(0);
+        printer.printPriceCalculationBreakDown(receipt, output);
+        return output;
+    }
+
+    @Benchmark
+    public void printToChannel() throws IOException {
+        printer.printPriceCalculationBreakDown(receipt, channel);
+    }
+}
@@ -0,0 +1,8 @@
+package benchmark;
+
+public enum BasketShape {
+    DISTINCT_SKUS,
+    HUGE_QUANTITIES,
+    CATEGORY_ALES,
+    WEIGHED_GOODS
+}
@@ -0,0 +1,90 @@
+package benchmark;
+
+import dto.request.Basket;
+import entity.PricingStructure;
+import entity.Product;
+import entity.ProductCategory;
+
+import java.util.*;
+
+public class BenchmarkBaskets {
+    private static final int ALE_COUNT = 6;
+
+    private final Map<Long, List<PricingStructure>> uniProductPricing = new HashMap<>();
+    private final Map<ProductCategory, PricingStructure> productCategoryPricing = new HashMap<>();
+    private final Map<ProductCategory, Set<Long>> productCategoryProductSet = new HashMap<>();
+    private final Random random = new Random(20250101L);
+    private long nextId = 1;
+
+    public BenchmarkBaskets() {
+        productCategoryPricing.put(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build());
+        productCategoryProductSet.put(ProductCategory.ALE, new HashSet<>());
+    }
+
+    public Map<Long, List<PricingStructure>> getUniProductPricing() {
+        return uniProductPricing;
+    }
+
+    public Map<ProductCategory, PricingStructure> getProductCategoryPricing() {
+        return productCategoryPricing;
+    }
+
+    public Map<ProductCategory, Set<Long>> getProductCategoryProductSet() {
+        return productCategoryProductSet;
+    }
+
+    public Basket basket(BasketShape shape, int size) {
+        var basket = new Basket();
+        switch (shape) {
+            case DISTINCT_SKUS:
+                for (int i = 0; i < size; i++) {
+                    var product = unitProduct(ProductCategory.FOOD, i % 10 == 0);
+                    basket.put(product, 1 + random.nextInt(5));
+                }
+                break;
+            case HUGE_QUANTITIES:
+                basket.put(unitProduct(ProductCategory.FOOD, true), size);
+                basket.put(unitProduct(ProductCategory.DRINK, true), size);
+                basket.put(unitProduct(ProductCategory.FOOD, false), size);
+                break;
+            case CATEGORY_ALES:
+                for (int i = 0; i < ALE_COUNT; i++) {
+                    basket.put(ale(), Math.max(1, size / ALE_COUNT));
+                }
+                break;
+            case WEIGHED_GOODS:
+                for (int i = 0; i < size; i++) {
+                    basket.put(weighedProduct(), 0.05 + random.nextInt(2_000) / 1_000.0);
+                }
+                break;
+        }
+        return basket;
+    }
+
+    private Product unitProduct(ProductCategory category, boolean onDeal) {
+        var id = nextId++;
+        var product = Product.builder().id(id).name("Product " + id).Category(category).price(price()).build();
+        if (onDeal) {
+            var pricing = id % 2 == 0
+                    ? PricingStructure.builder().name("3 for 2 #" + id).quantity(3).newQuantity(2).build()
+                    : PricingStructure.builder().name("2 for £1 #" + id).quantity(2).price(1).build();
+            uniProductPricing.put(id, new ArrayList<>(List.of(pricing)));
+        }
+        return product;
+    }
+
+    private Product ale() {
+        var id = nextId++;
+        productCategoryProductSet.get(ProductCategory.ALE).add(id);
+        return Product.builder().id(id).name("Ale " + id).Category(ProductCategory.ALE).price(2 + random.nextInt(4) * 0.5).build();
+    }
+
+    private Product weighedProduct() {
+        var id = nextId++;
+        return Product.builder().id(id).name("Loose " + id).Category(ProductCategory.FOOD).measuredPerKg(true).price(price()).build();
+    }
+
+    private double price() {
+        return (20 + random.nextInt(480)) / 100.0;
+    }
+}
@@ -0,0 +1,103 @@
+package benchmark;
+
+import dto.request.CompactBasket;
+import entity.PricingCatalog;
+import entity.Product;
+import services.BasketCalculatorImpl;
+import services.CompactReceiptCodec;
+import services.PricingServer;
+import util.LatencyHistogram;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Closed-loop load test against a local PricingServer: each client sends a basket, waits for the receipt and sends
+// the next, for the given duration. Prints throughput and latency percentiles.
+//   java -cp target/benchmarks.jar benchmark.PricingServerLoadGenerator [clients] [seconds] [shape] [basketSize]
+public class PricingServerLoadGenerator {
+    public static void main(String[] args) throws Exception {
+        // The JDK server reads this once; without it every response waits on a delayed ACK (see PricingServer)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        var clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        var seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        var shape = args.length > 2 ? BasketShape.valueOf(args[2]) : BasketShape.DISTINCT_SKUS;
+        var basketSize = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        var fixture = new BenchmarkBaskets();
+        var products = new HashMap<Long, Product>();
+        var bodies = new ArrayList<byte[]>();
+        for (int i = 0; i < 64; i++) {
+            var basket = fixture.basket(shape, basketSize);
+            basket.keySet().forEach(product -> products.put(product.getId(), product));
+            bodies.add(CompactReceiptCodec.encodeBasket(CompactBasket.fromBasket(basket)));
+        }
+        var calculator = new BasketCalculatorImpl(PricingCatalog.compile(
+                fixture.getUniProductPricing(), fixture.getProductCategoryPricing(), fixture.getProductCategoryProductSet()));
+
+        try (var server = new PricingServer(calculator, products::get, new InetSocketAddress("127.0.0.1", 0)).start()) {
+            var uri = URI.create("http://127.0.0.1:" + server.getPort() + "/price");
+            var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            var latency = new LatencyHistogram();
+            var errors = new LongAdder();
+            var clientThreads = newClientExecutor(clients);
+
+            // Warm up for a fifth of the run, then measure
+            var warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(1, seconds / 5));
+            var end = warmupEnd + TimeUnit.SECONDS.toNanos(seconds);
+            for (int c = 0; c < clients; c++) {
+                var first = c;
+                clientThreads.execute(() -> {
+                    var next = first;
+                    while (true) {
+                        var start = System.nanoTime();
+                        if (start >= end) {
+                            return;
+                        }
+                        var request = HttpRequest.newBuilder(uri)
+                                .POST(HttpRequest.BodyPublishers.ofByteArray(bodies.get(next++ % bodies.size())))
+                                .build();
+                        try {
+                            var response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                            if (response.statusCode() != 200) {
+                                errors.increment();
+                            } else if (start >= warmupEnd) {
+                                latency.record(System.nanoTime() - start);
+                            }
+                        } catch (Exception e) {
+                            errors.increment();
+                        }
+                    }
+                });
+            }
+            clientThreads.shutdown();
+            clientThreads.awaitTermination(seconds * 2L + 60, TimeUnit.SECONDS);
+
+            System.out.printf("server threads   %s%n", server.isVirtualThreads() ? "virtual" : "platform");
+            System.out.printf("clients          %d, %s x %d lines%n", clients, shape, basketSize);
+            System.out.printf("requests         %d in %d s, %d errors%n", latency.getCount(), seconds, errors.sum());
+            System.out.printf("throughput       %.0f req/s%n", latency.getCount() / (double) seconds);
+            System.out.printf("latency us       p50 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                    latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(99) / 1e3,
+                    latency.getValueAtPercentile(99.9) / 1e3, latency.getMax() / 1e3);
+        }
+    }
+
+    private static ExecutorService newClientExecutor(int clients) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(clients);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import dto.response.ReceiptResponse;
+import org.openjdk.jmh.annotations.*;
+import services.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Receipt throughput of the wire codecs against the text CompactReceiptCodec used by PricingServer.
+// The binary read and write measure the steady state of a stream, where every name is already in the table.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReceiptCodecBenchmark {
+    @Param({"DISTINCT_SKUS", "CATEGORY_ALES", "WEIGHED_GOODS"})
+    private BasketShape shape;
+
+    @Param({"10", "1000"})
+    private int size;
+
+    private ReceiptResponse receipt;
+    private ReceiptJsonWriter jsonWriter;
+    private ReceiptJsonReader jsonReader;
+    private ReceiptBinaryWriter binaryWriter;
+    private ReceiptBinaryReader binaryReader;
+    private ByteBuffer json;
+    private ByteBuffer frame;
+    private byte[] compact;
+
+    @Setup
+    public void setUp() {
+        var baskets = new BenchmarkBaskets();
+        receipt = new BasketCalculatorImpl(
+                baskets.getUniProductPricing(),
+                baskets.getProductCategoryPricing(),
+                baskets.getProductCategoryProductSet()).calculateBasketPrice(baskets.basket(shape, size));
+
+        jsonWriter = new ReceiptJsonWriter();
+        jsonReader = new ReceiptJsonReader();
+        json = copy(jsonWriter.write(receipt));
+
+        binaryWriter = new ReceiptBinaryWriter();
+        binaryReader = new ReceiptBinaryReader();
+        binaryReader.read(binaryWriter.write(receipt));
+        frame = copy(binaryWriter.write(receipt));
+
+        compact = CompactReceiptCodec.encodeReceipt(receipt);
+    }
+
+    private static ByteBuffer copy(ByteBuffer encoded) {
+        return ByteBuffer.allocate(encoded.remaining()).put(encoded).flip();
+    }
+
+    @Benchmark
+    public ByteBuffer writeJson() {
+        return jsonWriter.write(receipt);
+    }
+
+    @Benchmark
+    public ReceiptResponse readJson() {
+        return jsonReader.read(json.duplicate());
+    }
+
+    @Benchmark
+    public ByteBuffer writeBinary() {
+        return binaryWriter.write(receipt);
+    }
+
+    @Benchmark
+    public ReceiptResponse readBinary() {
+        return binaryReader.read(frame.duplicate());
+    }
+
+    @Benchmark
+    public byte[] writeCompactText() {
+        return CompactReceiptCodec.encodeReceipt(receipt);
+    }
+
+    @Benchmark
+    public ReceiptResponse readCompactText() {
+        return CompactReceiptCodec.decodeReceipt(compact);
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import dto.request.Basket;
+import dto.response.ReceiptResponse;
+import entity.MoneyMode;
+import org.openjdk.jmh.annotations.*;
+import services.CatalogPartition;
+import services.ShardedBasketCalculator;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Scaling of the scatter-gather coordinator with in-JVM shards. Scaling efficiency for n shards is
+// time(1 shard) / (n x time(n shards)); shards = 1 is the single-node baseline with no scatter.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShardedPricingBenchmark {
+    @Param({"DISTINCT_SKUS", "CATEGORY_ALES"})
+    private BasketShape shape;
+
+    @Param({"100", "10000"})
+    private int size;
+
+    @Param({"1", "2", "4", "8"})
+    private int shards;
+
+    private ExecutorService executor;
+    private ShardedBasketCalculator calculator;
+    private Basket basket;
+
+    @Setup
+    public void setUp() {
+        var baskets = new BenchmarkBaskets();
+        basket = baskets.basket(shape, size);
+        var partition = CatalogPartition.byProductIdRange(
+                baskets.getUniProductPricing(),
+                baskets.getProductCategoryPricing(),
+                baskets.getProductCategoryProductSet(),
+                List.of(),
+                shards);
+        executor = Executors.newFixedThreadPool(Math.max(shards - 1, 1));
+        calculator = ShardedBasketCalculator.local(partition, MoneyMode.FIXED_POINT, executor);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public ReceiptResponse calculateBasketPrice() {
+        return calculator.calculateBasketPrice(basket);
+    }
+}
@@ -1,10 +1,25 @@
 package dto.request;
 
 import entity.Product;
+import lombok.Getter;
+import lombok.Setter;
+
 import java.util.HashMap;
 
 
 public class Basket extends HashMap<Product, Double> {
+    // Till or transaction-log id, used to pick baskets for pricing traces; 0 when there is none
+    @Getter
+    @Setter
+    private long basketId;
+    // Who is buying and where, for PriceBook resolution; 0 leaves that layer out
+    @Getter
+    @Setter
+    private int customerTier;
+    @Getter
+    @Setter
+    private int storeId;
+
     public void put(Product product, int quantity){
         super.put(product, (double) quantity);
     }
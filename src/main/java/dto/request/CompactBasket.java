@@ -0,0 +1,119 @@
+package dto.request;
+
+import entity.Product;
+import lombok.Getter;
+import lombok.Setter;
+import util.LongIntHashMap;
+
+import java.util.Arrays;
+
+// Struct-of-arrays basket: one slot per product id in parallel arrays, so lines cost no entry objects or boxed
+// quantities. Adding a product whose id is already in the basket adds to that line, even if it is a different
+// Product instance. The first Product seen for an id supplies the name, price and category.
+public class CompactBasket {
+    private long[] ids;
+    private double[] quantities;
+    private Product[] products;
+    private final LongIntHashMap lines;
+    private int size;
+    // Till or transaction-log id, used to pick baskets for pricing traces; 0 when there is none
+    @Getter
+    @Setter
+    private long basketId;
+    // Who is buying and where, for PriceBook resolution; 0 leaves that layer out
+    @Getter
+    @Setter
+    private int customerTier;
+    @Getter
+    @Setter
+    private int storeId;
+
+    public CompactBasket() {
+        this(16);
+    }
+
+    public CompactBasket(int expectedLines) {
+        var capacity = Math.max(expectedLines, 1);
+        ids = new long[capacity];
+        quantities = new double[capacity];
+        products = new Product[capacity];
+        lines = new LongIntHashMap(capacity);
+    }
+
+    public static CompactBasket fromBasket(Basket basket) {
+        var compactBasket = new CompactBasket(basket.size());
+        compactBasket.setBasketId(basket.getBasketId());
+        compactBasket.setCustomerTier(basket.getCustomerTier());
+        compactBasket.setStoreId(basket.getStoreId());
+        for (var entry : basket.entrySet()) {
+            compactBasket.add(entry.getKey(), entry.getValue());
+        }
+        return compactBasket;
+    }
+
+    public Basket toBasket() {
+        var basket = new Basket();
+        basket.setBasketId(basketId);
+        basket.setCustomerTier(customerTier);
+        basket.setStoreId(storeId);
+        for (int i = 0; i < size; i++) {
+            basket.put(products[i], quantities[i]);
+        }
+        return basket;
+    }
+
+    public void add(Product product, int quantity) {
+        add(product, (double) quantity);
+    }
+
+    public void add(Product product, double quantity) {
+        var line = lines.get(product.getId());
+        if (line != LongIntHashMap.MISSING) {
+            quantities[line] += quantity;
+            return;
+        }
+        if (size == ids.length) {
+            var capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            products = Arrays.copyOf(products, capacity);
+        }
+        ids[size] = product.getId();
+        quantities[size] = quantity;
+        products[size] = product;
+        lines.put(product.getId(), size);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getId(int line) {
+        return ids[checkLine(line)];
+    }
+
+    public double getQuantity(int line) {
+        return quantities[checkLine(line)];
+    }
+
+    public Product getProduct(int line) {
+        return products[checkLine(line)];
+    }
+
+    public double getQuantityOf(long productId) {
+        var line = lines.get(productId);
+        return line == LongIntHashMap.MISSING ? 0 : quantities[line];
+    }
+
+    private int checkLine(int line) {
+        if (line < 0 || line >= size) {
+            throw new IndexOutOfBoundsException("Line " + line + " of " + size);
+        }
+        return line;
+    }
+}
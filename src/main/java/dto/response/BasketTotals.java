@@ -0,0 +1,36 @@
+package dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BasketTotals {
+    private double productSubTotal;
+    private double savingsSubTotal;
+    private double grandTotal;
+    private long pricingVersion;
+
+    // Exact totals in pence, filled in by MoneyMode.FIXED_POINT
+    private long productSubTotalMinor;
+    private long savingsSubTotalMinor;
+    private long grandTotalMinor;
+
+    public static BasketTotals of(ReceiptResponse receipt) {
+        var totals = new BasketTotals();
+        totals.copyFrom(receipt);
+        return totals;
+    }
+
+    public void copyFrom(ReceiptResponse receipt) {
+        productSubTotal = receipt.getProductSubTotal();
+        savingsSubTotal = receipt.getSavingsSubTotal();
+        grandTotal = receipt.getGrandTotal();
+        pricingVersion = receipt.getPricingVersion();
+        productSubTotalMinor = receipt.getProductSubTotalMinor();
+        savingsSubTotalMinor = receipt.getSavingsSubTotalMinor();
+        grandTotalMinor = receipt.getGrandTotalMinor();
+    }
+}
@@ -0,0 +1,19 @@
+package dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchPricingStats {
+    private int basketCount;
+    private int chunkCount;
+    private int workerThreads;
+    private long elapsedNanos;
+
+    public double getBasketsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : basketCount * 1_000_000_000.0 / elapsedNanos;
+    }
+}
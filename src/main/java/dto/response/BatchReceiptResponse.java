@@ -0,0 +1,14 @@
+package dto.response;
+
+import lombok.*;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchReceiptResponse {
+    private List<ReceiptResponse> receipts;
+    private BatchPricingStats stats;
+}
@@ -0,0 +1,17 @@
+package dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LatencySnapshot {
+    private long count;
+    private double mean;
+    private long p50;
+    private long p99;
+    private long p999;
+    private long max;
+}
@@ -0,0 +1,19 @@
+package dto.response;
+
+import entity.PricingPhase;
+import lombok.*;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PricingMetricsSnapshot {
+    // Nanoseconds spent in each phase, per basket
+    private Map<PricingPhase, LatencySnapshot> phases;
+    private LatencySnapshot linesPerBasket;
+    private LatencySnapshot bundlesPerBasket;
+    private LatencySnapshot savingsItemsPerBasket;
+}
@@ -0,0 +1,72 @@
+package dto.response;
+
+import entity.MoneyMode;
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Every rule evaluation and bundle decision made while pricing one basket, in the order they were made: lines
+// first, then deal groups. Filled in by BasketCalculatorImpl for baskets its PricingTracer samples.
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PricingTrace {
+    private long basketId;
+    private long pricingVersion;
+    private MoneyMode moneyMode;
+    private long capturedAtMillis;
+    private long pricingNanos;
+    @Builder.Default
+    private List<PricingTraceEvent> events = new ArrayList<>();
+    private double grandTotal;
+    private double savingsSubTotal;
+
+    public void add(PricingTraceEvent event) {
+        events.add(event);
+    }
+
+    // The trace as indented text, one decision per line
+    public String explain() {
+        var text = new StringBuilder();
+        text.append(String.format("Basket %d, rules version %d, %s: total £ %.2f, savings £ %.2f%n",
+                basketId, pricingVersion, moneyMode, grandTotal, savingsSubTotal));
+        for (var event : events) {
+            switch (event.getType()) {
+                case LINE:
+                    text.append(String.format("  %s x %s @ £ %.2f -> %s%n", formatQuantity(event.getQuantity()),
+                            event.getProductName(), event.getUnitPrice(),
+                            event.getDealGroup() < 0 ? "own offers" : "deal group " + event.getDealGroup()));
+                    break;
+                case OFFER:
+                    text.append(String.format("    %s (per %s): %d bundles, %s left, £ %.2f each%n", event.getRuleName(),
+                            formatQuantity(event.getRuleQuantity()), event.getBundles(),
+                            formatQuantity(event.getRemainingQuantity()), event.getDeduction()));
+                    break;
+                case DEAL_GROUP:
+                    text.append(String.format("  deal group %d %s (%s for £ %.2f): %s units, %d bundles%n", event.getDealGroup(),
+                            event.getRuleName(), formatQuantity(event.getRuleQuantity()), event.getAmount(),
+                            formatQuantity(event.getQuantity()), event.getBundles()));
+                    break;
+                case GROUP_BUNDLE:
+                    text.append(String.format("    %d x bundle of", event.getBundles()));
+                    for (var unitPrice : event.getUnitPrices()) {
+                        text.append(String.format(" %.2f", unitPrice));
+                    }
+                    text.append(String.format(": £ %.2f each%n", event.getDeduction()));
+                    break;
+                case FULL_PRICE_UNITS:
+                    text.append(String.format("    %s units at full price: £ %.2f%n", formatQuantity(event.getQuantity()),
+                            event.getAmount()));
+                    break;
+            }
+        }
+        return text.toString();
+    }
+
+    private static String formatQuantity(double quantity) {
+        return quantity == Math.rint(quantity) ? Long.toString((long) quantity) : Double.toString(quantity);
+    }
+}
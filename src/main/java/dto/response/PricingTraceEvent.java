@@ -0,0 +1,90 @@
+package dto.response;
+
+import entity.PricingStructure;
+import entity.PricingTraceEventType;
+import entity.Product;
+import lombok.*;
+
+// One decision in a PricingTrace. Which fields are filled in depends on the type; the factories below show which.
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PricingTraceEvent {
+    private PricingTraceEventType type;
+    private long productId;
+    private String productName;
+    // Deal group index of a LINE or DEAL_GROUP, -1 for a line priced by its own offers
+    private int dealGroup;
+    private String ruleName;
+    // Line quantity, pooled deal group units or leftover units
+    private double quantity;
+    private double unitPrice;
+    private double ruleQuantity;
+    private long bundles;
+    // What was left of the line after an OFFER
+    private double remainingQuantity;
+    // Unit prices that went into one GROUP_BUNDLE, cheapest first
+    private double[] unitPrices;
+    // Savings per bundle, negative like the receipt's deductions
+    private double deduction;
+    private double amount;
+
+    public static PricingTraceEvent line(Product product, double quantity, int dealGroup) {
+        return PricingTraceEvent.builder()
+                .type(PricingTraceEventType.LINE)
+                .productId(product.getId())
+                .productName(product.getName())
+                .quantity(quantity)
+                .unitPrice(product.getPrice())
+                .dealGroup(dealGroup)
+                .build();
+    }
+
+    public static PricingTraceEvent offer(Product product, PricingStructure pricing, long bundles, double remainingQuantity, double deduction) {
+        return PricingTraceEvent.builder()
+                .type(PricingTraceEventType.OFFER)
+                .productId(product.getId())
+                .productName(product.getName())
+                .dealGroup(-1)
+                .ruleName(pricing.getName())
+                .ruleQuantity(pricing.getQuantity())
+                .bundles(bundles)
+                .remainingQuantity(remainingQuantity)
+                .deduction(deduction)
+                .build();
+    }
+
+    public static PricingTraceEvent dealGroup(int dealGroup, PricingStructure pricing, long units, long bundles) {
+        return PricingTraceEvent.builder()
+                .type(PricingTraceEventType.DEAL_GROUP)
+                .dealGroup(dealGroup)
+                .ruleName(pricing.getName())
+                .ruleQuantity(pricing.getQuantity())
+                .quantity(units)
+                .bundles(bundles)
+                .amount(pricing.getPrice())
+                .build();
+    }
+
+    public static PricingTraceEvent groupBundle(PricingStructure pricing, long bundles, double[] unitPrices, double deduction) {
+        return PricingTraceEvent.builder()
+                .type(PricingTraceEventType.GROUP_BUNDLE)
+                .dealGroup(-1)
+                .ruleName(pricing.getName())
+                .bundles(bundles)
+                .unitPrices(unitPrices)
+                .deduction(deduction)
+                .build();
+    }
+
+    public static PricingTraceEvent fullPriceUnits(long units, double amount) {
+        return PricingTraceEvent.builder()
+                .type(PricingTraceEventType.FULL_PRICE_UNITS)
+                .dealGroup(-1)
+                .quantity(units)
+                .amount(amount)
+                .build();
+    }
+}
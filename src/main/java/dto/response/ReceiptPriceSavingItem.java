@@ -11,4 +11,8 @@ public class ReceiptPriceSavingItem {
     private String name;
     private long count;
     private double deduction;
+
+    public ReceiptPriceSavingItem copy() {
+        return new ReceiptPriceSavingItem(name, count, deduction);
+    }
 }
@@ -11,4 +11,47 @@ public class ReceiptProductItem {
     private String name;
     private double price;
     private int quantity;
+
+    // Weighed lines keep the parts of their display name and only format it when it is read
+    private boolean weighed;
+    private double weightKg;
+    private double pricePerKg;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private String formattedName;
+
+    public static ReceiptProductItem weighed(String name, double weightKg, double pricePerKg, double price) {
+        return ReceiptProductItem.builder()
+                .name(name)
+                .weighed(true)
+                .weightKg(weightKg)
+                .pricePerKg(pricePerKg)
+                .price(price)
+                .quantity((int) Math.ceil(weightKg))
+                .build();
+    }
+
+    public ReceiptProductItem copy() {
+        return new ReceiptProductItem(name, price, quantity, weighed, weightKg, pricePerKg, formattedName);
+    }
+
+    public String getName() {
+        if (!weighed) {
+            return name;
+        }
+        if (formattedName == null) {
+            formattedName = String.format("%s %.2f kg @ £ %.2f/kg", name, weightKg, pricePerKg);
+        }
+        return formattedName;
+    }
+
+    // The product name without the weight and unit price of a weighed line
+    public String getProductName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+        this.formattedName = null;
+    }
 }
@@ -1,6 +1,8 @@
 package dto.response;
 
 import lombok.*;
+
+import java.util.ArrayList;
 import java.util.List;
 
 @Getter
@@ -14,4 +16,30 @@ public class ReceiptResponse {
     private double productSubTotal;
     private double savingsSubTotal;
     private double grandTotal;
+    private long pricingVersion;
+
+    // Exact totals in pence, filled in by MoneyMode.FIXED_POINT
+    private long productSubTotalMinor;
+    private long savingsSubTotalMinor;
+    private long grandTotalMinor;
+
+    // A deep copy, for handing out a receipt that is also kept elsewhere
+    public ReceiptResponse copy() {
+        List<ReceiptProductItem> productItemsCopy = null;
+        if (productItems != null) {
+            productItemsCopy = new ArrayList<>(productItems.size());
+            for (var item : productItems) {
+                productItemsCopy.add(item.copy());
+            }
+        }
+        List<ReceiptPriceSavingItem> savingsItemsCopy = null;
+        if (savingsItems != null) {
+            savingsItemsCopy = new ArrayList<>(savingsItems.size());
+            for (var item : savingsItems) {
+                savingsItemsCopy.add(item.copy());
+            }
+        }
+        return new ReceiptResponse(productItemsCopy, savingsItemsCopy, productSubTotal, savingsSubTotal, grandTotal,
+                pricingVersion, productSubTotalMinor, savingsSubTotalMinor, grandTotalMinor);
+    }
 }
@@ -0,0 +1,23 @@
+package dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RepricingSummary {
+    private long basketCount;
+    // Baskets naming a product the lookup did not know; they are written out as REJECTED and not priced
+    private long rejectedBaskets;
+    private long lineCount;
+    private double productSubTotal;
+    private double savingsSubTotal;
+    private double grandTotal;
+    private long elapsedNanos;
+
+    public double getBasketsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : basketCount * 1_000_000_000.0 / elapsedNanos;
+    }
+}
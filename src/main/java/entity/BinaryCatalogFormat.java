@@ -0,0 +1,21 @@
+package entity;
+
+// Layout of the binary catalog file, shared by services.BinaryCatalogWriter and MappedCatalog:
+//   header      magic, format version, counts and section offsets
+//   products    fixed-width records sorted by id: id, price, name ref, first rule, rule count, category, flags
+//   rules       fixed-width records: quantity, new quantity, price, name ref
+//   categories  one rule index per ProductCategory ordinal, -1 when the category has no deal
+//   strings     UTF-8 names, each distinct name stored once, running to the end of the file
+// All values are big-endian.
+public final class BinaryCatalogFormat {
+    public static final int MAGIC = 0x53504354;
+    public static final int FORMAT_VERSION = 1;
+    public static final int HEADER_BYTES = 36;
+    public static final int PRODUCT_BYTES = 40;
+    public static final int RULE_BYTES = 32;
+    public static final int MEASURED_FLAG = 1;
+    public static final int NO_CATEGORY = -1;
+
+    private BinaryCatalogFormat() {
+    }
+}
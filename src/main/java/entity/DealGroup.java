@@ -0,0 +1,19 @@
+package entity;
+
+import lombok.*;
+
+import java.util.Set;
+
+// A named "any N from the set" promotion. A product may sit in many groups; a basket line joins only one of them,
+// the one with the lowest priority value, with ties going to the group listed first.
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DealGroup {
+    private String name;
+    private PricingStructure pricing;
+    private Set<Long> productIds;
+    private int priority;
+}
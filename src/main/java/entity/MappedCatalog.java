@@ -0,0 +1,325 @@
+package entity;
+
+import interfaces.PricingRules;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static entity.BinaryCatalogFormat.*;
+
+// Read-only catalog over a file written by BinaryCatalogWriter. The file is memory-mapped and nothing is copied onto
+// the heap except the category deals, so opening is constant time. A product's rules are decoded the first time it
+// is priced and kept in a fixed number of cache slots, so heap use is bounded by the cache, not by the catalog size.
+// A product's dense index is its position in the id-sorted product table, found by binary search.
+// The header's section offsets and lengths are checked against the file size when it is opened.
+public final class MappedCatalog implements PricingRules {
+    public static final int DEFAULT_CACHE_SLOTS = 4096;
+    private static final PricingStructure[] NO_PRICINGS = new PricingStructure[0];
+
+    private final ByteBuffer buffer;
+    private final int productCount;
+    private final int ruleCount;
+    private final int ruleTable;
+    private final int stringPool;
+    private final EnumMap<ProductCategory, PricingStructure> categoryPricing;
+    // Direct-mapped cache of decoded rules, slot = index & mask; shared by every version over the same file
+    private final AtomicReferenceArray<CachedPricings> productPricings;
+    private final int cacheMask;
+    private final long version;
+
+    private MappedCatalog(ByteBuffer buffer, int productCount, int ruleCount, int ruleTable, int stringPool,
+                          EnumMap<ProductCategory, PricingStructure> categoryPricing,
+                          AtomicReferenceArray<CachedPricings> productPricings, long version) {
+        this.buffer = buffer;
+        this.productCount = productCount;
+        this.ruleCount = ruleCount;
+        this.ruleTable = ruleTable;
+        this.stringPool = stringPool;
+        this.categoryPricing = categoryPricing;
+        this.productPricings = productPricings;
+        this.cacheMask = productPricings.length() - 1;
+        this.version = version;
+    }
+
+    public static MappedCatalog open(Path path) throws IOException {
+        return open(path, DEFAULT_CACHE_SLOTS);
+    }
+
+    // cacheSlots is rounded up to a power of two
+    public static MappedCatalog open(Path path, int cacheSlots) throws IOException {
+        if (cacheSlots < 1 || cacheSlots > 1 << 30) {
+            throw new IllegalArgumentException("cacheSlots must be from 1 to 2^30");
+        }
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Catalog larger than 2 GB: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a binary catalog: " + path);
+            }
+            if (buffer.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Unsupported catalog format " + buffer.getInt(4) + ": " + path);
+            }
+
+            var productCount = buffer.getInt(8);
+            var ruleCount = buffer.getInt(12);
+            var categoryCount = buffer.getInt(16);
+            var ruleTable = buffer.getInt(24);
+            var categoryTable = buffer.getInt(28);
+            var stringPool = buffer.getInt(32);
+            if (buffer.getInt(20) != HEADER_BYTES) {
+                throw new IOException("Corrupt catalog header: " + path);
+            }
+            // The sections follow each other in file order, so each offset must be where the previous section ends
+            checkSection(path, "product", HEADER_BYTES, productCount, PRODUCT_BYTES, ruleTable, buffer.capacity());
+            checkSection(path, "rule", ruleTable, ruleCount, RULE_BYTES, categoryTable, buffer.capacity());
+            checkSection(path, "category", categoryTable, categoryCount, Integer.BYTES, stringPool, buffer.capacity());
+
+            var catalog = new MappedCatalog(buffer, productCount, ruleCount, ruleTable, stringPool,
+                    new EnumMap<>(ProductCategory.class), new AtomicReferenceArray<>(Integer.highestOneBit(cacheSlots * 2 - 1)), 0);
+            var categories = ProductCategory.values();
+            for (int i = 0; i < Math.min(categoryCount, categories.length); i++) {
+                var ruleIndex = buffer.getInt(categoryTable + i * Integer.BYTES);
+                if (ruleIndex >= ruleCount) {
+                    throw new IOException("Category " + categories[i] + " points at rule " + ruleIndex + " of " + ruleCount + ": " + path);
+                }
+                if (ruleIndex >= 0) {
+                    catalog.categoryPricing.put(categories[i], catalog.newPricingRuleView().moveTo(ruleIndex).toPricingStructure());
+                }
+            }
+            return catalog;
+        }
+    }
+
+    private static void checkSection(Path path, String section, int offset, int count, int recordBytes, long end, long fileSize) throws IOException {
+        if (count < 0 || (long) offset + (long) count * recordBytes != end || end > fileSize) {
+            throw new IOException("Corrupt catalog: " + count + " " + section + " records at offset " + offset
+                    + " do not end at " + end + " within " + fileSize + " bytes: " + path);
+        }
+    }
+
+    @Override
+    public MappedCatalog withVersion(long version) {
+        return new MappedCatalog(buffer, productCount, ruleCount, ruleTable, stringPool, categoryPricing, productPricings, version);
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return productCount;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    @Override
+    public int indexOf(long productId) {
+        var low = 0;
+        var high = productCount - 1;
+        while (low <= high) {
+            var mid = (low + high) >>> 1;
+            var id = buffer.getLong(productRecord(mid));
+            if (id < productId) {
+                low = mid + 1;
+            } else if (id > productId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // Decodes the product's rules on first use and hands out the cached array while it keeps its slot; callers must not
+    // modify it. A product that collides with another in the cache is decoded again, and two threads racing on a slot
+    // may both decode, which is harmless.
+    @Override
+    public PricingStructure[] getProductPricings(int index) {
+        if (index < 0) {
+            return NO_PRICINGS;
+        }
+        var slot = index & cacheMask;
+        var cached = productPricings.get(slot);
+        if (cached != null && cached.index == index) {
+            return cached.pricings;
+        }
+        var pricings = decodeProductPricings(index);
+        productPricings.set(slot, new CachedPricings(index, pricings));
+        return pricings;
+    }
+
+    private PricingStructure[] decodeProductPricings(int index) {
+        var record = productRecord(index);
+        var count = buffer.getInt(record + 28);
+        if (count == 0) {
+            return NO_PRICINGS;
+        }
+        var first = buffer.getInt(record + 24);
+        var view = newPricingRuleView();
+        var pricings = new PricingStructure[count];
+        for (int i = 0; i < count; i++) {
+            pricings[i] = view.moveTo(first + i).toPricingStructure();
+        }
+        return pricings;
+    }
+
+    @Override
+    public boolean isCategoryDealProduct(int index, ProductCategory category) {
+        return index >= 0 && category != null && (buffer.getInt(productRecord(index) + 36) >>> 8 & (1 << category.ordinal())) != 0;
+    }
+
+    @Override
+    public PricingStructure getCategoryPricing(ProductCategory category) {
+        return categoryPricing.get(category);
+    }
+
+    public ProductView newProductView() {
+        return new ProductView();
+    }
+
+    public PricingRuleView newPricingRuleView() {
+        return new PricingRuleView();
+    }
+
+    private int productRecord(int index) {
+        return HEADER_BYTES + index * PRODUCT_BYTES;
+    }
+
+    private String string(int offset, int length) {
+        var bytes = new byte[length];
+        buffer.duplicate().position(stringPool + offset).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class CachedPricings {
+        private final int index;
+        private final PricingStructure[] pricings;
+
+        private CachedPricings(int index, PricingStructure[] pricings) {
+            this.index = index;
+            this.pricings = pricings;
+        }
+    }
+
+    // Flyweight over one product record. moveTo() repositions it, so one view can walk the whole catalog.
+    public final class ProductView {
+        private int record = -1;
+        private int index = -1;
+
+        private ProductView() {
+        }
+
+        public ProductView moveTo(int index) {
+            if (index < 0 || index >= productCount) {
+                throw new IndexOutOfBoundsException("Product " + index + " of " + productCount);
+            }
+            this.index = index;
+            this.record = productRecord(index);
+            return this;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getId() {
+            return buffer.getLong(record);
+        }
+
+        public double getPrice() {
+            return buffer.getDouble(record + 8);
+        }
+
+        public String getName() {
+            return string(buffer.getInt(record + 16), buffer.getInt(record + 20));
+        }
+
+        public int getRuleCount() {
+            return buffer.getInt(record + 28);
+        }
+
+        // Moves the given view onto this product's n-th rule
+        public PricingRuleView rule(int n, PricingRuleView view) {
+            if (n < 0 || n >= getRuleCount()) {
+                throw new IndexOutOfBoundsException("Rule " + n + " of " + getRuleCount());
+            }
+            return view.moveTo(buffer.getInt(record + 24) + n);
+        }
+
+        public ProductCategory getCategory() {
+            var ordinal = buffer.getInt(record + 32);
+            return ordinal == NO_CATEGORY ? null : ProductCategory.values()[ordinal];
+        }
+
+        public boolean isMeasuredPerKg() {
+            return (buffer.getInt(record + 36) & MEASURED_FLAG) != 0;
+        }
+
+        public boolean isCategoryDealProduct(ProductCategory category) {
+            return MappedCatalog.this.isCategoryDealProduct(index, category);
+        }
+
+        public Product toProduct() {
+            return Product.builder()
+                    .id(getId())
+                    .name(getName())
+                    .price(getPrice())
+                    .measuredPerKg(isMeasuredPerKg())
+                    .Category(getCategory())
+                    .build();
+        }
+    }
+
+    // Flyweight over one pricing rule record
+    public final class PricingRuleView {
+        private int record = -1;
+
+        private PricingRuleView() {
+        }
+
+        public PricingRuleView moveTo(int index) {
+            if (index < 0 || index >= ruleCount) {
+                throw new IndexOutOfBoundsException("Rule " + index + " of " + ruleCount);
+            }
+            this.record = ruleTable + index * RULE_BYTES;
+            return this;
+        }
+
+        public double getQuantity() {
+            return buffer.getDouble(record);
+        }
+
+        public double getNewQuantity() {
+            return buffer.getDouble(record + 8);
+        }
+
+        public double getPrice() {
+            return buffer.getDouble(record + 16);
+        }
+
+        public String getName() {
+            return string(buffer.getInt(record + 24), buffer.getInt(record + 28));
+        }
+
+        public PricingStructure toPricingStructure() {
+            return PricingStructure.builder()
+                    .name(getName())
+                    .quantity(getQuantity())
+                    .newQuantity(getNewQuantity())
+                    .price(getPrice())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package entity;
+
+public enum MoneyMode {
+    DOUBLE,
+    FIXED_POINT
+}
@@ -0,0 +1,152 @@
+package entity;
+
+import util.LongDoubleHashMap;
+import util.LongIntHashMap;
+import util.Money;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Immutable, compiled price overrides that sit on top of Product.getPrice. Only overridden products are stored, so
+// no tier or store gets its own copy of the catalog. A line's unit price is the first of these that exists:
+//   (store, tier) override, (store, any tier) override, (any store, tier) override, (any store, any tier) override,
+//   the shelf price
+// The tier's percentage discount, such as a staff discount, then applies to the result, rounded half up to the penny.
+// Each product with overrides gets a dense index; its any-store prices sit in a flat array with one slot per tier,
+// and store prices are in a long-keyed table under (index, store, tier), so resolving a line is at most three hash
+// probes and two array reads.
+public final class PriceBook {
+    public static final int ANY = 0;
+    public static final int MAX_TIER = 255;
+    public static final int MAX_STORE_ID = (1 << 24) - 1;
+    public static final PriceBook EMPTY = compile(List.of(), Map.of());
+
+    private final LongIntHashMap productIndex;
+    // anyStorePrices[index * tierSlots + tier], NaN where there is no override
+    private final double[] anyStorePrices;
+    private final int tierSlots;
+    private final LongDoubleHashMap storePrices;
+    // Price multiplier per tier; 1 for tiers without a discount
+    private final double[] tierFactors;
+
+    private PriceBook(LongIntHashMap productIndex, double[] anyStorePrices, int tierSlots, LongDoubleHashMap storePrices,
+                      double[] tierFactors) {
+        this.productIndex = productIndex;
+        this.anyStorePrices = anyStorePrices;
+        this.tierSlots = tierSlots;
+        this.storePrices = storePrices;
+        this.tierFactors = tierFactors;
+    }
+
+    // tierDiscountPercent maps a tier to the percentage taken off every price it resolves, 0 to 100
+    public static PriceBook compile(List<PriceOverride> overrides, Map<Integer, Double> tierDiscountPercent) {
+        overrides = overrides == null ? List.of() : overrides;
+        tierDiscountPercent = tierDiscountPercent == null ? Map.of() : tierDiscountPercent;
+
+        var productIndex = new LongIntHashMap(overrides.size());
+        var products = 0;
+        var maxTier = 0;
+        var anyStore = new ArrayList<PriceOverride>();
+        var storePrices = new LongDoubleHashMap(overrides.size());
+        for (var override : overrides) {
+            checkTier(override.getTier());
+            if (override.getStoreId() < 0 || override.getStoreId() > MAX_STORE_ID) {
+                throw new IllegalArgumentException("Store ids must be between 0 and " + MAX_STORE_ID + ": " + override.getStoreId());
+            }
+            if (!Double.isFinite(override.getPrice()) || override.getPrice() < 0) {
+                throw new IllegalArgumentException("Override prices must be finite and non-negative: " + override.getPrice());
+            }
+            var index = productIndex.get(override.getProductId());
+            if (index == LongIntHashMap.MISSING) {
+                index = products++;
+                productIndex.put(override.getProductId(), index);
+            }
+            if (override.getStoreId() == ANY) {
+                maxTier = Math.max(maxTier, override.getTier());
+                anyStore.add(override);
+            } else {
+                storePrices.put(storeKey(index, override.getStoreId(), override.getTier()), override.getPrice());
+            }
+        }
+
+        var tierSlots = maxTier + 1;
+        var anyStorePrices = new double[products * tierSlots];
+        Arrays.fill(anyStorePrices, Double.NaN);
+        for (var override : anyStore) {
+            anyStorePrices[productIndex.get(override.getProductId()) * tierSlots + override.getTier()] = override.getPrice();
+        }
+
+        var maxDiscountedTier = tierDiscountPercent.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        var tierFactors = new double[maxDiscountedTier + 1];
+        Arrays.fill(tierFactors, 1);
+        tierDiscountPercent.forEach((tier, percent) -> {
+            checkTier(tier);
+            if (tier == ANY) {
+                throw new IllegalArgumentException("A discount needs a tier");
+            }
+            if (percent == null || !(percent >= 0 && percent <= 100)) {
+                throw new IllegalArgumentException("Discount for tier " + tier + " must be between 0 and 100: " + percent);
+            }
+            tierFactors[tier] = 1 - percent / 100;
+        });
+        return new PriceBook(productIndex, anyStorePrices, tierSlots, storePrices, tierFactors);
+    }
+
+    // Unit price of the product for a customer of tier shopping at storeId; ANY for either skips that layer
+    public double resolve(Product product, int tier, int storeId) {
+        var price = product.getPrice();
+        var index = productIndex.get(product.getId());
+        if (index != LongIntHashMap.MISSING) {
+            price = overridePrice(index, tier, storeId, price);
+        }
+        if (tier > 0 && tier < tierFactors.length && tierFactors[tier] != 1) {
+            price = Money.toPounds(Money.toPence(price * tierFactors[tier]));
+        }
+        return price;
+    }
+
+    // Whether resolve can differ from the shelf price for this product and tier at some store
+    public boolean affects(long productId, int tier) {
+        return productIndex.containsKey(productId) || tier > 0 && tier < tierFactors.length && tierFactors[tier] != 1;
+    }
+
+    public int getOverriddenProductCount() {
+        return anyStorePrices.length / tierSlots;
+    }
+
+    private double overridePrice(int index, int tier, int storeId, double shelfPrice) {
+        if (storeId > 0 && storeId <= MAX_STORE_ID && storePrices.size() > 0) {
+            if (tier > 0 && tier <= MAX_TIER) {
+                var price = storePrices.get(storeKey(index, storeId, tier));
+                if (!Double.isNaN(price)) {
+                    return price;
+                }
+            }
+            var price = storePrices.get(storeKey(index, storeId, ANY));
+            if (!Double.isNaN(price)) {
+                return price;
+            }
+        }
+        var base = index * tierSlots;
+        if (tier > 0 && tier < tierSlots) {
+            var price = anyStorePrices[base + tier];
+            if (!Double.isNaN(price)) {
+                return price;
+            }
+        }
+        var price = anyStorePrices[base];
+        return Double.isNaN(price) ? shelfPrice : price;
+    }
+
+    private static long storeKey(int index, int storeId, int tier) {
+        return (long) index << 32 | (long) storeId << 8 | tier;
+    }
+
+    private static void checkTier(int tier) {
+        if (tier < 0 || tier > MAX_TIER) {
+            throw new IllegalArgumentException("Tiers must be between 0 and " + MAX_TIER + ": " + tier);
+        }
+    }
+}
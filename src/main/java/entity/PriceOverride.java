@@ -0,0 +1,16 @@
+package entity;
+
+import lombok.*;
+
+// Replaces a product's shelf price for one customer tier, one store, or both. Tier and store 0 mean "any".
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriceOverride {
+    private long productId;
+    private int tier;
+    private int storeId;
+    private double price;
+}
@@ -0,0 +1,227 @@
+package entity;
+
+import interfaces.PricingRules;
+import util.LongIntHashMap;
+
+import java.util.*;
+
+// Immutable, compiled form of the pricing maps. Every product id that has a rule gets a dense index,
+// so a basket line resolves its product pricings and category deal membership with one hash lookup.
+// Named deal groups are inverted into a CSR index (per product, the range of group ids it belongs to, lowest id
+// first), so finding a line's group costs the same however many groups are active.
+public final class PricingCatalog implements PricingRules {
+    private static final PricingStructure[] NO_PRICINGS = new PricingStructure[0];
+
+    private final LongIntHashMap productIndex;
+    private final PricingStructure[][] productPricings;
+    private final int[] categoryDealMask;
+    private final EnumMap<ProductCategory, PricingStructure> categoryPricing;
+    private final EnumMap<ProductCategory, long[]> categoryProductIds;
+    // Named group g has id CATEGORIES.length + g; groupOffsets has one more entry than there are products
+    private final int[] groupOffsets;
+    private final int[] groupMembers;
+    private final PricingStructure[] groupPricing;
+    private final String[] groupNames;
+    private final long version;
+
+    private PricingCatalog(LongIntHashMap productIndex, PricingStructure[][] productPricings, int[] categoryDealMask,
+                           EnumMap<ProductCategory, PricingStructure> categoryPricing, EnumMap<ProductCategory, long[]> categoryProductIds,
+                           int[] groupOffsets, int[] groupMembers, PricingStructure[] groupPricing, String[] groupNames, long version) {
+        this.productIndex = productIndex;
+        this.productPricings = productPricings;
+        this.categoryDealMask = categoryDealMask;
+        this.categoryPricing = categoryPricing;
+        this.categoryProductIds = categoryProductIds;
+        this.groupOffsets = groupOffsets;
+        this.groupMembers = groupMembers;
+        this.groupPricing = groupPricing;
+        this.groupNames = groupNames;
+        this.version = version;
+    }
+
+    public static PricingCatalog compile(Map<Long, List<PricingStructure>> uniProductPricing,
+                                         Map<ProductCategory, PricingStructure> productCategoryPricing,
+                                         Map<ProductCategory, Set<Long>> productCategoryProductSet) {
+        return compile(uniProductPricing, productCategoryPricing, productCategoryProductSet, List.of());
+    }
+
+    // The category deals keep their behaviour and take precedence: a product in its own category's deal set always
+    // pools there. Any other line joins its highest-priority named group.
+    public static PricingCatalog compile(Map<Long, List<PricingStructure>> uniProductPricing,
+                                         Map<ProductCategory, PricingStructure> productCategoryPricing,
+                                         Map<ProductCategory, Set<Long>> productCategoryProductSet,
+                                         List<DealGroup> dealGroups) {
+        uniProductPricing = uniProductPricing == null ? Map.of() : uniProductPricing;
+        productCategoryPricing = productCategoryPricing == null ? Map.of() : productCategoryPricing;
+        productCategoryProductSet = productCategoryProductSet == null ? Map.of() : productCategoryProductSet;
+        var groups = dealGroups == null ? new ArrayList<DealGroup>() : new ArrayList<>(dealGroups);
+        // Stable, so equal priorities keep their listed order; a group's id is its position after the sort
+        groups.sort(Comparator.comparingInt(DealGroup::getPriority));
+
+        var productIndex = new LongIntHashMap(uniProductPricing.size());
+        var ids = new ArrayList<Long>();
+        for (var id : uniProductPricing.keySet()) {
+            register(productIndex, ids, id);
+        }
+
+        var categoryPricing = new EnumMap<ProductCategory, PricingStructure>(ProductCategory.class);
+        var categoryProductIds = new EnumMap<ProductCategory, long[]>(ProductCategory.class);
+        for (var entry : productCategoryProductSet.entrySet()) {
+            var pricing = productCategoryPricing.get(entry.getKey());
+            if (pricing == null) {
+                throw new IllegalArgumentException("No category pricing for product set " + entry.getKey());
+            }
+            categoryPricing.put(entry.getKey(), copyOf(pricing));
+            categoryProductIds.put(entry.getKey(), entry.getValue().stream().mapToLong(Long::longValue).sorted().toArray());
+            for (var id : entry.getValue()) {
+                register(productIndex, ids, id);
+            }
+        }
+
+        var groupPricing = new PricingStructure[groups.size()];
+        var groupNames = new String[groups.size()];
+        var names = new HashSet<String>();
+        for (int g = 0; g < groups.size(); g++) {
+            var group = groups.get(g);
+            if (group.getName() == null || !names.add(group.getName())) {
+                throw new IllegalArgumentException("Deal group names must be present and unique: " + group.getName());
+            }
+            if (group.getPricing() == null) {
+                throw new IllegalArgumentException("No pricing for deal group " + group.getName());
+            }
+            groupPricing[g] = copyOf(group.getPricing());
+            groupNames[g] = group.getName();
+            for (var id : productIdsOf(group)) {
+                register(productIndex, ids, id);
+            }
+        }
+
+        var productPricings = new PricingStructure[ids.size()][];
+        var categoryDealMask = new int[ids.size()];
+        for (int i = 0; i < ids.size(); i++) {
+            var pricings = uniProductPricing.get(ids.get(i));
+            productPricings[i] = pricings == null || pricings.isEmpty()
+                    ? NO_PRICINGS
+                    : pricings.stream().map(PricingCatalog::copyOf).toArray(PricingStructure[]::new);
+        }
+        categoryProductIds.forEach((category, productIds) -> {
+            for (var id : productIds) {
+                categoryDealMask[productIndex.get(id)] |= 1 << category.ordinal();
+            }
+        });
+
+        // Counting sort of (product, group) pairs into CSR form; groups are visited in id order, so each product's
+        // range comes out sorted and its first entry is the group that takes the line
+        var groupOffsets = new int[ids.size() + 1];
+        for (var group : groups) {
+            for (var id : productIdsOf(group)) {
+                groupOffsets[productIndex.get(id) + 1]++;
+            }
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            groupOffsets[i + 1] += groupOffsets[i];
+        }
+        var groupMembers = new int[groupOffsets[ids.size()]];
+        var fill = Arrays.copyOf(groupOffsets, ids.size());
+        for (int g = 0; g < groups.size(); g++) {
+            for (var id : productIdsOf(groups.get(g))) {
+                groupMembers[fill[productIndex.get(id)]++] = CATEGORIES.length + g;
+            }
+        }
+
+        return new PricingCatalog(productIndex, productPricings, categoryDealMask, categoryPricing, categoryProductIds,
+                groupOffsets, groupMembers, groupPricing, groupNames, 0);
+    }
+
+    // Same compiled rules under another version; the arrays are never written after compile, so they are shared
+    @Override
+    public PricingCatalog withVersion(long version) {
+        return new PricingCatalog(productIndex, productPricings, categoryDealMask, categoryPricing, categoryProductIds,
+                groupOffsets, groupMembers, groupPricing, groupNames, version);
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int indexOf(long productId) {
+        return productIndex.get(productId);
+    }
+
+    @Override
+    public PricingStructure[] getProductPricings(int index) {
+        return index < 0 ? NO_PRICINGS : productPricings[index];
+    }
+
+    @Override
+    public boolean isCategoryDealProduct(int index, ProductCategory category) {
+        return index >= 0 && category != null && (categoryDealMask[index] & (1 << category.ordinal())) != 0;
+    }
+
+    @Override
+    public PricingStructure getCategoryPricing(ProductCategory category) {
+        return categoryPricing.get(category);
+    }
+
+    @Override
+    public int dealGroupOf(int index, ProductCategory category) {
+        if (index < 0) {
+            return -1;
+        }
+        if (isCategoryDealProduct(index, category)) {
+            return category.ordinal();
+        }
+        return groupOffsets[index] < groupOffsets[index + 1] ? groupMembers[groupOffsets[index]] : -1;
+    }
+
+    @Override
+    public PricingStructure getDealGroupPricing(int group) {
+        return group < CATEGORIES.length ? categoryPricing.get(CATEGORIES[group]) : groupPricing[group - CATEGORIES.length];
+    }
+
+    @Override
+    public int getDealGroupCount() {
+        return CATEGORIES.length + groupPricing.length;
+    }
+
+    public String getDealGroupName(int group) {
+        return group < CATEGORIES.length ? CATEGORIES[group].name() : groupNames[group - CATEGORIES.length];
+    }
+
+    // Every named group the product belongs to, in the order they claim a line; empty when it is in none
+    public int[] getDealGroupsOf(long productId) {
+        var index = productIndex.get(productId);
+        return index < 0 ? new int[0] : Arrays.copyOfRange(groupMembers, groupOffsets[index], groupOffsets[index + 1]);
+    }
+
+    public boolean isCategoryDealProduct(ProductCategory category, long productId) {
+        var productIds = categoryProductIds.get(category);
+        return productIds != null && Arrays.binarySearch(productIds, productId) >= 0;
+    }
+
+    public int size() {
+        return productPricings.length;
+    }
+
+    private static void register(LongIntHashMap productIndex, List<Long> ids, long id) {
+        if (!productIndex.containsKey(id)) {
+            productIndex.put(id, ids.size());
+            ids.add(id);
+        }
+    }
+
+    private static Set<Long> productIdsOf(DealGroup group) {
+        return group.getProductIds() == null ? Set.of() : group.getProductIds();
+    }
+
+    private static PricingStructure copyOf(PricingStructure pricing) {
+        return PricingStructure.builder()
+                .name(pricing.getName())
+                .quantity(pricing.getQuantity())
+                .newQuantity(pricing.getNewQuantity())
+                .price(pricing.getPrice())
+                .build();
+    }
+}
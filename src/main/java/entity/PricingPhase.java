@@ -0,0 +1,9 @@
+package entity;
+
+public enum PricingPhase {
+    LINE_PRICING,
+    CATEGORY_GROUPING,
+    CATEGORY_BUNDLES,
+    RECEIPT_BUILD,
+    TOTAL
+}
@@ -12,4 +12,8 @@ public class PricingStructure {
     private double quantity;
     private double newQuantity;
     private double price;
+
+    // When the rule is live, or null for always. Only PricingCatalogStore honours it, through a PromotionTimeline;
+    // PricingCatalog.compile treats every rule it is given as live.
+    private PromotionSchedule schedule;
 }
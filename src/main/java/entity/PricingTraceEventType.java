@@ -0,0 +1,14 @@
+package entity;
+
+public enum PricingTraceEventType {
+    // A basket line and where it was sent: its own offers, or a deal group
+    LINE,
+    // One of a line's offers tried against what was left of the line
+    OFFER,
+    // A deal group's pooled units and the number of bundles they make
+    DEAL_GROUP,
+    // Identical bundles taken by a deal group, with the unit prices that went into one of them
+    GROUP_BUNDLE,
+    // Deal group units left over after the bundles, charged at their own prices
+    FULL_PRICE_UNITS
+}
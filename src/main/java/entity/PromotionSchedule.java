@@ -0,0 +1,58 @@
+package entity;
+
+import lombok.*;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Set;
+
+// When a scheduled pricing rule is live. Every part is optional:
+//   validFrom / validUntil   absolute bounds, until exclusive
+//   daysOfWeek               the days it runs on, all of them when null or empty
+//   dailyStart / dailyEnd    time-of-day window, end exclusive; a window whose end is not after its start runs past
+//                            midnight and belongs to the day it starts on
+// Days and times are read in the zone of the store's clock.
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PromotionSchedule {
+    private Instant validFrom;
+    private Instant validUntil;
+    private Set<DayOfWeek> daysOfWeek;
+    private LocalTime dailyStart;
+    private LocalTime dailyEnd;
+
+    public boolean isActiveAt(Instant instant, ZoneId zone) {
+        if (validFrom != null && instant.isBefore(validFrom)) {
+            return false;
+        }
+        if (validUntil != null && !instant.isBefore(validUntil)) {
+            return false;
+        }
+        if (!isRecurring()) {
+            return true;
+        }
+        var local = LocalDateTime.ofInstant(instant, zone);
+        var day = local.getDayOfWeek();
+        var time = local.toLocalTime();
+        var start = dailyStart == null ? LocalTime.MIDNIGHT : dailyStart;
+        if (dailyEnd == null || dailyEnd.isAfter(start)) {
+            return runsOn(day) && !time.isBefore(start) && (dailyEnd == null || time.isBefore(dailyEnd));
+        }
+        return runsOn(day) && !time.isBefore(start) || runsOn(day.minus(1)) && time.isBefore(dailyEnd);
+    }
+
+    // Whether the rule switches on and off within the days, rather than only at its absolute bounds
+    public boolean isRecurring() {
+        return daysOfWeek != null && !daysOfWeek.isEmpty() || dailyStart != null || dailyEnd != null;
+    }
+
+    private boolean runsOn(DayOfWeek day) {
+        return daysOfWeek == null || daysOfWeek.isEmpty() || daysOfWeek.contains(day);
+    }
+}
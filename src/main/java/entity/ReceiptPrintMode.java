@@ -0,0 +1,6 @@
+package entity;
+
+public enum ReceiptPrintMode {
+    EXPANDED,
+    COMPACT
+}
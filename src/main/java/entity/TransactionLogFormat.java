@@ -0,0 +1,8 @@
+package entity;
+
+public enum TransactionLogFormat {
+    // One basket per line: "<basketId> <productId>:<quantity> <productId>:<quantity> ...", '#' starts a comment line
+    TEXT,
+    // "STXL" magic and format version, then per basket: long basketId, int lineCount, lineCount x (long productId, double quantity)
+    BINARY
+}
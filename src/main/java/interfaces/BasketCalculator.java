@@ -1,9 +1,31 @@
 package interfaces;
 
 import dto.request.Basket;
+import dto.request.CompactBasket;
+import dto.response.BasketTotals;
 import dto.response.ReceiptResponse;
 
+import java.util.ArrayList;
+import java.util.List;
+
 
 public interface BasketCalculator {
     ReceiptResponse calculateBasketPrice (Basket basket);
+
+    default ReceiptResponse calculateBasketPrice(CompactBasket basket) {
+        return calculateBasketPrice(basket.toBasket());
+    }
+
+    // Just the totals of calculateBasketPrice, for previews that never show line items
+    default BasketTotals calculateBasketTotals(Basket basket) {
+        return BasketTotals.of(calculateBasketPrice(basket));
+    }
+
+    default List<ReceiptResponse> calculateBasketPrices(List<Basket> baskets) {
+        var receipts = new ArrayList<ReceiptResponse>(baskets.size());
+        for (var basket : baskets) {
+            receipts.add(calculateBasketPrice(basket));
+        }
+        return receipts;
+    }
 }
@@ -2,7 +2,14 @@ package interfaces;
 
 import dto.response.ReceiptResponse;
 
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
 public interface BasketPrinter {
 
     void printPriceCalculationBreakDown(ReceiptResponse breakdown);
+
+    void printPriceCalculationBreakDown(ReceiptResponse breakdown, Appendable out) throws IOException;
+
+    void printPriceCalculationBreakDown(ReceiptResponse breakdown, WritableByteChannel channel) throws IOException;
 }
@@ -0,0 +1,20 @@
+package interfaces;
+
+import entity.PricingPhase;
+
+// Listener for pricing instrumentation. Calculators only read the clock when isEnabled() is true, so the NO_OP
+// default costs a single predictable branch per basket.
+public interface PricingMetrics {
+    PricingMetrics NO_OP = new PricingMetrics() {
+    };
+
+    default boolean isEnabled() {
+        return false;
+    }
+
+    default void recordPhase(PricingPhase phase, long nanos) {
+    }
+
+    default void recordBasket(int lines, long bundles, int savingsItems) {
+    }
+}
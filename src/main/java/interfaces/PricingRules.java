@@ -0,0 +1,38 @@
+package interfaces;
+
+import entity.PricingStructure;
+import entity.ProductCategory;
+
+// Read side of a compiled rule set, as used while pricing a basket. A product id resolves to a dense index once per
+// line; the index then answers the product's own offers and the deal group that pools its units.
+public interface PricingRules {
+    ProductCategory[] CATEGORIES = ProductCategory.values();
+
+    long getVersion();
+
+    // The same rules under another version, for PricingCatalogStore to stamp on publish
+    PricingRules withVersion(long version);
+
+    // Dense index for the product, or -1 when it has no rules
+    int indexOf(long productId);
+
+    PricingStructure[] getProductPricings(int index);
+
+    boolean isCategoryDealProduct(int index, ProductCategory category);
+
+    PricingStructure getCategoryPricing(ProductCategory category);
+
+    // Deal group that pools the line's units, or -1 when it is priced on its own offers. Group ids below
+    // CATEGORIES.length are the category deals, id = ordinal; rule sets without named groups only have those.
+    default int dealGroupOf(int index, ProductCategory category) {
+        return isCategoryDealProduct(index, category) ? category.ordinal() : -1;
+    }
+
+    default PricingStructure getDealGroupPricing(int group) {
+        return getCategoryPricing(CATEGORIES[group]);
+    }
+
+    default int getDealGroupCount() {
+        return CATEGORIES.length;
+    }
+}
@@ -0,0 +1,17 @@
+package interfaces;
+
+import dto.response.PricingTrace;
+
+// Chooses which baskets get a PricingTrace and keeps the ones recorded. Calculators ask shouldTrace once per basket
+// and price everything else on their normal path, so the NO_OP default costs a single predictable branch.
+public interface PricingTracer {
+    PricingTracer NO_OP = new PricingTracer() {
+    };
+
+    default boolean shouldTrace(long basketId) {
+        return false;
+    }
+
+    default void record(PricingTrace trace) {
+    }
+}
@@ -0,0 +1,8 @@
+package interfaces;
+
+public interface RepricingProgressListener {
+    RepricingProgressListener NONE = (baskets, elapsedNanos, basketsPerSecond) -> {
+    };
+
+    void onProgress(long baskets, long elapsedNanos, double basketsPerSecond);
+}
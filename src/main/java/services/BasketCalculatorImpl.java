@@ -1,151 +1,487 @@
 package services;
 
 import dto.request.Basket;
+import dto.request.CompactBasket;
+import dto.response.BasketTotals;
+import dto.response.PricingTrace;
+import dto.response.PricingTraceEvent;
 import dto.response.ReceiptPriceSavingItem;
 import dto.response.ReceiptProductItem;
 import dto.response.ReceiptResponse;
 import entity.*;
 import interfaces.BasketCalculator;
+import interfaces.PricingMetrics;
+import interfaces.PricingRules;
+import interfaces.PricingTracer;
+import util.Quantities;
 
+import java.time.Clock;
 import java.util.*;
 
 public class BasketCalculatorImpl implements BasketCalculator {
-    private final Map<Long, List<PricingStructure>> uniProductPricing;
-    private final Map<ProductCategory, PricingStructure> productCategoryPricing;
-    private final Map<ProductCategory, Set<Long>> productCategoryProductSet;
+    private final PricingCatalogStore pricingCatalogStore;
+    private final MoneyMode moneyMode;
+    private final PricingMetrics pricingMetrics;
+    private final PricingTracer pricingTracer;
+    private final ThreadLocal<PricingScratch> pricingScratch = ThreadLocal.withInitial(PricingScratch::new);
+
     public BasketCalculatorImpl(Map<Long, List<PricingStructure>> uniProductPricing, Map<ProductCategory, PricingStructure> productCategoryPricing, Map<ProductCategory, Set<Long>> productCategoryProductSet){
-        this.uniProductPricing = uniProductPricing;
-        this.productCategoryPricing = productCategoryPricing;
-        this.productCategoryProductSet = productCategoryProductSet;
+        this(new PricingCatalogStore(uniProductPricing, productCategoryPricing, productCategoryProductSet, List.of(), Clock.systemDefaultZone()));
+    }
+
+    public BasketCalculatorImpl(PricingRules pricingCatalog){
+        this(new PricingCatalogStore(pricingCatalog));
+    }
+
+    public BasketCalculatorImpl(PricingCatalogStore pricingCatalogStore){
+        this(pricingCatalogStore, MoneyMode.DOUBLE);
+    }
+
+    public BasketCalculatorImpl(PricingCatalogStore pricingCatalogStore, MoneyMode moneyMode){
+        this(pricingCatalogStore, moneyMode, PricingMetrics.NO_OP);
+    }
+
+    public BasketCalculatorImpl(PricingCatalogStore pricingCatalogStore, MoneyMode moneyMode, PricingMetrics pricingMetrics){
+        this(pricingCatalogStore, moneyMode, pricingMetrics, PricingTracer.NO_OP);
+    }
+
+    public BasketCalculatorImpl(PricingCatalogStore pricingCatalogStore, MoneyMode moneyMode, PricingMetrics pricingMetrics, PricingTracer pricingTracer){
+        this.pricingCatalogStore = pricingCatalogStore;
+        this.moneyMode = moneyMode;
+        this.pricingMetrics = pricingMetrics;
+        this.pricingTracer = pricingTracer;
+    }
+
+    public PricingCatalogStore getPricingCatalogStore() {
+        return pricingCatalogStore;
     }
 
     @Override
     public ReceiptResponse calculateBasketPrice(Basket basket) {
-        var receiptRes = ReceiptResponse
-                .builder()
-                .productItems(new ArrayList<>())
-                .savingsItems(new ArrayList<>())
+        var traced = pricingTracer.shouldTrace(basket.getBasketId());
+        if (!traced && !pricingMetrics.isEnabled()) {
+            return price(basket);
+        }
+
+        var start = System.nanoTime();
+        var products = new Product[basket.size()];
+        var quantities = new double[basket.size()];
+        var line = 0;
+        for (var entry : basket.entrySet()) {
+            products[line] = entry.getKey();
+            quantities[line++] = entry.getValue();
+        }
+        var receipt = traced ? priceTraced(basket.getBasketId(), products, quantities) : priceInstrumented(products, quantities);
+        if (pricingMetrics.isEnabled()) {
+            recordBasket(receipt, basket.size(), System.nanoTime() - start);
+        }
+        return receipt;
+    }
+
+    @Override
+    public ReceiptResponse calculateBasketPrice(CompactBasket basket) {
+        var traced = pricingTracer.shouldTrace(basket.getBasketId());
+        if (!traced && !pricingMetrics.isEnabled()) {
+            return price(basket);
+        }
+
+        var start = System.nanoTime();
+        var products = new Product[basket.size()];
+        var quantities = new double[basket.size()];
+        for (int line = 0; line < basket.size(); line++) {
+            products[line] = basket.getProduct(line);
+            quantities[line] = basket.getQuantity(line);
+        }
+        var receipt = traced ? priceTraced(basket.getBasketId(), products, quantities) : priceInstrumented(products, quantities);
+        if (pricingMetrics.isEnabled()) {
+            recordBasket(receipt, basket.size(), System.nanoTime() - start);
+        }
+        return receipt;
+    }
+
+    @Override
+    public BasketTotals calculateBasketTotals(Basket basket) {
+        return calculateBasketTotals(basket, new BasketTotals());
+    }
+
+    // Same totals as calculateBasketPrice without building any receipt items or names. Nothing is allocated when
+    // the caller reuses totals.
+    public BasketTotals calculateBasketTotals(Basket basket, BasketTotals totals) {
+        var pricingCatalog = pricingCatalogStore.current();
+        var scratch = pricingScratch.get();
+        try {
+            var receipt = scratch.totalsReceipt(pricingCatalog.getVersion());
+            if (moneyMode == MoneyMode.FIXED_POINT) {
+                FixedPointBasketPricing.calculate(pricingCatalog, basket, scratch, receipt);
+            } else {
+                for (var entry : basket.entrySet()) {
+                    addLineToReceipt(pricingCatalog, scratch, entry.getKey(), entry.getValue(), receipt, null);
+                }
+                addCategoryGroupsToReceipt(pricingCatalog, scratch, receipt, null);
+            }
+            totals.copyFrom(receipt);
+            return totals;
+        } finally {
+            scratch.clear();
+        }
+    }
+
+    private ReceiptResponse price(Basket basket) {
+        // Read the catalog once so the whole basket is priced against a single rule version
+        var pricingCatalog = pricingCatalogStore.current();
+        var scratch = pricingScratch.get();
+        try {
+            if (moneyMode == MoneyMode.FIXED_POINT) {
+                return FixedPointBasketPricing.calculate(pricingCatalog, basket, scratch);
+            }
+
+            var receiptRes = newReceipt(pricingCatalog);
+            for (var entry : basket.entrySet()) {
+                addLineToReceipt(pricingCatalog, scratch, entry.getKey(), entry.getValue(), receiptRes, null);
+            }
+            addCategoryGroupsToReceipt(pricingCatalog, scratch, receiptRes, null);
+            return receiptRes;
+        } finally {
+            scratch.clear();
+        }
+    }
+
+    private ReceiptResponse price(CompactBasket basket) {
+        var pricingCatalog = pricingCatalogStore.current();
+        var scratch = pricingScratch.get();
+        try {
+            if (moneyMode == MoneyMode.FIXED_POINT) {
+                return FixedPointBasketPricing.calculate(pricingCatalog, basket, scratch);
+            }
+
+            var receiptRes = newReceipt(pricingCatalog);
+            for (int line = 0; line < basket.size(); line++) {
+                addLineToReceipt(pricingCatalog, scratch, basket.getProduct(line), basket.getQuantity(line), receiptRes, null);
+            }
+            addCategoryGroupsToReceipt(pricingCatalog, scratch, receiptRes, null);
+            return receiptRes;
+        } finally {
+            scratch.clear();
+        }
+    }
+
+    // Same result as the single pass in price(), with each phase run as its own pass so it can be timed on its own.
+    // Savings and totals are still added lines first, then category groups, so the receipt is identical. FIXED_POINT
+    // runs its own steps in the same passes and converts its pence totals to pounds as part of RECEIPT_BUILD.
+    private ReceiptResponse priceInstrumented(Product[] products, double[] quantities) {
+        var pricingCatalog = pricingCatalogStore.current();
+        var scratch = pricingScratch.get();
+        var fixedPoint = moneyMode == MoneyMode.FIXED_POINT;
+        try {
+            var receiptRes = newReceipt(pricingCatalog);
+            var groups = new int[products.length];
+
+            var phaseStart = System.nanoTime();
+            for (int line = 0; line < products.length; line++) {
+                var product = products[line];
+                var index = pricingCatalog.indexOf(product.getId());
+                groups[line] = pricingCatalog.dealGroupOf(index, product.getCategory());
+                if (groups[line] >= 0) {
+                    continue;
+                }
+                if (fixedPoint) {
+                    FixedPointBasketPricing.calculateProductPrice(product, quantities[line], pricingCatalog.getProductPricings(index), receiptRes);
+                } else {
+                    calculateProductPriceAndAddToReceipt(product, quantities[line], pricingCatalog.getProductPricings(index), receiptRes);
+                }
+            }
+            phaseStart = recordPhase(PricingPhase.LINE_PRICING, phaseStart);
+
+            for (int line = 0; line < products.length; line++) {
+                if (groups[line] >= 0) {
+                    scratch.runs(groups[line]).add(products[line].getPrice(), (int) quantities[line]);
+                }
+            }
+            phaseStart = recordPhase(PricingPhase.CATEGORY_GROUPING, phaseStart);
+
+            if (fixedPoint) {
+                FixedPointBasketPricing.addCategoryGroups(pricingCatalog, scratch, receiptRes, null);
+            } else {
+                addCategoryGroupsToReceipt(pricingCatalog, scratch, receiptRes, null);
+            }
+            phaseStart = recordPhase(PricingPhase.CATEGORY_BUNDLES, phaseStart);
+
+            for (int line = 0; line < products.length; line++) {
+                if (fixedPoint) {
+                    FixedPointBasketPricing.addProductItem(products[line], quantities[line], receiptRes);
+                } else {
+                    addProductItemToReceipt(receiptRes, products[line], quantities[line]);
+                }
+            }
+            if (fixedPoint) {
+                FixedPointBasketPricing.setPoundTotals(receiptRes);
+            }
+            recordPhase(PricingPhase.RECEIPT_BUILD, phaseStart);
+            return receiptRes;
+        } finally {
+            scratch.clear();
+        }
+    }
+
+    // Same result as price(), recording each line, offer and bundle decision into a PricingTrace for the tracer.
+    // Only sampled baskets come here; with metrics on they count towards the basket totals but not the phase timings.
+    private ReceiptResponse priceTraced(long basketId, Product[] products, double[] quantities) {
+        var start = System.nanoTime();
+        var pricingCatalog = pricingCatalogStore.current();
+        var scratch = pricingScratch.get();
+        var trace = PricingTrace.builder()
+                .basketId(basketId)
+                .pricingVersion(pricingCatalog.getVersion())
+                .moneyMode(moneyMode)
+                .capturedAtMillis(System.currentTimeMillis())
                 .build();
-        var productGroupCache = new ProductGroupCache();
-
-        basket.entrySet().forEach(entry -> {
-            var product = entry.getKey();
-            var quantity = entry.getValue();
-
-            if (productCategoryProductSet.containsKey(product.getCategory()) && productCategoryProductSet.get(product.getCategory()).contains(product.getId())){
-                productGroupCache.compute(product.getCategory(), (k, v) -> {
-                    if (v == null){
-                        return new ArrayList<>(List.of(new ProductGroupCacheItems(product, quantity.intValue())));
-                    } else {
-                        v.add(new ProductGroupCacheItems(product, quantity.intValue()));
-                        return v;
-                    }
-                });
+        try {
+            ReceiptResponse receiptRes;
+            if (moneyMode == MoneyMode.FIXED_POINT) {
+                receiptRes = FixedPointBasketPricing.calculate(pricingCatalog, products, quantities, scratch, trace);
             } else {
-                calculateProductPriceAndAddToReceipt(product, quantity, receiptRes);
+                receiptRes = newReceipt(pricingCatalog);
+                for (int line = 0; line < products.length; line++) {
+                    addLineToReceipt(pricingCatalog, scratch, products[line], quantities[line], receiptRes, trace);
+                }
+                addCategoryGroupsToReceipt(pricingCatalog, scratch, receiptRes, trace);
             }
+            trace.setGrandTotal(receiptRes.getGrandTotal());
+            trace.setSavingsSubTotal(receiptRes.getSavingsSubTotal());
+            trace.setPricingNanos(System.nanoTime() - start);
+            pricingTracer.record(trace);
+            return receiptRes;
+        } finally {
+            scratch.clear();
+        }
+    }
 
-            addProductItemToReceipt(receiptRes, product, quantity);
-        });
+    private long recordPhase(PricingPhase phase, long phaseStart) {
+        var now = System.nanoTime();
+        pricingMetrics.recordPhase(phase, now - phaseStart);
+        return now;
+    }
 
-        productGroupCache.forEach((category, productList) -> calculateCategoryProductPriceAndAddToReceipt(category, productList, receiptRes));
-        return receiptRes;
+    private void recordBasket(ReceiptResponse receipt, int lines, long elapsedNanos) {
+        pricingMetrics.recordPhase(PricingPhase.TOTAL, elapsedNanos);
+        long bundles = 0;
+        for (var savingsItem : receipt.getSavingsItems()) {
+            bundles += savingsItem.getCount();
+        }
+        pricingMetrics.recordBasket(lines, bundles, receipt.getSavingsItems().size());
     }
 
-    private void calculateCategoryProductPriceAndAddToReceipt(ProductCategory productCategory, List<ProductGroupCacheItems> productCacheItem, ReceiptResponse receiptResponse) {
-        var productQueue =  new PriorityQueue<Product>(Comparator.comparingDouble(Product::getPrice));
-        var pricing = productCategoryPricing.get(productCategory);
-        productCacheItem.forEach(x -> {
-            for (int i = 0; i < x.getQuantity(); i++){
-                productQueue.add(x.getProducts());
+    private static void addLineToReceipt(PricingRules pricingCatalog, PricingScratch scratch, Product product, double quantity, ReceiptResponse receiptRes, PricingTrace trace) {
+        var index = pricingCatalog.indexOf(product.getId());
+        var group = pricingCatalog.dealGroupOf(index, product.getCategory());
+        if (trace != null) {
+            trace.add(PricingTraceEvent.line(product, quantity, group));
+        }
+
+        if (group >= 0) {
+            scratch.runs(group).add(product.getPrice(), (int) quantity);
+        } else {
+            calculateProductPriceAndAddToReceipt(product, quantity, pricingCatalog.getProductPricings(index), receiptRes, trace);
+        }
+
+        addProductItemToReceipt(receiptRes, product, quantity);
+    }
+
+    private static void addCategoryGroupsToReceipt(PricingRules pricingCatalog, PricingScratch scratch, ReceiptResponse receiptRes, PricingTrace trace) {
+        scratch.sortGroups();
+        for (int i = 0; i < scratch.groupCount(); i++) {
+            var pricing = pricingCatalog.getDealGroupPricing(scratch.group(i));
+            if (trace != null) {
+                var units = scratch.groupRuns(i).totalQuantity();
+                trace.add(PricingTraceEvent.dealGroup(scratch.group(i), pricing, units, (long) Math.floor(units / pricing.getQuantity())));
             }
-        });
+            calculateCategoryProductPriceAndAddToReceipt(pricing, scratch.groupRuns(i), receiptRes, trace);
+        }
+    }
 
-        var price = 0.0;
-        var remainingQuantity = productQueue.size();
+    static ReceiptResponse newReceipt(PricingRules pricingCatalog) {
+        return ReceiptResponse
+                .builder()
+                .productItems(new ArrayList<>())
+                .savingsItems(new ArrayList<>())
+                .pricingVersion(pricingCatalog.getVersion())
+                .build();
+    }
+
+    static int dealGroupOf(PricingRules pricingCatalog, Product product) {
+        return pricingCatalog.dealGroupOf(pricingCatalog.indexOf(product.getId()), product.getCategory());
+    }
+
+    // Each pricing step below adds one amount to the grand total. Savings go into the subtotal one offer or one
+    // category bundle at a time, in the order the original per-unit calculator added them, so DOUBLE receipts keep
+    // its exact savings subtotal. PricingSession relies on this to replay cached category groups from their items.
+    // A receipt without item lists only has its totals updated (see calculateBasketTotals).
+    static void calculateCategoryProductPriceAndAddToReceipt(PricingStructure pricing, CategoryRuns cursor, ReceiptResponse receiptResponse) {
+        calculateCategoryProductPriceAndAddToReceipt(pricing, cursor, receiptResponse, null);
+    }
 
-        var bundles = Math.floor(remainingQuantity / pricing.getQuantity());
-        remainingQuantity = remainingQuantity % (int) pricing.getQuantity();
+    // With a trace, each run of identical bundles and each mixed bundle is recorded with the unit prices it took
+    static void calculateCategoryProductPriceAndAddToReceipt(PricingStructure pricing, CategoryRuns cursor, ReceiptResponse receiptResponse, PricingTrace trace) {
+        // One run per basket line, cheapest first, instead of one queue entry per unit
+        cursor.sortByPrice();
+        var totalQuantity = cursor.totalQuantity();
 
+        var price = 0.0;
+        var savingsTotal = 0.0;
+        var firstSavingsItem = receiptResponse.getSavingsItems() == null ? 0 : receiptResponse.getSavingsItems().size();
+        var bundles = Math.floor(totalQuantity / pricing.getQuantity());
         price += bundles * pricing.getPrice();
 
-        if (bundles > 0){
-            var pricingQty = (int) pricing.getQuantity();
-            for (int i = 0; i < bundles; i++){
+        var pricingQty = (int) pricing.getQuantity();
+
+        long bundlesLeft = (long) bundles;
+        while (bundlesLeft > 0) {
+            cursor.skipEmptyRuns();
+            if (cursor.runLeft >= pricingQty) {
+                // Every bundle filled from a single run costs the same, so price it once
+                var unitPrice = cursor.unitPrice();
                 double originalPrice = 0.0;
-                for (int j = 0; j < pricingQty; j++){
-                    originalPrice += productQueue.poll().getPrice();
+                for (int j = 0; j < pricingQty; j++) {
+                    originalPrice += unitPrice;
                 }
-                var savings = (originalPrice - pricing.getPrice()) * -1;
-                var priceSavingItem = ReceiptPriceSavingItem.builder()
-                        .name(pricing.getName())
-                        .count(1)
-                        .deduction(savings)
-                        .build();
-                receiptResponse.getSavingsItems().add(priceSavingItem);
-                receiptResponse.setSavingsSubTotal(receiptResponse.getSavingsSubTotal() + savings);
+                var sameBundles = Math.min(cursor.runLeft / pricingQty, bundlesLeft);
+                cursor.runLeft -= sameBundles * pricingQty;
+                bundlesLeft -= sameBundles;
+                if (trace != null) {
+                    var unitPrices = new double[pricingQty];
+                    Arrays.fill(unitPrices, unitPrice);
+                    traceCategoryBundles(trace, pricing, originalPrice, sameBundles, unitPrices);
+                }
+                savingsTotal += addCategorySavingsItem(receiptResponse, firstSavingsItem, pricing, originalPrice, sameBundles);
+            } else {
+                var unitPrices = trace == null ? null : new double[pricingQty];
+                double originalPrice = 0.0;
+                for (int j = 0; j < pricingQty; j++) {
+                    var unitPrice = cursor.pollUnitPrice();
+                    if (unitPrices != null) {
+                        unitPrices[j] = unitPrice;
+                    }
+                    originalPrice += unitPrice;
+                }
+                bundlesLeft--;
+                if (trace != null) {
+                    traceCategoryBundles(trace, pricing, originalPrice, 1, unitPrices);
+                }
+                savingsTotal += addCategorySavingsItem(receiptResponse, firstSavingsItem, pricing, originalPrice, 1);
             }
         }
 
-        while (!productQueue.isEmpty()){
-            var productPrice = productQueue.poll().getPrice();
-            price += productPrice;
+        long fullPriceUnits = 0;
+        var fullPriceAmount = 0.0;
+        while (cursor.hasNext()) {
+            var unitPrice = cursor.pollUnitPrice();
+            price += unitPrice;
+            if (trace != null) {
+                fullPriceUnits++;
+                fullPriceAmount += unitPrice;
+            }
+        }
+        if (trace != null && fullPriceUnits > 0) {
+            trace.add(PricingTraceEvent.fullPriceUnits(fullPriceUnits, fullPriceAmount));
         }
         receiptResponse.setGrandTotal(receiptResponse.getGrandTotal() + price);
+        receiptResponse.setSavingsSubTotal(receiptResponse.getSavingsSubTotal() + savingsTotal);
     }
 
-    private void calculateProductPriceAndAddToReceipt(Product product, double quantity, ReceiptResponse receiptResponse) {
-        var price = 0.0;
+    private static void traceCategoryBundles(PricingTrace trace, PricingStructure pricing, double originalPrice, long bundles, double[] unitPrices) {
+        trace.add(PricingTraceEvent.groupBundle(pricing, bundles, unitPrices, categorySavings(pricing, originalPrice)));
+    }
+
+    private static double categorySavings(PricingStructure pricing, double originalPrice) {
+        return (originalPrice - pricing.getPrice()) * -1;
+    }
+
+    // Returns the run's savings in one multiply, so the cost no longer grows with the bundle count
+    private static double addCategorySavingsItem(ReceiptResponse receiptResponse, int firstSavingsItem, PricingStructure pricing, double originalPrice, long bundles) {
+        var savings = categorySavings(pricing, originalPrice);
+        var savingsItems = receiptResponse.getSavingsItems();
+        if (savingsItems == null) {
+            return savings * bundles;
+        }
+        var lastItem = savingsItems.size() > firstSavingsItem ? savingsItems.get(savingsItems.size() - 1) : null;
+
+        if (lastItem != null && lastItem.getDeduction() == savings) {
+            lastItem.setCount(lastItem.getCount() + bundles);
+        } else {
+            var priceSavingItem = ReceiptPriceSavingItem.builder()
+                    .name(pricing.getName())
+                    .count(bundles)
+                    .deduction(savings)
+                    .build();
+            savingsItems.add(priceSavingItem);
+        }
+        return savings * bundles;
+    }
 
-        if (uniProductPricing.containsKey(product.getId())){
-            for (var pricing : uniProductPricing.get(product.getId())){
-                var bundles = Math.floor(quantity / pricing.getQuantity());
-                quantity = quantity % pricing.getQuantity();
+    static void calculateProductPriceAndAddToReceipt(Product product, double quantity, PricingStructure[] pricings, ReceiptResponse receiptResponse) {
+        calculateProductPriceAndAddToReceipt(product, quantity, pricings, receiptResponse, null);
+    }
 
-                var newPrice = (bundles * pricing.getPrice()) + (pricing.getNewQuantity() * product.getPrice() * bundles);
-                price += newPrice;
+    // With a trace, every offer tried against the line is recorded, including those that formed no bundle
+    // The line's savings are summed first and added to the receipt once, like its price, so a line priced on its own
+    // adds the same amount
+    static void calculateProductPriceAndAddToReceipt(Product product, double quantity, PricingStructure[] pricings, ReceiptResponse receiptResponse, PricingTrace trace) {
+        var price = 0.0;
+        var savingsTotal = 0.0;
 
-                if (bundles > 0){
-                    var originalPrice = pricing.getQuantity() * product.getPrice() * bundles;
-                    var savings = (originalPrice - newPrice) * -1;
+        for (var pricing : pricings){
+            var bundles = Math.floor(quantity / pricing.getQuantity());
+            quantity = Quantities.remainder(quantity, pricing.getQuantity(), bundles);
+            if (trace != null) {
+                trace.add(PricingTraceEvent.offer(product, pricing, (long) bundles, quantity, bundleSavings(product, pricing)));
+            }
 
-                    var priceSavingItem = ReceiptPriceSavingItem.builder()
-                            .name(pricing.getName())
-                            .count((long)bundles)
-                            .deduction(savings)
-                            .build();
-                    receiptResponse.getSavingsItems().add(priceSavingItem);
-                    receiptResponse.setSavingsSubTotal(receiptResponse.getSavingsSubTotal() + savings);
+            var newPrice = (bundles * pricing.getPrice()) + (pricing.getNewQuantity() * product.getPrice() * bundles);
+            price += newPrice;
 
+            if (bundles > 0){
+                var originalPrice = pricing.getQuantity() * product.getPrice() * bundles;
+                savingsTotal += (originalPrice - newPrice) * -1;
+                if (receiptResponse.getSavingsItems() == null) {
+                    continue;
                 }
+                var priceSavingItem = ReceiptPriceSavingItem.builder()
+                        .name(pricing.getName())
+                        .count((long)bundles)
+                        .deduction(bundleSavings(product, pricing))
+                        .build();
+                receiptResponse.getSavingsItems().add(priceSavingItem);
             }
         }
 
         price += quantity * product.getPrice();
         receiptResponse.setGrandTotal(receiptResponse.getGrandTotal() + price);
+        receiptResponse.setSavingsSubTotal(receiptResponse.getSavingsSubTotal() + savingsTotal);
+    }
+
+    private static double bundleSavings(Product product, PricingStructure pricing) {
+        return ((pricing.getQuantity() * product.getPrice()) - (pricing.getPrice() + pricing.getNewQuantity() * product.getPrice())) * -1;
     }
 
-    private void addProductItemToReceipt(ReceiptResponse receiptResponse, Product product, double quantity) {
+    static void addProductItemToReceipt(ReceiptResponse receiptResponse, Product product, double quantity) {
         var productSubtotal = product.getPrice() * quantity;
-        String productName = !product.isMeasuredPerKg() ? product.getName() : formatProductName(product, quantity);
-        double productPrice = !product.isMeasuredPerKg() ? product.getPrice() : productSubtotal;
-        int newQuantity = (int) Math.ceil(quantity);
+        receiptResponse.setProductSubTotal(receiptResponse.getProductSubTotal() + productSubtotal);
+        if (receiptResponse.getProductItems() == null) {
+            return;
+        }
 
-        var receiptProductItem  = ReceiptProductItem
+        ReceiptProductItem receiptProductItem;
+        if (product.isMeasuredPerKg()) {
+            receiptProductItem = ReceiptProductItem.weighed(product.getName(), quantity, product.getPrice(), productSubtotal);
+        } else {
+            receiptProductItem = ReceiptProductItem
                     .builder()
-                    .name(productName)
-                    .quantity(newQuantity)
-                    .price(productPrice)
+                    .name(product.getName())
+                    .quantity((int) Math.ceil(quantity))
+                    .price(product.getPrice())
                     .build();
+        }
 
         receiptResponse.getProductItems().add(receiptProductItem);
-        receiptResponse.setProductSubTotal(receiptResponse.getProductSubTotal() + productSubtotal);
-    }
-
-    private String formatProductName(Product product, double quantity) {
-        if (!product.isMeasuredPerKg()) {
-            return product.getName();
-        }
-        return String.format("%s %.2f kg @ £ %.2f/kg", product.getName(), quantity, product.getPrice());
     }
 }
@@ -1,42 +1,42 @@
 package services;
 
 import dto.response.ReceiptResponse;
+import entity.ReceiptPrintMode;
 import interfaces.BasketPrinter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+
 public class BasketPrinterImpl implements BasketPrinter {
-    private static final String DELIMETER = "--------------------------------------";
+    private final ThreadLocal<ReceiptWriter> receiptWriters;
+
+    public BasketPrinterImpl() {
+        this(ReceiptPrintMode.EXPANDED);
+    }
+
+    public BasketPrinterImpl(ReceiptPrintMode printMode) {
+        this.receiptWriters = ThreadLocal.withInitial(() -> new ReceiptWriter(printMode));
+    }
+
     @Override
     public void printPriceCalculationBreakDown(ReceiptResponse receiptResponse) {
-        // Define table column headers
-        System.out.printf("%-30s %-10s%n", "Product", "Price");
-        System.out.println(DELIMETER);
-
-        // Print products in the basket
-        for (var productEntry : receiptResponse.getProductItems()) {
-            for (int i = 0; i < productEntry.getQuantity(); i++) {
-                System.out.printf("%-30s £ %-10.2f%n", productEntry.getName(), productEntry.getPrice());
-            }
+        var out = System.out;
+        try {
+            receiptWriters.get().write(receiptResponse, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        out.flush();
+    }
 
-        // Print Sub-total
-        System.out.println(DELIMETER);
-        System.out.printf("%-30s £ %-15.2f%n", "Sub-total", receiptResponse.getProductSubTotal());
-
-        // Print Savings
-        System.out.println("Savings");
-        if (receiptResponse.getSavingsItems().isEmpty()) {
-            System.out.printf("%-30s %s%n", "", "Nil");
-        } else {
-            for (var savingsEntry : receiptResponse.getSavingsItems()) {
-                for (int i = 0; i < savingsEntry.getCount(); i++) {
-                    System.out.printf("%-30s £ %-15.2f%n", savingsEntry.getName(), savingsEntry.getDeduction());
-                }
-            }
-            System.out.printf("%-30s £ %-15.2f%n", "Total savings", receiptResponse.getSavingsSubTotal());
-        }
+    @Override
+    public void printPriceCalculationBreakDown(ReceiptResponse receiptResponse, Appendable out) throws IOException {
+        receiptWriters.get().write(receiptResponse, out);
+    }
 
-        // Print Total to pay
-        System.out.println(DELIMETER);
-        System.out.printf("%-30s £ %-15.2f%n", "Total to pay", receiptResponse.getGrandTotal());
+    @Override
+    public void printPriceCalculationBreakDown(ReceiptResponse receiptResponse, WritableByteChannel channel) throws IOException {
+        receiptWriters.get().write(receiptResponse, channel);
     }
 }
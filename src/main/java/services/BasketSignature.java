@@ -0,0 +1,137 @@
+package services;
+
+import dto.request.Basket;
+import entity.Product;
+import entity.ProductCategory;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Canonical fingerprint of a basket priced against one catalog version: the version, the customer tier and store a
+// wrapped TieredBasketCalculator reprices for, then (id, quantity, price, category and weighed flag) and the name for
+// each line, with the lines sorted, so equal baskets match whatever their map order. The name is part of the key
+// because it is printed on the receipt, so a renamed product never gets a receipt cached under its old name.
+final class BasketSignature {
+    private static final Comparator<ProductCategory> CATEGORY_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<String> NAME_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private final long[] words;
+    private final String[] names;
+    private final int hash;
+
+    private BasketSignature(long[] words, String[] names) {
+        this.words = words;
+        this.names = names;
+        this.hash = 31 * Arrays.hashCode(words) + Arrays.hashCode(names);
+    }
+
+    static BasketSignature of(long version, Basket basket) {
+        var products = new Product[basket.size()];
+        var quantities = new double[basket.size()];
+        var line = 0;
+        for (var entry : basket.entrySet()) {
+            products[line] = entry.getKey();
+            quantities[line] = entry.getValue();
+            line++;
+        }
+        var order = canonicalOrder(products, quantities);
+        var sortedProducts = new Product[order.length];
+        var sortedQuantities = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedProducts[i] = products[order[i]];
+            sortedQuantities[i] = quantities[order[i]];
+        }
+        return of(version, basket.getCustomerTier(), basket.getStoreId(), sortedProducts, sortedQuantities);
+    }
+
+    // Lines must already be in canonicalOrder
+    static BasketSignature of(long version, int customerTier, int storeId, Product[] products, double[] quantities) {
+        var words = new long[2 + products.length * 4];
+        var names = new String[products.length];
+        words[0] = version;
+        words[1] = (long) customerTier << 32 | storeId & 0xFFFFFFFFL;
+        for (int i = 0, w = 2; i < products.length; i++) {
+            var product = products[i];
+            words[w++] = product.getId();
+            words[w++] = Double.doubleToLongBits(quantities[i]);
+            words[w++] = Double.doubleToLongBits(product.getPrice());
+            var category = product.getCategory() == null ? 0 : product.getCategory().ordinal() + 1;
+            words[w++] = (long) category << 1 | (product.isMeasuredPerKg() ? 1 : 0);
+            names[i] = product.getName();
+        }
+        return new BasketSignature(words, names);
+    }
+
+    // Line indexes sorted by every field of the signature, on a plain int[] so no index is boxed
+    static int[] canonicalOrder(Product[] products, double[] quantities) {
+        var order = new int[products.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        mergeSort(order, new int[order.length], 0, order.length, products, quantities);
+        return order;
+    }
+
+    private static void mergeSort(int[] order, int[] spare, int from, int to, Product[] products, double[] quantities) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                var line = order[i];
+                var j = i - 1;
+                while (j >= from && compare(order[j], line, products, quantities) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = line;
+            }
+            return;
+        }
+        var middle = (from + to) >>> 1;
+        mergeSort(order, spare, from, middle, products, quantities);
+        mergeSort(order, spare, middle, to, products, quantities);
+        System.arraycopy(order, from, spare, from, to - from);
+        for (int i = from, left = from, right = middle; i < to; i++) {
+            if (right == to || left < middle && compare(spare[left], spare[right], products, quantities) <= 0) {
+                order[i] = spare[left++];
+            } else {
+                order[i] = spare[right++];
+            }
+        }
+    }
+
+    private static int compare(int a, int b, Product[] products, double[] quantities) {
+        var first = products[a];
+        var second = products[b];
+        var result = Long.compare(first.getId(), second.getId());
+        if (result == 0) {
+            result = Double.compare(first.getPrice(), second.getPrice());
+        }
+        if (result == 0) {
+            result = Double.compare(quantities[a], quantities[b]);
+        }
+        if (result == 0) {
+            result = CATEGORY_ORDER.compare(first.getCategory(), second.getCategory());
+        }
+        if (result == 0) {
+            result = Boolean.compare(first.isMeasuredPerKg(), second.isMeasuredPerKg());
+        }
+        if (result == 0) {
+            result = NAME_ORDER.compare(first.getName(), second.getName());
+        }
+        return result;
+    }
+
+    long getVersion() {
+        return words[0];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BasketSignature && Arrays.equals(words, ((BasketSignature) o).words)
+                && Arrays.equals(names, ((BasketSignature) o).names);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,183 @@
+package services;
+
+import entity.PricingStructure;
+import entity.Product;
+import entity.ProductCategory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+import static entity.BinaryCatalogFormat.*;
+
+// Writes products and their pricing rules in the BinaryCatalogFormat layout that MappedCatalog reads.
+// Every product id that has a rule or a category deal must be among the products.
+// The file is written next to the target under a temporary name and moved into place atomically, so a reader never
+// opens a half-written catalog and one that already mapped the old file keeps reading it.
+public final class BinaryCatalogWriter {
+    private BinaryCatalogWriter() {
+    }
+
+    public static void write(Path path, Collection<Product> products,
+                             Map<Long, List<PricingStructure>> uniProductPricing,
+                             Map<ProductCategory, PricingStructure> productCategoryPricing,
+                             Map<ProductCategory, Set<Long>> productCategoryProductSet) throws IOException {
+        uniProductPricing = uniProductPricing == null ? Map.of() : uniProductPricing;
+        productCategoryPricing = productCategoryPricing == null ? Map.of() : productCategoryPricing;
+        productCategoryProductSet = productCategoryProductSet == null ? Map.of() : productCategoryProductSet;
+
+        var sorted = new ArrayList<>(products);
+        sorted.sort(Comparator.comparingLong(Product::getId));
+        var ids = new HashSet<Long>();
+        for (int i = 0; i < sorted.size(); i++) {
+            if (i > 0 && sorted.get(i).getId() == sorted.get(i - 1).getId()) {
+                throw new IllegalArgumentException("Duplicate product id " + sorted.get(i).getId());
+            }
+            ids.add(sorted.get(i).getId());
+        }
+        for (var id : uniProductPricing.keySet()) {
+            if (!ids.contains(id)) {
+                throw new IllegalArgumentException("No product for pricing rules of id " + id);
+            }
+        }
+
+        var categoryMask = new HashMap<Long, Integer>();
+        for (var entry : productCategoryProductSet.entrySet()) {
+            if (productCategoryPricing.get(entry.getKey()) == null) {
+                throw new IllegalArgumentException("No category pricing for product set " + entry.getKey());
+            }
+            for (var id : entry.getValue()) {
+                if (!ids.contains(id)) {
+                    throw new IllegalArgumentException("No product for category deal member " + id);
+                }
+                categoryMask.merge(id, 1 << entry.getKey().ordinal(), (a, b) -> a | b);
+            }
+        }
+
+        var categories = ProductCategory.values();
+        var categoryPricings = new PricingStructure[categories.length];
+        var ruleCount = 0L;
+        for (var product : sorted) {
+            ruleCount += uniProductPricing.getOrDefault(product.getId(), List.of()).size();
+        }
+        var productRuleCount = ruleCount;
+        for (var category : categories) {
+            if (productCategoryProductSet.containsKey(category)) {
+                categoryPricings[category.ordinal()] = productCategoryPricing.get(category);
+                ruleCount++;
+            }
+        }
+
+        var productTable = HEADER_BYTES;
+        var ruleTable = productTable + (long) sorted.size() * PRODUCT_BYTES;
+        var categoryTable = ruleTable + ruleCount * RULE_BYTES;
+        var stringPool = categoryTable + (long) categories.length * Integer.BYTES;
+        if (stringPool > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Catalog larger than 2 GB");
+        }
+
+        var directory = path.toAbsolutePath().getParent();
+        var temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            writeRecords(temp, sorted, uniProductPricing, categoryMask, categoryPricings, ruleCount, productRuleCount,
+                    productTable, ruleTable, categoryTable, stringPool);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeRecords(Path path, List<Product> sorted, Map<Long, List<PricingStructure>> uniProductPricing,
+                                     Map<Long, Integer> categoryMask, PricingStructure[] categoryPricings,
+                                     long ruleCount, long productRuleCount, int productTable, long ruleTable,
+                                     long categoryTable, long stringPool) throws IOException {
+        var categories = ProductCategory.values();
+        // Records are streamed in file order; names are only collected, and the pool is written last
+        var strings = new StringPool();
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(sorted.size());
+            out.writeInt((int) ruleCount);
+            out.writeInt(categories.length);
+            out.writeInt(productTable);
+            out.writeInt((int) ruleTable);
+            out.writeInt((int) categoryTable);
+            out.writeInt((int) stringPool);
+
+            var firstRule = 0;
+            for (var product : sorted) {
+                var pricings = uniProductPricing.getOrDefault(product.getId(), List.of());
+                out.writeLong(product.getId());
+                out.writeDouble(product.getPrice());
+                strings.writeRef(out, product.getName());
+                out.writeInt(firstRule);
+                out.writeInt(pricings.size());
+                out.writeInt(product.getCategory() == null ? NO_CATEGORY : product.getCategory().ordinal());
+                out.writeInt((product.isMeasuredPerKg() ? MEASURED_FLAG : 0) | categoryMask.getOrDefault(product.getId(), 0) << 8);
+                firstRule += pricings.size();
+            }
+
+            for (var product : sorted) {
+                for (var rule : uniProductPricing.getOrDefault(product.getId(), List.of())) {
+                    writeRule(out, strings, rule);
+                }
+            }
+            var nextRule = (int) productRuleCount;
+            for (var pricing : categoryPricings) {
+                if (pricing != null) {
+                    writeRule(out, strings, pricing);
+                }
+            }
+            for (var pricing : categoryPricings) {
+                out.writeInt(pricing == null ? -1 : nextRule++);
+            }
+
+            if (stringPool + strings.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Catalog larger than 2 GB");
+            }
+            strings.writeTo(out);
+        }
+    }
+
+    private static void writeRule(DataOutputStream out, StringPool strings, PricingStructure rule) throws IOException {
+        out.writeDouble(rule.getQuantity());
+        out.writeDouble(rule.getNewQuantity());
+        out.writeDouble(rule.getPrice());
+        strings.writeRef(out, rule.getName());
+    }
+
+    private static final class StringPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final Map<String, int[]> refs = new HashMap<>();
+
+        private int[] refOf(String value) {
+            return refs.computeIfAbsent(value == null ? "" : value, s -> {
+                var encoded = s.getBytes(StandardCharsets.UTF_8);
+                var ref = new int[]{bytes.size(), encoded.length};
+                bytes.write(encoded, 0, encoded.length);
+                return ref;
+            });
+        }
+
+        void writeRef(DataOutputStream out, String value) throws IOException {
+            var ref = refOf(value);
+            out.writeInt(ref[0]);
+            out.writeInt(ref[1]);
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            bytes.writeTo(out);
+        }
+    }
+}
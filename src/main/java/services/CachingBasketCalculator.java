@@ -0,0 +1,116 @@
+package services;
+
+import dto.request.Basket;
+import dto.response.ReceiptResponse;
+import interfaces.BasketCalculator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Remembers the receipts of recently priced baskets. Keys are canonical basket signatures that include the catalog
+// version, and the whole cache is dropped when a new catalog is published, so a receipt is never served against
+// rules it was not priced with. The signature also carries the basket's customer tier and store, so a wrapped
+// TieredBasketCalculator never serves one tier's prices to another. The cache keeps its own copy of each receipt and
+// every hit returns a fresh copy, so callers may change the receipts they get.
+public class CachingBasketCalculator implements BasketCalculator {
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final BasketCalculator delegate;
+    private final PricingCatalogStore pricingCatalogStore;
+    private final LinkedHashMap<BasketSignature, ReceiptResponse> receipts;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private long cachedVersion;
+
+    public CachingBasketCalculator(BasketCalculatorImpl delegate) {
+        this(delegate, delegate.getPricingCatalogStore(), DEFAULT_MAX_ENTRIES);
+    }
+
+    public CachingBasketCalculator(BasketCalculator delegate, PricingCatalogStore pricingCatalogStore, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.delegate = delegate;
+        this.pricingCatalogStore = pricingCatalogStore;
+        this.cachedVersion = pricingCatalogStore.getVersion();
+        this.receipts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BasketSignature, ReceiptResponse> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public ReceiptResponse calculateBasketPrice(Basket basket) {
+        var signature = BasketSignature.of(pricingCatalogStore.getVersion(), basket);
+
+        synchronized (receipts) {
+            if (signature.getVersion() > cachedVersion) {
+                invalidateLocked(signature.getVersion());
+            }
+            var receipt = receipts.get(signature);
+            if (receipt != null) {
+                hits.increment();
+                return receipt.copy();
+            }
+        }
+
+        misses.increment();
+        var receipt = delegate.calculateBasketPrice(basket);
+
+        // A publish between building the key and pricing the basket would file the receipt under the wrong version
+        if (receipt.getPricingVersion() == signature.getVersion()) {
+            synchronized (receipts) {
+                if (signature.getVersion() == cachedVersion) {
+                    receipts.put(signature, receipt.copy());
+                }
+            }
+        }
+        return receipt;
+    }
+
+    public void invalidate() {
+        synchronized (receipts) {
+            invalidateLocked(pricingCatalogStore.getVersion());
+        }
+    }
+
+    private void invalidateLocked(long version) {
+        // Versions only move forward; a caller that read an older catalog just bypasses the cache
+        if (!receipts.isEmpty()) {
+            invalidations.increment();
+            receipts.clear();
+        }
+        cachedVersion = version;
+    }
+
+    public int size() {
+        synchronized (receipts) {
+            return receipts.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+}
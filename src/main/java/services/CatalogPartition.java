@@ -0,0 +1,149 @@
+package services;
+
+import entity.DealGroup;
+import entity.PricingCatalog;
+import entity.PricingStructure;
+import entity.Product;
+import entity.ProductCategory;
+import interfaces.PricingRules;
+
+import java.util.*;
+
+// Splits one rule set into per-shard catalogs by product id range. A product's own offers live on the shard that
+// owns its id. Each deal group, category deals included, lives whole on one home shard: the shard owning its
+// smallest product id. The coordinator keeps only a routing catalog of group membership (no offers), which sends a
+// deal line to its group's home shard so the whole group is bundled in one place.
+public final class CatalogPartition {
+    private final long[] rangeStarts;
+    private final PricingCatalog[] shardCatalogs;
+    private final PricingCatalog routing;
+    private final int[] homeShardOfGroup;
+
+    private CatalogPartition(long[] rangeStarts, PricingCatalog[] shardCatalogs, PricingCatalog routing, int[] homeShardOfGroup) {
+        this.rangeStarts = rangeStarts;
+        this.shardCatalogs = shardCatalogs;
+        this.routing = routing;
+        this.homeShardOfGroup = homeShardOfGroup;
+    }
+
+    // Ranges are cut so every shard owns about the same number of ruled product ids
+    public static CatalogPartition byProductIdRange(Map<Long, List<PricingStructure>> uniProductPricing,
+                                                    Map<ProductCategory, PricingStructure> productCategoryPricing,
+                                                    Map<ProductCategory, Set<Long>> productCategoryProductSet,
+                                                    List<DealGroup> dealGroups, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        uniProductPricing = uniProductPricing == null ? Map.of() : uniProductPricing;
+        productCategoryPricing = productCategoryPricing == null ? Map.of() : productCategoryPricing;
+        productCategoryProductSet = productCategoryProductSet == null ? Map.of() : productCategoryProductSet;
+        dealGroups = dealGroups == null ? List.of() : dealGroups;
+
+        var ids = new TreeSet<>(uniProductPricing.keySet());
+        productCategoryProductSet.values().forEach(ids::addAll);
+        dealGroups.forEach(group -> ids.addAll(productIdsOf(group)));
+        var sortedIds = ids.stream().mapToLong(Long::longValue).toArray();
+
+        var rangeStarts = new long[shardCount];
+        rangeStarts[0] = Long.MIN_VALUE;
+        for (int s = 1; s < shardCount; s++) {
+            // With fewer ids than shards some shards own ranges with no ruled ids in them
+            var at = (int) ((long) sortedIds.length * s / shardCount);
+            rangeStarts[s] = at < sortedIds.length ? Math.max(sortedIds[at], rangeStarts[s - 1] + 1) : rangeStarts[s - 1] + 1;
+        }
+        return withRanges(uniProductPricing, productCategoryPricing, productCategoryProductSet, dealGroups, rangeStarts);
+    }
+
+    // rangeStarts[s] is the first id shard s owns; it must start at Long.MIN_VALUE and be strictly increasing
+    public static CatalogPartition withRanges(Map<Long, List<PricingStructure>> uniProductPricing,
+                                              Map<ProductCategory, PricingStructure> productCategoryPricing,
+                                              Map<ProductCategory, Set<Long>> productCategoryProductSet,
+                                              List<DealGroup> dealGroups, long[] rangeStarts) {
+        if (rangeStarts.length == 0 || rangeStarts[0] != Long.MIN_VALUE) {
+            throw new IllegalArgumentException("The first range must start at Long.MIN_VALUE");
+        }
+        for (int s = 1; s < rangeStarts.length; s++) {
+            if (rangeStarts[s] <= rangeStarts[s - 1]) {
+                throw new IllegalArgumentException("Range starts must be strictly increasing");
+            }
+        }
+        uniProductPricing = uniProductPricing == null ? Map.of() : uniProductPricing;
+        productCategoryPricing = productCategoryPricing == null ? Map.of() : productCategoryPricing;
+        productCategoryProductSet = productCategoryProductSet == null ? Map.of() : productCategoryProductSet;
+        dealGroups = dealGroups == null ? List.of() : dealGroups;
+        var starts = rangeStarts.clone();
+        var shardCount = starts.length;
+
+        // The routing catalog numbers groups exactly as each shard's compile would, so its ids index homeShardOfGroup
+        var routing = PricingCatalog.compile(Map.of(), productCategoryPricing, productCategoryProductSet, dealGroups);
+        var homeShardOfGroup = new int[routing.getDealGroupCount()];
+
+        var shardUniPricing = new ArrayList<Map<Long, List<PricingStructure>>>();
+        var shardCategoryPricing = new ArrayList<Map<ProductCategory, PricingStructure>>();
+        var shardCategorySets = new ArrayList<Map<ProductCategory, Set<Long>>>();
+        var shardGroups = new ArrayList<List<DealGroup>>();
+        for (int s = 0; s < shardCount; s++) {
+            shardUniPricing.add(new HashMap<>());
+            shardCategoryPricing.add(new EnumMap<>(ProductCategory.class));
+            shardCategorySets.add(new EnumMap<>(ProductCategory.class));
+            shardGroups.add(new ArrayList<>());
+        }
+
+        for (var entry : uniProductPricing.entrySet()) {
+            shardUniPricing.get(shardOf(starts, entry.getKey())).put(entry.getKey(), entry.getValue());
+        }
+        for (var entry : productCategoryProductSet.entrySet()) {
+            var home = homeShard(starts, entry.getValue());
+            homeShardOfGroup[entry.getKey().ordinal()] = home;
+            shardCategorySets.get(home).put(entry.getKey(), entry.getValue());
+            if (productCategoryPricing.containsKey(entry.getKey())) {
+                shardCategoryPricing.get(home).put(entry.getKey(), productCategoryPricing.get(entry.getKey()));
+            }
+        }
+        // Shards get their groups in the routing catalog's id order, so a shard breaks priority ties the same way
+        var named = new ArrayList<>(dealGroups);
+        named.sort(Comparator.comparingInt(DealGroup::getPriority));
+        for (int g = 0; g < named.size(); g++) {
+            var home = homeShard(starts, productIdsOf(named.get(g)));
+            homeShardOfGroup[PricingRules.CATEGORIES.length + g] = home;
+            shardGroups.get(home).add(named.get(g));
+        }
+
+        var shardCatalogs = new PricingCatalog[shardCount];
+        for (int s = 0; s < shardCount; s++) {
+            shardCatalogs[s] = PricingCatalog.compile(shardUniPricing.get(s), shardCategoryPricing.get(s), shardCategorySets.get(s), shardGroups.get(s));
+        }
+        return new CatalogPartition(starts, shardCatalogs, routing, homeShardOfGroup);
+    }
+
+    public int getShardCount() {
+        return shardCatalogs.length;
+    }
+
+    public PricingCatalog getShardCatalog(int shard) {
+        return shardCatalogs[shard];
+    }
+
+    public long getRangeStart(int shard) {
+        return rangeStarts[shard];
+    }
+
+    // Shard that prices the line: the home shard of its deal group, otherwise the shard owning its id
+    public int shardOf(Product product) {
+        var group = routing.dealGroupOf(routing.indexOf(product.getId()), product.getCategory());
+        return group >= 0 ? homeShardOfGroup[group] : shardOf(rangeStarts, product.getId());
+    }
+
+    private static int homeShard(long[] rangeStarts, Set<Long> productIds) {
+        return productIds.isEmpty() ? 0 : shardOf(rangeStarts, Collections.min(productIds));
+    }
+
+    private static int shardOf(long[] rangeStarts, long productId) {
+        var at = Arrays.binarySearch(rangeStarts, productId);
+        return at >= 0 ? at : -at - 2;
+    }
+
+    private static Set<Long> productIdsOf(DealGroup group) {
+        return group.getProductIds() == null ? Set.of() : group.getProductIds();
+    }
+}
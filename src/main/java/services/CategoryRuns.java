@@ -0,0 +1,124 @@
+package services;
+
+import java.util.Arrays;
+
+// The lines of one category deal group as primitive (unit price, count) runs, plus a cursor that walks the units
+// cheapest first. Instances are reused between baskets: clear() keeps the arrays.
+final class CategoryRuns {
+    private double[] prices = new double[8];
+    private long[] counts = new long[8];
+    private int size;
+    private int run;
+    long runLeft;
+
+    void add(double price, long count) {
+        if (size == prices.length) {
+            prices = Arrays.copyOf(prices, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        prices[size] = price;
+        counts[size] = count;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    long totalQuantity() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += Math.max(counts[i], 0);
+        }
+        return total;
+    }
+
+    // Sorts the runs by unit price, in place, and rewinds the cursor. Runs with equal prices are interchangeable,
+    // so the sort does not need to be stable.
+    void sortByPrice() {
+        if (size <= 16) {
+            insertionSort();
+        } else {
+            heapSort();
+        }
+        run = -1;
+        runLeft = 0;
+    }
+
+    private void insertionSort() {
+        for (int i = 1; i < size; i++) {
+            var price = prices[i];
+            var count = counts[i];
+            var j = i - 1;
+            while (j >= 0 && prices[j] > price) {
+                prices[j + 1] = prices[j];
+                counts[j + 1] = counts[j];
+                j--;
+            }
+            prices[j + 1] = price;
+            counts[j + 1] = count;
+        }
+    }
+
+    private void heapSort() {
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i, size);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    private void siftDown(int root, int end) {
+        while (true) {
+            var child = 2 * root + 1;
+            if (child >= end) {
+                return;
+            }
+            if (child + 1 < end && prices[child + 1] > prices[child]) {
+                child++;
+            }
+            if (prices[root] >= prices[child]) {
+                return;
+            }
+            swap(root, child);
+            root = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        var price = prices[i];
+        prices[i] = prices[j];
+        prices[j] = price;
+        var count = counts[i];
+        counts[i] = counts[j];
+        counts[j] = count;
+    }
+
+    void skipEmptyRuns() {
+        while (runLeft <= 0 && run + 1 < size) {
+            run++;
+            runLeft = counts[run];
+        }
+    }
+
+    boolean hasNext() {
+        skipEmptyRuns();
+        return runLeft > 0;
+    }
+
+    double unitPrice() {
+        return prices[run];
+    }
+
+    double pollUnitPrice() {
+        skipEmptyRuns();
+        runLeft--;
+        return prices[run];
+    }
+}
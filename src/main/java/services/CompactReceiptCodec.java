@@ -0,0 +1,248 @@
+package services;
+
+import dto.request.CompactBasket;
+import dto.response.ReceiptPriceSavingItem;
+import dto.response.ReceiptProductItem;
+import dto.response.ReceiptResponse;
+import entity.Product;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.function.LongFunction;
+
+// Line-based UTF-8 encoding used by PricingServer.
+//   basket   "[basket=<basketId>] [tier=<customerTier>] [store=<storeId>] <productId>:<quantity> ..."
+//            The header fields are written only when they are not 0. Lines carry no prices: the server prices each
+//            product from its own catalog, resolved through its PriceBook for the tier and store in the header.
+//            Plain "<productId>:<quantity>" lists, as in the text transaction log, are still valid. A decoded
+//            basket has at most MAX_LINES lines, and each line a finite quantity from 0 to MAX_QUANTITY.
+//   receipt  "R <pricingVersion> <productSubTotal> <savingsSubTotal> <grandTotal>"
+//            then "P <quantity> <price> <weighed> <weightKg> <pricePerKg> <name>" per product item
+//            and "S <count> <deduction> <name>" per savings item
+// Amounts are written with Double.toString, so a decoded receipt has exactly the encoder's values.
+public final class CompactReceiptCodec {
+    public static final int MAX_LINES = 10_000;
+    public static final double MAX_QUANTITY = 100_000;
+
+    private CompactReceiptCodec() {
+    }
+
+    public static byte[] encodeBasket(CompactBasket basket) {
+        var out = new StringBuilder(24 + basket.size() * 12);
+        appendHeader(out, "basket=", basket.getBasketId());
+        appendHeader(out, "tier=", basket.getCustomerTier());
+        appendHeader(out, "store=", basket.getStoreId());
+        for (int i = 0; i < basket.size(); i++) {
+            if (out.length() > 0) {
+                out.append(' ');
+            }
+            out.append(basket.getId(i)).append(':');
+            var quantity = basket.getQuantity(i);
+            if (quantity == (long) quantity) {
+                out.append((long) quantity);
+            } else {
+                out.append(quantity);
+            }
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendHeader(StringBuilder out, String key, long value) {
+        if (value != 0) {
+            if (out.length() > 0) {
+                out.append(' ');
+            }
+            out.append(key).append(value);
+        }
+    }
+
+    public static CompactBasket decodeBasket(byte[] body, LongFunction<Product> productLookup) {
+        var text = new String(body, StandardCharsets.UTF_8).trim();
+        var basket = new CompactBasket();
+        if (text.isEmpty()) {
+            return basket;
+        }
+        for (var token : text.split("[\\s,]+")) {
+            var equals = token.indexOf('=');
+            if (equals > 0) {
+                decodeHeader(basket, token, equals);
+                continue;
+            }
+            var colon = token.indexOf(':');
+            if (colon <= 0 || colon == token.length() - 1) {
+                throw new IllegalArgumentException("Expected productId:quantity but got '" + token + "'");
+            }
+            long productId;
+            double quantity;
+            try {
+                productId = Long.parseLong(token.substring(0, colon));
+                quantity = Double.parseDouble(token.substring(colon + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Expected productId:quantity but got '" + token + "'");
+            }
+            // NaN fails both comparisons, so it is rejected with the infinities and the negatives
+            if (!(quantity >= 0 && quantity <= MAX_QUANTITY)) {
+                throw new IllegalArgumentException("Quantities must be from 0 to " + (long) MAX_QUANTITY + ": '" + token + "'");
+            }
+            var product = productLookup.apply(productId);
+            if (product == null) {
+                throw new IllegalArgumentException("Unknown product " + productId);
+            }
+            basket.add(product, quantity);
+            // A product may be listed more than once; its lines add up and the sum is what gets priced
+            if (basket.getQuantityOf(productId) > MAX_QUANTITY) {
+                throw new IllegalArgumentException("Quantities must be from 0 to " + (long) MAX_QUANTITY + ": product " + productId);
+            }
+            if (basket.size() > MAX_LINES) {
+                throw new IllegalArgumentException("More than " + MAX_LINES + " lines in one basket");
+            }
+        }
+        return basket;
+    }
+
+    private static void decodeHeader(CompactBasket basket, String token, int equals) {
+        var key = token.substring(0, equals);
+        long value;
+        try {
+            value = Long.parseLong(token.substring(equals + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected " + key + "=<number> but got '" + token + "'");
+        }
+        switch (key) {
+            case "basket":
+                basket.setBasketId(value);
+                break;
+            case "tier":
+                basket.setCustomerTier(checkInt(token, value));
+                break;
+            case "store":
+                basket.setStoreId(checkInt(token, value));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown basket field '" + token + "'");
+        }
+    }
+
+    private static int checkInt(String token, long value) {
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Out of range: '" + token + "'");
+        }
+        return (int) value;
+    }
+
+    public static byte[] encodeReceipt(ReceiptResponse receipt) {
+        var out = new StringBuilder(64 + receipt.getProductItems().size() * 48 + receipt.getSavingsItems().size() * 40);
+        out.append("R ").append(receipt.getPricingVersion())
+                .append(' ').append(receipt.getProductSubTotal())
+                .append(' ').append(receipt.getSavingsSubTotal())
+                .append(' ').append(receipt.getGrandTotal()).append('\n');
+        for (var item : receipt.getProductItems()) {
+            out.append("P ").append(item.getQuantity())
+                    .append(' ').append(item.getPrice())
+                    .append(' ').append(item.isWeighed() ? 1 : 0)
+                    .append(' ').append(item.getWeightKg())
+                    .append(' ').append(item.getPricePerKg())
+                    .append(' ');
+            appendName(out, item.getProductName());
+        }
+        for (var item : receipt.getSavingsItems()) {
+            out.append("S ").append(item.getCount())
+                    .append(' ').append(item.getDeduction())
+                    .append(' ');
+            appendName(out, item.getName());
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static ReceiptResponse decodeReceipt(byte[] body) {
+        var receipt = ReceiptResponse.builder()
+                .productItems(new ArrayList<>())
+                .savingsItems(new ArrayList<>())
+                .build();
+        var text = new String(body, StandardCharsets.UTF_8);
+        var sawTotals = false;
+        for (var line : text.split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                sawTotals |= decodeReceiptLine(receipt, line);
+            } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed receipt line '" + line + "'", e);
+            }
+        }
+        if (!sawTotals) {
+            throw new IllegalArgumentException("Receipt has no totals line");
+        }
+        return receipt;
+    }
+
+    // True for the totals line
+    private static boolean decodeReceiptLine(ReceiptResponse receipt, String line) {
+        switch (line.charAt(0)) {
+            case 'R': {
+                var fields = line.split(" ", 5);
+                receipt.setPricingVersion(Long.parseLong(fields[1]));
+                receipt.setProductSubTotal(Double.parseDouble(fields[2]));
+                receipt.setSavingsSubTotal(Double.parseDouble(fields[3]));
+                receipt.setGrandTotal(Double.parseDouble(fields[4]));
+                return true;
+            }
+            case 'P': {
+                var fields = line.split(" ", 7);
+                var name = unescape(fields[6]);
+                var price = Double.parseDouble(fields[2]);
+                var item = "1".equals(fields[3])
+                        ? ReceiptProductItem.weighed(name, Double.parseDouble(fields[4]), Double.parseDouble(fields[5]), price)
+                        : ReceiptProductItem.builder().name(name).price(price).build();
+                item.setQuantity(Integer.parseInt(fields[1]));
+                receipt.getProductItems().add(item);
+                return false;
+            }
+            case 'S': {
+                var fields = line.split(" ", 4);
+                receipt.getSavingsItems().add(ReceiptPriceSavingItem.builder()
+                        .count(Long.parseLong(fields[1]))
+                        .deduction(Double.parseDouble(fields[2]))
+                        .name(unescape(fields[3]))
+                        .build());
+                return false;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown receipt line '" + line + "'");
+        }
+    }
+
+    private static void appendName(StringBuilder out, String name) {
+        if (name != null) {
+            for (int i = 0; i < name.length(); i++) {
+                var c = name.charAt(i);
+                if (c == '\\') {
+                    out.append("\\\\");
+                } else if (c == '\n') {
+                    out.append("\\n");
+                } else {
+                    out.append(c);
+                }
+            }
+        }
+        out.append('\n');
+    }
+
+    private static String unescape(String name) {
+        if (name.indexOf('\\') < 0) {
+            return name;
+        }
+        var out = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            var c = name.charAt(i);
+            if (c == '\\' && i + 1 < name.length()) {
+                c = name.charAt(++i);
+                out.append(c == 'n' ? '\n' : c);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,239 @@
+package services;
+
+import dto.request.Basket;
+import dto.request.CompactBasket;
+import dto.response.PricingTrace;
+import dto.response.PricingTraceEvent;
+import dto.response.ReceiptPriceSavingItem;
+import dto.response.ReceiptProductItem;
+import dto.response.ReceiptResponse;
+import entity.*;
+import interfaces.PricingRules;
+import util.Money;
+
+import java.util.Arrays;
+
+
+// MoneyMode.FIXED_POINT pricing: the same rules as BasketCalculatorImpl's double path, computed in long pence and
+// long grams. Totals are exact; the double receipt fields are derived from the pence totals at the end.
+final class FixedPointBasketPricing {
+    private FixedPointBasketPricing() {
+    }
+
+    static ReceiptResponse calculate(PricingRules pricingCatalog, Basket basket, PricingScratch scratch) {
+        return calculate(pricingCatalog, basket, scratch, BasketCalculatorImpl.newReceipt(pricingCatalog));
+    }
+
+    static ReceiptResponse calculate(PricingRules pricingCatalog, Basket basket, PricingScratch scratch, ReceiptResponse receipt) {
+        for (var entry : basket.entrySet()) {
+            addLine(pricingCatalog, scratch, entry.getKey(), entry.getValue(), receipt, null);
+        }
+        return finish(pricingCatalog, scratch, receipt, null);
+    }
+
+    static ReceiptResponse calculate(PricingRules pricingCatalog, CompactBasket basket, PricingScratch scratch) {
+        var receipt = BasketCalculatorImpl.newReceipt(pricingCatalog);
+        for (int line = 0; line < basket.size(); line++) {
+            addLine(pricingCatalog, scratch, basket.getProduct(line), basket.getQuantity(line), receipt, null);
+        }
+        return finish(pricingCatalog, scratch, receipt, null);
+    }
+
+    static ReceiptResponse calculate(PricingRules pricingCatalog, Product[] products, double[] quantities, PricingScratch scratch, PricingTrace trace) {
+        var receipt = BasketCalculatorImpl.newReceipt(pricingCatalog);
+        for (int line = 0; line < products.length; line++) {
+            addLine(pricingCatalog, scratch, products[line], quantities[line], receipt, trace);
+        }
+        return finish(pricingCatalog, scratch, receipt, trace);
+    }
+
+    private static void addLine(PricingRules pricingCatalog, PricingScratch scratch, Product product, double quantity, ReceiptResponse receipt, PricingTrace trace) {
+        var index = pricingCatalog.indexOf(product.getId());
+        var group = pricingCatalog.dealGroupOf(index, product.getCategory());
+        if (trace != null) {
+            trace.add(PricingTraceEvent.line(product, quantity, group));
+        }
+
+        if (group >= 0) {
+            scratch.runs(group).add(product.getPrice(), (int) quantity);
+        } else {
+            calculateProductPrice(product, quantity, pricingCatalog.getProductPricings(index), receipt, trace);
+        }
+        addProductItem(product, quantity, receipt);
+    }
+
+    private static ReceiptResponse finish(PricingRules pricingCatalog, PricingScratch scratch, ReceiptResponse receipt, PricingTrace trace) {
+        addCategoryGroups(pricingCatalog, scratch, receipt, trace);
+        return setPoundTotals(receipt);
+    }
+
+    // The steps below are also run one pass at a time by BasketCalculatorImpl.priceInstrumented, so each phase can be
+    // timed. Pence sums do not depend on order, so the receipt is the same either way.
+    static void addCategoryGroups(PricingRules pricingCatalog, PricingScratch scratch, ReceiptResponse receipt, PricingTrace trace) {
+        scratch.sortGroups();
+        for (int i = 0; i < scratch.groupCount(); i++) {
+            var pricing = pricingCatalog.getDealGroupPricing(scratch.group(i));
+            if (trace != null) {
+                var units = scratch.groupRuns(i).totalQuantity();
+                trace.add(PricingTraceEvent.dealGroup(scratch.group(i), pricing, units, units / (long) pricing.getQuantity()));
+            }
+            calculateCategoryProductPrice(pricing, scratch.groupRuns(i), receipt, trace);
+        }
+    }
+
+    static ReceiptResponse setPoundTotals(ReceiptResponse receipt) {
+        receipt.setProductSubTotal(Money.toPounds(receipt.getProductSubTotalMinor()));
+        receipt.setSavingsSubTotal(Money.toPounds(receipt.getSavingsSubTotalMinor()));
+        receipt.setGrandTotal(Money.toPounds(receipt.getGrandTotalMinor()));
+        return receipt;
+    }
+
+    static void calculateProductPrice(Product product, double quantity, PricingStructure[] pricings, ReceiptResponse receipt) {
+        calculateProductPrice(product, quantity, pricings, receipt, null);
+    }
+
+    private static void calculateProductPrice(Product product, double quantity, PricingStructure[] pricings, ReceiptResponse receipt, PricingTrace trace) {
+        var measured = product.isMeasuredPerKg();
+        var unitPence = Money.toPence(product.getPrice());
+        var remaining = units(quantity, measured);
+        long price = 0;
+        long savings = 0;
+
+        for (var pricing : pricings) {
+            var bundleSize = units(pricing.getQuantity(), measured);
+            if (bundleSize <= 0) {
+                continue;
+            }
+            var bundles = remaining / bundleSize;
+            remaining = remaining % bundleSize;
+            var bundlePrice = Money.toPence(pricing.getPrice()) + amount(unitPence, units(pricing.getNewQuantity(), measured), measured);
+            var bundleSavings = bundlePrice - amount(unitPence, bundleSize, measured);
+            if (trace != null) {
+                trace.add(PricingTraceEvent.offer(product, pricing, bundles, measured ? remaining / 1000.0 : remaining,
+                        Money.toPounds(bundleSavings)));
+            }
+
+            if (bundles > 0) {
+                price += bundles * bundlePrice;
+                savings += bundles * bundleSavings;
+
+                if (receipt.getSavingsItems() != null) {
+                    receipt.getSavingsItems().add(ReceiptPriceSavingItem.builder()
+                            .name(pricing.getName())
+                            .count(bundles)
+                            .deduction(Money.toPounds(bundleSavings))
+                            .build());
+                }
+            }
+        }
+
+        price += amount(unitPence, remaining, measured);
+        receipt.setGrandTotalMinor(receipt.getGrandTotalMinor() + price);
+        receipt.setSavingsSubTotalMinor(receipt.getSavingsSubTotalMinor() + savings);
+    }
+
+    private static void calculateCategoryProductPrice(PricingStructure pricing, CategoryRuns cursor, ReceiptResponse receipt, PricingTrace trace) {
+        cursor.sortByPrice();
+        var totalQuantity = cursor.totalQuantity();
+
+        var bundleSize = (long) pricing.getQuantity();
+        var bundlePrice = Money.toPence(pricing.getPrice());
+        var bundles = totalQuantity / bundleSize;
+        var firstSavingsItem = receipt.getSavingsItems() == null ? 0 : receipt.getSavingsItems().size();
+        long price = bundles * bundlePrice;
+        long savings = 0;
+
+        var bundlesLeft = bundles;
+        while (bundlesLeft > 0) {
+            cursor.skipEmptyRuns();
+            if (cursor.runLeft >= bundleSize) {
+                var sameBundles = Math.min(cursor.runLeft / bundleSize, bundlesLeft);
+                var originalPrice = Money.toPence(cursor.unitPrice()) * bundleSize;
+                if (trace != null) {
+                    var unitPrices = new double[(int) bundleSize];
+                    Arrays.fill(unitPrices, cursor.unitPrice());
+                    trace.add(PricingTraceEvent.groupBundle(pricing, sameBundles, unitPrices, Money.toPounds(bundlePrice - originalPrice)));
+                }
+                cursor.runLeft -= sameBundles * bundleSize;
+                bundlesLeft -= sameBundles;
+                savings += addCategorySavings(receipt, firstSavingsItem, pricing, bundlePrice - originalPrice, sameBundles);
+            } else {
+                var unitPrices = trace == null ? null : new double[(int) bundleSize];
+                long originalPrice = 0;
+                for (int j = 0; j < bundleSize; j++) {
+                    var unitPrice = cursor.pollUnitPrice();
+                    if (unitPrices != null) {
+                        unitPrices[j] = unitPrice;
+                    }
+                    originalPrice += Money.toPence(unitPrice);
+                }
+                bundlesLeft--;
+                if (trace != null) {
+                    trace.add(PricingTraceEvent.groupBundle(pricing, 1, unitPrices, Money.toPounds(bundlePrice - originalPrice)));
+                }
+                savings += addCategorySavings(receipt, firstSavingsItem, pricing, bundlePrice - originalPrice, 1);
+            }
+        }
+
+        long fullPriceUnits = 0;
+        long fullPriceAmount = 0;
+        while (cursor.hasNext()) {
+            var unitPence = Money.toPence(cursor.pollUnitPrice());
+            price += unitPence;
+            fullPriceUnits++;
+            fullPriceAmount += unitPence;
+        }
+        if (trace != null && fullPriceUnits > 0) {
+            trace.add(PricingTraceEvent.fullPriceUnits(fullPriceUnits, Money.toPounds(fullPriceAmount)));
+        }
+        receipt.setGrandTotalMinor(receipt.getGrandTotalMinor() + price);
+        receipt.setSavingsSubTotalMinor(receipt.getSavingsSubTotalMinor() + savings);
+    }
+
+    private static long addCategorySavings(ReceiptResponse receipt, int firstSavingsItem, PricingStructure pricing, long bundleSavings, long bundles) {
+        var savingsItems = receipt.getSavingsItems();
+        if (savingsItems == null) {
+            return bundleSavings * bundles;
+        }
+        var deduction = Money.toPounds(bundleSavings);
+        var lastItem = savingsItems.size() > firstSavingsItem ? savingsItems.get(savingsItems.size() - 1) : null;
+
+        if (lastItem != null && lastItem.getDeduction() == deduction) {
+            lastItem.setCount(lastItem.getCount() + bundles);
+        } else {
+            savingsItems.add(ReceiptPriceSavingItem.builder()
+                    .name(pricing.getName())
+                    .count(bundles)
+                    .deduction(deduction)
+                    .build());
+        }
+        return bundleSavings * bundles;
+    }
+
+    static void addProductItem(Product product, double quantity, ReceiptResponse receipt) {
+        var measured = product.isMeasuredPerKg();
+        var unitPence = Money.toPence(product.getPrice());
+        var subtotal = amount(unitPence, units(quantity, measured), measured);
+        receipt.setProductSubTotalMinor(receipt.getProductSubTotalMinor() + subtotal);
+        if (receipt.getProductItems() == null) {
+            return;
+        }
+
+        receipt.getProductItems().add(measured
+                ? ReceiptProductItem.weighed(product.getName(), quantity, product.getPrice(), Money.toPounds(subtotal))
+                : ReceiptProductItem.builder()
+                        .name(product.getName())
+                        .quantity((int) Math.ceil(quantity))
+                        .price(Money.toPounds(unitPence))
+                        .build());
+    }
+
+    // Counted goods are priced in whole units, weighed goods in grams
+    private static long units(double quantity, boolean measured) {
+        return measured ? Money.toGrams(quantity) : (long) quantity;
+    }
+
+    private static long amount(long unitPence, long units, boolean measured) {
+        return measured ? Money.weighedPrice(unitPence, units) : unitPence * units;
+    }
+}
@@ -0,0 +1,75 @@
+package services;
+
+import dto.response.LatencySnapshot;
+import dto.response.PricingMetricsSnapshot;
+import entity.PricingPhase;
+import interfaces.PricingMetrics;
+import util.LatencyHistogram;
+
+import java.util.EnumMap;
+
+// PricingMetrics that keeps a histogram per phase and per basket count, for scraping with snapshot().
+public class HistogramPricingMetrics implements PricingMetrics {
+    private final EnumMap<PricingPhase, LatencyHistogram> phases = new EnumMap<>(PricingPhase.class);
+    private final LatencyHistogram lines = new LatencyHistogram();
+    private final LatencyHistogram bundles = new LatencyHistogram();
+    private final LatencyHistogram savingsItems = new LatencyHistogram();
+
+    public HistogramPricingMetrics() {
+        for (var phase : PricingPhase.values()) {
+            phases.put(phase, new LatencyHistogram());
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void recordPhase(PricingPhase phase, long nanos) {
+        phases.get(phase).record(nanos);
+    }
+
+    @Override
+    public void recordBasket(int lines, long bundles, int savingsItems) {
+        this.lines.record(lines);
+        this.bundles.record(bundles);
+        this.savingsItems.record(savingsItems);
+    }
+
+    public LatencyHistogram getPhaseHistogram(PricingPhase phase) {
+        return phases.get(phase);
+    }
+
+    public PricingMetricsSnapshot snapshot() {
+        var phaseSnapshots = new EnumMap<PricingPhase, LatencySnapshot>(PricingPhase.class);
+        for (var phase : phases.entrySet()) {
+            phaseSnapshots.put(phase.getKey(), snapshot(phase.getValue()));
+        }
+        return PricingMetricsSnapshot.builder()
+                .phases(phaseSnapshots)
+                .linesPerBasket(snapshot(lines))
+                .bundlesPerBasket(snapshot(bundles))
+                .savingsItemsPerBasket(snapshot(savingsItems))
+                .build();
+    }
+
+    public void reset() {
+        phases.values().forEach(LatencyHistogram::reset);
+        lines.reset();
+        bundles.reset();
+        savingsItems.reset();
+    }
+
+    private static LatencySnapshot snapshot(LatencyHistogram histogram) {
+        return LatencySnapshot.builder()
+                .count(histogram.getCount())
+                .mean(histogram.getMean())
+                .p50(histogram.getValueAtPercentile(50))
+                .p99(histogram.getValueAtPercentile(99))
+                .p999(histogram.getValueAtPercentile(99.9))
+                .max(histogram.getMax())
+                .build();
+    }
+}
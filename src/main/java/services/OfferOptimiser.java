@@ -0,0 +1,374 @@
+package services;
+
+import entity.PricingStructure;
+import entity.Product;
+import interfaces.PricingRules;
+
+import java.util.*;
+
+// Chooses the cheapest combination of a basket's overlapping offers. Each counted line can split its units between
+// its own multi-buy offers and its deal group's mixed-set deal. Own offers are solved by dynamic programming over unit
+// counts; the split for each deal group is searched exhaustively, starting from "everything in the mixed set",
+// until the evaluation or time budget runs out, in which case the best split found so far is kept.
+// The dynamic programming shares one cell budget across the whole basket and watches the same deadline as the search;
+// a line it cannot afford, or that the clock cuts short, falls back to the greedy list-order result.
+final class OfferOptimiser {
+    private static final double EPSILON = 1e-9;
+
+    private final long searchBudget;
+    private final long timeBudgetNanos;
+    private final long dpBudget;
+
+    OfferOptimiser(long searchBudget, long timeBudgetNanos, long dpBudget) {
+        this.searchBudget = searchBudget;
+        this.timeBudgetNanos = timeBudgetNanos;
+        this.dpBudget = dpBudget;
+    }
+
+    OfferPlan solve(PricingRules pricingCatalog, Product[] products, double[] quantities) {
+        var deadline = System.nanoTime() + timeBudgetNanos;
+        var plan = new OfferPlan(products.length);
+        var dpCells = new DpCells(dpBudget, deadline);
+        var groups = new TreeMap<Integer, List<Integer>>();
+
+        for (int i = 0; i < products.length; i++) {
+            var product = products[i];
+            var index = pricingCatalog.indexOf(product.getId());
+            var offers = pricingCatalog.getProductPricings(index);
+
+            var group = pricingCatalog.dealGroupOf(index, product.getCategory());
+
+            if (group >= 0) {
+                var units = (long) (int) quantities[i];
+                plan.units[i] = Math.max(units, 0);
+                if (isWholeUnits(product, quantities[i]) && hasWholeBundles(offers)) {
+                    plan.ownOffers[i] = new OwnOffers(product.getPrice(), offers, plan.units[i], dpCells);
+                }
+                groups.computeIfAbsent(group, k -> new ArrayList<>()).add(i);
+            } else if (offers.length > 0 && isWholeUnits(product, quantities[i]) && hasWholeBundles(offers)) {
+                plan.units[i] = (long) quantities[i];
+                plan.ownOffers[i] = new OwnOffers(product.getPrice(), offers, plan.units[i], dpCells);
+                plan.planned[i] = true;
+            }
+        }
+
+        plan.exhaustedBudget |= dpCells.exhausted;
+        plan.timedOut |= dpCells.timedOut;
+
+        for (var group : groups.entrySet()) {
+            var pricing = pricingCatalog.getDealGroupPricing(group.getKey());
+            if (!hasWholeBundles(new PricingStructure[]{pricing})) {
+                continue;
+            }
+            solveGroup(plan, group.getValue(), pricing, products, deadline);
+        }
+        return plan;
+    }
+
+    private void solveGroup(OfferPlan plan, List<Integer> lines, PricingStructure pricing, Product[] products, long deadline) {
+        // Most expensive first, the order poolCost fills bundles in. BasketCalculatorImpl fills them cheapest first;
+        // bundling the dearest units is what lets a plan save more than the greedy result.
+        lines.sort(Comparator.comparingDouble((Integer i) -> products[i].getPrice()).reversed());
+        var size = lines.size();
+        var prices = new double[size];
+        var units = new long[size];
+        var own = new OwnOffers[size];
+        var free = new ArrayList<Integer>();
+        for (int i = 0; i < size; i++) {
+            var line = lines.get(i);
+            prices[i] = products[line].getPrice();
+            units[i] = plan.units[line];
+            own[i] = plan.ownOffers[line];
+            if (own[i] != null && units[i] > 0) {
+                free.add(i);
+            }
+        }
+
+        var search = new GroupSearch(prices, units, own, free, (int) pricing.getQuantity(), pricing.getPrice(), deadline);
+        search.run();
+        plan.exhaustedBudget |= search.exhausted;
+        plan.timedOut |= search.timedOut;
+
+        for (int i = 0; i < size; i++) {
+            var line = lines.get(i);
+            plan.poolUnits[line] = search.best[i];
+            plan.planned[line] = true;
+        }
+    }
+
+    private static boolean isWholeUnits(Product product, double quantity) {
+        return !product.isMeasuredPerKg() && quantity >= 0 && quantity == Math.rint(quantity);
+    }
+
+    private static boolean hasWholeBundles(PricingStructure[] offers) {
+        for (var offer : offers) {
+            if (offer == null || offer.getQuantity() < 1 || offer.getQuantity() != Math.rint(offer.getQuantity())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Cost of pricing a group's pooled units with the mixed-set deal. Bundles are filled from the most expensive units
+    // and only while a bundle costs less than its units would on their own. Reports each run of identical bundles to sink.
+    static double poolCost(double[] prices, long[] units, int bundleSize, double bundlePrice, BundleSink sink) {
+        var cost = 0.0;
+        long remaining = 0;
+        for (var count : units) {
+            remaining += count;
+        }
+
+        var run = 0;
+        var runLeft = units.length > 0 ? units[0] : 0;
+        while (remaining >= bundleSize) {
+            while (runLeft <= 0) {
+                run++;
+                runLeft = units[run];
+            }
+            if (runLeft >= bundleSize) {
+                var originalPrice = 0.0;
+                for (int j = 0; j < bundleSize; j++) {
+                    originalPrice += prices[run];
+                }
+                if (originalPrice <= bundlePrice + EPSILON) {
+                    break;
+                }
+                var bundles = runLeft / bundleSize;
+                cost += bundles * bundlePrice;
+                runLeft -= bundles * bundleSize;
+                remaining -= bundles * bundleSize;
+                if (sink != null) {
+                    sink.accept(originalPrice, bundles);
+                }
+            } else {
+                var originalPrice = 0.0;
+                var peekRun = run;
+                var peekLeft = runLeft;
+                for (int j = 0; j < bundleSize; j++) {
+                    while (peekLeft <= 0) {
+                        peekRun++;
+                        peekLeft = units[peekRun];
+                    }
+                    originalPrice += prices[peekRun];
+                    peekLeft--;
+                }
+                if (originalPrice <= bundlePrice + EPSILON) {
+                    break;
+                }
+                cost += bundlePrice;
+                run = peekRun;
+                runLeft = peekLeft;
+                remaining -= bundleSize;
+                if (sink != null) {
+                    sink.accept(originalPrice, 1);
+                }
+            }
+        }
+
+        // Whatever is left is paid for unit by unit
+        if (remaining > 0) {
+            cost += prices[run] * Math.max(runLeft, 0);
+            for (int i = run + 1; i < units.length; i++) {
+                cost += prices[i] * units[i];
+            }
+        }
+        return cost;
+    }
+
+    interface BundleSink {
+        void accept(double originalPrice, long bundles);
+    }
+
+    private final class GroupSearch {
+        private final double[] prices;
+        private final long[] units;
+        private final OwnOffers[] own;
+        private final List<Integer> free;
+        private final int bundleSize;
+        private final double bundlePrice;
+        private final long deadline;
+        private final long[] pool;
+        private final long[] best;
+        private double bestCost = Double.MAX_VALUE;
+        private long evaluations;
+        private boolean exhausted;
+        private boolean timedOut;
+
+        private GroupSearch(double[] prices, long[] units, OwnOffers[] own, List<Integer> free, int bundleSize, double bundlePrice, long deadline) {
+            this.prices = prices;
+            this.units = units;
+            this.own = own;
+            this.free = free;
+            this.bundleSize = bundleSize;
+            this.bundlePrice = bundlePrice;
+            this.deadline = deadline;
+            this.pool = units.clone();
+            this.best = units.clone();
+        }
+
+        private void run() {
+            search(0);
+        }
+
+        private void search(int depth) {
+            if (exhausted) {
+                return;
+            }
+            if (depth == free.size()) {
+                evaluate();
+                return;
+            }
+            var line = free.get(depth);
+            for (var inPool = units[line]; inPool >= 0 && !exhausted; inPool--) {
+                pool[line] = inPool;
+                search(depth + 1);
+            }
+            pool[line] = units[line];
+        }
+
+        private void evaluate() {
+            var cost = poolCost(prices, pool, bundleSize, bundlePrice, null);
+            for (var line : free) {
+                cost += own[line].cost(units[line] - pool[line]);
+            }
+            if (cost < bestCost - EPSILON) {
+                bestCost = cost;
+                System.arraycopy(pool, 0, best, 0, pool.length);
+            }
+            evaluations++;
+            if (evaluations >= searchBudget) {
+                exhausted = true;
+            } else if ((evaluations & 255) == 1 && System.nanoTime() > deadline) {
+                exhausted = true;
+                timedOut = true;
+            }
+        }
+    }
+
+    // What the dynamic programming of one basket may spend: table cells across all its lines, and the solve deadline
+    static final class DpCells {
+        private long left;
+        private final long deadline;
+        boolean exhausted;
+        boolean timedOut;
+
+        DpCells(long budget, long deadline) {
+            this.left = budget;
+            this.deadline = deadline;
+        }
+    }
+
+    // A line's own multi-buy offers. Solved exactly by dynamic programming when units x offers fits what is left of
+    // the basket's cell budget and the deadline has not passed, otherwise applied greedily in list order like
+    // BasketCalculatorImpl.
+    static final class OwnOffers {
+        private final double unitPrice;
+        private final int[] sizes;
+        private final double[] bundleCosts;
+        private double[] best;
+        private int[] choice;
+
+        OwnOffers(double unitPrice, PricingStructure[] offers, long units, DpCells dpCells) {
+            this.unitPrice = unitPrice;
+            this.sizes = new int[offers.length];
+            this.bundleCosts = new double[offers.length];
+            for (int o = 0; o < offers.length; o++) {
+                sizes[o] = (int) offers[o].getQuantity();
+                bundleCosts[o] = offers[o].getPrice() + offers[o].getNewQuantity() * unitPrice;
+            }
+            if (offers.length == 0 || units <= 0) {
+                return;
+            }
+            var cells = units * offers.length;
+            if (cells > dpCells.left) {
+                dpCells.exhausted = true;
+            } else if (System.nanoTime() > dpCells.deadline) {
+                dpCells.exhausted = true;
+                dpCells.timedOut = true;
+            } else {
+                dpCells.left -= cells;
+                if (!solve((int) units, dpCells.deadline)) {
+                    best = null;
+                    choice = null;
+                    dpCells.exhausted = true;
+                    dpCells.timedOut = true;
+                }
+            }
+        }
+
+        // False when the deadline passed before the table was complete
+        private boolean solve(int units, long deadline) {
+            best = new double[units + 1];
+            choice = new int[units + 1];
+            for (int i = 1; i <= units; i++) {
+                if ((i & 4095) == 0 && System.nanoTime() > deadline) {
+                    return false;
+                }
+                best[i] = best[i - 1] + unitPrice;
+                choice[i] = -1;
+                for (int o = 0; o < sizes.length; o++) {
+                    if (sizes[o] <= i && best[i - sizes[o]] + bundleCosts[o] < best[i] - EPSILON) {
+                        best[i] = best[i - sizes[o]] + bundleCosts[o];
+                        choice[i] = o;
+                    }
+                }
+            }
+            return true;
+        }
+
+        double cost(long units) {
+            if (best != null) {
+                return best[(int) units];
+            }
+            var cost = 0.0;
+            for (int o = 0; o < sizes.length; o++) {
+                cost += (units / sizes[o]) * bundleCosts[o];
+                units %= sizes[o];
+            }
+            return cost + units * unitPrice;
+        }
+
+        long[] bundles(long units) {
+            var bundles = new long[sizes.length];
+            if (best != null) {
+                for (var i = (int) units; i > 0; ) {
+                    if (choice[i] < 0) {
+                        i--;
+                    } else {
+                        bundles[choice[i]]++;
+                        i -= sizes[choice[i]];
+                    }
+                }
+                return bundles;
+            }
+            for (int o = 0; o < sizes.length; o++) {
+                bundles[o] = units / sizes[o];
+                units %= sizes[o];
+            }
+            return bundles;
+        }
+    }
+
+    // Per line, in the order the lines were passed to solve(): how many units go to own offers and how many to the
+    // category pool. Lines that are not planned are priced by the standard greedy rules.
+    static final class OfferPlan {
+        final boolean[] planned;
+        final long[] units;
+        final long[] poolUnits;
+        final OwnOffers[] ownOffers;
+        boolean exhaustedBudget;
+        // The search was cut by the clock rather than the evaluation count, so solving again may give another plan
+        boolean timedOut;
+
+        private OfferPlan(int lines) {
+            planned = new boolean[lines];
+            units = new long[lines];
+            poolUnits = new long[lines];
+            ownOffers = new OwnOffers[lines];
+        }
+
+        long[] ownBundles(int line) {
+            return ownOffers[line] == null ? new long[0] : ownOffers[line].bundles(units[line] - poolUnits[line]);
+        }
+    }
+}
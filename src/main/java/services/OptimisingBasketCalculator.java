@@ -0,0 +1,215 @@
+package services;
+
+import dto.request.Basket;
+import dto.response.ReceiptPriceSavingItem;
+import dto.response.ReceiptResponse;
+import entity.PricingStructure;
+import entity.Product;
+import interfaces.BasketCalculator;
+import interfaces.PricingRules;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Prices a basket with the cheapest combination of its overlapping offers instead of applying them greedily. A line
+// may split its units between its own multi-buy offers and its category's mixed-set deal, and mixed-set bundles are
+// only formed where they save money. Solved plans are memoised by basket signature, so a repeat basket only pays for
+// building its receipt. A plan whose search ran out of time is not memoised: it depends on how busy the machine was,
+// so the basket is solved again next time rather than pinned to a poor split.
+public class OptimisingBasketCalculator implements BasketCalculator {
+    public static final long DEFAULT_SEARCH_BUDGET = 100_000;
+    public static final long DEFAULT_TIME_BUDGET_NANOS = 2_000_000;
+    public static final long DEFAULT_DP_BUDGET = 1_000_000;
+    public static final int DEFAULT_MEMO_SIZE = 1024;
+
+    private final PricingCatalogStore pricingCatalogStore;
+    private final OfferOptimiser offerOptimiser;
+    private final Map<BasketSignature, OfferOptimiser.OfferPlan> plans;
+    private final LongAdder solvedPlans = new LongAdder();
+    private final LongAdder memoisedPlans = new LongAdder();
+    private final LongAdder budgetExhaustedPlans = new LongAdder();
+
+    public OptimisingBasketCalculator(PricingCatalogStore pricingCatalogStore) {
+        this(pricingCatalogStore, DEFAULT_SEARCH_BUDGET, DEFAULT_TIME_BUDGET_NANOS, DEFAULT_DP_BUDGET, DEFAULT_MEMO_SIZE);
+    }
+
+    public OptimisingBasketCalculator(PricingCatalogStore pricingCatalogStore, long searchBudget, long timeBudgetNanos, long dpBudget, int memoSize) {
+        this.pricingCatalogStore = pricingCatalogStore;
+        this.offerOptimiser = new OfferOptimiser(searchBudget, timeBudgetNanos, dpBudget);
+        this.plans = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BasketSignature, OfferOptimiser.OfferPlan> eldest) {
+                return size() > memoSize;
+            }
+        });
+    }
+
+    public long getSolvedPlans() {
+        return solvedPlans.sum();
+    }
+
+    public long getMemoisedPlans() {
+        return memoisedPlans.sum();
+    }
+
+    public long getBudgetExhaustedPlans() {
+        return budgetExhaustedPlans.sum();
+    }
+
+    @Override
+    public ReceiptResponse calculateBasketPrice(Basket basket) {
+        var pricingCatalog = pricingCatalogStore.current();
+
+        // Lines in a canonical order, so equal baskets share a signature and a plan whatever their map order
+        var size = basket.size();
+        var products = new Product[size];
+        var quantities = new double[size];
+        var line = 0;
+        for (var entry : basket.entrySet()) {
+            products[line] = entry.getKey();
+            quantities[line] = entry.getValue();
+            line++;
+        }
+        var order = BasketSignature.canonicalOrder(products, quantities);
+        var canonicalProducts = new Product[size];
+        var canonicalQuantities = new double[size];
+        for (int i = 0; i < size; i++) {
+            canonicalProducts[i] = products[order[i]];
+            canonicalQuantities[i] = quantities[order[i]];
+        }
+
+        var signature = BasketSignature.of(pricingCatalog.getVersion(), basket.getCustomerTier(), basket.getStoreId(),
+                canonicalProducts, canonicalQuantities);
+        var plan = plans.get(signature);
+        if (plan != null) {
+            memoisedPlans.increment();
+        } else {
+            plan = offerOptimiser.solve(pricingCatalog, canonicalProducts, canonicalQuantities);
+            solvedPlans.increment();
+            if (plan.exhaustedBudget) {
+                budgetExhaustedPlans.increment();
+            }
+            if (!plan.timedOut) {
+                plans.put(signature, plan);
+            }
+        }
+
+        var position = new int[size];
+        for (int i = 0; i < size; i++) {
+            position[order[i]] = i;
+        }
+        return buildReceipt(pricingCatalog, plan, products, quantities, position, canonicalProducts);
+    }
+
+    private static ReceiptResponse buildReceipt(PricingRules pricingCatalog, OfferOptimiser.OfferPlan plan, Product[] products,
+                                                double[] quantities, int[] position, Product[] canonicalProducts) {
+        var receiptRes = BasketCalculatorImpl.newReceipt(pricingCatalog);
+        var unplannedGroups = new HashMap<Integer, CategoryRuns>();
+        var groups = new TreeSet<Integer>();
+
+        for (int i = 0; i < products.length; i++) {
+            var product = products[i];
+            var quantity = quantities[i];
+            var index = pricingCatalog.indexOf(product.getId());
+            var pricings = pricingCatalog.getProductPricings(index);
+            var planned = position[i];
+            var group = pricingCatalog.dealGroupOf(index, product.getCategory());
+            var categoryDeal = group >= 0;
+            if (categoryDeal) {
+                groups.add(group);
+            }
+
+            if (plan.planned[planned]) {
+                if (!categoryDeal || plan.ownOffers[planned] != null) {
+                    addOwnOffersToReceipt(product, plan.units[planned] - plan.poolUnits[planned], pricings, plan.ownBundles(planned), receiptRes);
+                }
+            } else if (categoryDeal) {
+                unplannedGroups.computeIfAbsent(group, k -> new CategoryRuns()).add(product.getPrice(), (int) quantity);
+            } else {
+                BasketCalculatorImpl.calculateProductPriceAndAddToReceipt(product, quantity, pricings, receiptRes);
+            }
+            BasketCalculatorImpl.addProductItemToReceipt(receiptRes, product, quantity);
+        }
+
+        for (var group : groups) {
+            var runs = unplannedGroups.get(group);
+            if (runs != null) {
+                BasketCalculatorImpl.calculateCategoryProductPriceAndAddToReceipt(pricingCatalog.getDealGroupPricing(group), runs, receiptRes);
+            } else {
+                addPoolToReceipt(pricingCatalog, group, plan, canonicalProducts, receiptRes);
+            }
+        }
+        return receiptRes;
+    }
+
+    private static void addOwnOffersToReceipt(Product product, long units, PricingStructure[] pricings, long[] bundles, ReceiptResponse receiptResponse) {
+        var price = 0.0;
+        var savingsTotal = 0.0;
+        var unitsLeft = units;
+
+        for (int o = 0; o < bundles.length; o++) {
+            if (bundles[o] == 0) {
+                continue;
+            }
+            var pricing = pricings[o];
+            var bundleCost = pricing.getPrice() + pricing.getNewQuantity() * product.getPrice();
+            var bundleSavings = ((pricing.getQuantity() * product.getPrice()) - bundleCost) * -1;
+            price += bundles[o] * bundleCost;
+            savingsTotal += bundles[o] * bundleSavings;
+            unitsLeft -= bundles[o] * (long) pricing.getQuantity();
+
+            receiptResponse.getSavingsItems().add(ReceiptPriceSavingItem.builder()
+                    .name(pricing.getName())
+                    .count(bundles[o])
+                    .deduction(bundleSavings)
+                    .build());
+        }
+
+        price += unitsLeft * product.getPrice();
+        receiptResponse.setGrandTotal(receiptResponse.getGrandTotal() + price);
+        receiptResponse.setSavingsSubTotal(receiptResponse.getSavingsSubTotal() + savingsTotal);
+    }
+
+    private static void addPoolToReceipt(PricingRules pricingCatalog, int group, OfferOptimiser.OfferPlan plan,
+                                         Product[] canonicalProducts, ReceiptResponse receiptResponse) {
+        var members = new ArrayList<Integer>();
+        for (int i = 0; i < canonicalProducts.length; i++) {
+            if (plan.planned[i] && BasketCalculatorImpl.dealGroupOf(pricingCatalog, canonicalProducts[i]) == group) {
+                members.add(i);
+            }
+        }
+        if (members.isEmpty()) {
+            return;
+        }
+
+        members.sort(Comparator.comparingDouble((Integer i) -> canonicalProducts[i].getPrice()).reversed());
+        var prices = new double[members.size()];
+        var units = new long[members.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = canonicalProducts[members.get(i)].getPrice();
+            units[i] = plan.poolUnits[members.get(i)];
+        }
+
+        var pricing = pricingCatalog.getDealGroupPricing(group);
+        var savingsItems = receiptResponse.getSavingsItems();
+        var firstSavingsItem = savingsItems.size();
+        var savings = new double[1];
+        var price = OfferOptimiser.poolCost(prices, units, (int) pricing.getQuantity(), pricing.getPrice(), (originalPrice, bundles) -> {
+            var deduction = (originalPrice - pricing.getPrice()) * -1;
+            var lastItem = savingsItems.size() > firstSavingsItem ? savingsItems.get(savingsItems.size() - 1) : null;
+            if (lastItem != null && lastItem.getDeduction() == deduction) {
+                lastItem.setCount(lastItem.getCount() + bundles);
+            } else {
+                savingsItems.add(ReceiptPriceSavingItem.builder()
+                        .name(pricing.getName())
+                        .count(bundles)
+                        .deduction(deduction)
+                        .build());
+            }
+            savings[0] += deduction * bundles;
+        });
+
+        receiptResponse.setGrandTotal(receiptResponse.getGrandTotal() + price);
+        receiptResponse.setSavingsSubTotal(receiptResponse.getSavingsSubTotal() + savings[0]);
+    }
+}
@@ -0,0 +1,133 @@
+package services;
+
+import dto.request.Basket;
+import dto.request.CompactBasket;
+import dto.response.BasketTotals;
+import dto.response.BatchPricingStats;
+import dto.response.BatchReceiptResponse;
+import dto.response.ReceiptResponse;
+import interfaces.BasketCalculator;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Prices batches of baskets in chunks on an executor. The delegate must be safe to share between threads;
+// BasketCalculatorImpl is, since each basket reads one rule version from its PricingCatalogStore, which publishes new
+// versions by swapping in a whole catalog, and its working state is per thread. Baskets must not be changed while a batch runs.
+public class ParallelBasketCalculator implements BasketCalculator {
+    private static final int DEFAULT_CHUNK_SIZE = 64;
+
+    private final BasketCalculator basketCalculator;
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final LongAdder totalBaskets = new LongAdder();
+    private final LongAdder totalElapsedNanos = new LongAdder();
+
+    public ParallelBasketCalculator(BasketCalculator basketCalculator) {
+        this(basketCalculator, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelBasketCalculator(BasketCalculator basketCalculator, ExecutorService executor, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.basketCalculator = basketCalculator;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public ReceiptResponse calculateBasketPrice(Basket basket) {
+        return basketCalculator.calculateBasketPrice(basket);
+    }
+
+    @Override
+    public ReceiptResponse calculateBasketPrice(CompactBasket basket) {
+        return basketCalculator.calculateBasketPrice(basket);
+    }
+
+    @Override
+    public BasketTotals calculateBasketTotals(Basket basket) {
+        return basketCalculator.calculateBasketTotals(basket);
+    }
+
+    @Override
+    public List<ReceiptResponse> calculateBasketPrices(List<Basket> baskets) {
+        return calculateBatch(baskets).getReceipts();
+    }
+
+    public BatchReceiptResponse calculateBatch(List<Basket> baskets) {
+        var start = System.nanoTime();
+        var receipts = new ReceiptResponse[baskets.size()];
+
+        var workerThreads = ConcurrentHashMap.<Long>newKeySet();
+        var tasks = new ArrayList<Callable<Void>>();
+        for (int from = 0; from < baskets.size(); from += chunkSize) {
+            var chunkStart = from;
+            var chunkEnd = Math.min(from + chunkSize, baskets.size());
+            tasks.add(() -> {
+                workerThreads.add(Thread.currentThread().getId());
+                for (int i = chunkStart; i < chunkEnd; i++) {
+                    receipts[i] = basketCalculator.calculateBasketPrice(baskets.get(i));
+                }
+                return null;
+            });
+        }
+
+        if (tasks.size() == 1) {
+            runInline(tasks.get(0));
+        } else if (!tasks.isEmpty()) {
+            runOnExecutor(tasks);
+        }
+
+        var elapsedNanos = System.nanoTime() - start;
+        totalBaskets.add(baskets.size());
+        totalElapsedNanos.add(elapsedNanos);
+
+        var stats = BatchPricingStats.builder()
+                .basketCount(baskets.size())
+                .chunkCount(tasks.size())
+                .workerThreads(workerThreads.size())
+                .elapsedNanos(elapsedNanos)
+                .build();
+        return BatchReceiptResponse.builder()
+                .receipts(Arrays.asList(receipts))
+                .stats(stats)
+                .build();
+    }
+
+    public long getTotalBaskets() {
+        return totalBaskets.sum();
+    }
+
+    public long getTotalElapsedNanos() {
+        return totalElapsedNanos.sum();
+    }
+
+    private void runInline(Callable<Void> task) {
+        try {
+            task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Batch pricing failed", e);
+        }
+    }
+
+    private void runOnExecutor(List<Callable<Void>> tasks) {
+        try {
+            for (var future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch pricing interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Batch pricing failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package services;
+
+import entity.DealGroup;
+import entity.PricingStructure;
+import entity.ProductCategory;
+import interfaces.PricingRules;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Holds the live pricing rules, usually a PricingCatalog or a MappedCatalog. New rules are compiled off to the side
+// and swapped in atomically, so a calculation that has already read the current rules finishes on that version while
+// later calculations pick up the new one.
+// Rules published as maps may carry PromotionSchedules. They are compiled into a PromotionTimeline, and current()
+// binary-searches it at the clock's time, recompiling the next horizon when the clock runs past the current one.
+// Days and times of day are read in the clock's zone.
+public class PricingCatalogStore {
+    private final AtomicReference<PromotionTimeline> current;
+    private final Clock clock;
+    private final int horizonDays;
+
+    public PricingCatalogStore(PricingRules pricingRules) {
+        this(pricingRules, Clock.systemDefaultZone());
+    }
+
+    public PricingCatalogStore(PricingRules pricingRules, Clock clock) {
+        this.clock = clock;
+        this.horizonDays = PromotionTimeline.DEFAULT_HORIZON_DAYS;
+        this.current = new AtomicReference<>(PromotionTimeline.fixed(pricingRules, 1));
+    }
+
+    public PricingCatalogStore(Map<Long, List<PricingStructure>> uniProductPricing,
+                               Map<ProductCategory, PricingStructure> productCategoryPricing,
+                               Map<ProductCategory, Set<Long>> productCategoryProductSet,
+                               List<DealGroup> dealGroups, Clock clock) {
+        this(uniProductPricing, productCategoryPricing, productCategoryProductSet, dealGroups, clock,
+                PromotionTimeline.DEFAULT_HORIZON_DAYS);
+    }
+
+    public PricingCatalogStore(Map<Long, List<PricingStructure>> uniProductPricing,
+                               Map<ProductCategory, PricingStructure> productCategoryPricing,
+                               Map<ProductCategory, Set<Long>> productCategoryProductSet,
+                               List<DealGroup> dealGroups, Clock clock, int horizonDays) {
+        this.clock = clock;
+        this.horizonDays = horizonDays;
+        this.current = new AtomicReference<>(PromotionTimeline.compile(uniProductPricing, productCategoryPricing,
+                productCategoryProductSet, dealGroups, clock.getZone(), horizonDays, clock.millis(), 1));
+    }
+
+    public PricingRules current() {
+        var timeline = current.get();
+        // Rules without schedules never change on their own, so the clock is not read at all
+        if (timeline.isFixed()) {
+            return timeline.getEpochRules(0);
+        }
+        var now = clock.millis();
+        while (!timeline.covers(now)) {
+            var recompiled = timeline.recompileAt(now, timeline.getLastVersion() + 1);
+            if (current.compareAndSet(timeline, recompiled)) {
+                timeline = recompiled;
+            } else {
+                timeline = current.get();
+            }
+        }
+        return timeline.rulesAt(now);
+    }
+
+    public long getVersion() {
+        return current().getVersion();
+    }
+
+    public PromotionTimeline getTimeline() {
+        return current.get();
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public PricingRules publish(Map<Long, List<PricingStructure>> uniProductPricing,
+                                Map<ProductCategory, PricingStructure> productCategoryPricing,
+                                Map<ProductCategory, Set<Long>> productCategoryProductSet) {
+        return publish(uniProductPricing, productCategoryPricing, productCategoryProductSet, List.of());
+    }
+
+    public PricingRules publish(Map<Long, List<PricingStructure>> uniProductPricing,
+                                Map<ProductCategory, PricingStructure> productCategoryPricing,
+                                Map<ProductCategory, Set<Long>> productCategoryProductSet,
+                                List<DealGroup> dealGroups) {
+        var now = clock.millis();
+        return current.updateAndGet(previous -> PromotionTimeline.compile(uniProductPricing, productCategoryPricing,
+                productCategoryProductSet, dealGroups, clock.getZone(), horizonDays, now, previous.getLastVersion() + 1))
+                .rulesAt(now);
+    }
+
+    public PricingRules publish(PricingRules pricingRules) {
+        return current.updateAndGet(previous -> PromotionTimeline.fixed(pricingRules, previous.getLastVersion() + 1))
+                .getEpochRules(0);
+    }
+}
@@ -0,0 +1,86 @@
+package services;
+
+import dto.response.ReceiptResponse;
+
+import java.util.Arrays;
+
+// Per-thread working state for one basket calculation, reused so that grouping deal lines allocates nothing.
+// Runs are handed out per deal group id from a pool; only the groups a basket touched are visited and reset, so
+// a rule set with many groups costs no more per basket than one with three.
+final class PricingScratch {
+    // Pool slot + 1 for each group id touched by the current basket, 0 for the rest
+    private int[] slotOfGroup = new int[8];
+    private int[] touchedGroups = new int[8];
+    private CategoryRuns[] slots = new CategoryRuns[8];
+    private int touched;
+    // Receipt without item lists, so the pricing steps only accumulate its totals
+    private final ReceiptResponse totalsReceipt = new ReceiptResponse();
+
+    CategoryRuns runs(int group) {
+        if (group >= slotOfGroup.length) {
+            slotOfGroup = Arrays.copyOf(slotOfGroup, Math.max(group + 1, slotOfGroup.length * 2));
+        }
+        var slot = slotOfGroup[group] - 1;
+        if (slot < 0) {
+            slot = touched++;
+            if (slot == slots.length) {
+                slots = Arrays.copyOf(slots, slot * 2);
+                touchedGroups = Arrays.copyOf(touchedGroups, slot * 2);
+            }
+            if (slots[slot] == null) {
+                slots[slot] = new CategoryRuns();
+            }
+            touchedGroups[slot] = group;
+            slotOfGroup[group] = slot + 1;
+        }
+        return slots[slot];
+    }
+
+    int groupCount() {
+        return touched;
+    }
+
+    int group(int i) {
+        return touchedGroups[i];
+    }
+
+    CategoryRuns groupRuns(int i) {
+        return slots[i];
+    }
+
+    // Puts the touched groups in id order, which is the order their savings go on the receipt. Call once all lines
+    // are added; runs(group) must not be called again before clear().
+    void sortGroups() {
+        for (int i = 1; i < touched; i++) {
+            var group = touchedGroups[i];
+            var runs = slots[i];
+            var j = i - 1;
+            while (j >= 0 && touchedGroups[j] > group) {
+                touchedGroups[j + 1] = touchedGroups[j];
+                slots[j + 1] = slots[j];
+                j--;
+            }
+            touchedGroups[j + 1] = group;
+            slots[j + 1] = runs;
+        }
+    }
+
+    ReceiptResponse totalsReceipt(long pricingVersion) {
+        totalsReceipt.setProductSubTotal(0);
+        totalsReceipt.setSavingsSubTotal(0);
+        totalsReceipt.setGrandTotal(0);
+        totalsReceipt.setProductSubTotalMinor(0);
+        totalsReceipt.setSavingsSubTotalMinor(0);
+        totalsReceipt.setGrandTotalMinor(0);
+        totalsReceipt.setPricingVersion(pricingVersion);
+        return totalsReceipt;
+    }
+
+    void clear() {
+        for (int i = 0; i < touched; i++) {
+            slotOfGroup[touchedGroups[i]] = 0;
+            slots[i].clear();
+        }
+        touched = 0;
+    }
+}
@@ -0,0 +1,113 @@
+package services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import entity.PriceBook;
+import entity.Product;
+import interfaces.BasketCalculator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongFunction;
+
+// Embedded HTTP pricing service on the JDK's built-in server. POST /price takes a basket in CompactReceiptCodec's
+// encoding and answers with the encoded receipt; GET /health answers "ok". Each request runs on its own virtual
+// thread when the JVM has them (Java 21+), and on a pooled platform thread otherwise.
+// Clients send product ids and quantities only. Prices always come from the server's products, resolved through
+// the server's PriceBook for the tier and store in the basket header, so no client can set its own price.
+// Run the JVM with -Dsun.net.httpserver.nodelay=true: without TCP_NODELAY the response headers and body go out as
+// separate segments and wait on delayed ACKs, adding ~40 ms to every request. The JDK server reads the property
+// once, JVM-wide, so it is left to the launcher rather than set here.
+public class PricingServer implements Closeable {
+    private static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+
+    private final BasketCalculator basketCalculator;
+    private final LongFunction<Product> productLookup;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    public PricingServer(BasketCalculator basketCalculator, LongFunction<Product> productLookup, InetSocketAddress address) throws IOException {
+        this(basketCalculator, productLookup, PriceBook.EMPTY, address);
+    }
+
+    public PricingServer(BasketCalculator basketCalculator, LongFunction<Product> productLookup, PriceBook priceBook,
+                         InetSocketAddress address) throws IOException {
+        this.basketCalculator = new TieredBasketCalculator(basketCalculator, priceBook);
+        this.productLookup = productLookup;
+        var virtualExecutor = newVirtualThreadPerTaskExecutor();
+        this.virtualThreads = virtualExecutor != null;
+        this.executor = virtualThreads ? virtualExecutor : Executors.newCachedThreadPool();
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/price", this::price);
+        server.createContext("/health", exchange -> respond(exchange, 200, "ok\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public PricingServer start() {
+        server.start();
+        return this;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void price(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            respond(exchange, 405, "Use POST\n".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        byte[] body;
+        try (var in = exchange.getRequestBody()) {
+            body = in.readAllBytes();
+        }
+
+        byte[] response;
+        try {
+            var basket = CompactReceiptCodec.decodeBasket(body, productLookup);
+            response = CompactReceiptCodec.encodeReceipt(basketCalculator.calculateBasketPrice(basket));
+        } catch (IllegalArgumentException e) {
+            var message = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+            respond(exchange, 400, (message + "\n").getBytes(StandardCharsets.UTF_8));
+            return;
+        } catch (RuntimeException e) {
+            respond(exchange, 500, "Pricing failed\n".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        respond(exchange, 200, response);
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        try (var out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Looked up reflectively so the project still builds and runs on Java 17, where virtual threads do not exist
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package services;
+
+import dto.request.Basket;
+import dto.response.ReceiptResponse;
+import entity.*;
+import interfaces.PricingRules;
+
+import java.util.*;
+
+// Stateful pricing for a live till. Each scan re-prices only the changed line, or the deal group the line
+// belongs to, and keeps the priced parts cached. currentReceipt() only assembles the cached parts, in the same order
+// as BasketCalculatorImpl. The calculator adds each line's and each group's price and savings to the receipt as one
+// amount, which is what a cached part holds, so the receipt matches a full calculateBasketPrice(getBasket()) exactly.
+// A session belongs to one till and is not thread-safe.
+public class PricingSession {
+    private final PricingCatalogStore pricingCatalogStore;
+    private final Basket basket = new Basket();
+    private final Map<Product, ReceiptResponse> pricedLines = new IdentityHashMap<>();
+    // Keyed by deal group id; sorted so the groups are assembled in the order BasketCalculatorImpl prices them
+    private final Map<Integer, Map<Product, Double>> groupLines = new TreeMap<>();
+    private final Map<Integer, ReceiptResponse> pricedGroups = new TreeMap<>();
+    private PricingRules pricingCatalog;
+    private double productSubTotal;
+    private double savingsSubTotal;
+    private double grandTotal;
+
+    public PricingSession(PricingCatalogStore pricingCatalogStore) {
+        this.pricingCatalogStore = pricingCatalogStore;
+        this.pricingCatalog = pricingCatalogStore.current();
+    }
+
+    public void add(Product product, double quantity) {
+        setQuantity(product, basket.getOrDefault(product, 0.0) + quantity);
+    }
+
+    public void remove(Product product, double quantity) {
+        setQuantity(product, basket.getOrDefault(product, 0.0) - quantity);
+    }
+
+    public void setWeight(Product product, double weightKg) {
+        setQuantity(product, weightKg);
+    }
+
+    public void setQuantity(Product product, double quantity) {
+        refreshCatalog();
+        if (quantity <= 0) {
+            basket.remove(product);
+        } else {
+            basket.put(product, quantity);
+        }
+        priceLine(product);
+    }
+
+    public void clear() {
+        basket.clear();
+        pricedLines.clear();
+        groupLines.clear();
+        pricedGroups.clear();
+        productSubTotal = 0;
+        savingsSubTotal = 0;
+        grandTotal = 0;
+    }
+
+    // Running totals for the customer display, kept by adding and removing the changed parts. They can differ from the
+    // receipt totals in the last bits of the double; currentReceipt() is the exact figure.
+    public double getProductSubTotal() {
+        return productSubTotal;
+    }
+
+    public double getSavingsSubTotal() {
+        return savingsSubTotal;
+    }
+
+    public double getGrandTotal() {
+        return grandTotal;
+    }
+
+    public long getPricingVersion() {
+        return pricingCatalog.getVersion();
+    }
+
+    // The basket as the session sees it; for reading and for full recomputes only
+    public Basket getBasket() {
+        return basket;
+    }
+
+    public ReceiptResponse currentReceipt() {
+        refreshCatalog();
+        var receipt = BasketCalculatorImpl.newReceipt(pricingCatalog);
+
+        for (var product : basket.keySet()) {
+            addPart(receipt, pricedLines.get(product));
+        }
+        for (var pricedGroup : pricedGroups.values()) {
+            addPart(receipt, pricedGroup);
+        }
+        return receipt;
+    }
+
+    private void priceLine(Product product) {
+        var quantity = basket.get(product);
+        var previous = quantity == null ? pricedLines.remove(product) : null;
+        var group = BasketCalculatorImpl.dealGroupOf(pricingCatalog, product);
+
+        if (quantity != null) {
+            var line = BasketCalculatorImpl.newReceipt(pricingCatalog);
+            if (group < 0) {
+                BasketCalculatorImpl.calculateProductPriceAndAddToReceipt(product, quantity, pricingCatalog.getProductPricings(pricingCatalog.indexOf(product.getId())), line);
+            }
+            BasketCalculatorImpl.addProductItemToReceipt(line, product, quantity);
+            previous = pricedLines.put(product, line);
+            applyRunningTotals(line, 1);
+        }
+        if (previous != null) {
+            applyRunningTotals(previous, -1);
+        }
+
+        if (group >= 0) {
+            var lines = groupLines.computeIfAbsent(group, k -> new LinkedHashMap<>());
+            if (quantity == null) {
+                lines.remove(product);
+            } else {
+                lines.put(product, quantity);
+            }
+            priceGroup(group);
+        }
+    }
+
+    private void priceGroup(int group) {
+        var lines = groupLines.get(group);
+        ReceiptResponse priced = null;
+        if (lines != null && !lines.isEmpty()) {
+            var runs = new CategoryRuns();
+            lines.forEach((product, quantity) -> runs.add(product.getPrice(), quantity.intValue()));
+            priced = BasketCalculatorImpl.newReceipt(pricingCatalog);
+            BasketCalculatorImpl.calculateCategoryProductPriceAndAddToReceipt(pricingCatalog.getDealGroupPricing(group), runs, priced);
+        }
+
+        var previous = priced == null ? pricedGroups.remove(group) : pricedGroups.put(group, priced);
+        if (previous != null) {
+            applyCategoryRunningTotals(previous, -1);
+        }
+        if (priced != null) {
+            applyCategoryRunningTotals(priced, 1);
+        }
+    }
+
+    private void refreshCatalog() {
+        var latest = pricingCatalogStore.current();
+        if (latest == pricingCatalog) {
+            return;
+        }
+
+        // Rules changed mid-session: every cached part may be stale, so re-price the basket once against the new version
+        pricingCatalog = latest;
+        var lines = new ArrayList<>(basket.keySet());
+        pricedLines.clear();
+        groupLines.clear();
+        pricedGroups.clear();
+        productSubTotal = 0;
+        savingsSubTotal = 0;
+        grandTotal = 0;
+        for (var product : lines) {
+            priceLine(product);
+        }
+    }
+
+    private void applyRunningTotals(ReceiptResponse part, int sign) {
+        productSubTotal += sign * part.getProductSubTotal();
+        applyCategoryRunningTotals(part, sign);
+    }
+
+    private void applyCategoryRunningTotals(ReceiptResponse part, int sign) {
+        savingsSubTotal += sign * part.getSavingsSubTotal();
+        grandTotal += sign * part.getGrandTotal();
+    }
+
+    // A deal-group line's part has no price or savings of its own, and adding its 0.0 leaves the totals as they were
+    private static void addPart(ReceiptResponse receipt, ReceiptResponse part) {
+        receipt.getProductItems().addAll(part.getProductItems());
+        receipt.getSavingsItems().addAll(part.getSavingsItems());
+        receipt.setProductSubTotal(receipt.getProductSubTotal() + part.getProductSubTotal());
+        receipt.setSavingsSubTotal(receipt.getSavingsSubTotal() + part.getSavingsSubTotal());
+        receipt.setGrandTotal(receipt.getGrandTotal() + part.getGrandTotal());
+    }
+}
@@ -0,0 +1,316 @@
+package services;
+
+import entity.DealGroup;
+import entity.PricingCatalog;
+import entity.PricingStructure;
+import entity.ProductCategory;
+import entity.PromotionSchedule;
+import interfaces.PricingRules;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.*;
+
+// Precompiled activation timeline of a rule set with scheduled promotions. The horizon is cut at every instant where
+// some rule may start or stop, and each epoch holds the PricingCatalog of the rules live in it, so the rules for an
+// instant are a binary search over the epoch starts. Epochs with the same live rules share one compiled catalog but
+// are stamped with consecutive versions, so the version still moves forward each time the live rules change.
+// A rule set without schedules is a single epoch covering all time.
+public final class PromotionTimeline {
+    public static final int DEFAULT_HORIZON_DAYS = 7;
+
+    private final long[] epochStarts;
+    private final PricingRules[] epochRules;
+    // First instant past the horizon; Long.MAX_VALUE when the rules never change again
+    private final long until;
+    private final long firstVersion;
+
+    // Private copy of the caller's rules, schedules included, kept to compile the next horizon, so edits the caller
+    // makes after publishing never reach it; null for a timeline built from already-compiled rules
+    private final Map<Long, List<PricingStructure>> uniProductPricing;
+    private final Map<ProductCategory, PricingStructure> productCategoryPricing;
+    private final Map<ProductCategory, Set<Long>> productCategoryProductSet;
+    private final List<DealGroup> dealGroups;
+    private final ZoneId zone;
+    private final int horizonDays;
+
+    private PromotionTimeline(long[] epochStarts, PricingRules[] epochRules, long until, long firstVersion,
+                              Map<Long, List<PricingStructure>> uniProductPricing,
+                              Map<ProductCategory, PricingStructure> productCategoryPricing,
+                              Map<ProductCategory, Set<Long>> productCategoryProductSet,
+                              List<DealGroup> dealGroups, ZoneId zone, int horizonDays) {
+        this.epochStarts = epochStarts;
+        this.epochRules = epochRules;
+        this.until = until;
+        this.firstVersion = firstVersion;
+        this.uniProductPricing = uniProductPricing;
+        this.productCategoryPricing = productCategoryPricing;
+        this.productCategoryProductSet = productCategoryProductSet;
+        this.dealGroups = dealGroups;
+        this.zone = zone;
+        this.horizonDays = horizonDays;
+    }
+
+    public static PromotionTimeline fixed(PricingRules pricingRules, long version) {
+        return new PromotionTimeline(new long[]{Long.MIN_VALUE}, new PricingRules[]{pricingRules.withVersion(version)},
+                Long.MAX_VALUE, version, null, null, null, null, null, 0);
+    }
+
+    // Compiles the epochs of horizonDays whole days, starting at midnight of the day that contains fromMillis
+    public static PromotionTimeline compile(Map<Long, List<PricingStructure>> uniProductPricing,
+                                            Map<ProductCategory, PricingStructure> productCategoryPricing,
+                                            Map<ProductCategory, Set<Long>> productCategoryProductSet,
+                                            List<DealGroup> dealGroups, ZoneId zone, int horizonDays,
+                                            long fromMillis, long firstVersion) {
+        if (horizonDays < 1) {
+            throw new IllegalArgumentException("horizonDays must be at least 1");
+        }
+        // One copy, taken here on the publishing thread; every later horizon is compiled from it
+        var copies = new IdentityHashMap<PricingStructure, PricingStructure>();
+        var uniCopy = new HashMap<Long, List<PricingStructure>>();
+        if (uniProductPricing != null) {
+            uniProductPricing.forEach((id, pricings) -> uniCopy.put(id, pricings == null ? null
+                    : Collections.unmodifiableList(pricings.stream().map(pricing -> copyOf(pricing, copies)).toList())));
+        }
+        var categoryCopy = new EnumMap<ProductCategory, PricingStructure>(ProductCategory.class);
+        if (productCategoryPricing != null) {
+            productCategoryPricing.forEach((category, pricing) -> categoryCopy.put(category, copyOf(pricing, copies)));
+        }
+        var productSetCopy = new EnumMap<ProductCategory, Set<Long>>(ProductCategory.class);
+        if (productCategoryProductSet != null) {
+            productCategoryProductSet.forEach((category, productIds) -> productSetCopy.put(category, copyOf(productIds)));
+        }
+        var groupsCopy = new ArrayList<DealGroup>();
+        if (dealGroups != null) {
+            for (var group : dealGroups) {
+                groupsCopy.add(group == null ? null : new DealGroup(group.getName(), copyOf(group.getPricing(), copies),
+                        copyOf(group.getProductIds()), group.getPriority()));
+            }
+        }
+        return compileHorizon(Collections.unmodifiableMap(uniCopy), Collections.unmodifiableMap(categoryCopy),
+                Collections.unmodifiableMap(productSetCopy), Collections.unmodifiableList(groupsCopy),
+                zone, horizonDays, fromMillis, firstVersion);
+    }
+
+    private static PromotionTimeline compileHorizon(Map<Long, List<PricingStructure>> uniProductPricing,
+                                                    Map<ProductCategory, PricingStructure> productCategoryPricing,
+                                                    Map<ProductCategory, Set<Long>> productCategoryProductSet,
+                                                    List<DealGroup> dealGroups, ZoneId zone, int horizonDays,
+                                                    long fromMillis, long firstVersion) {
+        var scheduled = scheduledRules(uniProductPricing, productCategoryPricing, dealGroups);
+        if (scheduled.isEmpty()) {
+            return fixed(PricingCatalog.compile(uniProductPricing, productCategoryPricing, productCategoryProductSet, dealGroups),
+                    firstVersion);
+        }
+
+        var fromDate = LocalDate.ofInstant(Instant.ofEpochMilli(fromMillis), zone);
+        var start = fromDate.atStartOfDay(zone).toInstant().toEpochMilli();
+        var until = fromDate.plusDays(horizonDays).atStartOfDay(zone).toInstant().toEpochMilli();
+        var boundaries = new TreeSet<Long>();
+        boundaries.add(start);
+        for (var pricing : scheduled.keySet()) {
+            addBoundaries(pricing, fromDate, horizonDays, zone, start, until, boundaries);
+        }
+
+        // Walk the candidate boundaries in order, opening an epoch wherever the set of live rules changes
+        var compiled = new HashMap<BitSet, PricingCatalog>();
+        var starts = new long[boundaries.size()];
+        var rules = new PricingRules[boundaries.size()];
+        var epochs = 0;
+        BitSet previous = null;
+        for (var boundary : boundaries) {
+            var instant = Instant.ofEpochMilli(boundary);
+            var live = new BitSet(scheduled.size());
+            scheduled.forEach((pricing, bit) -> {
+                if (pricing.getSchedule().isActiveAt(instant, zone)) {
+                    live.set(bit);
+                }
+            });
+            if (live.equals(previous)) {
+                continue;
+            }
+            var catalog = compiled.computeIfAbsent(live, key -> compileLive(
+                    uniProductPricing, productCategoryPricing, productCategoryProductSet, dealGroups, scheduled, key));
+            starts[epochs] = boundary;
+            rules[epochs] = catalog.withVersion(firstVersion + epochs);
+            epochs++;
+            previous = live;
+        }
+        return new PromotionTimeline(Arrays.copyOf(starts, epochs), Arrays.copyOf(rules, epochs), until, firstVersion,
+                uniProductPricing, productCategoryPricing, productCategoryProductSet, dealGroups, zone, horizonDays);
+    }
+
+    // The same rules compiled for the horizon that contains millis, numbered on from firstVersion
+    PromotionTimeline recompileAt(long millis, long firstVersion) {
+        return compileHorizon(uniProductPricing, productCategoryPricing, productCategoryProductSet, dealGroups, zone, horizonDays,
+                millis, firstVersion);
+    }
+
+    public boolean covers(long millis) {
+        return millis >= epochStarts[0] && millis < until;
+    }
+
+    public boolean isFixed() {
+        return epochRules.length == 1 && epochStarts[0] == Long.MIN_VALUE && until == Long.MAX_VALUE;
+    }
+
+    // Index of the epoch that contains millis, which must be covered
+    public int epochAt(long millis) {
+        var index = Arrays.binarySearch(epochStarts, millis);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    public PricingRules rulesAt(long millis) {
+        return epochRules[epochAt(millis)];
+    }
+
+    public int getEpochCount() {
+        return epochStarts.length;
+    }
+
+    public long getEpochStart(int epoch) {
+        return epochStarts[epoch];
+    }
+
+    public PricingRules getEpochRules(int epoch) {
+        return epochRules[epoch];
+    }
+
+    public long getUntil() {
+        return until;
+    }
+
+    public long getLastVersion() {
+        return firstVersion + epochRules.length - 1;
+    }
+
+    // A rule the caller shared between several places stays one shared copy, so it keeps a single schedule bit
+    private static PricingStructure copyOf(PricingStructure pricing, IdentityHashMap<PricingStructure, PricingStructure> copies) {
+        if (pricing == null) {
+            return null;
+        }
+        return copies.computeIfAbsent(pricing, original -> PricingStructure.builder()
+                .name(original.getName())
+                .quantity(original.getQuantity())
+                .newQuantity(original.getNewQuantity())
+                .price(original.getPrice())
+                .schedule(copyOf(original.getSchedule()))
+                .build());
+    }
+
+    private static PromotionSchedule copyOf(PromotionSchedule schedule) {
+        if (schedule == null) {
+            return null;
+        }
+        return PromotionSchedule.builder()
+                .validFrom(schedule.getValidFrom())
+                .validUntil(schedule.getValidUntil())
+                .daysOfWeek(copyOfDays(schedule.getDaysOfWeek()))
+                .dailyStart(schedule.getDailyStart())
+                .dailyEnd(schedule.getDailyEnd())
+                .build();
+    }
+
+    private static Set<DayOfWeek> copyOfDays(Set<DayOfWeek> days) {
+        if (days == null || days.isEmpty()) {
+            return days == null ? null : Set.of();
+        }
+        return Collections.unmodifiableSet(EnumSet.copyOf(days));
+    }
+
+    private static Set<Long> copyOf(Set<Long> productIds) {
+        return productIds == null ? null : Collections.unmodifiableSet(new HashSet<>(productIds));
+    }
+
+    private static IdentityHashMap<PricingStructure, Integer> scheduledRules(Map<Long, List<PricingStructure>> uniProductPricing,
+                                                                           Map<ProductCategory, PricingStructure> productCategoryPricing,
+                                                                           List<DealGroup> dealGroups) {
+        var scheduled = new IdentityHashMap<PricingStructure, Integer>();
+        for (var pricings : uniProductPricing.values()) {
+            for (var pricing : pricings) {
+                addScheduled(scheduled, pricing);
+            }
+        }
+        for (var pricing : productCategoryPricing.values()) {
+            addScheduled(scheduled, pricing);
+        }
+        for (var group : dealGroups) {
+            addScheduled(scheduled, group.getPricing());
+        }
+        return scheduled;
+    }
+
+    private static void addScheduled(IdentityHashMap<PricingStructure, Integer> scheduled, PricingStructure pricing) {
+        if (pricing != null && pricing.getSchedule() != null && !scheduled.containsKey(pricing)) {
+            scheduled.put(pricing, scheduled.size());
+        }
+    }
+
+    // Every instant in (start, until) where the schedule might switch; extra candidates are harmless because epochs
+    // with unchanged live rules are merged
+    private static void addBoundaries(PricingStructure pricing, LocalDate fromDate, int horizonDays, ZoneId zone,
+                                      long start, long until, TreeSet<Long> boundaries) {
+        var schedule = pricing.getSchedule();
+        if (schedule.getValidFrom() != null) {
+            addBoundary(schedule.getValidFrom().toEpochMilli(), start, until, boundaries);
+        }
+        if (schedule.getValidUntil() != null) {
+            addBoundary(schedule.getValidUntil().toEpochMilli(), start, until, boundaries);
+        }
+        if (!schedule.isRecurring()) {
+            return;
+        }
+        // A window that runs past midnight switches off on the day after the one it starts on
+        for (var date = fromDate.minusDays(1); !date.isAfter(fromDate.plusDays(horizonDays)); date = date.plusDays(1)) {
+            addBoundary(date.atStartOfDay(zone).toInstant().toEpochMilli(), start, until, boundaries);
+            for (var time : new LocalTime[]{schedule.getDailyStart(), schedule.getDailyEnd()}) {
+                if (time != null) {
+                    addBoundary(date.atTime(time).atZone(zone).toInstant().toEpochMilli(), start, until, boundaries);
+                }
+            }
+        }
+    }
+
+    private static void addBoundary(long millis, long start, long until, TreeSet<Long> boundaries) {
+        if (millis > start && millis < until) {
+            boundaries.add(millis);
+        }
+    }
+
+    private static PricingCatalog compileLive(Map<Long, List<PricingStructure>> uniProductPricing,
+                                              Map<ProductCategory, PricingStructure> productCategoryPricing,
+                                              Map<ProductCategory, Set<Long>> productCategoryProductSet,
+                                              List<DealGroup> dealGroups,
+                                              IdentityHashMap<PricingStructure, Integer> scheduled, BitSet live) {
+        var liveUniPricing = new HashMap<Long, List<PricingStructure>>();
+        uniProductPricing.forEach((id, pricings) -> {
+            var livePricings = pricings.stream().filter(pricing -> isLive(pricing, scheduled, live)).toList();
+            if (!livePricings.isEmpty()) {
+                liveUniPricing.put(id, livePricings);
+            }
+        });
+        var liveCategoryPricing = new EnumMap<ProductCategory, PricingStructure>(ProductCategory.class);
+        productCategoryPricing.forEach((category, pricing) -> {
+            if (isLive(pricing, scheduled, live)) {
+                liveCategoryPricing.put(category, pricing);
+            }
+        });
+        // A product set whose deal is off for now is left out; one that never had a deal still fails to compile
+        var liveCategoryProductSet = new EnumMap<ProductCategory, Set<Long>>(ProductCategory.class);
+        productCategoryProductSet.forEach((category, productIds) -> {
+            if (liveCategoryPricing.containsKey(category) || !productCategoryPricing.containsKey(category)) {
+                liveCategoryProductSet.put(category, productIds);
+            }
+        });
+        var liveGroups = dealGroups.stream().filter(group -> isLive(group.getPricing(), scheduled, live)).toList();
+        return PricingCatalog.compile(liveUniPricing, liveCategoryPricing, liveCategoryProductSet, liveGroups);
+    }
+
+    private static boolean isLive(PricingStructure pricing, IdentityHashMap<PricingStructure, Integer> scheduled, BitSet live) {
+        var bit = pricing == null ? null : scheduled.get(pricing);
+        return bit == null || live.get(bit);
+    }
+}
@@ -0,0 +1,142 @@
+package services;
+
+import dto.response.ReceiptPriceSavingItem;
+import dto.response.ReceiptProductItem;
+import dto.response.ReceiptResponse;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+// Decodes the frames of ReceiptBinaryWriter, keeping the stream's string table in step with the writer's.
+// Must be built with the writer's maxInterned and fed every frame of the stream in order.
+public final class ReceiptBinaryReader {
+    private final int maxInterned;
+    private final ArrayList<String> table = new ArrayList<>();
+
+    public ReceiptBinaryReader() {
+        this(ReceiptBinaryWriter.DEFAULT_MAX_INTERNED);
+    }
+
+    public ReceiptBinaryReader(int maxInterned) {
+        if (maxInterned < 0) {
+            throw new IllegalArgumentException("maxInterned must not be negative");
+        }
+        this.maxInterned = maxInterned;
+    }
+
+    // Decodes the next frame, or returns null without consuming anything when in does not hold all of it yet
+    public ReceiptResponse read(ByteBuffer in) {
+        if (in.remaining() < 4) {
+            return null;
+        }
+        var start = in.position();
+        var length = in.getInt(start);
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative receipt frame length " + length);
+        }
+        if (in.remaining() - 4 < length) {
+            return null;
+        }
+        var frame = in.slice(start + 4, length).order(in.order());
+        ReceiptResponse receipt;
+        try {
+            receipt = readFrame(frame);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Receipt frame ends early");
+        }
+        if (frame.hasRemaining()) {
+            throw new IllegalArgumentException("Receipt frame has " + frame.remaining() + " trailing bytes");
+        }
+        in.position(start + 4 + length);
+        return receipt;
+    }
+
+    public void reset() {
+        table.clear();
+    }
+
+    private ReceiptResponse readFrame(ByteBuffer frame) {
+        var receipt = new ReceiptResponse();
+        receipt.setPricingVersion(frame.getLong());
+        receipt.setProductSubTotal(frame.getDouble());
+        receipt.setSavingsSubTotal(frame.getDouble());
+        receipt.setGrandTotal(frame.getDouble());
+        receipt.setProductSubTotalMinor(frame.getLong());
+        receipt.setSavingsSubTotalMinor(frame.getLong());
+        receipt.setGrandTotalMinor(frame.getLong());
+
+        var productCount = count(frame);
+        if (productCount >= 0) {
+            var productItems = new ArrayList<ReceiptProductItem>(productCount);
+            for (int i = 0; i < productCount; i++) {
+                var name = readName(frame);
+                var price = frame.getDouble();
+                var quantity = frame.getInt();
+                ReceiptProductItem item;
+                if (frame.get() != 0) {
+                    item = ReceiptProductItem.weighed(name, frame.getDouble(), frame.getDouble(), price);
+                    item.setQuantity(quantity);
+                } else {
+                    item = ReceiptProductItem.builder().name(name).price(price).quantity(quantity).build();
+                }
+                productItems.add(item);
+            }
+            receipt.setProductItems(productItems);
+        }
+
+        var savingsCount = count(frame);
+        if (savingsCount >= 0) {
+            var savingsItems = new ArrayList<ReceiptPriceSavingItem>(savingsCount);
+            for (int i = 0; i < savingsCount; i++) {
+                var name = readName(frame);
+                savingsItems.add(new ReceiptPriceSavingItem(name, frame.getLong(), frame.getDouble()));
+            }
+            receipt.setSavingsItems(savingsItems);
+        }
+        return receipt;
+    }
+
+    private static int count(ByteBuffer frame) {
+        var count = frame.getInt();
+        if (count < -1) {
+            throw new IllegalArgumentException("Invalid item count " + count);
+        }
+        // Each item takes at least 4 bytes, which bounds the list allocation for a corrupt count
+        if (count > frame.remaining() / 4) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    private String readName(ByteBuffer frame) {
+        var ref = frame.getInt();
+        if (ref >= 0) {
+            if (ref >= table.size()) {
+                throw new IllegalArgumentException("Unknown name reference " + ref);
+            }
+            return table.get(ref);
+        }
+        if (ref == ReceiptBinaryWriter.NULL_NAME) {
+            return null;
+        }
+        var length = -ref - 1;
+        if (length > frame.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String name;
+        if (frame.hasArray()) {
+            name = new String(frame.array(), frame.arrayOffset() + frame.position(), length, StandardCharsets.UTF_8);
+            frame.position(frame.position() + length);
+        } else {
+            var bytes = new byte[length];
+            frame.get(bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (table.size() < maxInterned) {
+            table.add(name);
+        }
+        return name;
+    }
+}
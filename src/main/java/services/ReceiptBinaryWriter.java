@@ -0,0 +1,150 @@
+package services;
+
+import dto.response.ReceiptPriceSavingItem;
+import dto.response.ReceiptProductItem;
+import dto.response.ReceiptResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// Length-prefixed binary frames for a stream of receipts, one frame per ReceiptResponse:
+//   int    frame length, not counting this field
+//   long   pricingVersion
+//   double productSubTotal, savingsSubTotal, grandTotal
+//   long   productSubTotalMinor, savingsSubTotalMinor, grandTotalMinor
+//   int    product item count (-1 when the list is null), then per item
+//          name, double price, int quantity, byte weighed and, for a weighed item, double weightKg, double pricePerKg
+//   int    savings item count (-1 when the list is null), then per item name, long count, double deduction
+// A name is an int: >= 0 refers to the stream's string table, NULL_NAME is null, and any other value -(n + 1) is
+// followed by n bytes of UTF-8. Each literal joins the table until it holds maxInterned names, so ReceiptBinaryReader
+// rebuilds the same table from the frames in order and a repeated product or deal name costs four bytes.
+// Holds its buffer and string table between calls, so an instance must not be shared between threads.
+public final class ReceiptBinaryWriter {
+    public static final int DEFAULT_MAX_INTERNED = 4096;
+    static final int NULL_NAME = Integer.MIN_VALUE;
+    private static final int INITIAL_BYTES = 4 * 1024;
+
+    private final int maxInterned;
+    private final HashMap<String, Integer> interned = new HashMap<>();
+    private final ArrayList<String> table = new ArrayList<>();
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BYTES);
+
+    public ReceiptBinaryWriter() {
+        this(DEFAULT_MAX_INTERNED);
+    }
+
+    public ReceiptBinaryWriter(int maxInterned) {
+        if (maxInterned < 0) {
+            throw new IllegalArgumentException("maxInterned must not be negative");
+        }
+        this.maxInterned = maxInterned;
+    }
+
+    // Encodes one frame; the returned buffer is ready to read and is overwritten by the next call
+    public ByteBuffer write(ReceiptResponse receipt) {
+        buffer.clear();
+        var tableSize = table.size();
+        try {
+            appendFrame(receipt);
+        } catch (RuntimeException e) {
+            // Names from a frame that was never produced must not stay in the table, or the reader falls out of step
+            while (table.size() > tableSize) {
+                interned.remove(table.remove(table.size() - 1));
+            }
+            throw e;
+        }
+        return buffer.flip();
+    }
+
+    public void write(ReceiptResponse receipt, WritableByteChannel out) throws IOException {
+        var frame = write(receipt);
+        while (frame.hasRemaining()) {
+            out.write(frame);
+        }
+    }
+
+    // Empties the string table; the stream's reader must be reset before it reads the next frame
+    public void reset() {
+        interned.clear();
+        table.clear();
+    }
+
+    public int getInternedCount() {
+        return table.size();
+    }
+
+    private void appendFrame(ReceiptResponse receipt) {
+        ensure(4 + 8 + 3 * 8 + 3 * 8 + 4);
+        buffer.putInt(0);
+        buffer.putLong(receipt.getPricingVersion());
+        buffer.putDouble(receipt.getProductSubTotal());
+        buffer.putDouble(receipt.getSavingsSubTotal());
+        buffer.putDouble(receipt.getGrandTotal());
+        buffer.putLong(receipt.getProductSubTotalMinor());
+        buffer.putLong(receipt.getSavingsSubTotalMinor());
+        buffer.putLong(receipt.getGrandTotalMinor());
+
+        List<ReceiptProductItem> productItems = receipt.getProductItems();
+        buffer.putInt(productItems == null ? -1 : productItems.size());
+        if (productItems != null) {
+            for (var item : productItems) {
+                appendName(item.getProductName());
+                ensure(8 + 4 + 1 + 16 + 4);
+                buffer.putDouble(item.getPrice());
+                buffer.putInt(item.getQuantity());
+                buffer.put((byte) (item.isWeighed() ? 1 : 0));
+                if (item.isWeighed()) {
+                    buffer.putDouble(item.getWeightKg());
+                    buffer.putDouble(item.getPricePerKg());
+                }
+            }
+        }
+
+        List<ReceiptPriceSavingItem> savingsItems = receipt.getSavingsItems();
+        ensure(4);
+        buffer.putInt(savingsItems == null ? -1 : savingsItems.size());
+        if (savingsItems != null) {
+            for (var item : savingsItems) {
+                appendName(item.getName());
+                ensure(16);
+                buffer.putLong(item.getCount());
+                buffer.putDouble(item.getDeduction());
+            }
+        }
+        buffer.putInt(0, buffer.position() - 4);
+    }
+
+    private void appendName(String name) {
+        ensure(4);
+        if (name == null) {
+            buffer.putInt(NULL_NAME);
+            return;
+        }
+        var id = interned.get(name);
+        if (id != null) {
+            buffer.putInt(id);
+            return;
+        }
+        var bytes = name.getBytes(StandardCharsets.UTF_8);
+        ensure(4 + bytes.length);
+        buffer.putInt(-(bytes.length + 1));
+        buffer.put(bytes);
+        if (table.size() < maxInterned) {
+            interned.put(name, table.size());
+            table.add(name);
+        }
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            var grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            grown.put(buffer.flip());
+            buffer = grown;
+        }
+    }
+}
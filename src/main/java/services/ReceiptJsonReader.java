@@ -0,0 +1,438 @@
+package services;
+
+import dto.response.ReceiptPriceSavingItem;
+import dto.response.ReceiptProductItem;
+import dto.response.ReceiptResponse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Parses the JSON of ReceiptJsonWriter straight from bytes. Fields may come in any order, and unknown fields are
+// skipped so that producers can add new ones. Names without escapes go through a small byte-keyed table, so a
+// repeated product or deal name returns the String already decoded rather than a new one.
+// Holds its name table between calls, so an instance must not be shared between threads.
+public final class ReceiptJsonReader {
+    private static final int NAME_TABLE_SIZE = 1024;
+    private static final int MAX_TABLE_NAME_BYTES = 64;
+    // Mantissas below 2^53 and powers of ten up to 10^22 are exact doubles, so one division rounds correctly
+    private static final long EXACT_MANTISSA_LIMIT = 1L << 53;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final byte[][] tableBytes = new byte[NAME_TABLE_SIZE][];
+    private final String[] tableNames = new String[NAME_TABLE_SIZE];
+    private final StringBuilder escaped = new StringBuilder(64);
+    private ByteBuffer in;
+
+    // Parses one document from the buffer's position and leaves the position just after it
+    public ReceiptResponse read(ByteBuffer json) {
+        in = json;
+        try {
+            skipWhitespace();
+            var receipt = new ReceiptResponse();
+            expect('{');
+            if (!consume('}')) {
+                do {
+                    readReceiptField(receipt, readKey());
+                } while (consume(','));
+                expect('}');
+            }
+            return receipt;
+        } finally {
+            in = null;
+        }
+    }
+
+    public ReceiptResponse read(byte[] json) {
+        return read(ByteBuffer.wrap(json));
+    }
+
+    private void readReceiptField(ReceiptResponse receipt, String key) {
+        switch (key) {
+            case "pricingVersion" -> receipt.setPricingVersion(readLong());
+            case "productSubTotal" -> receipt.setProductSubTotal(readDouble());
+            case "savingsSubTotal" -> receipt.setSavingsSubTotal(readDouble());
+            case "grandTotal" -> receipt.setGrandTotal(readDouble());
+            case "productSubTotalMinor" -> receipt.setProductSubTotalMinor(readLong());
+            case "savingsSubTotalMinor" -> receipt.setSavingsSubTotalMinor(readLong());
+            case "grandTotalMinor" -> receipt.setGrandTotalMinor(readLong());
+            case "productItems" -> {
+                if (!consumeNull()) {
+                    var items = new ArrayList<ReceiptProductItem>();
+                    expect('[');
+                    if (!consume(']')) {
+                        do {
+                            items.add(readProductItem());
+                        } while (consume(','));
+                        expect(']');
+                    }
+                    receipt.setProductItems(items);
+                }
+            }
+            case "savingsItems" -> {
+                if (!consumeNull()) {
+                    var items = new ArrayList<ReceiptPriceSavingItem>();
+                    expect('[');
+                    if (!consume(']')) {
+                        do {
+                            items.add(readSavingItem());
+                        } while (consume(','));
+                        expect(']');
+                    }
+                    receipt.setSavingsItems(items);
+                }
+            }
+            default -> skipValue();
+        }
+    }
+
+    private ReceiptProductItem readProductItem() {
+        String name = null;
+        double price = 0;
+        int quantity = 0;
+        boolean weighed = false;
+        double weightKg = 0;
+        double pricePerKg = 0;
+        expect('{');
+        if (!consume('}')) {
+            do {
+                switch (readKey()) {
+                    case "name" -> name = readName();
+                    case "price" -> price = readDouble();
+                    case "quantity" -> quantity = Math.toIntExact(readLong());
+                    case "weighed" -> weighed = readBoolean();
+                    case "weightKg" -> weightKg = readDouble();
+                    case "pricePerKg" -> pricePerKg = readDouble();
+                    default -> skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+        if (weighed) {
+            var item = ReceiptProductItem.weighed(name, weightKg, pricePerKg, price);
+            item.setQuantity(quantity);
+            return item;
+        }
+        return ReceiptProductItem.builder().name(name).price(price).quantity(quantity).build();
+    }
+
+    private ReceiptPriceSavingItem readSavingItem() {
+        var item = new ReceiptPriceSavingItem();
+        expect('{');
+        if (!consume('}')) {
+            do {
+                switch (readKey()) {
+                    case "name" -> item.setName(readName());
+                    case "count" -> item.setCount(readLong());
+                    case "deduction" -> item.setDeduction(readDouble());
+                    default -> skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+        return item;
+    }
+
+    private String readKey() {
+        var key = readString();
+        expect(':');
+        return key;
+    }
+
+    private String readName() {
+        return consumeNull() ? null : readString();
+    }
+
+    private String readString() {
+        skipWhitespace();
+        if (!in.hasRemaining() || in.get() != '"') {
+            throw error("Expected a string");
+        }
+        var start = in.position();
+        var hash = 0;
+        while (true) {
+            if (!in.hasRemaining()) {
+                throw error("Unterminated string");
+            }
+            var b = in.get();
+            if (b == '"') {
+                return lookup(start, in.position() - 1 - start, hash);
+            }
+            if (b == '\\') {
+                return readEscaped(start);
+            }
+            hash = 31 * hash + b;
+        }
+    }
+
+    // Returns the table's String for these bytes, decoding and remembering them on a miss
+    private String lookup(int start, int length, int hash) {
+        if (length > MAX_TABLE_NAME_BYTES) {
+            return decode(start, length);
+        }
+        var slot = (hash ^ hash >>> 16) & (NAME_TABLE_SIZE - 1);
+        var bytes = tableBytes[slot];
+        if (bytes != null && bytes.length == length && matches(bytes, start)) {
+            return tableNames[slot];
+        }
+        var name = decode(start, length);
+        var copy = new byte[length];
+        in.get(start, copy);
+        tableBytes[slot] = copy;
+        tableNames[slot] = name;
+        return name;
+    }
+
+    private boolean matches(byte[] bytes, int start) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (in.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decode(int start, int length) {
+        if (in.hasArray()) {
+            return new String(in.array(), in.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        var bytes = new byte[length];
+        in.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String readEscaped(int start) {
+        // Back up to the first backslash and decode the rest of the string piece by piece
+        var runStart = start;
+        in.position(in.position() - 1);
+        escaped.setLength(0);
+        while (true) {
+            if (!in.hasRemaining()) {
+                throw error("Unterminated string");
+            }
+            var b = in.get();
+            if (b == '"') {
+                escaped.append(decode(runStart, in.position() - 1 - runStart));
+                return escaped.toString();
+            }
+            if (b != '\\') {
+                continue;
+            }
+            escaped.append(decode(runStart, in.position() - 1 - runStart));
+            if (!in.hasRemaining()) {
+                throw error("Unterminated escape");
+            }
+            var c = in.get();
+            switch (c) {
+                case '"', '\\', '/' -> escaped.append((char) c);
+                case 'b' -> escaped.append('\b');
+                case 'f' -> escaped.append('\f');
+                case 'n' -> escaped.append('\n');
+                case 'r' -> escaped.append('\r');
+                case 't' -> escaped.append('\t');
+                case 'u' -> {
+                    var code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        if (!in.hasRemaining()) {
+                            throw error("Unterminated escape");
+                        }
+                        var digit = Character.digit(in.get(), 16);
+                        if (digit < 0) {
+                            throw error("Invalid unicode escape");
+                        }
+                        code = code << 4 | digit;
+                    }
+                    escaped.append((char) code);
+                }
+                default -> throw error("Invalid escape");
+            }
+            runStart = in.position();
+        }
+    }
+
+    private long readLong() {
+        skipWhitespace();
+        var start = in.position();
+        var negative = consumeByte('-');
+        // Accumulated as a negative number, which has room for Long.MIN_VALUE
+        var value = 0L;
+        var digitCount = 0;
+        try {
+            while (in.hasRemaining() && isDigit(in.get(in.position()))) {
+                value = Math.subtractExact(Math.multiplyExact(value, 10), in.get() - '0');
+                digitCount++;
+            }
+            if (digitCount == 0 || in.hasRemaining() && isNumberPart(in.get(in.position()))) {
+                throw new ArithmeticException();
+            }
+            return negative ? value : Math.negateExact(value);
+        } catch (ArithmeticException e) {
+            in.position(start);
+            throw error("Expected an integer");
+        }
+    }
+
+    private double readDouble() {
+        skipWhitespace();
+        var start = in.position();
+        var negative = consumeByte('-');
+        var mantissa = 0L;
+        var digitCount = 0;
+        var fractionDigits = 0;
+        var exact = true;
+        while (in.hasRemaining() && isDigit(in.get(in.position()))) {
+            exact &= accumulate(mantissa);
+            mantissa = mantissa * 10 + (in.get() - '0');
+            digitCount++;
+        }
+        if (consumeByte('.')) {
+            while (in.hasRemaining() && isDigit(in.get(in.position()))) {
+                exact &= accumulate(mantissa);
+                mantissa = mantissa * 10 + (in.get() - '0');
+                digitCount++;
+                fractionDigits++;
+            }
+        }
+        if (digitCount == 0) {
+            throw error("Expected a number");
+        }
+        var hasExponent = in.hasRemaining() && isNumberPart(in.get(in.position()));
+        if (!hasExponent && exact && mantissa < EXACT_MANTISSA_LIMIT && fractionDigits < POWERS_OF_TEN.length) {
+            var value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+        while (in.hasRemaining() && isNumberPart(in.get(in.position()))) {
+            in.get();
+        }
+        try {
+            return Double.parseDouble(decode(start, in.position() - start));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number");
+        }
+    }
+
+    // Whether one more digit still fits the mantissa without overflow
+    private static boolean accumulate(long mantissa) {
+        return mantissa < Long.MAX_VALUE / 10 - 1;
+    }
+
+    private boolean readBoolean() {
+        if (consumeLiteral("true")) {
+            return true;
+        }
+        if (consumeLiteral("false")) {
+            return false;
+        }
+        throw error("Expected a boolean");
+    }
+
+    private void skipValue() {
+        skipWhitespace();
+        if (!in.hasRemaining()) {
+            throw error("Expected a value");
+        }
+        switch (in.get(in.position())) {
+            case '"' -> readString();
+            case '{' -> {
+                expect('{');
+                if (!consume('}')) {
+                    do {
+                        readKey();
+                        skipValue();
+                    } while (consume(','));
+                    expect('}');
+                }
+            }
+            case '[' -> {
+                expect('[');
+                if (!consume(']')) {
+                    do {
+                        skipValue();
+                    } while (consume(','));
+                    expect(']');
+                }
+            }
+            case 't', 'f' -> readBoolean();
+            case 'n' -> {
+                if (!consumeNull()) {
+                    throw error("Expected a value");
+                }
+            }
+            default -> readDouble();
+        }
+    }
+
+    private boolean consumeNull() {
+        return consumeLiteral("null");
+    }
+
+    private boolean consumeLiteral(String literal) {
+        skipWhitespace();
+        var start = in.position();
+        if (in.remaining() < literal.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (in.get(start + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        in.position(start + literal.length());
+        return true;
+    }
+
+    private void expect(char c) {
+        if (!consume(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private boolean consume(char c) {
+        skipWhitespace();
+        return consumeByte(c);
+    }
+
+    private boolean consumeByte(char c) {
+        if (in.hasRemaining() && in.get(in.position()) == c) {
+            in.get();
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (in.hasRemaining()) {
+            var b = in.get(in.position());
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            in.get();
+        }
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isNumberPart(byte b) {
+        return isDigit(b) || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at byte " + in.position());
+    }
+
+    // Forgets the remembered names, for instance between unrelated streams
+    public void reset() {
+        Arrays.fill(tableBytes, null);
+        Arrays.fill(tableNames, null);
+    }
+}
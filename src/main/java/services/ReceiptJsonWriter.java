@@ -0,0 +1,239 @@
+package services;
+
+import dto.response.ReceiptPriceSavingItem;
+import dto.response.ReceiptProductItem;
+import dto.response.ReceiptResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.List;
+
+// Streams a ReceiptResponse as UTF-8 JSON into a reusable buffer, field by field and without reflection:
+//   {"pricingVersion":1,"productSubTotal":2.5,"savingsSubTotal":-0.5,"grandTotal":2.0,
+//    "productSubTotalMinor":0,"savingsSubTotalMinor":0,"grandTotalMinor":0,
+//    "productItems":[{"name":"Beans","price":0.5,"quantity":1},
+//                    {"name":"Oranges","price":0.4,"quantity":1,"weighed":true,"weightKg":0.2,"pricePerKg":1.99}],
+//    "savingsItems":[{"name":"Beans 3 for 2","count":1,"deduction":-0.5}]}
+// A null item list is written as null. A weighed item carries its product name and weight parts, not its display name.
+// Every amount is written so that parsing it gives back the same double. Whole pence take a digit loop, and
+// anything else goes through Double.toString. The escaped bytes of up to maxInterned names are kept, so a repeated
+// product or deal name is copied rather than encoded again.
+// Holds its buffer and name cache between calls, so an instance must not be shared between threads.
+public final class ReceiptJsonWriter {
+    private static final int INITIAL_BYTES = 8 * 1024;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+    // Whole pence below this are exact in a double, so printing them as pounds and pence parses back to the same value
+    private static final double PENCE_LIMIT = 1e15;
+
+    private final int maxInterned;
+    private final HashMap<String, byte[]> interned = new HashMap<>();
+    private final byte[] digits = new byte[20];
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BYTES);
+
+    public ReceiptJsonWriter() {
+        this(ReceiptBinaryWriter.DEFAULT_MAX_INTERNED);
+    }
+
+    public ReceiptJsonWriter(int maxInterned) {
+        if (maxInterned < 0) {
+            throw new IllegalArgumentException("maxInterned must not be negative");
+        }
+        this.maxInterned = maxInterned;
+    }
+
+    // Encodes one document; the returned buffer is ready to read and is overwritten by the next call
+    public ByteBuffer write(ReceiptResponse receipt) {
+        buffer.clear();
+        appendReceipt(receipt);
+        return buffer.flip();
+    }
+
+    public void write(ReceiptResponse receipt, WritableByteChannel out) throws IOException {
+        var document = write(receipt);
+        while (document.hasRemaining()) {
+            out.write(document);
+        }
+    }
+
+    private void appendReceipt(ReceiptResponse receipt) {
+        ascii("{\"pricingVersion\":");
+        number(receipt.getPricingVersion());
+        ascii(",\"productSubTotal\":");
+        amount(receipt.getProductSubTotal());
+        ascii(",\"savingsSubTotal\":");
+        amount(receipt.getSavingsSubTotal());
+        ascii(",\"grandTotal\":");
+        amount(receipt.getGrandTotal());
+        ascii(",\"productSubTotalMinor\":");
+        number(receipt.getProductSubTotalMinor());
+        ascii(",\"savingsSubTotalMinor\":");
+        number(receipt.getSavingsSubTotalMinor());
+        ascii(",\"grandTotalMinor\":");
+        number(receipt.getGrandTotalMinor());
+
+        ascii(",\"productItems\":");
+        List<ReceiptProductItem> productItems = receipt.getProductItems();
+        if (productItems == null) {
+            ascii("null");
+        } else {
+            ascii("[");
+            for (int i = 0; i < productItems.size(); i++) {
+                var item = productItems.get(i);
+                ascii(i == 0 ? "{\"name\":" : ",{\"name\":");
+                name(item.getProductName());
+                ascii(",\"price\":");
+                amount(item.getPrice());
+                ascii(",\"quantity\":");
+                number(item.getQuantity());
+                if (item.isWeighed()) {
+                    ascii(",\"weighed\":true,\"weightKg\":");
+                    amount(item.getWeightKg());
+                    ascii(",\"pricePerKg\":");
+                    amount(item.getPricePerKg());
+                }
+                ascii("}");
+            }
+            ascii("]");
+        }
+
+        ascii(",\"savingsItems\":");
+        List<ReceiptPriceSavingItem> savingsItems = receipt.getSavingsItems();
+        if (savingsItems == null) {
+            ascii("null");
+        } else {
+            ascii("[");
+            for (int i = 0; i < savingsItems.size(); i++) {
+                var item = savingsItems.get(i);
+                ascii(i == 0 ? "{\"name\":" : ",{\"name\":");
+                name(item.getName());
+                ascii(",\"count\":");
+                number(item.getCount());
+                ascii(",\"deduction\":");
+                amount(item.getDeduction());
+                ascii("}");
+            }
+            ascii("]");
+        }
+        ascii("}");
+    }
+
+    private void ascii(String text) {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void number(long value) {
+        ensure(20);
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                ascii(Long.toString(value));
+                return;
+            }
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        var end = digits.length;
+        var start = end;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, start, end - start);
+    }
+
+    private void amount(double value) {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("JSON has no representation for " + value);
+        }
+        var pence = Math.rint(value * 100);
+        // p / 100.0 is the double nearest the decimal p/100, which is also what parsing "pounds.pp" gives back
+        if (Math.abs(pence) < PENCE_LIMIT && pence / 100 == value
+                && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS) {
+            var whole = (long) pence;
+            if (whole < 0) {
+                ensure(1);
+                buffer.put((byte) '-');
+                whole = -whole;
+            }
+            number(whole / 100);
+            ensure(3);
+            var fraction = (int) (whole % 100);
+            buffer.put((byte) '.');
+            buffer.put((byte) ('0' + fraction / 10));
+            if (fraction % 10 != 0) {
+                buffer.put((byte) ('0' + fraction % 10));
+            }
+            return;
+        }
+        ascii(Double.toString(value));
+    }
+
+    private void name(String name) {
+        if (name == null) {
+            ascii("null");
+            return;
+        }
+        var cached = interned.get(name);
+        if (cached == null) {
+            cached = escape(name);
+            if (interned.size() < maxInterned) {
+                interned.put(name, cached);
+            }
+        }
+        ensure(cached.length);
+        buffer.put(cached);
+    }
+
+    // Quoted, escaped UTF-8 for a JSON string
+    private static byte[] escape(String text) {
+        var out = ByteBuffer.allocate(text.length() * 6 + 2);
+        out.put((byte) '"');
+        for (int i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.put((byte) '\\').put((byte) c);
+            } else if (c < 0x20) {
+                switch (c) {
+                    case '\n' -> out.put((byte) '\\').put((byte) 'n');
+                    case '\r' -> out.put((byte) '\\').put((byte) 'r');
+                    case '\t' -> out.put((byte) '\\').put((byte) 't');
+                    default -> out.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                            .put(HEX[c >> 4]).put(HEX[c & 0xF]);
+                }
+            } else if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                var codePoint = Character.toCodePoint(c, text.charAt(++i));
+                out.put((byte) (0xF0 | codePoint >> 18))
+                        .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                        .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+                        .put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // A lone surrogate has no UTF-8 form; String.getBytes writes '?' in its place too
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        out.put((byte) '"');
+        var bytes = new byte[out.position()];
+        out.flip().get(bytes);
+        return bytes;
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            var grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            grown.put(buffer.flip());
+            buffer = grown;
+        }
+    }
+}
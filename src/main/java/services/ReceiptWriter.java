@@ -0,0 +1,237 @@
+package services;
+
+import dto.response.ReceiptProductItem;
+import dto.response.ReceiptResponse;
+import entity.ReceiptPrintMode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+// Renders the receipt layout of BasketPrinterImpl into a reusable buffer with hand-rolled column and money formatting,
+// flushing to the target in chunks. Output matches the printf layout ("%-30s £ %-10.2f") under an English locale.
+// Holds its buffers between calls, so an instance must not be shared between threads.
+public class ReceiptWriter {
+    private static final String DELIMETER = "--------------------------------------";
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int NAME_WIDTH = 30;
+    private static final int PRODUCT_PRICE_WIDTH = 10;
+    private static final int TOTAL_PRICE_WIDTH = 15;
+    private static final int FLUSH_THRESHOLD = 8 * 1024;
+    // Below this, pence can be derived from the double directly; above it, fall back to exact decimal rounding
+    private static final double FAST_PATH_LIMIT = 1e7;
+    private static final double HALF_PENNY_MARGIN = 1e-6;
+
+    private final ReceiptPrintMode printMode;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 256);
+    private final StringBuilder row = new StringBuilder(128);
+    private final StringBuilder weighedName = new StringBuilder(64);
+    private char[] chars = new char[FLUSH_THRESHOLD + 256];
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final ByteBuffer bytes = ByteBuffer.allocate(FLUSH_THRESHOLD * 2);
+    private Appendable appendable;
+    private WritableByteChannel channel;
+
+    public ReceiptWriter(ReceiptPrintMode printMode) {
+        this.printMode = printMode;
+    }
+
+    public void write(ReceiptResponse receipt, Appendable out) throws IOException {
+        appendable = out;
+        try {
+            render(receipt);
+        } finally {
+            appendable = null;
+            buffer.setLength(0);
+        }
+    }
+
+    public void write(ReceiptResponse receipt, WritableByteChannel out) throws IOException {
+        channel = out;
+        try {
+            render(receipt);
+        } finally {
+            channel = null;
+            buffer.setLength(0);
+        }
+    }
+
+    private void render(ReceiptResponse receipt) throws IOException {
+        appendPadded(buffer, "Product", NAME_WIDTH).append(' ');
+        appendPadded(buffer, "Price", PRODUCT_PRICE_WIDTH).append(LINE_SEPARATOR);
+        buffer.append(DELIMETER).append(LINE_SEPARATOR);
+
+        for (var productEntry : receipt.getProductItems()) {
+            appendRows(productName(productEntry), productEntry.getQuantity(), productEntry.getPrice(), PRODUCT_PRICE_WIDTH);
+        }
+
+        buffer.append(DELIMETER).append(LINE_SEPARATOR);
+        appendRow(buffer, "Sub-total", receipt.getProductSubTotal(), TOTAL_PRICE_WIDTH);
+
+        buffer.append("Savings").append(LINE_SEPARATOR);
+        if (receipt.getSavingsItems().isEmpty()) {
+            appendPadded(buffer, "", NAME_WIDTH).append(" Nil").append(LINE_SEPARATOR);
+        } else {
+            for (var savingsEntry : receipt.getSavingsItems()) {
+                appendRows(savingsEntry.getName(), savingsEntry.getCount(), savingsEntry.getDeduction(), TOTAL_PRICE_WIDTH);
+            }
+            appendRow(buffer, "Total savings", receipt.getSavingsSubTotal(), TOTAL_PRICE_WIDTH);
+        }
+
+        buffer.append(DELIMETER).append(LINE_SEPARATOR);
+        appendRow(buffer, "Total to pay", receipt.getGrandTotal(), TOTAL_PRICE_WIDTH);
+        flush();
+    }
+
+    // Weighed names are written straight into a reused builder rather than formatted through ReceiptProductItem.getName()
+    private CharSequence productName(ReceiptProductItem productEntry) {
+        if (!productEntry.isWeighed()) {
+            return productEntry.getName();
+        }
+        weighedName.setLength(0);
+        weighedName.append(productEntry.getProductName()).append(' ');
+        appendMoney(weighedName, productEntry.getWeightKg());
+        weighedName.append(" kg @ £ ");
+        appendMoney(weighedName, productEntry.getPricePerKg());
+        return weighedName.append("/kg");
+    }
+
+    private void appendRows(CharSequence name, long count, double amount, int amountWidth) throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        if (printMode == ReceiptPrintMode.COMPACT) {
+            row.setLength(0);
+            if (count != 1) {
+                row.append(count).append(" x ");
+            }
+            row.append(name);
+            appendRow(buffer, row, amount * count, amountWidth);
+            flushIfFull();
+            return;
+        }
+
+        // Expanded mode repeats an identical row per unit, so format it once
+        row.setLength(0);
+        appendRow(row, name, amount, amountWidth);
+        for (long i = 0; i < count; i++) {
+            buffer.append(row);
+            flushIfFull();
+        }
+    }
+
+    private static void appendRow(StringBuilder target, CharSequence name, double amount, int amountWidth) {
+        appendPadded(target, name, NAME_WIDTH).append(" £ ");
+        var start = target.length();
+        appendMoney(target, amount);
+        pad(target, start, amountWidth).append(LINE_SEPARATOR);
+    }
+
+    private static StringBuilder appendPadded(StringBuilder target, CharSequence text, int width) {
+        var start = target.length();
+        target.append(text);
+        return pad(target, start, width);
+    }
+
+    private static StringBuilder pad(StringBuilder target, int start, int width) {
+        for (int i = target.length() - start; i < width; i++) {
+            target.append(' ');
+        }
+        return target;
+    }
+
+    // Same digits as "%.2f": half-up rounding of the shortest decimal form of the double, "-" for any negative value
+    static void appendMoney(StringBuilder target, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            target.append(String.format("%.2f", value));
+            return;
+        }
+        var negative = Double.compare(value, 0.0) < 0;
+        var abs = Math.abs(value);
+        long pence = -1;
+
+        if (abs < FAST_PATH_LIMIT) {
+            var scaled = abs * 100;
+            var whole = Math.floor(scaled);
+            var fraction = scaled - whole;
+            if (Math.abs(fraction - 0.5) > HALF_PENNY_MARGIN) {
+                pence = (long) whole + (fraction > 0.5 ? 1 : 0);
+            }
+        }
+        if (pence < 0) {
+            pence = new BigDecimal(Double.toString(abs)).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+        }
+
+        if (negative) {
+            target.append('-');
+        }
+        target.append(pence / 100).append('.');
+        var fractionDigits = pence % 100;
+        if (fractionDigits < 10) {
+            target.append('0');
+        }
+        target.append(fractionDigits);
+    }
+
+    private void flushIfFull() throws IOException {
+        if (buffer.length() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        if (channel != null) {
+            writeToChannel(copyToChars());
+        } else if (appendable instanceof Writer) {
+            ((Writer) appendable).write(chars, 0, copyToChars());
+        } else {
+            appendable.append(buffer);
+        }
+        buffer.setLength(0);
+    }
+
+    private int copyToChars() {
+        var length = buffer.length();
+        if (length > chars.length) {
+            chars = new char[length];
+        }
+        buffer.getChars(0, length, chars, 0);
+        return length;
+    }
+
+    // Encoding from an array-backed CharBuffer takes the encoder's fast path
+    private void writeToChannel(int length) throws IOException {
+        var source = CharBuffer.wrap(chars, 0, length);
+        encoder.reset();
+        CoderResult result;
+        do {
+            result = encoder.encode(source, bytes, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+            drainBytes();
+        } while (result.isOverflow());
+        while (encoder.flush(bytes).isOverflow()) {
+            drainBytes();
+        }
+        drainBytes();
+    }
+
+    private void drainBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
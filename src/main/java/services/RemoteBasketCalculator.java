@@ -0,0 +1,56 @@
+package services;
+
+import dto.request.Basket;
+import dto.request.CompactBasket;
+import dto.response.ReceiptResponse;
+import interfaces.BasketCalculator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+// Client for a PricingServer's POST /price, so a shard of a ShardedBasketCalculator can run in another process.
+// The server must know every product it is sent, by id. The basket id, customer tier and store go with the basket,
+// but line prices do not: the server prices from its own products and PriceBook, so tier and store prices must be
+// configured there rather than in a TieredBasketCalculator in front of this client.
+public class RemoteBasketCalculator implements BasketCalculator {
+    private final HttpClient client;
+    private final URI priceUri;
+    private final Duration timeout;
+
+    public RemoteBasketCalculator(URI baseUri, Duration timeout) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.priceUri = baseUri.resolve("/price");
+        this.timeout = timeout;
+    }
+
+    @Override
+    public ReceiptResponse calculateBasketPrice(Basket basket) {
+        var request = HttpRequest.newBuilder(priceUri)
+                .timeout(timeout)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(CompactReceiptCodec.encodeBasket(CompactBasket.fromBasket(basket))))
+                .build();
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Pricing request to " + priceUri + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Pricing request to " + priceUri + " interrupted", e);
+        }
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Pricing request to " + priceUri + " returned " + response.statusCode()
+                    + ": " + new String(response.body(), StandardCharsets.UTF_8).trim());
+        }
+        return CompactReceiptCodec.decodeReceipt(response.body());
+    }
+}
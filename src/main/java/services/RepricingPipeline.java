@@ -0,0 +1,272 @@
+package services;
+
+import dto.request.CompactBasket;
+import dto.response.RepricingSummary;
+import entity.Product;
+import entity.TransactionLogFormat;
+import interfaces.BasketCalculator;
+import interfaces.RepricingProgressListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
+
+// Re-prices a transaction log file into a CSV file of receipt summaries. A reader thread parses batches of baskets
+// into a bounded queue, worker threads price them and format their summaries, and the calling thread writes the
+// results back in log order. Full queues block the stage feeding them, and the reader also waits for an in-flight
+// permit per batch that is only returned once the batch is written, so at most a fixed number of batches is ever in
+// memory whatever the size of the log or the order workers finish in.
+public class RepricingPipeline {
+    public static final String HEADER = "basket_id,lines,product_subtotal,savings_subtotal,grand_total,pricing_version\n";
+    private static final int DEFAULT_QUEUE_CAPACITY = 16;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    private static final long DEFAULT_PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final BasketCalculator basketCalculator;
+    private final LongFunction<Product> productLookup;
+    private final int workers;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long progressIntervalNanos;
+
+    public RepricingPipeline(BasketCalculator basketCalculator, LongFunction<Product> productLookup) {
+        this(basketCalculator, productLookup, Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY,
+                DEFAULT_BATCH_SIZE, DEFAULT_PROGRESS_INTERVAL_NANOS);
+    }
+
+    public RepricingPipeline(BasketCalculator basketCalculator, LongFunction<Product> productLookup, int workers,
+                             int queueCapacity, int batchSize, long progressIntervalNanos) {
+        if (workers < 1 || queueCapacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Workers, queue capacity and batch size must be positive");
+        }
+        this.basketCalculator = basketCalculator;
+        this.productLookup = productLookup;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.progressIntervalNanos = progressIntervalNanos;
+    }
+
+    public RepricingSummary run(Path input, TransactionLogFormat format, Path output) throws IOException {
+        return run(input, format, output, RepricingProgressListener.NONE);
+    }
+
+    public RepricingSummary run(Path input, TransactionLogFormat format, Path output, RepricingProgressListener progressListener) throws IOException {
+        var start = System.nanoTime();
+        var batches = new ArrayBlockingQueue<TransactionBatch>(queueCapacity);
+        var results = new ArrayBlockingQueue<PricedBatch>(queueCapacity);
+        var failure = new AtomicReference<Throwable>();
+        var inFlight = new Semaphore(2 * queueCapacity + workers);
+        var executor = Executors.newFixedThreadPool(workers + 1, runnable -> {
+            var thread = new Thread(runnable, "repricing-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (var reader = new TransactionLogReader(FileChannel.open(input, StandardOpenOption.READ), format);
+             var out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            executor.execute(() -> read(reader, batches, inFlight, failure));
+            for (int i = 0; i < workers; i++) {
+                executor.execute(() -> price(batches, results, failure));
+            }
+            return write(out, results, inFlight, failure, start, progressListener);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while re-pricing " + input, e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void read(TransactionLogReader reader, BlockingQueue<TransactionBatch> batches, Semaphore inFlight, AtomicReference<Throwable> failure) {
+        try {
+            long sequence = 0;
+            inFlight.acquire();
+            var batch = new TransactionBatch(sequence, batchSize);
+            while (reader.next(batch)) {
+                if (batch.size == batchSize) {
+                    batches.put(batch);
+                    inFlight.acquire();
+                    batch = new TransactionBatch(++sequence, batchSize);
+                }
+            }
+            if (batch.size > 0) {
+                batches.put(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            // One end marker per worker, whether the log was read to the end or not
+            for (int i = 0; i < workers; i++) {
+                if (!offerUntilInterrupted(batches, TransactionBatch.END)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void price(BlockingQueue<TransactionBatch> batches, BlockingQueue<PricedBatch> results, AtomicReference<Throwable> failure) {
+        var summary = new StringBuilder(batchSize * 48);
+        try {
+            while (true) {
+                var batch = batches.take();
+                if (batch == TransactionBatch.END) {
+                    break;
+                }
+                results.put(priceBatch(batch, summary));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            offerUntilInterrupted(results, PricedBatch.END);
+        }
+    }
+
+    private PricedBatch priceBatch(TransactionBatch batch, StringBuilder summary) {
+        var priced = new PricedBatch(batch.sequence);
+        summary.setLength(0);
+        for (int b = 0; b < batch.size; b++) {
+            var from = batch.lineStarts[b];
+            var to = batch.lineStarts[b + 1];
+            var basket = new CompactBasket(to - from);
+            basket.setBasketId(batch.basketIds[b]);
+            long unknownProduct = Long.MIN_VALUE;
+            for (int line = from; line < to; line++) {
+                var product = productLookup.apply(batch.productIds[line]);
+                if (product == null) {
+                    unknownProduct = batch.productIds[line];
+                    break;
+                }
+                basket.add(product, batch.quantities[line]);
+            }
+
+            priced.baskets++;
+            summary.append(batch.basketIds[b]).append(',');
+            if (unknownProduct != Long.MIN_VALUE) {
+                priced.rejected++;
+                summary.append("REJECTED,unknown product ").append(unknownProduct).append('\n');
+                continue;
+            }
+
+            var receipt = basketCalculator.calculateBasketPrice(basket);
+            priced.lines += basket.size();
+            priced.productSubTotal += receipt.getProductSubTotal();
+            priced.savingsSubTotal += receipt.getSavingsSubTotal();
+            priced.grandTotal += receipt.getGrandTotal();
+
+            summary.append(basket.size()).append(',');
+            ReceiptWriter.appendMoney(summary, receipt.getProductSubTotal());
+            summary.append(',');
+            ReceiptWriter.appendMoney(summary, receipt.getSavingsSubTotal());
+            summary.append(',');
+            ReceiptWriter.appendMoney(summary, receipt.getGrandTotal());
+            summary.append(',').append(receipt.getPricingVersion()).append('\n');
+        }
+        priced.summary = summary.toString().getBytes(StandardCharsets.UTF_8);
+        return priced;
+    }
+
+    private RepricingSummary write(FileChannel out, BlockingQueue<PricedBatch> results, Semaphore inFlight, AtomicReference<Throwable> failure,
+                                   long start, RepricingProgressListener progressListener) throws IOException, InterruptedException {
+        writeFully(out, ByteBuffer.wrap(HEADER.getBytes(StandardCharsets.US_ASCII)));
+        var totals = RepricingSummary.builder().build();
+        // Workers finish out of order; hold early batches until the next one in sequence arrives
+        var pending = new HashMap<Long, PricedBatch>();
+        long nextSequence = 0;
+        var finishedWorkers = 0;
+        var lastReport = start;
+
+        while (finishedWorkers < workers) {
+            var priced = results.poll(100, TimeUnit.MILLISECONDS);
+            rethrow(failure);
+            if (priced == null) {
+                continue;
+            }
+            if (priced == PricedBatch.END) {
+                finishedWorkers++;
+                continue;
+            }
+            pending.put(priced.sequence, priced);
+            for (var next = pending.remove(nextSequence); next != null; next = pending.remove(++nextSequence)) {
+                writeFully(out, ByteBuffer.wrap(next.summary));
+                inFlight.release();
+                totals.setBasketCount(totals.getBasketCount() + next.baskets);
+                totals.setRejectedBaskets(totals.getRejectedBaskets() + next.rejected);
+                totals.setLineCount(totals.getLineCount() + next.lines);
+                totals.setProductSubTotal(totals.getProductSubTotal() + next.productSubTotal);
+                totals.setSavingsSubTotal(totals.getSavingsSubTotal() + next.savingsSubTotal);
+                totals.setGrandTotal(totals.getGrandTotal() + next.grandTotal);
+            }
+
+            var now = System.nanoTime();
+            if (now - lastReport >= progressIntervalNanos) {
+                lastReport = now;
+                report(progressListener, totals, now - start);
+            }
+        }
+        rethrow(failure);
+
+        totals.setElapsedNanos(System.nanoTime() - start);
+        report(progressListener, totals, totals.getElapsedNanos());
+        return totals;
+    }
+
+    private static void report(RepricingProgressListener progressListener, RepricingSummary totals, long elapsedNanos) {
+        var basketsPerSecond = elapsedNanos == 0 ? 0.0 : totals.getBasketCount() * 1_000_000_000.0 / elapsedNanos;
+        progressListener.onProgress(totals.getBasketCount(), elapsedNanos, basketsPerSecond);
+    }
+
+    private static void rethrow(AtomicReference<Throwable> failure) throws IOException {
+        var cause = failure.get();
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause != null) {
+            throw new IOException("Re-pricing failed", cause);
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    private static <T> boolean offerUntilInterrupted(BlockingQueue<T> queue, T item) {
+        try {
+            queue.put(item);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static final class PricedBatch {
+        static final PricedBatch END = new PricedBatch(-1);
+
+        final long sequence;
+        byte[] summary;
+        long baskets;
+        long rejected;
+        long lines;
+        double productSubTotal;
+        double savingsSubTotal;
+        double grandTotal;
+
+        PricedBatch(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package services;
+
+import dto.response.PricingTrace;
+import interfaces.PricingTracer;
+import util.TraceRingBuffer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongPredicate;
+
+// PricingTracer that traces a random 1 in sampleEvery baskets, plus every basket whose id matches basketFilter, and
+// keeps the most recent traces in a lock-free ring. Sampling draws from a per-thread random, so untraced baskets
+// share no state. Both settings can be changed while pricing runs, for example to follow one till's baskets during a
+// dispute; sampleEvery 0 turns random sampling off and a null filter matches nothing.
+public class SampledPricingTracer implements PricingTracer {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final TraceRingBuffer<PricingTrace> traces;
+    private volatile int sampleEvery;
+    private volatile LongPredicate basketFilter;
+
+    public SampledPricingTracer(int sampleEvery, LongPredicate basketFilter, int capacity) {
+        this.traces = new TraceRingBuffer<>(capacity);
+        setSampleEvery(sampleEvery);
+        this.basketFilter = basketFilter;
+    }
+
+    public static SampledPricingTracer oneIn(int sampleEvery) {
+        return new SampledPricingTracer(sampleEvery, null, DEFAULT_CAPACITY);
+    }
+
+    public static SampledPricingTracer forBaskets(LongPredicate basketFilter) {
+        return new SampledPricingTracer(0, basketFilter, DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public boolean shouldTrace(long basketId) {
+        var every = sampleEvery;
+        if (every == 1 || every > 1 && ThreadLocalRandom.current().nextInt(every) == 0) {
+            return true;
+        }
+        var filter = basketFilter;
+        return filter != null && filter.test(basketId);
+    }
+
+    @Override
+    public void record(PricingTrace trace) {
+        traces.add(trace);
+    }
+
+    // Traces still held, oldest first
+    public List<PricingTrace> getTraces() {
+        return traces.snapshot();
+    }
+
+    // The most recent trace still held for the basket, or null
+    public PricingTrace find(long basketId) {
+        var held = traces.snapshot();
+        for (int i = held.size() - 1; i >= 0; i--) {
+            if (held.get(i).getBasketId() == basketId) {
+                return held.get(i);
+            }
+        }
+        return null;
+    }
+
+    public long getRecordedCount() {
+        return traces.getAddedCount();
+    }
+
+    public int getCapacity() {
+        return traces.getCapacity();
+    }
+
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    public void setSampleEvery(int sampleEvery) {
+        if (sampleEvery < 0) {
+            throw new IllegalArgumentException("sampleEvery must not be negative: " + sampleEvery);
+        }
+        this.sampleEvery = sampleEvery;
+    }
+
+    public LongPredicate getBasketFilter() {
+        return basketFilter;
+    }
+
+    public void setBasketFilter(LongPredicate basketFilter) {
+        this.basketFilter = basketFilter;
+    }
+}
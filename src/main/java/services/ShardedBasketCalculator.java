@@ -0,0 +1,156 @@
+package services;
+
+import dto.request.Basket;
+import dto.response.ReceiptResponse;
+import entity.MoneyMode;
+import interfaces.BasketCalculator;
+import util.Money;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Scatter-gather coordinator over a CatalogPartition. Each basket is split by CatalogPartition.shardOf, the
+// sub-baskets are priced by their shards in parallel, and the partial receipts are merged in shard order. Because a
+// deal group is always priced whole on its home shard, every part is itself a complete receipt and merging is just
+// concatenating items and adding totals.
+// In FIXED_POINT mode the merged totals are exact; in DOUBLE mode they can differ from a single-node receipt in the
+// last bits of the double, since the amounts are added in a different order.
+public class ShardedBasketCalculator implements BasketCalculator {
+    private final CatalogPartition partition;
+    private final List<BasketCalculator> shards;
+    private final MoneyMode moneyMode;
+    private final ExecutorService executor;
+    private final LongAdder scatteredBaskets = new LongAdder();
+    private final LongAdder shardCalls = new LongAdder();
+
+    // Shards may be in-JVM calculators or RemoteBasketCalculators, one per partition shard and in shard order
+    public ShardedBasketCalculator(CatalogPartition partition, List<? extends BasketCalculator> shards, MoneyMode moneyMode, ExecutorService executor) {
+        if (shards.size() != partition.getShardCount()) {
+            throw new IllegalArgumentException("Expected " + partition.getShardCount() + " shards, got " + shards.size());
+        }
+        this.partition = partition;
+        this.shards = List.copyOf(shards);
+        this.moneyMode = moneyMode;
+        this.executor = executor;
+    }
+
+    // In-JVM shards, each a BasketCalculatorImpl over its own part of the catalog
+    public static ShardedBasketCalculator local(CatalogPartition partition, MoneyMode moneyMode, ExecutorService executor) {
+        var shards = new ArrayList<BasketCalculator>();
+        for (int s = 0; s < partition.getShardCount(); s++) {
+            shards.add(new BasketCalculatorImpl(new PricingCatalogStore(partition.getShardCatalog(s)), moneyMode));
+        }
+        return new ShardedBasketCalculator(partition, shards, moneyMode, executor);
+    }
+
+    @Override
+    public ReceiptResponse calculateBasketPrice(Basket basket) {
+        var subBaskets = new Basket[shards.size()];
+        var involved = 0;
+        for (var entry : basket.entrySet()) {
+            var shard = partition.shardOf(entry.getKey());
+            if (subBaskets[shard] == null) {
+                subBaskets[shard] = new Basket();
+                subBaskets[shard].setBasketId(basket.getBasketId());
+                involved++;
+            }
+            subBaskets[shard].put(entry.getKey(), entry.getValue());
+        }
+
+        var parts = new ReceiptResponse[shards.size()];
+        if (involved > 1) {
+            scatter(subBaskets, parts);
+            scatteredBaskets.increment();
+        } else {
+            for (int s = 0; s < shards.size(); s++) {
+                if (subBaskets[s] != null) {
+                    parts[s] = shards.get(s).calculateBasketPrice(subBaskets[s]);
+                }
+            }
+        }
+        shardCalls.add(involved);
+        return merge(parts);
+    }
+
+    // Baskets priced with more than one shard
+    public long getScatteredBaskets() {
+        return scatteredBaskets.sum();
+    }
+
+    public long getShardCalls() {
+        return shardCalls.sum();
+    }
+
+    private void scatter(Basket[] subBaskets, ReceiptResponse[] parts) {
+        // The first involved shard runs on the calling thread, the rest on the executor
+        var futures = new ArrayList<Future<?>>();
+        var inline = -1;
+        for (int s = 0; s < shards.size(); s++) {
+            if (subBaskets[s] == null) {
+                continue;
+            }
+            if (inline < 0) {
+                inline = s;
+                continue;
+            }
+            var shard = s;
+            futures.add(executor.submit(() -> parts[shard] = shards.get(shard).calculateBasketPrice(subBaskets[shard])));
+        }
+        parts[inline] = shards.get(inline).calculateBasketPrice(subBaskets[inline]);
+
+        try {
+            for (var future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sharded pricing interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Sharded pricing failed", e.getCause());
+        }
+    }
+
+    private ReceiptResponse merge(ReceiptResponse[] parts) {
+        var receipt = ReceiptResponse.builder()
+                .productItems(new ArrayList<>())
+                .savingsItems(new ArrayList<>())
+                .build();
+        long productSubTotalMinor = 0;
+        long savingsSubTotalMinor = 0;
+        long grandTotalMinor = 0;
+        for (var part : parts) {
+            if (part == null) {
+                continue;
+            }
+            receipt.getProductItems().addAll(part.getProductItems());
+            receipt.getSavingsItems().addAll(part.getSavingsItems());
+            receipt.setPricingVersion(Math.max(receipt.getPricingVersion(), part.getPricingVersion()));
+            if (moneyMode == MoneyMode.FIXED_POINT) {
+                // From the pound totals rather than the minor fields, which a remote shard's receipt does not carry;
+                // in this mode each total is a whole number of pence, so the conversion is exact
+                productSubTotalMinor += Money.toPence(part.getProductSubTotal());
+                savingsSubTotalMinor += Money.toPence(part.getSavingsSubTotal());
+                grandTotalMinor += Money.toPence(part.getGrandTotal());
+            } else {
+                receipt.setProductSubTotal(receipt.getProductSubTotal() + part.getProductSubTotal());
+                receipt.setSavingsSubTotal(receipt.getSavingsSubTotal() + part.getSavingsSubTotal());
+                receipt.setGrandTotal(receipt.getGrandTotal() + part.getGrandTotal());
+            }
+        }
+        if (moneyMode == MoneyMode.FIXED_POINT) {
+            receipt.setProductSubTotalMinor(productSubTotalMinor);
+            receipt.setSavingsSubTotalMinor(savingsSubTotalMinor);
+            receipt.setGrandTotalMinor(grandTotalMinor);
+            receipt.setProductSubTotal(Money.toPounds(productSubTotalMinor));
+            receipt.setSavingsSubTotal(Money.toPounds(savingsSubTotalMinor));
+            receipt.setGrandTotal(Money.toPounds(grandTotalMinor));
+        }
+        return receipt;
+    }
+}
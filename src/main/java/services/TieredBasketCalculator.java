@@ -0,0 +1,155 @@
+package services;
+
+import dto.request.Basket;
+import dto.request.CompactBasket;
+import dto.response.BasketTotals;
+import dto.response.ReceiptResponse;
+import entity.PriceBook;
+import entity.Product;
+import interfaces.BasketCalculator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resolves each line's unit price through a PriceBook for the basket's customer tier and store, then hands the
+// repriced basket to the wrapped calculator, so every engine and the offers it applies see the resolved price.
+// A repriced line carries a copy of its Product with the new price. Copies for overridden products are kept in a
+// small direct-mapped cache keyed by product, tier and store, so a hot SKU is resolved and copied once rather than
+// on every basket. Lines the book does not touch are passed through as they are, and a basket with no such lines
+// is passed on without being copied.
+public class TieredBasketCalculator implements BasketCalculator {
+    private static final int HOT_SLOTS = 1024;
+
+    private final BasketCalculator basketCalculator;
+    private final PriceBook priceBook;
+    // Entries are immutable and replaced whole, so racing threads at worst resolve a product twice
+    private final PricedProduct[] hotProducts = new PricedProduct[HOT_SLOTS];
+
+    public TieredBasketCalculator(BasketCalculator basketCalculator, PriceBook priceBook) {
+        this.basketCalculator = basketCalculator;
+        this.priceBook = priceBook;
+    }
+
+    @Override
+    public ReceiptResponse calculateBasketPrice(Basket basket) {
+        return basketCalculator.calculateBasketPrice(reprice(basket));
+    }
+
+    @Override
+    public ReceiptResponse calculateBasketPrice(CompactBasket basket) {
+        return basketCalculator.calculateBasketPrice(reprice(basket));
+    }
+
+    @Override
+    public BasketTotals calculateBasketTotals(Basket basket) {
+        return basketCalculator.calculateBasketTotals(reprice(basket));
+    }
+
+    @Override
+    public List<ReceiptResponse> calculateBasketPrices(List<Basket> baskets) {
+        var repriced = new ArrayList<Basket>(baskets.size());
+        for (var basket : baskets) {
+            repriced.add(reprice(basket));
+        }
+        return basketCalculator.calculateBasketPrices(repriced);
+    }
+
+    public PriceBook getPriceBook() {
+        return priceBook;
+    }
+
+    Basket reprice(Basket basket) {
+        var tier = basket.getCustomerTier();
+        var storeId = basket.getStoreId();
+        Basket repriced = null;
+        for (var entry : basket.entrySet()) {
+            var product = entry.getKey();
+            var priced = priced(product, tier, storeId);
+            if (priced != product && repriced == null) {
+                // First line that changes: copy the lines before it and carry on into the copy
+                repriced = new Basket();
+                repriced.setBasketId(basket.getBasketId());
+                repriced.setCustomerTier(tier);
+                repriced.setStoreId(storeId);
+                for (var earlier : basket.entrySet()) {
+                    if (earlier.getKey() == product) {
+                        break;
+                    }
+                    repriced.put(earlier.getKey(), earlier.getValue());
+                }
+            }
+            if (repriced != null) {
+                repriced.merge(priced, entry.getValue(), Double::sum);
+            }
+        }
+        return repriced == null ? basket : repriced;
+    }
+
+    CompactBasket reprice(CompactBasket basket) {
+        var tier = basket.getCustomerTier();
+        var storeId = basket.getStoreId();
+        CompactBasket repriced = null;
+        for (int line = 0; line < basket.size(); line++) {
+            var product = basket.getProduct(line);
+            var priced = priced(product, tier, storeId);
+            if (priced != product && repriced == null) {
+                repriced = new CompactBasket(basket.size());
+                repriced.setBasketId(basket.getBasketId());
+                repriced.setCustomerTier(tier);
+                repriced.setStoreId(storeId);
+                for (int earlier = 0; earlier < line; earlier++) {
+                    repriced.add(basket.getProduct(earlier), basket.getQuantity(earlier));
+                }
+            }
+            if (repriced != null) {
+                repriced.add(priced, basket.getQuantity(line));
+            }
+        }
+        return repriced == null ? basket : repriced;
+    }
+
+    // The product itself when its resolved price is the shelf price, otherwise a copy carrying the resolved price
+    private Product priced(Product product, int tier, int storeId) {
+        if (!priceBook.affects(product.getId(), tier)) {
+            return product;
+        }
+        var slot = slotOf(product.getId(), tier, storeId);
+        var hot = hotProducts[slot];
+        if (hot != null && hot.source == product && hot.tier == tier && hot.storeId == storeId
+                && hot.shelfPrice == product.getPrice()) {
+            return hot.priced;
+        }
+        var price = priceBook.resolve(product, tier, storeId);
+        var priced = price == product.getPrice() ? product : Product.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .price(price)
+                .measuredPerKg(product.isMeasuredPerKg())
+                .Category(product.getCategory())
+                .build();
+        hotProducts[slot] = new PricedProduct(product, product.getPrice(), tier, storeId, priced);
+        return priced;
+    }
+
+    private static int slotOf(long productId, int tier, int storeId) {
+        var hash = productId * 0x9E3779B97F4A7C15L + tier * 0xC2B2AE3D27D4EB4FL + storeId;
+        return (int) (hash ^ hash >>> 29) & (HOT_SLOTS - 1);
+    }
+
+    private static final class PricedProduct {
+        final Product source;
+        // Product is mutable; a changed shelf price must not be answered from the cache
+        final double shelfPrice;
+        final int tier;
+        final int storeId;
+        final Product priced;
+
+        PricedProduct(Product source, double shelfPrice, int tier, int storeId, Product priced) {
+            this.source = source;
+            this.shelfPrice = shelfPrice;
+            this.tier = tier;
+            this.storeId = storeId;
+            this.priced = priced;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package services;
+
+import java.util.Arrays;
+
+// A run of baskets read from a transaction log, held as flat arrays: basket i owns lines lineStarts[i] until
+// lineStarts[i + 1]. The sequence number lets the pipeline write results back in log order.
+final class TransactionBatch {
+    static final TransactionBatch END = new TransactionBatch(-1, 0);
+
+    final long sequence;
+    long[] basketIds;
+    int[] lineStarts;
+    long[] productIds;
+    double[] quantities;
+    int size;
+    int lines;
+
+    TransactionBatch(long sequence, int expectedBaskets) {
+        this.sequence = sequence;
+        basketIds = new long[Math.max(expectedBaskets, 1)];
+        lineStarts = new int[basketIds.length + 1];
+        productIds = new long[basketIds.length * 4];
+        quantities = new double[productIds.length];
+    }
+
+    void beginBasket(long basketId) {
+        if (size == basketIds.length) {
+            basketIds = Arrays.copyOf(basketIds, size * 2);
+            lineStarts = Arrays.copyOf(lineStarts, size * 2 + 1);
+        }
+        basketIds[size] = basketId;
+        lineStarts[size] = lines;
+    }
+
+    void addLine(long productId, double quantity) {
+        if (lines == productIds.length) {
+            productIds = Arrays.copyOf(productIds, lines * 2);
+            quantities = Arrays.copyOf(quantities, lines * 2);
+        }
+        productIds[lines] = productId;
+        quantities[lines] = quantity;
+        lines++;
+    }
+
+    void endBasket() {
+        size++;
+        lineStarts[size] = lines;
+    }
+}
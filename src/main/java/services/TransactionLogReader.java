@@ -0,0 +1,217 @@
+package services;
+
+import entity.TransactionLogFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// Parses baskets straight out of a channel's bytes into TransactionBatches, without building a String per line.
+// The read buffer only grows to fit the longest text line, so memory does not depend on the size of the log.
+final class TransactionLogReader implements Closeable {
+    static final int BINARY_MAGIC = 0x5354584C;
+    static final int BINARY_VERSION = 1;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final TransactionLogFormat format;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private boolean endOfInput;
+    private long lineNumber;
+
+    TransactionLogReader(ReadableByteChannel channel, TransactionLogFormat format) throws IOException {
+        this.channel = channel;
+        this.format = format;
+        buffer.flip();
+        if (format == TransactionLogFormat.BINARY) {
+            if (!ensure(8) || buffer.getInt() != BINARY_MAGIC) {
+                throw new IOException("Not a binary transaction log");
+            }
+            var version = buffer.getInt();
+            if (version != BINARY_VERSION) {
+                throw new IOException("Unsupported transaction log version " + version);
+            }
+        }
+    }
+
+    // Appends the next basket to batch; false once the log is exhausted
+    boolean next(TransactionBatch batch) throws IOException {
+        return format == TransactionLogFormat.BINARY ? nextBinary(batch) : nextText(batch);
+    }
+
+    private boolean nextBinary(TransactionBatch batch) throws IOException {
+        if (!ensure(12)) {
+            return false;
+        }
+        var basketId = buffer.getLong();
+        var lines = buffer.getInt();
+        if (lines < 0) {
+            throw new IOException("Negative line count in basket " + basketId);
+        }
+        batch.beginBasket(basketId);
+        for (int i = 0; i < lines; i++) {
+            if (!ensure(16)) {
+                throw new IOException("Transaction log ends inside basket " + basketId);
+            }
+            batch.addLine(buffer.getLong(), buffer.getDouble());
+        }
+        batch.endBasket();
+        return true;
+    }
+
+    private boolean nextText(TransactionBatch batch) throws IOException {
+        while (true) {
+            var end = findLineEnd();
+            if (end < 0) {
+                return false;
+            }
+            lineNumber++;
+            var start = buffer.position();
+            buffer.position(Math.min(end + 1, buffer.limit()));
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            var cursor = skipBlanks(start, end);
+            if (cursor == end || buffer.get(cursor) == '#') {
+                continue;
+            }
+            parseTextLine(batch, cursor, end);
+            return true;
+        }
+    }
+
+    // Index of the '\n' ending the next line, reading more input as needed; the limit for a last unterminated line
+    private int findLineEnd() throws IOException {
+        var scanned = buffer.position();
+        while (true) {
+            for (int i = scanned; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return i;
+                }
+            }
+            scanned = buffer.limit();
+            if (endOfInput) {
+                return buffer.hasRemaining() ? buffer.limit() : -1;
+            }
+            var consumed = buffer.position();
+            fill(buffer.remaining() + 1);
+            scanned -= consumed;
+        }
+    }
+
+    private void parseTextLine(TransactionBatch batch, int cursor, int end) throws IOException {
+        var tokenEnd = tokenEnd(cursor, end);
+        batch.beginBasket(parseLong(cursor, tokenEnd));
+        cursor = skipBlanks(tokenEnd, end);
+        while (cursor < end) {
+            tokenEnd = tokenEnd(cursor, end);
+            var colon = cursor;
+            while (colon < tokenEnd && buffer.get(colon) != ':') {
+                colon++;
+            }
+            if (colon == tokenEnd) {
+                throw malformed("expected productId:quantity");
+            }
+            batch.addLine(parseLong(cursor, colon), parseQuantity(colon + 1, tokenEnd));
+            cursor = skipBlanks(tokenEnd, end);
+        }
+        batch.endBasket();
+    }
+
+    private long parseLong(int start, int end) throws IOException {
+        if (start == end) {
+            throw malformed("expected a number");
+        }
+        var negative = buffer.get(start) == '-';
+        if (negative && start + 1 == end) {
+            throw malformed("expected digits after '-'");
+        }
+        long value = 0;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            var digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw malformed("bad number");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private double parseQuantity(int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            var b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                // Fractional weights are rare enough to take the exact library parse
+                var bytes = new byte[end - start];
+                buffer.duplicate().position(start).get(bytes);
+                try {
+                    return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+                } catch (NumberFormatException e) {
+                    throw malformed("bad quantity");
+                }
+            }
+        }
+        return parseLong(start, end);
+    }
+
+    private int tokenEnd(int cursor, int end) {
+        while (cursor < end && !isBlank(buffer.get(cursor))) {
+            cursor++;
+        }
+        return cursor;
+    }
+
+    private int skipBlanks(int cursor, int end) {
+        while (cursor < end && isBlank(buffer.get(cursor))) {
+            cursor++;
+        }
+        return cursor;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == ',';
+    }
+
+    private IOException malformed(String reason) {
+        return new IOException("Malformed transaction log line " + lineNumber + ": " + reason);
+    }
+
+    // Makes at least n bytes available; false only when the log ended cleanly before any of them
+    private boolean ensure(int n) throws IOException {
+        if (buffer.remaining() >= n) {
+            return true;
+        }
+        fill(n);
+        if (buffer.remaining() >= n) {
+            return true;
+        }
+        if (buffer.hasRemaining()) {
+            throw new IOException("Truncated transaction log");
+        }
+        return false;
+    }
+
+    // Reads until n bytes are buffered or the input ends, growing the buffer only if n does not fit
+    private void fill(int n) throws IOException {
+        buffer.compact();
+        if (buffer.capacity() < n) {
+            var larger = ByteBuffer.allocate(Math.max(n, buffer.capacity() * 2));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        while (buffer.position() < n && !endOfInput) {
+            if (channel.read(buffer) < 0) {
+                endOfInput = true;
+            }
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,89 @@
+package services;
+
+import dto.request.Basket;
+import dto.request.CompactBasket;
+import entity.TransactionLogFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes baskets in either TransactionLogFormat through one reusable buffer, for producing logs that RepricingPipeline reads.
+public class TransactionLogWriter implements Closeable {
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    private final TransactionLogFormat format;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final StringBuilder line = new StringBuilder(256);
+
+    public TransactionLogWriter(Path path, TransactionLogFormat format) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.format = format;
+        if (format == TransactionLogFormat.BINARY) {
+            buffer.putInt(TransactionLogReader.BINARY_MAGIC);
+            buffer.putInt(TransactionLogReader.BINARY_VERSION);
+        }
+    }
+
+    public void append(long basketId, Basket basket) throws IOException {
+        append(basketId, CompactBasket.fromBasket(basket));
+    }
+
+    public void append(long basketId, CompactBasket basket) throws IOException {
+        if (format == TransactionLogFormat.BINARY) {
+            reserve(12);
+            buffer.putLong(basketId);
+            buffer.putInt(basket.size());
+            for (int i = 0; i < basket.size(); i++) {
+                reserve(16);
+                buffer.putLong(basket.getId(i));
+                buffer.putDouble(basket.getQuantity(i));
+            }
+            return;
+        }
+
+        line.setLength(0);
+        line.append(basketId);
+        for (int i = 0; i < basket.size(); i++) {
+            line.append(' ').append(basket.getId(i)).append(':');
+            var quantity = basket.getQuantity(i);
+            if (quantity == (long) quantity) {
+                line.append((long) quantity);
+            } else {
+                line.append(quantity);
+            }
+        }
+        line.append('\n');
+        for (int i = 0; i < line.length(); i++) {
+            reserve(1);
+            buffer.put((byte) line.charAt(i));
+        }
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
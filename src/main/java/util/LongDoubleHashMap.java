@@ -0,0 +1,87 @@
+package util;
+
+import java.util.Arrays;
+
+// Open-addressing long -> double map for price lookups without boxing. NaN marks a missing key, so it is not a
+// storable value.
+public class LongDoubleHashMap {
+    private long[] keys;
+    private double[] values;
+    private int mask;
+    private int size;
+
+    public LongDoubleHashMap() {
+        this(16);
+    }
+
+    public LongDoubleHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    // The value for key, or NaN when there is none
+    public double get(long key) {
+        var slot = LongIntHashMap.hash(key) & mask;
+        while (!Double.isNaN(values[slot])) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return Double.NaN;
+    }
+
+    public boolean containsKey(long key) {
+        return !Double.isNaN(get(key));
+    }
+
+    public void put(long key, double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Values must not be NaN");
+        }
+        if ((size + 1) * 2 > values.length) {
+            rehash(values.length * 2);
+        }
+        var slot = LongIntHashMap.hash(key) & mask;
+        while (!Double.isNaN(values[slot])) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        var oldKeys = keys;
+        var oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (!Double.isNaN(oldValues[i])) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new double[capacity];
+        Arrays.fill(values, Double.NaN);
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        var capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
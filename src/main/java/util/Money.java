@@ -0,0 +1,36 @@
+package util;
+
+// Fixed-point money helpers. Amounts are long pence and weights are long grams.
+// Rounding rules:
+//  - pounds to pence and kilograms to grams round half up (away from zero) to the nearest unit
+//  - a weighed price is pence-per-kg x grams / 1000, rounded half up to the nearest penny, once per line
+public final class Money {
+    public static final long PENCE_PER_POUND = 100;
+    public static final long GRAMS_PER_KG = 1_000;
+
+    private Money() {
+    }
+
+    public static long toPence(double pounds) {
+        return roundHalfUp(pounds * PENCE_PER_POUND);
+    }
+
+    public static long toGrams(double kilograms) {
+        return roundHalfUp(kilograms * GRAMS_PER_KG);
+    }
+
+    public static double toPounds(long pence) {
+        return pence / (double) PENCE_PER_POUND;
+    }
+
+    public static long weighedPrice(long pencePerKg, long grams) {
+        var scaled = Math.multiplyExact(pencePerKg, grams);
+        var half = GRAMS_PER_KG / 2;
+        return scaled >= 0 ? (scaled + half) / GRAMS_PER_KG : -((-scaled + half) / GRAMS_PER_KG);
+    }
+
+    private static long roundHalfUp(double value) {
+        // Nudge by a tiny epsilon so values such as 0.29 * 100 = 28.999999999999996 land on the intended penny
+        return value >= 0 ? (long) Math.floor(value + 0.5 + 1e-9) : -(long) Math.floor(-value + 0.5 + 1e-9);
+    }
+}
@@ -0,0 +1,20 @@
+package util;
+
+// Floating-point helpers for splitting a line quantity into bundles.
+public final class Quantities {
+    private Quantities() {
+    }
+
+    // Exactly quantity % bundleSize, bit for bit, given the bundle count the caller already has. On x86 the double
+    // % is a slow library call (fprem); here it is one fused multiply-add, quantity - bundles * bundleSize rounded
+    // once. When bundles is the exact quotient that difference is the exact remainder, which is representable, so
+    // it is what % returns. Any other guess leaves the result negative (or -0.0) or at least bundleSize, and those
+    // cases, together with non-positive quantities where % keeps the sign, fall back to %.
+    public static double remainder(double quantity, double bundleSize, double bundles) {
+        var remainder = Math.fma(-bundles, bundleSize, quantity);
+        if (quantity > 0 && Double.doubleToRawLongBits(remainder) >= 0 && remainder < bundleSize) {
+            return remainder;
+        }
+        return quantity % bundleSize;
+    }
+}
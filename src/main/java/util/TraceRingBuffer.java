@@ -0,0 +1,67 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bounded lock-free ring that keeps the most recent entries. A writer claims a sequence number with one atomic
+// increment and stores into that slot, overwriting whatever was a lap behind, so writers never wait for each other
+// or for readers. Each slot remembers the sequence it holds, which lets a reader skip slots that were claimed but
+// not yet stored, or that a later lap has already overwritten.
+public class TraceRingBuffer<T> {
+    private final AtomicReferenceArray<Slot<T>> slots;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // capacity is rounded up to a power of two
+    public TraceRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        var size = Integer.highestOneBit(capacity);
+        size = size < capacity ? size << 1 : size;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    // Stores the value and returns its sequence number
+    public long add(T value) {
+        var claimed = sequence.getAndIncrement();
+        slots.set((int) claimed & mask, new Slot<>(claimed, value));
+        return claimed;
+    }
+
+    // The entries still in the ring, oldest first
+    public List<T> snapshot() {
+        var end = sequence.get();
+        var start = Math.max(0, end - slots.length());
+        var values = new ArrayList<T>((int) (end - start));
+        for (var claimed = start; claimed < end; claimed++) {
+            var slot = slots.get((int) claimed & mask);
+            if (slot != null && slot.sequence == claimed) {
+                values.add(slot.value);
+            }
+        }
+        return values;
+    }
+
+    // Entries added since the ring was created, including those since overwritten
+    public long getAddedCount() {
+        return sequence.get();
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    private static final class Slot<T> {
+        final long sequence;
+        final T value;
+
+        Slot(long sequence, T value) {
+            this.sequence = sequence;
+            this.value = value;
+        }
+    }
+}
@@ -128,6 +128,18 @@ public class BasketCalculatorImplTest {
         assertEquals(1, receipt.getProductItems().size());
         assertEquals(1, receipt.getSavingsItems().size());
     }
+    @Test
+    public void testCalculateBasketPriceWith6BeansReportsPerBundleDeductionWithBundleCount() {
+        Basket basket = new Basket();
+        basket.put(beans, 6);
+        ReceiptResponse receipt = basketCalculator.calculateBasketPrice(basket);
+
+        var savingsItem = receipt.getSavingsItems().get(0);
+        assertEquals(2, savingsItem.getCount());
+        assertEquals(-0.50, savingsItem.getDeduction());
+        assertEquals(-1.00, receipt.getSavingsSubTotal());
+    }
+
     @Test
     public void testCalculateBasketPriceWithSingleCocaColaNotEligibleForDiscount2ForPriceOf1() {
         Basket basket = new Basket();
@@ -202,6 +214,20 @@ public class BasketCalculatorImplTest {
         assertEquals(2, receipt.getSavingsItems().size());
     }
 
+    @Test
+    public void testCalculateBasketPriceWithWeighedItemFormatsNameWithWeightAndUnitPrice() {
+        Basket basket = new Basket();
+        basket.put(oranges, 0.2);
+        ReceiptResponse receipt = basketCalculator.calculateBasketPrice(basket);
+
+        var productItem = receipt.getProductItems().get(0);
+        assertTrue(productItem.isWeighed());
+        assertEquals("Oranges", productItem.getProductName());
+        assertEquals("Oranges 0.20 kg @ £ 1.99/kg", productItem.getName());
+        assertEquals(0.398, productItem.getPrice(), 0.0001);
+        assertEquals(1, productItem.getQuantity());
+    }
+
     @Test
     public void testCalculateBasketPriceWithSingleAleItemsNotEligibleForDiscounts3InSet() {
         Basket basket = new Basket();
@@ -292,6 +318,20 @@ public class BasketCalculatorImplTest {
         assertEquals(1, receipt.getSavingsItems().size());
     }
 
+    @Test
+    public void testCalculateBasketPriceWith6SameAleItemsAggregatesIdenticalBundles() {
+        Basket basket = new Basket();
+        basket.put(bassPaleAle, 6);
+        ReceiptResponse receipt = basketCalculator.calculateBasketPrice(basket);
+
+        assertEquals(12.00, receipt.getGrandTotal(), 0.1);
+        assertEquals(-3.00, receipt.getSavingsSubTotal(), 0.1);
+
+        assertEquals(1, receipt.getSavingsItems().size());
+        assertEquals(2, receipt.getSavingsItems().get(0).getCount());
+        assertEquals(-1.50, receipt.getSavingsItems().get(0).getDeduction(), 0.001);
+    }
+
     @Test
     public void testCalculateBasketPriceWith6MixedAleItemsEligibleForDiscounts3InSet_II() {
         Basket basket = new Basket();
@@ -0,0 +1,184 @@
+import dto.response.ReceiptPriceSavingItem;
+import dto.response.ReceiptProductItem;
+import dto.response.ReceiptResponse;
+import entity.ReceiptPrintMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.BasketPrinterImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BasketPrinterImplTest {
+    private final PrintStream originalOut = System.out;
+    private ByteArrayOutputStream output;
+    private ReceiptResponse receipt;
+
+    @BeforeEach
+    public void setUp() {
+        output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        receipt = ReceiptResponse.builder()
+                .productItems(new ArrayList<>(List.of(
+                        ReceiptProductItem.builder().name("Beans Tin").price(0.50).quantity(3).build(),
+                        ReceiptProductItem.builder().name("Oranges 0.20 kg @ £ 1.99/kg").price(0.398).quantity(1).build())))
+                .savingsItems(new ArrayList<>(List.of(
+                        ReceiptPriceSavingItem.builder().name("Beans 3 for 2").count(1).deduction(-0.50).build())))
+                .productSubTotal(1.898)
+                .savingsSubTotal(-0.50)
+                .grandTotal(1.398)
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    public void testExpandedModePrintsOneLinePerUnit() {
+        new BasketPrinterImpl().printPriceCalculationBreakDown(receipt);
+
+        var lines = printedLines();
+        assertEquals(3, lines.stream().filter(x -> x.startsWith("Beans Tin ")).count());
+        assertTrue(lines.contains(String.format("%-30s £ %-15.2f", "Beans 3 for 2", -0.50)));
+        assertEquals(String.format("%-30s £ %-15.2f", "Total to pay", 1.398), lines.get(lines.size() - 1));
+    }
+
+    @Test
+    public void testCompactModePrintsCountedLines() {
+        receipt.getSavingsItems().get(0).setCount(2);
+        new BasketPrinterImpl(ReceiptPrintMode.COMPACT).printPriceCalculationBreakDown(receipt);
+
+        var lines = printedLines();
+        assertTrue(lines.contains(String.format("%-30s £ %-10.2f", "3 x Beans Tin", 1.50)));
+        assertTrue(lines.contains(String.format("%-30s £ %-10.2f", "Oranges 0.20 kg @ £ 1.99/kg", 0.398)));
+        assertTrue(lines.contains(String.format("%-30s £ %-15.2f", "2 x Beans 3 for 2", -1.00)));
+    }
+
+    @Test
+    public void testWriterAndChannelOutputMatchPrintfLayoutForRandomAmounts() throws Exception {
+        var random = new Random(11);
+        for (var printMode : ReceiptPrintMode.values()) {
+            for (int i = 0; i < 200; i++) {
+                var randomReceipt = randomReceipt(random);
+                var printer = new BasketPrinterImpl(printMode);
+                var expected = printfReceipt(randomReceipt, printMode);
+
+                var writer = new StringWriter();
+                printer.printPriceCalculationBreakDown(randomReceipt, writer);
+                assertEquals(expected, writer.toString());
+
+                var bytes = new ByteArrayOutputStream();
+                printer.printPriceCalculationBreakDown(randomReceipt, Channels.newChannel(bytes));
+                assertEquals(expected, bytes.toString(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    public void testLongReceiptIsStreamedInChunksWithIdenticalContent() throws Exception {
+        receipt.getProductItems().get(0).setQuantity(5_000);
+        var builder = new StringBuilder();
+
+        new BasketPrinterImpl().printPriceCalculationBreakDown(receipt, builder);
+
+        assertEquals(printfReceipt(receipt, ReceiptPrintMode.EXPANDED), builder.toString());
+    }
+
+    private ReceiptResponse randomReceipt(Random random) {
+        var productItems = new ArrayList<ReceiptProductItem>();
+        var savingsItems = new ArrayList<ReceiptPriceSavingItem>();
+        for (int i = 0; i < 1 + random.nextInt(5); i++) {
+            productItems.add(ReceiptProductItem.builder().name("Product " + i).price(randomAmount(random)).quantity(random.nextInt(4)).build());
+        }
+        if (random.nextBoolean()) {
+            var weightKg = random.nextInt(5_000) / 1_000.0 + (random.nextBoolean() ? 0.005 : 0);
+            var pricePerKg = random.nextInt(500) / 100.0;
+            productItems.add(ReceiptProductItem.weighed("Loose " + random.nextInt(10), weightKg, pricePerKg, weightKg * pricePerKg));
+        }
+        for (int i = 0; i < random.nextInt(3); i++) {
+            savingsItems.add(ReceiptPriceSavingItem.builder().name("Deal " + i).count(random.nextInt(3)).deduction(-randomAmount(random)).build());
+        }
+        return ReceiptResponse.builder()
+                .productItems(productItems)
+                .savingsItems(savingsItems)
+                .productSubTotal(randomAmount(random))
+                .savingsSubTotal(-randomAmount(random))
+                .grandTotal(randomAmount(random))
+                .build();
+    }
+
+    private double randomAmount(Random random) {
+        switch (random.nextInt(5)) {
+            case 0:
+                return random.nextInt(100_000) / 1_000.0 + 0.005;
+            case 1:
+                return random.nextInt(10_000) / 100.0;
+            case 2:
+                return random.nextDouble() * 1e9;
+            case 3:
+                return -0.0;
+            default:
+                return random.nextDouble() * 100;
+        }
+    }
+
+    // The original System.out.printf layout, kept as the reference rendering
+    private String printfReceipt(ReceiptResponse receiptResponse, ReceiptPrintMode printMode) {
+        var out = new StringBuilder();
+        var delimiter = "--------------------------------------%n";
+        out.append(String.format("%-30s %-10s%n", "Product", "Price"));
+        out.append(String.format(delimiter));
+        for (var productEntry : receiptResponse.getProductItems()) {
+            if (printMode == ReceiptPrintMode.COMPACT) {
+                if (productEntry.getQuantity() > 0) {
+                    var label = productEntry.getQuantity() == 1 ? productEntry.getName() : productEntry.getQuantity() + " x " + productEntry.getName();
+                    out.append(String.format("%-30s £ %-10.2f%n", label, productEntry.getPrice() * productEntry.getQuantity()));
+                }
+                continue;
+            }
+            for (int i = 0; i < productEntry.getQuantity(); i++) {
+                out.append(String.format("%-30s £ %-10.2f%n", productEntry.getName(), productEntry.getPrice()));
+            }
+        }
+        out.append(String.format(delimiter));
+        out.append(String.format("%-30s £ %-15.2f%n", "Sub-total", receiptResponse.getProductSubTotal()));
+        out.append(String.format("Savings%n"));
+        if (receiptResponse.getSavingsItems().isEmpty()) {
+            out.append(String.format("%-30s %s%n", "", "Nil"));
+        } else {
+            for (var savingsEntry : receiptResponse.getSavingsItems()) {
+                if (printMode == ReceiptPrintMode.COMPACT) {
+                    if (savingsEntry.getCount() > 0) {
+                        var label = savingsEntry.getCount() == 1 ? savingsEntry.getName() : savingsEntry.getCount() + " x " + savingsEntry.getName();
+                        out.append(String.format("%-30s £ %-15.2f%n", label, savingsEntry.getDeduction() * savingsEntry.getCount()));
+                    }
+                    continue;
+                }
+                for (int i = 0; i < savingsEntry.getCount(); i++) {
+                    out.append(String.format("%-30s £ %-15.2f%n", savingsEntry.getName(), savingsEntry.getDeduction()));
+                }
+            }
+            out.append(String.format("%-30s £ %-15.2f%n", "Total savings", receiptResponse.getSavingsSubTotal()));
+        }
+        out.append(String.format(delimiter));
+        out.append(String.format("%-30s £ %-15.2f%n", "Total to pay", receiptResponse.getGrandTotal()));
+        return out.toString();
+    }
+
+    private List<String> printedLines() {
+        return output.toString(StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+    }
+}
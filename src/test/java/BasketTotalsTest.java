@@ -0,0 +1,82 @@
+import dto.request.Basket;
+import dto.response.BasketTotals;
+import dto.response.ReceiptResponse;
+import entity.*;
+import interfaces.BasketCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+import services.PricingCatalogStore;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BasketTotalsTest {
+    private PricingCatalogStore store;
+    private List<Product> products;
+
+    @BeforeEach
+    public void setUp() {
+        products = List.of(
+                Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build(),
+                Product.builder().id(2L).name("Coca-cola").Category(ProductCategory.DRINK).price(0.70).build(),
+                Product.builder().id(4L).name("Oranges").Category(ProductCategory.FOOD).measuredPerKg(true).price(1.99).build(),
+                Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build(),
+                Product.builder().id(6L).Category(ProductCategory.ALE).name("Green King IPA").price(3).build(),
+                Product.builder().id(7L).Category(ProductCategory.ALE).name("Timothy Taylor").price(3.5).build());
+        store = new PricingCatalogStore(PricingCatalog.compile(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build()),
+                        2L, List.of(PricingStructure.builder().name("Coke 2 for £1").quantity(2).price(1).build())),
+                Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build()),
+                Map.of(ProductCategory.ALE, Set.of(5L, 6L, 7L))));
+    }
+
+    @Test
+    public void testTotalsMatchFullReceiptExactlyInBothMoneyModes() {
+        var random = new Random(29);
+        for (var moneyMode : MoneyMode.values()) {
+            var calculator = new BasketCalculatorImpl(store, moneyMode);
+            var totals = new BasketTotals();
+            for (int i = 0; i < 1_000; i++) {
+                var basket = new Basket();
+                for (var product : products) {
+                    if (random.nextBoolean()) {
+                        basket.put(product, product.isMeasuredPerKg() ? random.nextInt(3_000) / 1_000.0 : 1 + random.nextInt(12));
+                    }
+                }
+
+                var receipt = calculator.calculateBasketPrice(basket);
+                assertSame(totals, calculator.calculateBasketTotals(basket, totals));
+                assertEquals(receipt.getGrandTotal(), totals.getGrandTotal());
+                assertEquals(receipt.getSavingsSubTotal(), totals.getSavingsSubTotal());
+                assertEquals(receipt.getProductSubTotal(), totals.getProductSubTotal());
+                assertEquals(receipt.getGrandTotalMinor(), totals.getGrandTotalMinor());
+                assertEquals(receipt.getPricingVersion(), totals.getPricingVersion());
+            }
+        }
+    }
+
+    @Test
+    public void testTotalsFollowPublishedRules() {
+        var calculator = new BasketCalculatorImpl(store);
+        var basket = new Basket();
+        basket.put(products.get(0), 3);
+        assertEquals(1.00, calculator.calculateBasketTotals(basket).getGrandTotal(), 1e-9);
+
+        store.publish(Map.of(), Map.of(), Map.of());
+        var totals = calculator.calculateBasketTotals(basket);
+        assertEquals(1.50, totals.getGrandTotal(), 1e-9);
+        assertEquals(2, totals.getPricingVersion());
+    }
+
+    @Test
+    public void testOtherCalculatorsDeriveTotalsFromTheirReceipt() {
+        BasketCalculator calculator = basket -> ReceiptResponse.builder().grandTotal(4.5).savingsSubTotal(-0.5).pricingVersion(3).build();
+
+        var totals = calculator.calculateBasketTotals(new Basket());
+        assertEquals(4.5, totals.getGrandTotal());
+        assertEquals(-0.5, totals.getSavingsSubTotal());
+        assertEquals(3, totals.getPricingVersion());
+    }
+}
@@ -0,0 +1,159 @@
+import dto.request.Basket;
+import entity.PriceBook;
+import entity.PriceOverride;
+import entity.PricingCatalog;
+import entity.PricingStructure;
+import entity.Product;
+import entity.ProductCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+import services.CachingBasketCalculator;
+import services.PricingCatalogStore;
+import services.TieredBasketCalculator;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingBasketCalculatorTest {
+    private PricingCatalogStore store;
+    private CachingBasketCalculator calculator;
+    private Product beans, cocacola, bassPaleAle;
+
+    @BeforeEach
+    public void setUp() {
+        beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+        cocacola = Product.builder().id(2L).name("Coca-cola").Category(ProductCategory.DRINK).price(0.70).build();
+        bassPaleAle = Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build();
+
+        store = new PricingCatalogStore(PricingCatalog.compile(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build())),
+                Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build()),
+                Map.of(ProductCategory.ALE, Set.of(5L))));
+        calculator = new CachingBasketCalculator(new BasketCalculatorImpl(store), store, 2);
+    }
+
+    private Basket basket(Product product, int quantity) {
+        var basket = new Basket();
+        basket.put(product, quantity);
+        return basket;
+    }
+
+    @Test
+    public void testEqualBasketsHitTheCacheWhateverTheirProductInstances() {
+        var first = calculator.calculateBasketPrice(basket(beans, 3));
+        var sameSku = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+        var second = calculator.calculateBasketPrice(basket(sameSku, 3));
+
+        assertNotSame(first, second);
+        assertEquals(first.getGrandTotal(), second.getGrandTotal());
+        assertEquals(1.00, second.getGrandTotal(), 1e-9);
+        assertEquals(1, calculator.getHits());
+        assertEquals(1, calculator.getMisses());
+    }
+
+    @Test
+    public void testRenamedProductIsNotServedTheReceiptCachedUnderItsOldName() {
+        calculator.calculateBasketPrice(basket(beans, 3));
+        var renamed = Product.builder().id(1L).name("Baked Beans 415g").Category(ProductCategory.FOOD).price(0.50).build();
+
+        var receipt = calculator.calculateBasketPrice(basket(renamed, 3));
+
+        assertEquals("Baked Beans 415g", receipt.getProductItems().get(0).getName());
+        assertEquals(0, calculator.getHits());
+        assertEquals(2, calculator.getMisses());
+    }
+
+    @Test
+    public void testLargeBasketsHitTheCacheWhateverTheirLineOrder() {
+        // Fresh instances hash differently, so the second basket iterates its 40 lines in another order
+        var first = new Basket();
+        var second = new Basket();
+        for (long id = 100; id < 140; id++) {
+            first.put(Product.builder().id(id % 7).name("Line " + id).Category(ProductCategory.FOOD).price(id / 100.0).build(), 2.0);
+            second.put(Product.builder().id(id % 7).name("Line " + id).Category(ProductCategory.FOOD).price(id / 100.0).build(), 2.0);
+        }
+
+        calculator.calculateBasketPrice(first);
+        calculator.calculateBasketPrice(second);
+
+        assertEquals(1, calculator.getHits());
+    }
+
+    @Test
+    public void testChangingAReturnedReceiptDoesNotChangeLaterHits() {
+        var first = calculator.calculateBasketPrice(basket(beans, 3));
+        first.setGrandTotal(99);
+        first.getSavingsItems().get(0).setDeduction(-99);
+        first.getProductItems().clear();
+
+        var second = calculator.calculateBasketPrice(basket(beans, 3));
+        second.getSavingsItems().clear();
+        var third = calculator.calculateBasketPrice(basket(beans, 3));
+
+        assertEquals(2, calculator.getHits());
+        assertEquals(1.00, third.getGrandTotal(), 1e-9);
+        assertEquals(-0.50, third.getSavingsItems().get(0).getDeduction(), 1e-9);
+        assertEquals(1, third.getProductItems().size());
+    }
+
+    @Test
+    public void testTierAndStoreAreSeparateKeysBehindATieredCalculator() {
+        var book = PriceBook.compile(List.of(PriceOverride.builder().productId(1L).tier(2).price(0.40).build()), Map.of());
+        var tiered = new CachingBasketCalculator(new TieredBasketCalculator(new BasketCalculatorImpl(store), book), store, 10);
+
+        var shelf = basket(beans, 3);
+        var gold = basket(beans, 3);
+        gold.setCustomerTier(2);
+        assertEquals(1.00, tiered.calculateBasketPrice(shelf).getGrandTotal(), 1e-9);
+        assertEquals(0.80, tiered.calculateBasketPrice(gold).getGrandTotal(), 1e-9);
+        var goldAtAStore = basket(beans, 3);
+        goldAtAStore.setCustomerTier(2);
+        goldAtAStore.setStoreId(100);
+        assertEquals(0.80, tiered.calculateBasketPrice(goldAtAStore).getGrandTotal(), 1e-9);
+        assertEquals(0, tiered.getHits());
+        assertEquals(1.00, tiered.calculateBasketPrice(basket(beans, 3)).getGrandTotal(), 1e-9);
+        assertEquals(1, tiered.getHits());
+    }
+
+    @Test
+    public void testDifferentQuantitiesAreDifferentKeys() {
+        calculator.calculateBasketPrice(basket(beans, 3));
+        var receipt = calculator.calculateBasketPrice(basket(beans, 4));
+
+        assertEquals(1.50, receipt.getGrandTotal(), 1e-9);
+        assertEquals(0, calculator.getHits());
+        assertEquals(2, calculator.getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvictedAtCapacity() {
+        calculator.calculateBasketPrice(basket(beans, 1));
+        calculator.calculateBasketPrice(basket(cocacola, 1));
+        calculator.calculateBasketPrice(basket(beans, 1));
+        calculator.calculateBasketPrice(basket(bassPaleAle, 1));
+
+        assertEquals(2, calculator.size());
+        assertEquals(1, calculator.getEvictions());
+
+        calculator.calculateBasketPrice(basket(beans, 1));
+        assertEquals(2, calculator.getHits());
+        calculator.calculateBasketPrice(basket(cocacola, 1));
+        assertEquals(4, calculator.getMisses());
+    }
+
+    @Test
+    public void testPublishingNewRulesInvalidatesCachedReceipts() {
+        assertEquals(1.00, calculator.calculateBasketPrice(basket(beans, 3)).getGrandTotal(), 1e-9);
+
+        store.publish(Map.of(), Map.of(), Map.of());
+        var receipt = calculator.calculateBasketPrice(basket(beans, 3));
+
+        assertEquals(1.50, receipt.getGrandTotal(), 1e-9);
+        assertEquals(2, receipt.getPricingVersion());
+        assertEquals(1, calculator.getInvalidations());
+        assertEquals(0, calculator.getHits());
+        assertEquals(1, calculator.size());
+    }
+}
@@ -0,0 +1,83 @@
+import dto.request.Basket;
+import dto.response.ReceiptResponse;
+import entity.PricingStructure;
+import entity.Product;
+import entity.ProductCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CategoryBundlePricingTest {
+    private BasketCalculatorImpl basketCalculator;
+    private LegacyBasketCalculator legacyCalculator;
+    private List<Product> ales;
+
+    @BeforeEach
+    public void setUp() {
+        ales = List.of(
+                Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build(),
+                Product.builder().id(6L).Category(ProductCategory.ALE).name("Green King IPA").price(3).build(),
+                Product.builder().id(7L).Category(ProductCategory.ALE).name("Timothy Taylor").price(3.5).build(),
+                Product.builder().id(8L).Category(ProductCategory.ALE).name("Hobgoblin").price(2.1).build());
+
+        var productCategoryPricing = new HashMap<ProductCategory, PricingStructure>();
+        productCategoryPricing.put(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build());
+
+        var productCategoryProductSet = new HashMap<ProductCategory, Set<Long>>();
+        productCategoryProductSet.put(ProductCategory.ALE, new HashSet<>(List.of(5L, 6L, 7L, 8L)));
+
+        basketCalculator = new BasketCalculatorImpl(new HashMap<>(), productCategoryPricing, productCategoryProductSet);
+        legacyCalculator = new LegacyBasketCalculator(new HashMap<>(), productCategoryPricing, productCategoryProductSet);
+    }
+
+    @Test
+    public void testCategoryBundlesMatchPerUnitQueuePricingForRandomAleBaskets() {
+        var random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            var basket = new Basket();
+            for (var ale : ales) {
+                if (random.nextBoolean()) {
+                    basket.put(ale, random.nextInt(40));
+                }
+            }
+            assertSameReceipt(legacyCalculator.calculateBasketPrice(basket), basketCalculator.calculateBasketPrice(basket));
+        }
+    }
+
+    @Test
+    public void testCategoryBundlesWithLargeQuantityMatchPerUnitQueuePricing() {
+        var basket = new Basket();
+        basket.put(ales.get(0), 10_000);
+        basket.put(ales.get(1), 7_001);
+        basket.put(ales.get(2), 2);
+
+        var receipt = basketCalculator.calculateBasketPrice(basket);
+
+        assertSameReceipt(legacyCalculator.calculateBasketPrice(basket), receipt);
+        assertEquals(3, receipt.getSavingsItems().size());
+        assertEquals(5_667, receipt.getSavingsItems().stream().mapToLong(x -> x.getCount()).sum());
+    }
+
+    private void assertSameReceipt(ReceiptResponse expected, ReceiptResponse actual) {
+        assertEquals(expected.getGrandTotal(), actual.getGrandTotal());
+        // The legacy queue adds every bundle's saving in turn and the calculator multiplies a run's saving by its
+        // bundle count, so the two sums can differ in the last bits
+        assertEquals(expected.getSavingsSubTotal(), actual.getSavingsSubTotal(), 1e-6);
+        assertEquals(expected.getProductSubTotal(), actual.getProductSubTotal());
+
+        var actualDeductions = new ArrayList<Double>();
+        for (var item : actual.getSavingsItems()) {
+            for (long i = 0; i < item.getCount(); i++) {
+                actualDeductions.add(item.getDeduction());
+            }
+        }
+        assertEquals(expected.getSavingsItems().size(), actualDeductions.size());
+        for (int i = 0; i < expected.getSavingsItems().size(); i++) {
+            assertEquals(expected.getSavingsItems().get(i).getDeduction(), actualDeductions.get(i));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import dto.request.Basket;
+import dto.request.CompactBasket;
+import dto.response.ReceiptResponse;
+import entity.*;
+import interfaces.BasketCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+import services.PricingCatalogStore;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactBasketTest {
+    private PricingCatalogStore store;
+    private Product beans, cocacola, oranges, bassPaleAle, greenKingIpa;
+
+    @BeforeEach
+    public void setUp() {
+        beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+        cocacola = Product.builder().id(2L).name("Coca-cola").Category(ProductCategory.DRINK).price(0.70).build();
+        oranges = Product.builder().id(4L).name("Oranges").Category(ProductCategory.FOOD).measuredPerKg(true).price(1.99).build();
+        bassPaleAle = Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build();
+        greenKingIpa = Product.builder().id(6L).Category(ProductCategory.ALE).name("Green King IPA").price(3).build();
+
+        store = new PricingCatalogStore(PricingCatalog.compile(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build()),
+                        2L, List.of(PricingStructure.builder().name("Coke 2 for £1").quantity(2).price(1).build())),
+                Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build()),
+                Map.of(ProductCategory.ALE, Set.of(5L, 6L))));
+    }
+
+    @Test
+    public void testSameSkuBuiltTwiceMergesIntoOneLine() {
+        var basket = new CompactBasket();
+        basket.add(beans, 2);
+        basket.add(Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build(), 1);
+        basket.add(oranges, 0.25);
+
+        assertEquals(2, basket.size());
+        assertEquals(3.0, basket.getQuantityOf(1L));
+        assertSame(beans, basket.getProduct(0));
+        assertEquals(1.00 + 0.4975, new BasketCalculatorImpl(store).calculateBasketPrice(basket).getGrandTotal(), 1e-9);
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacityAndRoundTripsThroughBasket() {
+        var basket = new CompactBasket(1);
+        for (long id = 100; id < 200; id++) {
+            basket.add(Product.builder().id(id).name("Item " + id).Category(ProductCategory.FOOD).price(1).build(), 2);
+        }
+        basket.add(beans, 3);
+
+        var roundTrip = CompactBasket.fromBasket(basket.toBasket());
+        assertEquals(101, roundTrip.size());
+        assertEquals(2.0, roundTrip.getQuantityOf(150L));
+        assertEquals(3.0, roundTrip.getQuantityOf(1L));
+        assertEquals(0.0, roundTrip.getQuantityOf(99L));
+        assertThrows(IndexOutOfBoundsException.class, () -> roundTrip.getProduct(101));
+    }
+
+    @Test
+    public void testPricesTheSameAsTheMapBasketInBothMoneyModes() {
+        var products = List.of(beans, cocacola, oranges, bassPaleAle, greenKingIpa);
+        var random = new Random(13);
+        for (var moneyMode : MoneyMode.values()) {
+            var calculator = new BasketCalculatorImpl(store, moneyMode);
+            for (int i = 0; i < 500; i++) {
+                var basket = new Basket();
+                for (var product : products) {
+                    if (random.nextBoolean()) {
+                        basket.put(product, product.isMeasuredPerKg() ? random.nextInt(2_000) / 1_000.0 : 1 + random.nextInt(9));
+                    }
+                }
+
+                var expected = calculator.calculateBasketPrice(basket);
+                var actual = calculator.calculateBasketPrice(CompactBasket.fromBasket(basket));
+                assertEquals(expected.getGrandTotal(), actual.getGrandTotal(), 1e-9);
+                assertEquals(expected.getProductSubTotal(), actual.getProductSubTotal(), 1e-9);
+                assertEquals(expected.getSavingsSubTotal(), actual.getSavingsSubTotal(), 1e-9);
+                assertEquals(expected.getProductItems().size(), actual.getProductItems().size());
+            }
+        }
+    }
+
+    @Test
+    public void testOtherCalculatorsPriceCompactBasketsThroughTheMapBasket() {
+        BasketCalculator calculator = basket -> ReceiptResponse.builder().grandTotal(basket.size()).build();
+        var basket = new CompactBasket();
+        basket.add(beans, 1);
+        basket.add(cocacola, 1);
+
+        assertEquals(2.0, calculator.calculateBasketPrice(basket).getGrandTotal());
+    }
+}
@@ -0,0 +1,110 @@
+import dto.request.Basket;
+import entity.*;
+import interfaces.PricingRules;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+import services.OptimisingBasketCalculator;
+import services.PricingCatalogStore;
+import services.PricingSession;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DealGroupTest {
+    private final Product beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+    private final Product cola = Product.builder().id(2L).name("Coca-cola").Category(ProductCategory.DRINK).price(0.70).build();
+    private final Product crisps = Product.builder().id(3L).name("Crisps").Category(ProductCategory.FOOD).price(0.90).build();
+    private final Product bass = Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build();
+    private final Product ipa = Product.builder().id(6L).Category(ProductCategory.ALE).name("Green King IPA").price(3).build();
+
+    private final PricingStructure mealDeal = PricingStructure.builder().name("Meal deal any 3 for £1.50").quantity(3).price(1.5).build();
+    private final PricingStructure snackDeal = PricingStructure.builder().name("Snacks any 2 for £1").quantity(2).price(1).build();
+    private final PricingStructure aleDeal = PricingStructure.builder().name("Any 2 ales for £5").quantity(2).price(5).build();
+
+    @Test
+    public void testNamedGroupPoolsProductsAcrossCategories() {
+        var catalog = PricingCatalog.compile(Map.of(), Map.of(), Map.of(),
+                List.of(DealGroup.builder().name("meal-deal").pricing(mealDeal).productIds(Set.of(1L, 2L, 3L)).build()));
+        var basket = basket(beans, 1, cola, 1, crisps, 1);
+
+        var receipt = new BasketCalculatorImpl(catalog).calculateBasketPrice(basket);
+
+        assertEquals(2.10, receipt.getProductSubTotal(), 1e-9);
+        assertEquals(1.50, receipt.getGrandTotal(), 1e-9);
+        assertEquals(1, receipt.getSavingsItems().size());
+        assertEquals("Meal deal any 3 for £1.50", receipt.getSavingsItems().get(0).getName());
+        assertEquals(PricingRules.CATEGORIES.length, catalog.getDealGroupsOf(1L)[0]);
+        assertEquals("meal-deal", catalog.getDealGroupName(catalog.getDealGroupsOf(1L)[0]));
+    }
+
+    @Test
+    public void testOverlappingGroupsGiveTheLineToTheLowestPriorityValue() {
+        var catalog = PricingCatalog.compile(Map.of(), Map.of(), Map.of(), List.of(
+                DealGroup.builder().name("meal-deal").pricing(mealDeal).productIds(Set.of(1L, 2L, 3L)).priority(5).build(),
+                DealGroup.builder().name("snacks").pricing(snackDeal).productIds(Set.of(3L, 1L)).priority(1).build()));
+
+        var groups = catalog.getDealGroupsOf(3L);
+        assertEquals(2, groups.length);
+        assertEquals("snacks", catalog.getDealGroupName(groups[0]));
+        assertEquals("meal-deal", catalog.getDealGroupName(groups[1]));
+
+        // Beans and crisps go to the snack deal, which leaves cola alone in the meal deal
+        var receipt = new BasketCalculatorImpl(catalog).calculateBasketPrice(basket(beans, 1, cola, 1, crisps, 1));
+        assertEquals(1.70, receipt.getGrandTotal(), 1e-9);
+        assertEquals("Snacks any 2 for £1", receipt.getSavingsItems().get(0).getName());
+    }
+
+    @Test
+    public void testCategoryDealKeepsItsLinesAheadOfNamedGroups() {
+        var catalog = PricingCatalog.compile(Map.of(), Map.of(ProductCategory.ALE, aleDeal), Map.of(ProductCategory.ALE, Set.of(5L, 6L)),
+                List.of(DealGroup.builder().name("ale-and-beans").pricing(mealDeal).productIds(Set.of(1L, 5L, 6L)).build()));
+
+        var receipt = new BasketCalculatorImpl(catalog).calculateBasketPrice(basket(bass, 1, ipa, 1, beans, 1));
+
+        assertEquals(ProductCategory.ALE.ordinal(), catalog.dealGroupOf(catalog.indexOf(5L), ProductCategory.ALE));
+        assertEquals(5.50, receipt.getGrandTotal(), 1e-9);
+        assertEquals(1, receipt.getSavingsItems().size());
+        assertEquals("Any 2 ales for £5", receipt.getSavingsItems().get(0).getName());
+    }
+
+    @Test
+    public void testEveryEngineAgreesWithManyActiveGroups() {
+        // Thousands of groups, most of them irrelevant to the basket; each product sits in several
+        var groups = new ArrayList<DealGroup>();
+        for (int g = 0; g < 20_000; g++) {
+            var ids = g % 1000 == 0 ? Set.of(1L, 2L, 3L) : Set.of(10_000L + g, 10_001L + g, 2L);
+            groups.add(DealGroup.builder().name("group-" + g).pricing(g % 2 == 0 ? mealDeal : snackDeal).productIds(ids).priority(g % 7).build());
+        }
+        var catalog = PricingCatalog.compile(Map.of(), Map.of(ProductCategory.ALE, aleDeal), Map.of(ProductCategory.ALE, Set.of(5L, 6L)), groups);
+        var basket = basket(beans, 4, cola, 2, crisps, 3, bass, 3, ipa, 1);
+
+        var expected = new BasketCalculatorImpl(catalog).calculateBasketPrice(basket);
+        var fixedPoint = new BasketCalculatorImpl(new PricingCatalogStore(catalog), MoneyMode.FIXED_POINT).calculateBasketPrice(basket);
+        var optimised = new OptimisingBasketCalculator(new PricingCatalogStore(catalog)).calculateBasketPrice(basket);
+        var session = new PricingSession(new PricingCatalogStore(catalog));
+        basket.forEach(session::add);
+
+        assertTrue(expected.getSavingsSubTotal() < 0);
+        assertEquals(expected.getGrandTotal(), fixedPoint.getGrandTotal(), 1e-9);
+        assertEquals(expected.getGrandTotal(), session.currentReceipt().getGrandTotal(), 0);
+        assertEquals(expected.getSavingsItems().size(), session.currentReceipt().getSavingsItems().size());
+        assertTrue(optimised.getGrandTotal() <= expected.getGrandTotal() + 1e-9);
+    }
+
+    @Test
+    public void testCompileRejectsDuplicateOrUnpricedGroups() {
+        var group = DealGroup.builder().name("meal-deal").pricing(mealDeal).productIds(Set.of(1L)).build();
+        assertThrows(IllegalArgumentException.class, () -> PricingCatalog.compile(Map.of(), Map.of(), Map.of(), List.of(group, group)));
+        assertThrows(IllegalArgumentException.class, () -> PricingCatalog.compile(Map.of(), Map.of(), Map.of(),
+                List.of(DealGroup.builder().name("unpriced").productIds(Set.of(1L)).build())));
+    }
+
+    private static Basket basket(Object... productsAndQuantities) {
+        var basket = new Basket();
+        for (int i = 0; i < productsAndQuantities.length; i += 2) {
+            basket.put((Product) productsAndQuantities[i], ((Number) productsAndQuantities[i + 1]).doubleValue());
+        }
+        return basket;
+    }
+}
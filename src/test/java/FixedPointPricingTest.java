@@ -0,0 +1,93 @@
+import dto.request.Basket;
+import entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+import services.PricingCatalogStore;
+import util.Money;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FixedPointPricingTest {
+    private BasketCalculatorImpl basketCalculator;
+    private Product beans, cocacola, onions, oranges, bassPaleAle, greenKingIpa, timothyTailor;
+
+    @BeforeEach
+    public void setUp() {
+        beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+        cocacola = Product.builder().id(2L).name("Coca-cola").Category(ProductCategory.DRINK).price(0.70).build();
+        onions = Product.builder().id(3L).name("Onions").Category(ProductCategory.FOOD).measuredPerKg(true).price(0.29).build();
+        oranges = Product.builder().id(4L).name("Oranges").Category(ProductCategory.FOOD).measuredPerKg(true).price(1.99).build();
+        bassPaleAle = Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build();
+        greenKingIpa = Product.builder().id(6L).Category(ProductCategory.ALE).name("Green King IPA").price(3).build();
+        timothyTailor = Product.builder().id(7L).Category(ProductCategory.ALE).name("Timothy Taylor").price(3.5).build();
+
+        var catalog = PricingCatalog.compile(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build()),
+                        2L, List.of(PricingStructure.builder().name("Coke 2 for £1").quantity(2).price(1).build())),
+                Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build()),
+                Map.of(ProductCategory.ALE, Set.of(5L, 6L, 7L)));
+        basketCalculator = new BasketCalculatorImpl(new PricingCatalogStore(catalog), MoneyMode.FIXED_POINT);
+    }
+
+    @Test
+    public void testMixedItemsArePricedInExactPence() {
+        var basket = new Basket();
+        basket.put(beans, 3);
+        basket.put(cocacola, 2);
+        basket.put(oranges, 0.2);
+
+        var receipt = basketCalculator.calculateBasketPrice(basket);
+
+        assertEquals(240, receipt.getGrandTotalMinor());
+        assertEquals(-90, receipt.getSavingsSubTotalMinor());
+        assertEquals(330, receipt.getProductSubTotalMinor());
+        assertEquals(2.40, receipt.getGrandTotal());
+        assertEquals(2, receipt.getSavingsItems().size());
+    }
+
+    @Test
+    public void testMixedAleBundlesArePricedInExactPence() {
+        var basket = new Basket();
+        basket.put(bassPaleAle, 2);
+        basket.put(timothyTailor, 1);
+        basket.put(greenKingIpa, 3);
+
+        var receipt = basketCalculator.calculateBasketPrice(basket);
+
+        assertEquals(1200, receipt.getGrandTotalMinor());
+        assertEquals(-550, receipt.getSavingsSubTotalMinor());
+        assertEquals(1750, receipt.getProductSubTotalMinor());
+        assertEquals(2, receipt.getSavingsItems().size());
+    }
+
+    @Test
+    public void testLargeBasketTotalsDoNotDrift() {
+        var basket = new Basket();
+        for (long id = 100; id < 10_100; id++) {
+            basket.put(Product.builder().id(id).name("Sweet " + id).Category(ProductCategory.FOOD).price(0.10).build(), 3);
+        }
+
+        var receipt = basketCalculator.calculateBasketPrice(basket);
+
+        assertEquals(300_000, receipt.getGrandTotalMinor());
+        assertEquals(300_000, receipt.getProductSubTotalMinor());
+        assertEquals(3_000.00, receipt.getGrandTotal());
+    }
+
+    @Test
+    public void testWeighedLinesRoundOnceToTheNearestPenny() {
+        var basket = new Basket();
+        basket.put(onions, 0.5);
+
+        var receipt = basketCalculator.calculateBasketPrice(basket);
+
+        assertEquals(15, receipt.getGrandTotalMinor());
+        assertEquals(0.15, receipt.getProductItems().get(0).getPrice());
+        assertEquals(29, Money.toPence(0.29));
+        assertEquals(200, Money.toGrams(0.2));
+        assertEquals(-15, Money.weighedPrice(-29, 500));
+    }
+}
@@ -0,0 +1,200 @@
+import dto.request.Basket;
+import dto.request.CompactBasket;
+import entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import services.BasketCalculatorImpl;
+import services.BinaryCatalogWriter;
+import services.PricingCatalogStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedCatalogTest {
+    @TempDir
+    Path tempDir;
+
+    private Product beans, cocacola, oranges, bassPaleAle, greenKingIpa, timothyTailor;
+    private Map<Long, List<PricingStructure>> uniProductPricing;
+    private Map<ProductCategory, PricingStructure> productCategoryPricing;
+    private Map<ProductCategory, Set<Long>> productCategoryProductSet;
+
+    @BeforeEach
+    public void setUp() {
+        beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+        cocacola = Product.builder().id(2L).name("Coca-cola").Category(ProductCategory.DRINK).price(0.70).build();
+        oranges = Product.builder().id(4L).name("Oranges").Category(ProductCategory.FOOD).measuredPerKg(true).price(1.99).build();
+        bassPaleAle = Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build();
+        greenKingIpa = Product.builder().id(6L).Category(ProductCategory.ALE).name("Green King IPA £").price(3).build();
+        timothyTailor = Product.builder().id(7L).Category(ProductCategory.ALE).name("Timothy Taylor").price(3.5).build();
+
+        uniProductPricing = Map.of(
+                1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build()),
+                2L, List.of(PricingStructure.builder().name("Coke 3 for £1.20").quantity(3).price(1.2).build(),
+                        PricingStructure.builder().name("Coke 2 for £1").quantity(2).price(1).build()));
+        productCategoryPricing = Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build());
+        productCategoryProductSet = Map.of(ProductCategory.ALE, Set.of(5L, 6L, 7L));
+    }
+
+    private MappedCatalog writeAndOpen(Collection<Product> products) throws IOException {
+        var path = tempDir.resolve("catalog.bin");
+        BinaryCatalogWriter.write(path, products, uniProductPricing, productCategoryPricing, productCategoryProductSet);
+        return MappedCatalog.open(path);
+    }
+
+    @Test
+    public void testViewsReadBackProductsAndRules() throws IOException {
+        var catalog = writeAndOpen(List.of(timothyTailor, beans, cocacola, oranges, bassPaleAle, greenKingIpa));
+
+        assertEquals(6, catalog.size());
+        assertEquals(4, catalog.getRuleCount());
+        assertEquals(-1, catalog.indexOf(3L));
+
+        var product = catalog.newProductView().moveTo(catalog.indexOf(6L));
+        assertEquals(6L, product.getId());
+        assertEquals("Green King IPA £", product.getName());
+        assertEquals(3.0, product.getPrice());
+        assertEquals(ProductCategory.ALE, product.getCategory());
+        assertTrue(product.isCategoryDealProduct(ProductCategory.ALE));
+        assertFalse(product.isMeasuredPerKg());
+
+        product.moveTo(catalog.indexOf(2L));
+        var rule = product.rule(1, catalog.newPricingRuleView());
+        assertEquals("Coke 2 for £1", rule.getName());
+        assertEquals(2.0, rule.getQuantity());
+        assertEquals(1.0, rule.getPrice());
+        assertTrue(catalog.newProductView().moveTo(catalog.indexOf(4L)).isMeasuredPerKg());
+        assertEquals("Any 3 ales for £6", catalog.getCategoryPricing(ProductCategory.ALE).getName());
+        assertNull(catalog.getCategoryPricing(ProductCategory.FOOD));
+    }
+
+    @Test
+    public void testPricesTheSameAsTheCompiledCatalog() throws IOException {
+        var products = List.of(beans, cocacola, oranges, bassPaleAle, greenKingIpa, timothyTailor);
+        var mapped = new BasketCalculatorImpl(writeAndOpen(products));
+        var compiled = new BasketCalculatorImpl(uniProductPricing, productCategoryPricing, productCategoryProductSet);
+
+        var random = new Random(19);
+        for (int i = 0; i < 500; i++) {
+            var basket = new Basket();
+            for (var product : products) {
+                if (random.nextBoolean()) {
+                    basket.put(product, product.isMeasuredPerKg() ? random.nextInt(2_000) / 1_000.0 : 1 + random.nextInt(9));
+                }
+            }
+
+            var expected = compiled.calculateBasketPrice(basket);
+            var actual = mapped.calculateBasketPrice(basket);
+            assertEquals(expected.getGrandTotal(), actual.getGrandTotal());
+            assertEquals(expected.getSavingsSubTotal(), actual.getSavingsSubTotal());
+            assertEquals(expected.getSavingsItems().size(), actual.getSavingsItems().size());
+        }
+    }
+
+    @Test
+    public void testRulesAreDecodedOncePerProduct() throws IOException {
+        var catalog = writeAndOpen(List.of(beans, cocacola, oranges, bassPaleAle, greenKingIpa, timothyTailor));
+        var coke = catalog.indexOf(cocacola.getId());
+
+        var pricings = catalog.getProductPricings(coke);
+        assertEquals(2, pricings.length);
+        assertEquals("Coke 2 for £1", pricings[1].getName());
+        assertSame(pricings, catalog.getProductPricings(coke));
+        assertSame(pricings, catalog.withVersion(7).getProductPricings(coke));
+        assertEquals(0, catalog.getProductPricings(catalog.indexOf(oranges.getId())).length);
+    }
+
+    @Test
+    public void testRuleCacheIsBoundedAndDecodesEvictedProductsAgain() throws IOException {
+        var path = tempDir.resolve("catalog.bin");
+        BinaryCatalogWriter.write(path, List.of(beans, cocacola, oranges, bassPaleAle, greenKingIpa, timothyTailor),
+                uniProductPricing, productCategoryPricing, productCategoryProductSet);
+        var catalog = MappedCatalog.open(path, 1);
+        var coke = catalog.indexOf(cocacola.getId());
+
+        var pricings = catalog.getProductPricings(coke);
+        assertSame(pricings, catalog.getProductPricings(coke));
+        assertEquals("Beans 3 for 2", catalog.getProductPricings(catalog.indexOf(beans.getId()))[0].getName());
+
+        var decodedAgain = catalog.getProductPricings(coke);
+        assertNotSame(pricings, decodedAgain);
+        assertEquals("Coke 2 for £1", decodedAgain[1].getName());
+    }
+
+    @Test
+    public void testRejectsSectionsThatDoNotFitTheFile() throws IOException {
+        var path = tempDir.resolve("catalog.bin");
+        BinaryCatalogWriter.write(path, List.of(beans, cocacola, oranges, bassPaleAle, greenKingIpa, timothyTailor),
+                uniProductPricing, productCategoryPricing, productCategoryProductSet);
+        var bytes = Files.readAllBytes(path);
+
+        var truncated = tempDir.resolve("truncated.bin");
+        Files.write(truncated, Arrays.copyOf(bytes, BinaryCatalogFormat.HEADER_BYTES + 6 * BinaryCatalogFormat.PRODUCT_BYTES + 8));
+        var error = assertThrows(IOException.class, () -> MappedCatalog.open(truncated));
+        assertTrue(error.getMessage().contains("rule records"), error.getMessage());
+
+        // A rule count far beyond the file, as a flipped high bit would give
+        var corrupt = tempDir.resolve("corrupt.bin");
+        var patched = bytes.clone();
+        patched[12] = 0x10;
+        Files.write(corrupt, patched);
+        assertThrows(IOException.class, () -> MappedCatalog.open(corrupt));
+    }
+
+    @Test
+    public void testRewriteReplacesTheFileAtomically() throws IOException {
+        var path = tempDir.resolve("catalog.bin");
+        BinaryCatalogWriter.write(path, List.of(beans, cocacola), Map.of(), Map.of(), Map.of());
+        var old = MappedCatalog.open(path);
+
+        BinaryCatalogWriter.write(path, List.of(beans, cocacola, oranges, bassPaleAle, greenKingIpa, timothyTailor),
+                uniProductPricing, productCategoryPricing, productCategoryProductSet);
+
+        // The old mapping still reads the file it opened, and no temporary file is left behind
+        assertEquals(2, old.size());
+        assertEquals("Coca-cola", old.newProductView().moveTo(old.indexOf(2L)).getName());
+        assertEquals(6, MappedCatalog.open(path).size());
+        try (var files = Files.list(tempDir)) {
+            assertEquals(List.of(path), files.toList());
+        }
+    }
+
+    @Test
+    public void testLargeCatalogIsSearchedInPlace() throws IOException {
+        var products = new ArrayList<Product>();
+        for (long id = 1_000; id < 201_000; id += 2) {
+            products.add(Product.builder().id(id).name("SKU " + id).Category(ProductCategory.FOOD).price(id / 100.0).build());
+        }
+        uniProductPricing = Map.of(150_000L, List.of(PricingStructure.builder().name("Two for one").quantity(2).newQuantity(1).build()));
+        productCategoryProductSet = Map.of();
+        var catalog = writeAndOpen(products);
+
+        assertEquals(100_000, catalog.size());
+        assertEquals(-1, catalog.indexOf(150_001L));
+        var view = catalog.newProductView();
+        for (long id = 1_000; id < 201_000; id += 1_998) {
+            assertEquals("SKU " + id, view.moveTo(catalog.indexOf(id)).getName());
+        }
+
+        var basket = new CompactBasket();
+        basket.add(view.moveTo(catalog.indexOf(150_000L)).toProduct(), 4);
+        basket.add(view.moveTo(catalog.indexOf(1_000L)).toProduct(), 1);
+        var receipt = new BasketCalculatorImpl(new PricingCatalogStore(catalog)).calculateBasketPrice(basket);
+        assertEquals(2 * 1_500.0 + 10.0, receipt.getGrandTotal(), 1e-9);
+        assertEquals(1, receipt.getPricingVersion());
+    }
+
+    @Test
+    public void testRejectsRulesForUnknownProductsAndForeignFiles() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> writeAndOpen(List.of(beans, cocacola)));
+
+        var path = tempDir.resolve("not-a-catalog.bin");
+        Files.write(path, new byte[64]);
+        assertThrows(IOException.class, () -> MappedCatalog.open(path));
+    }
+}
@@ -0,0 +1,198 @@
+import dto.request.Basket;
+import entity.PricingCatalog;
+import entity.PricingStructure;
+import entity.Product;
+import entity.ProductCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+import services.OptimisingBasketCalculator;
+import services.PricingCatalogStore;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OptimisingBasketCalculatorTest {
+    // For tests about the other budgets, so a slow first call on a cold JVM cannot run out of time instead
+    private static final long GENEROUS_TIME_BUDGET_NANOS = 30_000_000_000L;
+
+    private PricingCatalogStore store;
+    private BasketCalculatorImpl greedyCalculator;
+    private OptimisingBasketCalculator optimisingCalculator;
+    private Product beans, cocacola, oranges, bassPaleAle, greenKingIpa, timothyTailor;
+
+    @BeforeEach
+    public void setUp() {
+        beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+        cocacola = Product.builder().id(2L).name("Coca-cola").Category(ProductCategory.DRINK).price(0.70).build();
+        oranges = Product.builder().id(4L).name("Oranges").Category(ProductCategory.FOOD).measuredPerKg(true).price(1.99).build();
+        bassPaleAle = Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build();
+        greenKingIpa = Product.builder().id(6L).Category(ProductCategory.ALE).name("Green King IPA").price(3).build();
+        timothyTailor = Product.builder().id(7L).Category(ProductCategory.ALE).name("Timothy Taylor").price(3.5).build();
+
+        store = new PricingCatalogStore(PricingCatalog.compile(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build()),
+                        2L, List.of(PricingStructure.builder().name("Coke 2 for £1").quantity(2).price(1).build(),
+                                PricingStructure.builder().name("Coke 3 for £1.20").quantity(3).price(1.2).build()),
+                        5L, List.of(PricingStructure.builder().name("Bass 2 for £3.50").quantity(2).price(3.5).build())),
+                Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build()),
+                Map.of(ProductCategory.ALE, Set.of(5L, 6L, 7L))));
+        greedyCalculator = new BasketCalculatorImpl(store);
+        optimisingCalculator = new OptimisingBasketCalculator(store);
+    }
+
+    @Test
+    public void testPicksCheapestCombinationOfOwnOffers() {
+        var basket = new Basket();
+        basket.put(cocacola, 3);
+
+        assertEquals(1.70, greedyCalculator.calculateBasketPrice(basket).getGrandTotal(), 1e-9);
+        var receipt = optimisingCalculator.calculateBasketPrice(basket);
+        assertEquals(1.20, receipt.getGrandTotal(), 1e-9);
+        assertEquals(1, receipt.getSavingsItems().size());
+        assertEquals("Coke 3 for £1.20", receipt.getSavingsItems().get(0).getName());
+        assertEquals(-0.90, receipt.getSavingsSubTotal(), 1e-9);
+    }
+
+    @Test
+    public void testLineCanUseItsOwnOfferInsteadOfTheCategoryDeal() {
+        var basket = new Basket();
+        basket.put(bassPaleAle, 4);
+
+        assertEquals(8.50, greedyCalculator.calculateBasketPrice(basket).getGrandTotal(), 1e-9);
+        var receipt = optimisingCalculator.calculateBasketPrice(basket);
+        assertEquals(7.00, receipt.getGrandTotal(), 1e-9);
+        assertEquals("Bass 2 for £3.50", receipt.getSavingsItems().get(0).getName());
+        assertEquals(2, receipt.getSavingsItems().get(0).getCount());
+    }
+
+    @Test
+    public void testCategoryDealBundlesTheMostExpensiveUnits() {
+        var basket = new Basket();
+        basket.put(bassPaleAle, 3);
+        basket.put(timothyTailor, 1);
+
+        assertEquals(9.50, greedyCalculator.calculateBasketPrice(basket).getGrandTotal(), 1e-9);
+        var receipt = optimisingCalculator.calculateBasketPrice(basket);
+        assertEquals(8.50, receipt.getGrandTotal(), 1e-9);
+        assertEquals(-2.50, receipt.getSavingsSubTotal(), 1e-9);
+    }
+
+    @Test
+    public void testNeverPricesAboveGreedyOnRandomBaskets() {
+        var products = List.of(beans, cocacola, oranges, bassPaleAle, greenKingIpa, timothyTailor);
+        var random = new Random(11);
+        for (int i = 0; i < 2_000; i++) {
+            var basket = new Basket();
+            for (var product : products) {
+                if (random.nextInt(3) == 0) {
+                    continue;
+                }
+                if (product.isMeasuredPerKg()) {
+                    basket.put(product, random.nextInt(3_000) / 1_000.0);
+                } else {
+                    basket.put(product, 1 + random.nextInt(12));
+                }
+            }
+
+            var greedy = greedyCalculator.calculateBasketPrice(basket);
+            var optimised = optimisingCalculator.calculateBasketPrice(basket);
+            assertTrue(optimised.getGrandTotal() <= greedy.getGrandTotal() + 1e-9);
+            assertEquals(greedy.getProductSubTotal(), optimised.getProductSubTotal(), 1e-9);
+            assertEquals(optimised.getProductSubTotal() + optimised.getSavingsSubTotal(), optimised.getGrandTotal(), 1e-6);
+            assertEquals(basket.size(), optimised.getProductItems().size());
+        }
+    }
+
+    @Test
+    public void testRepeatBasketsReuseTheSolvedPlanUntilRulesChange() {
+        var basket = new Basket();
+        basket.put(bassPaleAle, 3);
+        basket.put(timothyTailor, 1);
+
+        var first = optimisingCalculator.calculateBasketPrice(basket);
+        var second = optimisingCalculator.calculateBasketPrice(basket);
+        assertEquals(first.getGrandTotal(), second.getGrandTotal());
+        assertEquals(1, optimisingCalculator.getSolvedPlans());
+        assertEquals(1, optimisingCalculator.getMemoisedPlans());
+
+        store.publish(Map.of(), Map.of(), Map.of());
+        assertEquals(11.0, optimisingCalculator.calculateBasketPrice(basket).getGrandTotal(), 1e-9);
+        assertEquals(2, optimisingCalculator.getSolvedPlans());
+    }
+
+    @Test
+    public void testExhaustedSearchBudgetFallsBackToBestSplitFound() {
+        var calculator = new OptimisingBasketCalculator(store, 1, OptimisingBasketCalculator.DEFAULT_TIME_BUDGET_NANOS,
+                OptimisingBasketCalculator.DEFAULT_DP_BUDGET, OptimisingBasketCalculator.DEFAULT_MEMO_SIZE);
+        var basket = new Basket();
+        basket.put(bassPaleAle, 4);
+
+        var receipt = calculator.calculateBasketPrice(basket);
+        assertEquals(1, calculator.getBudgetExhaustedPlans());
+        assertTrue(receipt.getGrandTotal() <= greedyCalculator.calculateBasketPrice(basket).getGrandTotal() + 1e-9);
+        assertEquals(receipt.getProductSubTotal() + receipt.getSavingsSubTotal(), receipt.getGrandTotal(), 1e-9);
+    }
+
+    @Test
+    public void testPlansThatRanOutOfTimeAreNotMemoised() {
+        // No time at all: the own-offer tables fall back to greedy and the clock stops the search after one evaluation
+        var calculator = new OptimisingBasketCalculator(store, OptimisingBasketCalculator.DEFAULT_SEARCH_BUDGET, 0,
+                OptimisingBasketCalculator.DEFAULT_DP_BUDGET, OptimisingBasketCalculator.DEFAULT_MEMO_SIZE);
+        var basket = new Basket();
+        basket.put(bassPaleAle, 400);
+        basket.put(greenKingIpa, 1);
+
+        calculator.calculateBasketPrice(basket);
+        calculator.calculateBasketPrice(basket);
+        assertEquals(2, calculator.getSolvedPlans());
+        assertEquals(0, calculator.getMemoisedPlans());
+        assertEquals(2, calculator.getBudgetExhaustedPlans());
+    }
+
+    @Test
+    public void testPlansCutByTheEvaluationBudgetAreMemoised() {
+        var calculator = new OptimisingBasketCalculator(store, 1, GENEROUS_TIME_BUDGET_NANOS,
+                OptimisingBasketCalculator.DEFAULT_DP_BUDGET, OptimisingBasketCalculator.DEFAULT_MEMO_SIZE);
+        var basket = new Basket();
+        basket.put(bassPaleAle, 4);
+
+        calculator.calculateBasketPrice(basket);
+        calculator.calculateBasketPrice(basket);
+        assertEquals(1, calculator.getSolvedPlans());
+        assertEquals(1, calculator.getMemoisedPlans());
+    }
+
+    @Test
+    public void testOwnOfferTablesShareOneCellBudgetPerBasket() {
+        var calculator = new OptimisingBasketCalculator(store, OptimisingBasketCalculator.DEFAULT_SEARCH_BUDGET,
+                GENEROUS_TIME_BUDGET_NANOS, 6, OptimisingBasketCalculator.DEFAULT_MEMO_SIZE);
+        var cokes = new Basket();
+        cokes.put(cocacola, 3);
+        // 3 units x 2 offers fits the 6 cells
+        assertEquals(1.20, calculator.calculateBasketPrice(cokes).getGrandTotal(), 1e-9);
+        assertEquals(0, calculator.getBudgetExhaustedPlans());
+
+        // The beans line, solved first, leaves 3 cells, so the cokes take the greedy list-order price
+        var basket = new Basket();
+        basket.put(beans, 3);
+        basket.put(cocacola, 3);
+        assertEquals(1.00 + 1.70, calculator.calculateBasketPrice(basket).getGrandTotal(), 1e-9);
+        assertEquals(1, calculator.getBudgetExhaustedPlans());
+    }
+
+    @Test
+    public void testMixedSetBundlesAreOnlyFormedWhereTheySaveMoney() {
+        // Three ales at £1.50 cost £4.50 on their own; the greedy engine still charges the £6 deal price
+        var cheapAle = Product.builder().id(7L).Category(ProductCategory.ALE).name("Timothy Taylor").price(1.5).build();
+        var basket = new Basket();
+        basket.put(cheapAle, 3);
+
+        assertEquals(6.00, greedyCalculator.calculateBasketPrice(basket).getGrandTotal(), 1e-9);
+        var receipt = optimisingCalculator.calculateBasketPrice(basket);
+        assertEquals(4.50, receipt.getGrandTotal(), 1e-9);
+        assertEquals(0, receipt.getSavingsSubTotal(), 1e-9);
+        assertTrue(receipt.getSavingsItems().isEmpty());
+    }
+}
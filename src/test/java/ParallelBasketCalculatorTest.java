@@ -0,0 +1,106 @@
+import dto.request.Basket;
+import dto.request.CompactBasket;
+import dto.response.BasketTotals;
+import dto.response.ReceiptResponse;
+import entity.PricingStructure;
+import entity.Product;
+import entity.ProductCategory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import interfaces.BasketCalculator;
+import services.BasketCalculatorImpl;
+import services.ParallelBasketCalculator;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelBasketCalculatorTest {
+    private BasketCalculatorImpl basketCalculator;
+    private ExecutorService executor;
+    private List<Basket> baskets;
+
+    @BeforeEach
+    public void setUp() {
+        var beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+        var oranges = Product.builder().id(4L).name("Oranges").Category(ProductCategory.FOOD).measuredPerKg(true).price(1.99).build();
+        var bassPaleAle = Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build();
+
+        basketCalculator = new BasketCalculatorImpl(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build())),
+                Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build()),
+                Map.of(ProductCategory.ALE, Set.of(5L)));
+        executor = Executors.newFixedThreadPool(4);
+
+        baskets = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            var basket = new Basket();
+            basket.put(beans, i % 7);
+            basket.put(bassPaleAle, i % 5);
+            basket.put(oranges, i / 1_000.0);
+            baskets.add(basket);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCalculateBatchKeepsInputOrderAndMatchesSequentialPricing() {
+        var parallelCalculator = new ParallelBasketCalculator(basketCalculator, executor, 16);
+
+        var batch = parallelCalculator.calculateBatch(baskets);
+
+        assertEquals(baskets.size(), batch.getReceipts().size());
+        for (int i = 0; i < baskets.size(); i++) {
+            var expected = basketCalculator.calculateBasketPrice(baskets.get(i));
+            var actual = batch.getReceipts().get(i);
+            assertEquals(expected.getGrandTotal(), actual.getGrandTotal());
+            assertEquals(expected.getSavingsSubTotal(), actual.getSavingsSubTotal());
+            assertEquals(expected.getProductSubTotal(), actual.getProductSubTotal());
+        }
+        assertEquals(1_000, batch.getStats().getBasketCount());
+        assertEquals(63, batch.getStats().getChunkCount());
+        assertTrue(batch.getStats().getWorkerThreads() >= 1);
+        assertEquals(1_000, parallelCalculator.getTotalBaskets());
+    }
+
+    @Test
+    public void testCalculateBasketPricesWithEmptyBatchReturnsNoReceipts() {
+        var parallelCalculator = new ParallelBasketCalculator(basketCalculator, executor, 16);
+
+        assertTrue(parallelCalculator.calculateBasketPrices(List.of()).isEmpty());
+    }
+
+    @Test
+    public void testSingleBasketCallsGoStraightToTheDelegate() {
+        var receipt = ReceiptResponse.builder().grandTotal(1).build();
+        var compactReceipt = ReceiptResponse.builder().grandTotal(2).build();
+        var totals = BasketTotals.builder().grandTotal(3).build();
+        var parallelCalculator = new ParallelBasketCalculator(new BasketCalculator() {
+            @Override
+            public ReceiptResponse calculateBasketPrice(Basket basket) {
+                return receipt;
+            }
+
+            @Override
+            public ReceiptResponse calculateBasketPrice(CompactBasket basket) {
+                return compactReceipt;
+            }
+
+            @Override
+            public BasketTotals calculateBasketTotals(Basket basket) {
+                return totals;
+            }
+        }, executor, 16);
+
+        assertSame(receipt, parallelCalculator.calculateBasketPrice(new Basket()));
+        assertSame(compactReceipt, parallelCalculator.calculateBasketPrice(new CompactBasket()));
+        assertSame(totals, parallelCalculator.calculateBasketTotals(new Basket()));
+    }
+}
@@ -0,0 +1,74 @@
+import dto.request.Basket;
+import entity.PricingCatalog;
+import entity.PricingStructure;
+import entity.Product;
+import entity.ProductCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+import services.PricingCatalogStore;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PricingCatalogStoreTest {
+    private Product beans;
+    private PricingCatalog threeForTwo;
+    private PricingCatalog noDeals;
+    private Basket basket;
+
+    @BeforeEach
+    public void setUp() {
+        beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+        threeForTwo = PricingCatalog.compile(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build())),
+                Map.of(), Map.of());
+        noDeals = PricingCatalog.compile(Map.of(), Map.of(), Map.of());
+
+        basket = new Basket();
+        basket.put(beans, 3);
+    }
+
+    @Test
+    public void testPublishSwapsRulesAndReceiptsRecordPricingVersion() {
+        var store = new PricingCatalogStore(threeForTwo);
+        var calculator = new BasketCalculatorImpl(store);
+
+        var before = calculator.calculateBasketPrice(basket);
+        store.publish(noDeals);
+        var after = calculator.calculateBasketPrice(basket);
+
+        assertEquals(1, before.getPricingVersion());
+        assertEquals(1.00, before.getGrandTotal());
+        assertEquals(2, after.getPricingVersion());
+        assertEquals(1.50, after.getGrandTotal());
+        assertEquals(2, store.getVersion());
+    }
+
+    @Test
+    public void testEveryReceiptIsPricedAgainstOneConsistentVersionWhileRulesAreSwapped() throws InterruptedException {
+        var store = new PricingCatalogStore(threeForTwo);
+        var calculator = new BasketCalculatorImpl(store);
+        var running = new AtomicBoolean(true);
+
+        var publisher = new Thread(() -> {
+            while (running.get()) {
+                store.publish(store.getVersion() % 2 == 0 ? threeForTwo : noDeals);
+            }
+        });
+        publisher.start();
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                var receipt = calculator.calculateBasketPrice(basket);
+                var dealVersion = receipt.getPricingVersion() % 2 == 1;
+                assertEquals(dealVersion ? 1.00 : 1.50, receipt.getGrandTotal());
+                assertEquals(dealVersion ? 1 : 0, receipt.getSavingsItems().size());
+            }
+        } finally {
+            running.set(false);
+            publisher.join();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+import entity.PricingCatalog;
+import entity.PricingStructure;
+import entity.ProductCategory;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PricingCatalogTest {
+
+    @Test
+    public void testCompileResolvesProductPricingsAndCategoryMembershipByDenseIndex() {
+        var beansPricing = PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build();
+        var alePricing = PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build();
+
+        var catalog = PricingCatalog.compile(
+                Map.of(1L, List.of(beansPricing)),
+                Map.of(ProductCategory.ALE, alePricing),
+                Map.of(ProductCategory.ALE, Set.of(5L, 6L)));
+
+        var beansIndex = catalog.indexOf(1L);
+        var aleIndex = catalog.indexOf(5L);
+
+        assertEquals(3, catalog.size());
+        assertEquals(-1, catalog.indexOf(99L));
+        assertEquals("Beans 3 for 2", catalog.getProductPricings(beansIndex)[0].getName());
+        assertEquals(0, catalog.getProductPricings(-1).length);
+        assertTrue(catalog.isCategoryDealProduct(aleIndex, ProductCategory.ALE));
+        assertFalse(catalog.isCategoryDealProduct(aleIndex, ProductCategory.FOOD));
+        assertFalse(catalog.isCategoryDealProduct(beansIndex, ProductCategory.ALE));
+        assertTrue(catalog.isCategoryDealProduct(ProductCategory.ALE, 6L));
+    }
+
+    @Test
+    public void testCompiledCatalogIsNotAffectedByLaterChangesToSourceMaps() {
+        var beansPricings = new ArrayList<>(List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build()));
+        var uniProductPricing = new HashMap<Long, List<PricingStructure>>();
+        uniProductPricing.put(1L, beansPricings);
+
+        var catalog = PricingCatalog.compile(uniProductPricing, Map.of(), Map.of());
+        beansPricings.get(0).setQuantity(10);
+        beansPricings.add(PricingStructure.builder().name("Beans 5 for 3").quantity(5).newQuantity(3).build());
+        uniProductPricing.put(2L, beansPricings);
+
+        assertEquals(1, catalog.getProductPricings(catalog.indexOf(1L)).length);
+        assertEquals(3, catalog.getProductPricings(catalog.indexOf(1L))[0].getQuantity());
+        assertEquals(-1, catalog.indexOf(2L));
+    }
+
+    @Test
+    public void testCompileRejectsCategoryProductSetWithoutCategoryPricing() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PricingCatalog.compile(Map.of(), Map.of(), Map.of(ProductCategory.ALE, Set.of(5L))));
+    }
+}
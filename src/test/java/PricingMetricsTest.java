@@ -0,0 +1,119 @@
+import dto.request.Basket;
+import entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+import services.HistogramPricingMetrics;
+import services.PricingCatalogStore;
+import util.LatencyHistogram;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PricingMetricsTest {
+    private PricingCatalogStore store;
+    private Product beans, cocacola, oranges, bassPaleAle, greenKingIpa;
+
+    @BeforeEach
+    public void setUp() {
+        beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+        cocacola = Product.builder().id(2L).name("Coca-cola").Category(ProductCategory.DRINK).price(0.70).build();
+        oranges = Product.builder().id(4L).name("Oranges").Category(ProductCategory.FOOD).measuredPerKg(true).price(1.99).build();
+        bassPaleAle = Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build();
+        greenKingIpa = Product.builder().id(6L).Category(ProductCategory.ALE).name("Green King IPA").price(3).build();
+
+        store = new PricingCatalogStore(PricingCatalog.compile(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build()),
+                        2L, List.of(PricingStructure.builder().name("Coke 2 for £1").quantity(2).price(1).build())),
+                Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build()),
+                Map.of(ProductCategory.ALE, Set.of(5L, 6L))));
+    }
+
+    @Test
+    public void testHistogramPercentilesStayWithinBucketPrecision() {
+        var histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000, histogram.getValueAtPercentile(50), 50_000 * 0.04);
+        assertEquals(99_000, histogram.getValueAtPercentile(99), 99_000 * 0.04);
+        assertEquals(99_900, histogram.getValueAtPercentile(99.9), 99_900 * 0.04);
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+        assertEquals(50_000.5, histogram.getMean(), 1e-9);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testHistogramRecordsSmallAndExtremeValuesExactlyEnough() {
+        var histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(7);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.getValueAtPercentile(10));
+        assertEquals(7, histogram.getValueAtPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testInstrumentedCalculatorRecordsEveryPhaseAndBasketCounts() {
+        var basket = new Basket();
+        basket.put(beans, 6);
+        basket.put(cocacola, 3);
+        basket.put(bassPaleAle, 2);
+        basket.put(greenKingIpa, 1);
+
+        for (var moneyMode : MoneyMode.values()) {
+            var metrics = new HistogramPricingMetrics();
+            var calculator = new BasketCalculatorImpl(store, moneyMode, metrics);
+            for (int i = 0; i < 10; i++) {
+                calculator.calculateBasketPrice(basket);
+            }
+
+            var snapshot = metrics.snapshot();
+            for (var phase : PricingPhase.values()) {
+                assertEquals(10, snapshot.getPhases().get(phase).getCount(), moneyMode + " " + phase.name());
+            }
+            assertEquals(4, snapshot.getLinesPerBasket().getP50());
+            assertEquals(2 + 1 + 1, snapshot.getBundlesPerBasket().getMax());
+            assertEquals(3, snapshot.getSavingsItemsPerBasket().getP99());
+            assertTrue(snapshot.getPhases().get(PricingPhase.TOTAL).getMax() > 0);
+        }
+    }
+
+    @Test
+    public void testInstrumentedReceiptsMatchUninstrumentedOnes() {
+        var products = List.of(beans, cocacola, oranges, bassPaleAle, greenKingIpa);
+        var random = new Random(17);
+        for (var moneyMode : MoneyMode.values()) {
+            var metrics = new HistogramPricingMetrics();
+            var plain = new BasketCalculatorImpl(store, moneyMode);
+            var instrumented = new BasketCalculatorImpl(store, moneyMode, metrics);
+            for (int i = 0; i < 300; i++) {
+                var basket = new Basket();
+                for (var product : products) {
+                    if (random.nextBoolean()) {
+                        basket.put(product, product.isMeasuredPerKg() ? random.nextInt(2_000) / 1_000.0 : 1 + random.nextInt(9));
+                    }
+                }
+
+                var expected = plain.calculateBasketPrice(basket);
+                var actual = instrumented.calculateBasketPrice(basket);
+                assertEquals(expected.getGrandTotal(), actual.getGrandTotal());
+                assertEquals(expected.getSavingsSubTotal(), actual.getSavingsSubTotal());
+                assertEquals(expected.getProductSubTotal(), actual.getProductSubTotal());
+                assertEquals(expected.getSavingsItems().size(), actual.getSavingsItems().size());
+                assertEquals(expected.getGrandTotalMinor(), actual.getGrandTotalMinor());
+                assertEquals(expected.getSavingsSubTotalMinor(), actual.getSavingsSubTotalMinor());
+            }
+            assertEquals(300, metrics.snapshot().getPhases().get(PricingPhase.TOTAL).getCount());
+        }
+    }
+}
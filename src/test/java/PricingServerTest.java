@@ -0,0 +1,207 @@
+import dto.request.Basket;
+import dto.request.CompactBasket;
+import entity.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+import services.CompactReceiptCodec;
+import services.PricingServer;
+import services.RemoteBasketCalculator;
+import services.SampledPricingTracer;
+import services.TieredBasketCalculator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PricingServerTest {
+    private Map<Long, Product> products;
+    private BasketCalculatorImpl basketCalculator;
+    private PricingServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        products = new HashMap<>();
+        for (var product : List.of(
+                Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build(),
+                Product.builder().id(2L).name("Coca-cola").Category(ProductCategory.DRINK).price(0.70).build(),
+                Product.builder().id(4L).name("Oranges").Category(ProductCategory.FOOD).measuredPerKg(true).price(1.99).build(),
+                Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build(),
+                Product.builder().id(6L).Category(ProductCategory.ALE).name("Green King IPA").price(3).build())) {
+            products.put(product.getId(), product);
+        }
+        basketCalculator = new BasketCalculatorImpl(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build()),
+                        2L, List.of(PricingStructure.builder().name("Coke 2 for £1").quantity(2).price(1).build())),
+                Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build()),
+                Map.of(ProductCategory.ALE, Set.of(5L, 6L)));
+        server = new PricingServer(basketCalculator, products::get, new InetSocketAddress("127.0.0.1", 0)).start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path));
+    }
+
+    private HttpResponse<byte[]> post(byte[] body) throws IOException, InterruptedException {
+        return client.send(request("/price").POST(HttpRequest.BodyPublishers.ofByteArray(body)).build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @Test
+    public void testReceiptCodecRoundTripsExactly() {
+        var basket = new CompactBasket();
+        basket.add(products.get(1L), 3);
+        basket.add(products.get(4L), 0.2);
+        basket.add(products.get(5L), 2);
+        basket.add(products.get(6L), 1);
+        var receipt = basketCalculator.calculateBasketPrice(basket);
+
+        var decoded = CompactReceiptCodec.decodeReceipt(CompactReceiptCodec.encodeReceipt(receipt));
+        assertEquals(receipt.getGrandTotal(), decoded.getGrandTotal());
+        assertEquals(receipt.getSavingsSubTotal(), decoded.getSavingsSubTotal());
+        assertEquals(receipt.getPricingVersion(), decoded.getPricingVersion());
+        assertEquals(receipt.getProductItems().size(), decoded.getProductItems().size());
+        for (int i = 0; i < receipt.getProductItems().size(); i++) {
+            assertEquals(receipt.getProductItems().get(i).getName(), decoded.getProductItems().get(i).getName());
+            assertEquals(receipt.getProductItems().get(i).getQuantity(), decoded.getProductItems().get(i).getQuantity());
+        }
+        assertEquals(receipt.getSavingsItems().get(0).getName(), decoded.getSavingsItems().get(0).getName());
+
+        var roundTrip = CompactReceiptCodec.decodeBasket(CompactReceiptCodec.encodeBasket(basket), products::get);
+        assertEquals(4, roundTrip.size());
+        assertEquals(0.2, roundTrip.getQuantityOf(4L));
+    }
+
+    @Test
+    public void testPricesPostedBasket() throws Exception {
+        var response = post("1:3 2:2 5:2 6:1".getBytes());
+
+        assertEquals(200, response.statusCode());
+        var receipt = CompactReceiptCodec.decodeReceipt(response.body());
+        assertEquals(1.00 + 1.00 + 6.00, receipt.getGrandTotal(), 1e-9);
+        assertEquals(3, receipt.getSavingsItems().size());
+    }
+
+    @Test
+    public void testRejectsBadRequests() throws Exception {
+        assertEquals(400, post("1:3 99:1".getBytes()).statusCode());
+        assertEquals(400, post("1-3".getBytes()).statusCode());
+        var get = client.send(request("/price").GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, get.statusCode());
+        var health = client.send(request("/health").GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals("ok\n", health.body());
+    }
+
+    @Test
+    public void testServesConcurrentRequests() {
+        var futures = new ArrayList<CompletableFuture<HttpResponse<byte[]>>>();
+        for (int i = 0; i < 200; i++) {
+            var body = ("1:" + (1 + i % 6) + " 5:" + (1 + i % 4)).getBytes();
+            futures.add(client.sendAsync(request("/price").POST(HttpRequest.BodyPublishers.ofByteArray(body)).build(), HttpResponse.BodyHandlers.ofByteArray()));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            var response = futures.get(i).join();
+            assertEquals(200, response.statusCode());
+            var basket = CompactReceiptCodec.decodeBasket(("1:" + (1 + i % 6) + " 5:" + (1 + i % 4)).getBytes(), products::get);
+            assertEquals(basketCalculator.calculateBasketPrice(basket).getGrandTotal(), CompactReceiptCodec.decodeReceipt(response.body()).getGrandTotal());
+        }
+    }
+
+    @Test
+    public void testBasketCodecCarriesIdsTierAndStoreButNoPrices() {
+        var cheapBeans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.40).build();
+        var basket = new CompactBasket();
+        basket.setBasketId(42);
+        basket.setCustomerTier(2);
+        basket.setStoreId(100);
+        basket.add(cheapBeans, 3);
+        basket.add(products.get(2L), 1);
+
+        var encoded = new String(CompactReceiptCodec.encodeBasket(basket));
+        assertEquals("basket=42 tier=2 store=100 1:3 2:1", encoded);
+        var decoded = CompactReceiptCodec.decodeBasket(encoded.getBytes(), products::get);
+        assertEquals(42, decoded.getBasketId());
+        assertEquals(2, decoded.getCustomerTier());
+        assertEquals(100, decoded.getStoreId());
+        // The decoder's own product, at its own price, whatever the client had
+        assertSame(products.get(1L), decoded.getProduct(0));
+        assertSame(products.get(2L), decoded.getProduct(1));
+
+        for (var bad : List.of("tier=x 1:1", "colour=3 1:1", "1:1@0", "1:1@0.4", "1:", "tier=-1 1:1")) {
+            assertThrows(IllegalArgumentException.class, () -> CompactReceiptCodec.decodeBasket(bad.getBytes(), products::get), bad);
+        }
+    }
+
+    @Test
+    public void testRejectsQuantitiesOutOfRangeAndOversizedBaskets() throws Exception {
+        for (var bad : List.of("5:NaN", "5:Infinity", "5:-Infinity", "1:-1", "5:1e18", "5:60000 5:60000")) {
+            var response = post(bad.getBytes());
+            assertEquals(400, response.statusCode(), bad);
+            assertTrue(new String(response.body()).contains("Quantities must be from 0 to 100000"), bad);
+        }
+        assertEquals(200, post("5:100000 1:0".getBytes()).statusCode());
+
+        var lines = new StringBuilder();
+        var manyProducts = new HashMap<Long, Product>();
+        for (long id = 1; id <= CompactReceiptCodec.MAX_LINES + 1; id++) {
+            manyProducts.put(id, Product.builder().id(id).name("SKU " + id).price(1).build());
+            lines.append(id).append(":1 ");
+        }
+        var error = assertThrows(IllegalArgumentException.class,
+                () -> CompactReceiptCodec.decodeBasket(lines.toString().getBytes(), manyProducts::get));
+        assertTrue(error.getMessage().startsWith("More than 10000 lines"));
+    }
+
+    @Test
+    public void testMalformedReceiptLinesAreIllegalArguments() {
+        for (var bad : List.of("R 1 2", "R x 1 2 3", "P 1 0.5", "P 1 x 0 0 0 Beans", "S 1", "S one -0.5 Beans")) {
+            assertThrows(IllegalArgumentException.class, () -> CompactReceiptCodec.decodeReceipt(bad.getBytes()), bad);
+        }
+    }
+
+    @Test
+    public void testServerResolvesTierPricesFromItsOwnPriceBook() throws Exception {
+        var book = PriceBook.compile(List.of(PriceOverride.builder().productId(1L).tier(2).price(0.40).build()), Map.of());
+        var basket = new Basket();
+        basket.setBasketId(42);
+        basket.setCustomerTier(2);
+        basket.put(products.get(1L), 3);
+        basket.put(products.get(2L), 1);
+        var expected = new TieredBasketCalculator(basketCalculator, book).calculateBasketPrice(basket).getGrandTotal();
+        assertEquals(0.80 + 0.70, expected, 1e-9);
+
+        // The tier travels with the basket and the server applies its book; the basket id reaches the server's tracer
+        var tracer = SampledPricingTracer.forBaskets(id -> id == 42);
+        var tracedCalculator = new BasketCalculatorImpl(basketCalculator.getPricingCatalogStore(), MoneyMode.DOUBLE,
+                interfaces.PricingMetrics.NO_OP, tracer);
+        try (var tieredServer = new PricingServer(tracedCalculator, products::get, book, new InetSocketAddress("127.0.0.1", 0)).start()) {
+            var remote = new RemoteBasketCalculator(URI.create("http://127.0.0.1:" + tieredServer.getPort()), Duration.ofSeconds(10));
+            assertEquals(expected, remote.calculateBasketPrice(basket).getGrandTotal(), 1e-9);
+
+            // Without the tier the shelf price applies, and a client cannot name its own price
+            basket.setCustomerTier(0);
+            assertEquals(1.00 + 0.70, remote.calculateBasketPrice(basket).getGrandTotal(), 1e-9);
+            var free = client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + tieredServer.getPort() + "/price"))
+                    .POST(HttpRequest.BodyPublishers.ofString("1:3@0")).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, free.statusCode());
+        }
+        assertEquals(2, tracer.getRecordedCount());
+        assertEquals(42, tracer.getTraces().get(0).getBasketId());
+    }
+}
@@ -0,0 +1,126 @@
+import dto.response.ReceiptResponse;
+import entity.PricingCatalog;
+import entity.PricingStructure;
+import entity.Product;
+import entity.ProductCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+import services.PricingCatalogStore;
+import services.PricingSession;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PricingSessionTest {
+    private PricingCatalogStore store;
+    private BasketCalculatorImpl basketCalculator;
+    private PricingSession session;
+    private Product beans, cocacola, oranges, bassPaleAle, greenKingIpa, timothyTailor;
+
+    @BeforeEach
+    public void setUp() {
+        beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+        cocacola = Product.builder().id(2L).name("Coca-cola").Category(ProductCategory.DRINK).price(0.70).build();
+        oranges = Product.builder().id(4L).name("Oranges").Category(ProductCategory.FOOD).measuredPerKg(true).price(1.99).build();
+        bassPaleAle = Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build();
+        greenKingIpa = Product.builder().id(6L).Category(ProductCategory.ALE).name("Green King IPA").price(3).build();
+        timothyTailor = Product.builder().id(7L).Category(ProductCategory.ALE).name("Timothy Taylor").price(3.5).build();
+
+        store = new PricingCatalogStore(PricingCatalog.compile(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build()),
+                        2L, List.of(PricingStructure.builder().name("Coke 2 for £1").quantity(2).price(1).build())),
+                Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build()),
+                Map.of(ProductCategory.ALE, Set.of(5L, 6L, 7L))));
+        basketCalculator = new BasketCalculatorImpl(store);
+        session = new PricingSession(store);
+    }
+
+    @Test
+    public void testScansAndVoidsMatchFullRecompute() {
+        session.add(beans, 1);
+        session.add(bassPaleAle, 1);
+        session.add(beans, 2);
+        session.add(greenKingIpa, 2);
+        session.setWeight(oranges, 0.2);
+        session.add(cocacola, 3);
+        session.remove(greenKingIpa, 1);
+
+        var receipt = session.currentReceipt();
+
+        assertSameReceipt(basketCalculator.calculateBasketPrice(session.getBasket()), receipt);
+        assertEquals(1.00 + 5.50 + 0.398 + 1.70, receipt.getGrandTotal(), 1e-9);
+        assertEquals(receipt.getGrandTotal(), session.getGrandTotal(), 1e-9);
+    }
+
+    @Test
+    public void testRandomTillEventsMatchFullRecomputeAfterEveryScan() {
+        var products = List.of(beans, cocacola, oranges, bassPaleAle, greenKingIpa, timothyTailor);
+        var random = new Random(7);
+        for (int i = 0; i < 2_000; i++) {
+            var product = products.get(random.nextInt(products.size()));
+            if (product.isMeasuredPerKg()) {
+                session.setWeight(product, random.nextInt(3_000) / 1_000.0);
+            } else if (random.nextInt(4) == 0) {
+                session.remove(product, 1 + random.nextInt(3));
+            } else {
+                session.add(product, 1 + random.nextInt(3));
+            }
+
+            assertSameReceipt(basketCalculator.calculateBasketPrice(session.getBasket()), session.currentReceipt());
+            assertEquals(session.currentReceipt().getSavingsSubTotal(), session.getSavingsSubTotal(), 1e-6);
+        }
+    }
+
+    @Test
+    public void testLinesWithSeveralOffersAssembleToTheFullRecompute() {
+        store.publish(Map.of(2L, List.of(
+                        PricingStructure.builder().name("Coke 6 for £2.50").quantity(6).price(2.5).build(),
+                        PricingStructure.builder().name("Coke 2 for £1").quantity(2).price(1).build())),
+                Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build()),
+                Map.of(ProductCategory.ALE, Set.of(5L, 6L, 7L)));
+        var random = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            session.add(random.nextBoolean() ? cocacola : timothyTailor, 1 + random.nextInt(5));
+            session.add(bassPaleAle, random.nextInt(2));
+
+            assertSameReceipt(basketCalculator.calculateBasketPrice(session.getBasket()), session.currentReceipt());
+        }
+    }
+
+    @Test
+    public void testSessionRepricesAgainstNewRulesAfterPublish() {
+        session.add(beans, 3);
+        assertEquals(1.00, session.currentReceipt().getGrandTotal());
+
+        store.publish(Map.of(), Map.of(), Map.of());
+        session.add(cocacola, 2);
+        var receipt = session.currentReceipt();
+
+        assertEquals(2, receipt.getPricingVersion());
+        assertEquals(2.90, receipt.getGrandTotal(), 1e-9);
+        assertTrue(receipt.getSavingsItems().isEmpty());
+        assertSameReceipt(basketCalculator.calculateBasketPrice(session.getBasket()), receipt);
+    }
+
+    private void assertSameReceipt(ReceiptResponse expected, ReceiptResponse actual) {
+        assertEquals(expected.getGrandTotal(), actual.getGrandTotal());
+        assertEquals(expected.getSavingsSubTotal(), actual.getSavingsSubTotal());
+        assertEquals(expected.getProductSubTotal(), actual.getProductSubTotal());
+        assertEquals(expected.getPricingVersion(), actual.getPricingVersion());
+
+        assertEquals(expected.getProductItems().size(), actual.getProductItems().size());
+        for (int i = 0; i < expected.getProductItems().size(); i++) {
+            assertEquals(expected.getProductItems().get(i).getName(), actual.getProductItems().get(i).getName());
+            assertEquals(expected.getProductItems().get(i).getPrice(), actual.getProductItems().get(i).getPrice());
+            assertEquals(expected.getProductItems().get(i).getQuantity(), actual.getProductItems().get(i).getQuantity());
+        }
+        assertEquals(expected.getSavingsItems().size(), actual.getSavingsItems().size());
+        for (int i = 0; i < expected.getSavingsItems().size(); i++) {
+            assertEquals(expected.getSavingsItems().get(i).getName(), actual.getSavingsItems().get(i).getName());
+            assertEquals(expected.getSavingsItems().get(i).getCount(), actual.getSavingsItems().get(i).getCount());
+            assertEquals(expected.getSavingsItems().get(i).getDeduction(), actual.getSavingsItems().get(i).getDeduction());
+        }
+    }
+}
@@ -0,0 +1,192 @@
+import dto.request.Basket;
+import dto.request.CompactBasket;
+import dto.response.PricingTraceEvent;
+import entity.*;
+import interfaces.PricingMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+import services.HistogramPricingMetrics;
+import services.PricingCatalogStore;
+import services.SampledPricingTracer;
+import util.TraceRingBuffer;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PricingTraceTest {
+    private PricingCatalogStore store;
+    private Product beans, cocacola, oranges, bassPaleAle, greenKingIpa;
+
+    @BeforeEach
+    public void setUp() {
+        beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+        cocacola = Product.builder().id(2L).name("Coca-cola").Category(ProductCategory.DRINK).price(0.70).build();
+        oranges = Product.builder().id(4L).name("Oranges").Category(ProductCategory.FOOD).measuredPerKg(true).price(1.99).build();
+        bassPaleAle = Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build();
+        greenKingIpa = Product.builder().id(6L).Category(ProductCategory.ALE).name("Green King IPA").price(3).build();
+
+        store = new PricingCatalogStore(PricingCatalog.compile(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build()),
+                        2L, List.of(PricingStructure.builder().name("Coke 2 for £1").quantity(2).price(1).build())),
+                Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build()),
+                Map.of(ProductCategory.ALE, Set.of(5L, 6L))));
+    }
+
+    private CompactBasket basket(long basketId, int bassPaleAles, int greenKingIpas) {
+        var basket = new CompactBasket();
+        basket.setBasketId(basketId);
+        basket.add(beans, 5);
+        basket.add(cocacola, 1);
+        basket.add(oranges, 0.5);
+        basket.add(bassPaleAle, bassPaleAles);
+        basket.add(greenKingIpa, greenKingIpas);
+        return basket;
+    }
+
+    private static List<PricingTraceEventType> types(List<PricingTraceEvent> events) {
+        var types = new ArrayList<PricingTraceEventType>();
+        for (var event : events) {
+            types.add(event.getType());
+        }
+        return types;
+    }
+
+    @Test
+    public void traceRecordsEveryOfferAndWhichUnitsWentIntoEachBundle() {
+        var tracer = SampledPricingTracer.oneIn(1);
+        var traced = new BasketCalculatorImpl(store, MoneyMode.DOUBLE, PricingMetrics.NO_OP, tracer);
+        var basket = basket(42, 4, 1);
+
+        var receipt = traced.calculateBasketPrice(basket);
+        var untraced = new BasketCalculatorImpl(store).calculateBasketPrice(basket);
+        assertEquals(untraced.getGrandTotal(), receipt.getGrandTotal());
+        assertEquals(untraced.getSavingsSubTotal(), receipt.getSavingsSubTotal());
+        assertEquals(untraced.getSavingsItems().size(), receipt.getSavingsItems().size());
+
+        var trace = tracer.find(42);
+        assertEquals(receipt.getGrandTotal(), trace.getGrandTotal());
+        assertEquals(receipt.getPricingVersion(), trace.getPricingVersion());
+        assertEquals(List.of(
+                PricingTraceEventType.LINE, PricingTraceEventType.OFFER,
+                PricingTraceEventType.LINE, PricingTraceEventType.OFFER,
+                PricingTraceEventType.LINE,
+                PricingTraceEventType.LINE, PricingTraceEventType.LINE,
+                PricingTraceEventType.DEAL_GROUP, PricingTraceEventType.GROUP_BUNDLE, PricingTraceEventType.FULL_PRICE_UNITS),
+                types(trace.getEvents()));
+
+        var events = trace.getEvents();
+        assertEquals("Beans 3 for 2", events.get(1).getRuleName());
+        assertEquals(1, events.get(1).getBundles());
+        assertEquals(2, events.get(1).getRemainingQuantity());
+        assertEquals(-0.5, events.get(1).getDeduction(), 1e-9);
+        // The coke offer was tried and formed no bundle
+        assertEquals(0, events.get(3).getBundles());
+        assertEquals(1, events.get(3).getRemainingQuantity());
+        assertEquals(-1, events.get(4).getDealGroup());
+        assertTrue(events.get(5).getDealGroup() >= 0);
+
+        assertEquals(5, events.get(7).getQuantity());
+        assertEquals(1, events.get(7).getBundles());
+        assertArrayEquals(new double[]{2.5, 2.5, 2.5}, events.get(8).getUnitPrices());
+        assertEquals(-1.5, events.get(8).getDeduction(), 1e-9);
+        assertEquals(2, events.get(9).getQuantity());
+        assertEquals(5.5, events.get(9).getAmount(), 1e-9);
+
+        var explained = trace.explain();
+        assertTrue(explained.startsWith("Basket 42"));
+        assertTrue(explained.contains("Any 3 ales for £6"));
+        assertTrue(explained.contains("1 x bundle of 2.50 2.50 2.50"));
+    }
+
+    @Test
+    public void fixedPointTraceShowsMixedBundlesAndMatchesTheReceipt() {
+        var tracer = SampledPricingTracer.oneIn(1);
+        var traced = new BasketCalculatorImpl(store, MoneyMode.FIXED_POINT, PricingMetrics.NO_OP, tracer);
+        var basket = basket(7, 2, 2);
+
+        var receipt = traced.calculateBasketPrice(basket);
+        var untraced = new BasketCalculatorImpl(store, MoneyMode.FIXED_POINT).calculateBasketPrice(basket);
+        assertEquals(untraced.getGrandTotalMinor(), receipt.getGrandTotalMinor());
+        assertEquals(untraced.getSavingsSubTotalMinor(), receipt.getSavingsSubTotalMinor());
+
+        var trace = tracer.find(7);
+        assertEquals(MoneyMode.FIXED_POINT, trace.getMoneyMode());
+        var events = trace.getEvents();
+        var bundle = events.get(events.size() - 2);
+        assertEquals(PricingTraceEventType.GROUP_BUNDLE, bundle.getType());
+        assertArrayEquals(new double[]{2.5, 2.5, 3.0}, bundle.getUnitPrices());
+        assertEquals(-2.0, bundle.getDeduction(), 1e-9);
+        var leftover = events.get(events.size() - 1);
+        assertEquals(1, leftover.getQuantity());
+        assertEquals(3.0, leftover.getAmount(), 1e-9);
+    }
+
+    @Test
+    public void basketFilterPicksBasketsAndOtherBasketsAreNotTraced() {
+        var tracer = SampledPricingTracer.forBaskets(id -> id == 1001);
+        var metrics = new HistogramPricingMetrics();
+        var calculator = new BasketCalculatorImpl(store, MoneyMode.DOUBLE, metrics, tracer);
+
+        for (long id = 1000; id < 1010; id++) {
+            calculator.calculateBasketPrice(basket(id, 3, 0));
+        }
+        var plain = new Basket();
+        plain.setBasketId(1001);
+        plain.put(beans, 3);
+        calculator.calculateBasketPrice(plain);
+
+        assertEquals(2, tracer.getRecordedCount());
+        assertEquals(1001, tracer.getTraces().get(0).getBasketId());
+        assertNull(tracer.find(1000));
+        // Traced baskets still count towards the basket metrics
+        assertEquals(11, metrics.getPhaseHistogram(PricingPhase.TOTAL).getCount());
+
+        tracer.setBasketFilter(null);
+        calculator.calculateBasketPrice(basket(1001, 3, 0));
+        assertEquals(2, tracer.getRecordedCount());
+        assertThrows(IllegalArgumentException.class, () -> tracer.setSampleEvery(-1));
+        // The id travels with the basket when it is converted
+        assertEquals(1001, CompactBasket.fromBasket(plain).toBasket().getBasketId());
+    }
+
+    @Test
+    public void ringKeepsTheMostRecentEntriesUnderConcurrentWriters() throws InterruptedException {
+        var ring = new TraceRingBuffer<Long>(100);
+        assertEquals(128, ring.getCapacity());
+        for (long i = 0; i < 1000; i++) {
+            ring.add(i);
+        }
+        var held = ring.snapshot();
+        assertEquals(128, held.size());
+        assertEquals(872L, held.get(0));
+        assertEquals(999L, held.get(127));
+
+        var concurrent = new TraceRingBuffer<Long>(64);
+        var threads = new ArrayList<Thread>();
+        var consistent = new AtomicBoolean(true);
+        for (int t = 0; t < 4; t++) {
+            var base = t * 1_000_000L;
+            threads.add(new Thread(() -> {
+                for (long i = 0; i < 20_000; i++) {
+                    concurrent.add(base + i);
+                    if (i % 1000 == 0) {
+                        var snapshot = concurrent.snapshot();
+                        if (snapshot.size() > 64 || new HashSet<>(snapshot).size() != snapshot.size()) {
+                            consistent.set(false);
+                        }
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertTrue(consistent.get());
+        assertEquals(80_000, concurrent.getAddedCount());
+        assertEquals(64, new HashSet<>(concurrent.snapshot()).size());
+    }
+}
@@ -0,0 +1,256 @@
+import dto.request.Basket;
+import entity.*;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+import services.PricingCatalogStore;
+import services.PromotionTimeline;
+
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PromotionTimelineTest {
+    private static final ZoneId LONDON = ZoneId.of("Europe/London");
+
+    // A clock the test moves by hand
+    private static final class TestClock extends Clock {
+        private Instant now;
+        private final ZoneId zone;
+
+        TestClock(LocalDateTime start, ZoneId zone) {
+            this.now = start.atZone(zone).toInstant();
+            this.zone = zone;
+        }
+
+        void set(LocalDateTime time) {
+            now = time.atZone(zone).toInstant();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private final Product ale = Product.builder().id(5L).name("Bass Pale Ale").Category(ProductCategory.ALE).price(2.5).build();
+    private final Product beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.5).build();
+
+    private Basket basket(Product product, double quantity) {
+        var basket = new Basket();
+        basket.put(product, quantity);
+        return basket;
+    }
+
+    // 2024-06-03 is a Monday
+    private static LocalDateTime monday(int hour, int minute) {
+        return LocalDateTime.of(2024, 6, 3, hour, minute);
+    }
+
+    @Test
+    public void happyHourSwitchesOnAndOffThroughTheDay() {
+        var happyHour = PricingStructure.builder().name("Happy hour 2 for £4").quantity(2).price(4)
+                .schedule(PromotionSchedule.builder().dailyStart(LocalTime.of(17, 0)).dailyEnd(LocalTime.of(19, 0)).build())
+                .build();
+        var clock = new TestClock(monday(12, 0), LONDON);
+        var store = new PricingCatalogStore(Map.of(5L, List.of(happyHour)), Map.of(), Map.of(), List.of(), clock);
+        var calculator = new BasketCalculatorImpl(store);
+
+        var noon = calculator.calculateBasketPrice(basket(ale, 2));
+        assertEquals(5.0, noon.getGrandTotal(), 1e-9);
+
+        clock.set(monday(17, 0));
+        var evening = calculator.calculateBasketPrice(basket(ale, 2));
+        assertEquals(4.0, evening.getGrandTotal(), 1e-9);
+        assertEquals("Happy hour 2 for £4", evening.getSavingsItems().get(0).getName());
+        assertTrue(evening.getPricingVersion() > noon.getPricingVersion());
+
+        clock.set(monday(18, 59));
+        assertEquals(4.0, calculator.calculateBasketPrice(basket(ale, 2)).getGrandTotal(), 1e-9);
+        clock.set(monday(19, 0));
+        var late = calculator.calculateBasketPrice(basket(ale, 2));
+        assertEquals(5.0, late.getGrandTotal(), 1e-9);
+        assertTrue(late.getPricingVersion() > evening.getPricingVersion());
+
+        // Off-hours run from 19:00 to 17:00 the next day as one epoch
+        var timeline = store.getTimeline();
+        assertEquals(2 * PromotionTimeline.DEFAULT_HORIZON_DAYS + 1, timeline.getEpochCount());
+        assertEquals(-1, timeline.getEpochRules(0).indexOf(5L));
+        assertEquals(1, timeline.getEpochRules(1).getProductPricings(timeline.getEpochRules(1).indexOf(5L)).length);
+        assertEquals(-1, timeline.getEpochRules(2).indexOf(5L));
+        assertEquals(timeline.getEpochStart(1), monday(17, 0).atZone(LONDON).toInstant().toEpochMilli());
+    }
+
+    @Test
+    public void weekendDealExpiresAndOvernightWindowBelongsToItsStartDay() {
+        var weekend = PricingStructure.builder().name("Weekend beans 3 for 2").quantity(3).newQuantity(2)
+                .schedule(PromotionSchedule.builder()
+                        .daysOfWeek(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY))
+                        .validUntil(LocalDateTime.of(2024, 6, 16, 0, 0).atZone(LONDON).toInstant())
+                        .build())
+                .build();
+        var lateNight = PricingStructure.builder().name("Friday late ales").quantity(3).price(6)
+                .schedule(PromotionSchedule.builder()
+                        .daysOfWeek(EnumSet.of(DayOfWeek.FRIDAY))
+                        .dailyStart(LocalTime.of(22, 0))
+                        .dailyEnd(LocalTime.of(2, 0))
+                        .build())
+                .build();
+        var clock = new TestClock(monday(9, 0), LONDON);
+        var store = new PricingCatalogStore(Map.of(1L, List.of(weekend)),
+                Map.of(ProductCategory.ALE, lateNight), Map.of(ProductCategory.ALE, Set.of(5L)), List.of(), clock);
+        var calculator = new BasketCalculatorImpl(store);
+
+        assertEquals(1.5, calculator.calculateBasketPrice(basket(beans, 3)).getGrandTotal(), 1e-9);
+        clock.set(LocalDateTime.of(2024, 6, 8, 9, 0));
+        assertEquals(1.0, calculator.calculateBasketPrice(basket(beans, 3)).getGrandTotal(), 1e-9);
+        // Past the first horizon the store compiles the next week, where the deal has expired by Sunday night
+        clock.set(LocalDateTime.of(2024, 6, 15, 23, 59));
+        assertEquals(1.0, calculator.calculateBasketPrice(basket(beans, 3)).getGrandTotal(), 1e-9);
+        clock.set(LocalDateTime.of(2024, 6, 16, 0, 0));
+        assertEquals(1.5, calculator.calculateBasketPrice(basket(beans, 3)).getGrandTotal(), 1e-9);
+
+        clock.set(LocalDateTime.of(2024, 6, 7, 23, 0));
+        assertEquals(6.0, calculator.calculateBasketPrice(basket(ale, 3)).getGrandTotal(), 1e-9);
+        clock.set(LocalDateTime.of(2024, 6, 8, 1, 59));
+        assertEquals(6.0, calculator.calculateBasketPrice(basket(ale, 3)).getGrandTotal(), 1e-9);
+        clock.set(LocalDateTime.of(2024, 6, 8, 2, 0));
+        assertEquals(7.5, calculator.calculateBasketPrice(basket(ale, 3)).getGrandTotal(), 1e-9);
+        clock.set(LocalDateTime.of(2024, 6, 8, 23, 0));
+        assertEquals(7.5, calculator.calculateBasketPrice(basket(ale, 3)).getGrandTotal(), 1e-9);
+    }
+
+    @Test
+    public void timelineAgreesWithEvaluatingEverySchedule() {
+        var random = new Random(23);
+        var zone = ZoneId.of("America/New_York");
+        var pricings = new ArrayList<PricingStructure>();
+        var uniPricing = new HashMap<Long, List<PricingStructure>>();
+        for (long id = 0; id < 40; id++) {
+            var schedule = PromotionSchedule.builder();
+            if (random.nextBoolean()) {
+                schedule.dailyStart(LocalTime.of(random.nextInt(24), 15 * random.nextInt(4)));
+            }
+            if (random.nextBoolean()) {
+                schedule.dailyEnd(LocalTime.of(random.nextInt(24), 15 * random.nextInt(4)));
+            }
+            if (random.nextBoolean()) {
+                schedule.daysOfWeek(EnumSet.of(DayOfWeek.of(1 + random.nextInt(7)), DayOfWeek.of(1 + random.nextInt(7))));
+            }
+            if (random.nextInt(4) == 0) {
+                schedule.validFrom(LocalDateTime.of(2024, 3, 1 + random.nextInt(28), random.nextInt(24), 0).atZone(zone).toInstant());
+            }
+            if (random.nextInt(4) == 0) {
+                schedule.validUntil(LocalDateTime.of(2024, 3, 1 + random.nextInt(28), random.nextInt(24), 0).atZone(zone).toInstant());
+            }
+            var pricing = PricingStructure.builder().name("Deal " + id).quantity(2).price(1).schedule(schedule.build()).build();
+            pricings.add(pricing);
+            uniPricing.put(id, List.of(pricing));
+        }
+        // March 2024 crosses the US daylight saving change on the 10th
+        var from = LocalDateTime.of(2024, 3, 1, 0, 0).atZone(zone).toInstant().toEpochMilli();
+        var timeline = PromotionTimeline.compile(uniPricing, Map.of(), Map.of(), List.of(), zone, 28, from, 1);
+
+        var previousVersion = 0L;
+        for (int epoch = 0; epoch < timeline.getEpochCount(); epoch++) {
+            var version = timeline.getEpochRules(epoch).getVersion();
+            assertTrue(version > previousVersion);
+            previousVersion = version;
+        }
+        for (int sample = 0; sample < 20_000; sample++) {
+            var millis = from + (long) (random.nextDouble() * (timeline.getUntil() - from));
+            if (sample % 10 == 0) {
+                // Land exactly on an epoch start, or just before it
+                millis = timeline.getEpochStart(random.nextInt(timeline.getEpochCount())) - sample % 20 / 10;
+                millis = Math.max(millis, from);
+            }
+            var rules = timeline.rulesAt(millis);
+            for (int id = 0; id < pricings.size(); id++) {
+                var expected = pricings.get(id).getSchedule().isActiveAt(Instant.ofEpochMilli(millis), zone);
+                var index = rules.indexOf(id);
+                assertEquals(expected, index >= 0 && rules.getProductPricings(index).length == 1,
+                        "deal " + id + " at " + Instant.ofEpochMilli(millis));
+            }
+        }
+    }
+
+    @Test
+    public void scheduledDealGroupsAndPublishKeepVersionsMovingForward() {
+        var meal = DealGroup.builder().name("Lunch meal deal").productIds(Set.of(1L, 5L))
+                .pricing(PricingStructure.builder().name("Lunch meal deal").quantity(2).price(2)
+                        .schedule(PromotionSchedule.builder().dailyStart(LocalTime.of(11, 30)).dailyEnd(LocalTime.of(14, 0)).build())
+                        .build())
+                .build();
+        var clock = new TestClock(monday(12, 0), LONDON);
+        var store = new PricingCatalogStore(Map.of(), Map.of(), Map.of(), List.of(meal), clock);
+        var calculator = new BasketCalculatorImpl(store);
+        var basket = basket(ale, 1);
+        basket.put(beans, 1.0);
+
+        assertEquals(2.0, calculator.calculateBasketPrice(basket).getGrandTotal(), 1e-9);
+        clock.set(monday(15, 0));
+        var afternoon = calculator.calculateBasketPrice(basket);
+        assertEquals(3.0, afternoon.getGrandTotal(), 1e-9);
+
+        // Rules without schedules are a single fixed epoch, numbered after everything the old timeline handed out
+        var published = store.publish(Map.of(), Map.of(), Map.of());
+        assertEquals(1, store.getTimeline().getEpochCount());
+        assertTrue(store.getTimeline().isFixed());
+        assertEquals(2 * PromotionTimeline.DEFAULT_HORIZON_DAYS + 2, published.getVersion());
+        clock.set(monday(12, 0));
+        assertEquals(published.getVersion(), calculator.calculateBasketPrice(basket).getPricingVersion());
+    }
+
+    @Test
+    public void scheduleWindowsAreInclusiveOfStartAndExclusiveOfEnd() {
+        var schedule = PromotionSchedule.builder()
+                .validFrom(Instant.parse("2024-06-01T00:00:00Z"))
+                .validUntil(Instant.parse("2024-07-01T00:00:00Z"))
+                .dailyStart(LocalTime.of(9, 0))
+                .build();
+        var utc = ZoneOffset.UTC;
+        assertFalse(schedule.isActiveAt(Instant.parse("2024-06-05T08:59:59Z"), utc));
+        assertTrue(schedule.isActiveAt(Instant.parse("2024-06-05T09:00:00Z"), utc));
+        assertTrue(schedule.isActiveAt(Instant.parse("2024-06-05T23:59:59Z"), utc));
+        assertFalse(schedule.isActiveAt(Instant.parse("2024-07-01T09:00:00Z"), utc));
+        assertFalse(schedule.isActiveAt(Instant.parse("2024-05-31T10:00:00Z"), utc));
+        assertTrue(new PromotionSchedule().isActiveAt(Instant.EPOCH, utc));
+    }
+
+    @Test
+    public void callerEditsAfterPublishNeverReachLaterHorizons() {
+        var happyHour = PromotionSchedule.builder().dailyStart(LocalTime.of(17, 0)).dailyEnd(LocalTime.of(19, 0)).build();
+        var aleDeal = PricingStructure.builder().name("Ale 2 for £4").quantity(2).price(4).schedule(happyHour).build();
+        var uniProductPricing = new HashMap<Long, List<PricingStructure>>();
+        uniProductPricing.put(5L, new ArrayList<>(List.of(aleDeal)));
+        var beansDeal = PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build();
+        var clock = new TestClock(monday(18, 0), LONDON);
+        var store = new PricingCatalogStore(uniProductPricing, Map.of(), Map.of(), List.of(), clock, 1);
+        var calculator = new BasketCalculatorImpl(store);
+        assertEquals(4.0, calculator.calculateBasketPrice(basket(ale, 2)).getGrandTotal(), 1e-9);
+
+        // Edited after publishing: the rule, its schedule and the map it came in
+        aleDeal.setPrice(0.01);
+        happyHour.setDailyStart(LocalTime.MIDNIGHT);
+        happyHour.setDailyEnd(null);
+        uniProductPricing.get(5L).clear();
+        uniProductPricing.put(1L, List.of(beansDeal));
+
+        // Tuesday is past the one-day horizon, so the timeline is compiled again, still from the rules as published
+        clock.set(monday(18, 0).plusDays(1));
+        assertEquals(4.0, calculator.calculateBasketPrice(basket(ale, 2)).getGrandTotal(), 1e-9);
+        clock.set(monday(12, 0).plusDays(1));
+        assertEquals(5.0, calculator.calculateBasketPrice(basket(ale, 2)).getGrandTotal(), 1e-9);
+        assertEquals(1.5, calculator.calculateBasketPrice(basket(beans, 3)).getGrandTotal(), 1e-9);
+    }
+}
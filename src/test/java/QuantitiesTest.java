@@ -0,0 +1,48 @@
+import org.junit.jupiter.api.Test;
+import util.Quantities;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuantitiesTest {
+
+    @Test
+    public void testRemainderIsBitForBitTheJavaRemainder() {
+        var random = new Random(21);
+        for (int i = 0; i < 1_000_000; i++) {
+            var quantity = switch (i % 4) {
+                case 0 -> random.nextInt(100);
+                case 1 -> random.nextInt(20_000) / 1000.0;
+                case 2 -> random.nextDouble() * 1e6;
+                default -> Math.scalb(random.nextDouble(), random.nextInt(120) - 60);
+            };
+            var bundleSize = switch (i % 3) {
+                case 0 -> 1 + random.nextInt(10);
+                case 1 -> 0.1 * (1 + random.nextInt(30));
+                default -> Math.scalb(random.nextDouble() + 0.5, random.nextInt(40) - 20);
+            };
+            assertRemainder(quantity, bundleSize);
+        }
+    }
+
+    @Test
+    public void testRemainderEdgeCasesFallBackToTheJavaRemainder() {
+        double[] quantities = {0.0, -0.0, -3, -2.5, 3, 7, 1e300, Double.MIN_VALUE, Double.MAX_VALUE,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN, 0.3, 0.7 * 3};
+        double[] bundleSizes = {0.0, -0.0, -2, 0.1, 0.7, 1, 3, 1e-300, Double.MIN_VALUE, Double.MAX_VALUE,
+                Double.POSITIVE_INFINITY, Double.NaN};
+        for (var quantity : quantities) {
+            for (var bundleSize : bundleSizes) {
+                assertRemainder(quantity, bundleSize);
+            }
+        }
+    }
+
+    private static void assertRemainder(double quantity, double bundleSize) {
+        var bundles = Math.floor(quantity / bundleSize);
+        assertEquals(Double.doubleToRawLongBits(quantity % bundleSize),
+                Double.doubleToRawLongBits(Quantities.remainder(quantity, bundleSize, bundles)),
+                () -> quantity + " % " + bundleSize);
+    }
+}
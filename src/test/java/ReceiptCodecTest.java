@@ -0,0 +1,236 @@
+import dto.request.Basket;
+import dto.response.ReceiptPriceSavingItem;
+import dto.response.ReceiptProductItem;
+import dto.response.ReceiptResponse;
+import entity.*;
+import org.junit.jupiter.api.Test;
+import services.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReceiptCodecTest {
+    private static final List<Double> AWKWARD_AMOUNTS =
+            List.of(0.1 + 0.2, 1e-7, -0.0, 0.0, 123456789.125, -2.675, 1e300, Double.MIN_VALUE, 99.99, -0.05);
+
+    private ReceiptResponse pricedReceipt() {
+        var beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+        var oranges = Product.builder().id(4L).name("Oranges").Category(ProductCategory.FOOD).measuredPerKg(true).price(1.99).build();
+        var ale = Product.builder().id(5L).name("Bass Pale Ale").Category(ProductCategory.ALE).price(2.5).build();
+        var calculator = new BasketCalculatorImpl(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build())),
+                Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build()),
+                Map.of(ProductCategory.ALE, Set.of(5L)));
+        var basket = new Basket();
+        basket.put(beans, 4.0);
+        basket.put(oranges, 0.2);
+        basket.put(ale, 3.0);
+        return calculator.calculateBasketPrice(basket);
+    }
+
+    private ReceiptResponse awkwardReceipt() {
+        var items = new ArrayList<ReceiptProductItem>();
+        var savings = new ArrayList<ReceiptPriceSavingItem>();
+        for (var amount : AWKWARD_AMOUNTS) {
+            items.add(ReceiptProductItem.builder().name("Café \"Crème\" \\ \n\t\u0001 🍺").price(amount).quantity(-3).build());
+            items.add(ReceiptProductItem.weighed("Kiwi/€", amount, -amount, amount * 3));
+            savings.add(new ReceiptPriceSavingItem("£ off " + amount, Long.MIN_VALUE, amount));
+        }
+        items.add(ReceiptProductItem.builder().name(null).price(1).quantity(Integer.MAX_VALUE).build());
+        savings.add(new ReceiptPriceSavingItem(null, Long.MAX_VALUE, -1));
+        return ReceiptResponse.builder()
+                .productItems(items)
+                .savingsItems(savings)
+                .productSubTotal(0.1 + 0.2)
+                .savingsSubTotal(-0.0)
+                .grandTotal(1e-300)
+                .pricingVersion(Long.MAX_VALUE)
+                .productSubTotalMinor(Long.MIN_VALUE)
+                .savingsSubTotalMinor(-1)
+                .grandTotalMinor(42)
+                .build();
+    }
+
+    private static void assertSameReceipt(ReceiptResponse expected, ReceiptResponse actual) {
+        assertEquals(expected.getPricingVersion(), actual.getPricingVersion());
+        assertEquals(expected.getProductSubTotal(), actual.getProductSubTotal());
+        assertEquals(expected.getSavingsSubTotal(), actual.getSavingsSubTotal());
+        assertEquals(expected.getGrandTotal(), actual.getGrandTotal());
+        assertEquals(expected.getProductSubTotalMinor(), actual.getProductSubTotalMinor());
+        assertEquals(expected.getSavingsSubTotalMinor(), actual.getSavingsSubTotalMinor());
+        assertEquals(expected.getGrandTotalMinor(), actual.getGrandTotalMinor());
+        if (expected.getProductItems() == null) {
+            assertNull(actual.getProductItems());
+        } else {
+            assertEquals(expected.getProductItems().size(), actual.getProductItems().size());
+            for (int i = 0; i < expected.getProductItems().size(); i++) {
+                var e = expected.getProductItems().get(i);
+                var a = actual.getProductItems().get(i);
+                assertEquals(e.getName(), a.getName());
+                assertEquals(e.getProductName(), a.getProductName());
+                assertEquals(e.getPrice(), a.getPrice());
+                assertEquals(e.getQuantity(), a.getQuantity());
+                assertEquals(e.isWeighed(), a.isWeighed());
+                assertEquals(e.getWeightKg(), a.getWeightKg());
+                assertEquals(e.getPricePerKg(), a.getPricePerKg());
+            }
+        }
+        if (expected.getSavingsItems() == null) {
+            assertNull(actual.getSavingsItems());
+        } else {
+            assertEquals(expected.getSavingsItems().size(), actual.getSavingsItems().size());
+            for (int i = 0; i < expected.getSavingsItems().size(); i++) {
+                var e = expected.getSavingsItems().get(i);
+                var a = actual.getSavingsItems().get(i);
+                assertEquals(e.getName(), a.getName());
+                assertEquals(e.getCount(), a.getCount());
+                assertEquals(e.getDeduction(), a.getDeduction());
+            }
+        }
+    }
+
+    @Test
+    public void binaryFramesRoundTripAndInternRepeatedNames() {
+        var writer = new ReceiptBinaryWriter();
+        var reader = new ReceiptBinaryReader();
+        var receipt = pricedReceipt();
+
+        var first = writer.write(receipt);
+        var firstBytes = first.remaining();
+        assertSameReceipt(receipt, reader.read(first));
+        assertFalse(first.hasRemaining());
+        assertEquals(5, writer.getInternedCount());
+
+        var second = writer.write(receipt);
+        assertTrue(second.remaining() < firstBytes, "repeated names should be table references");
+        assertSameReceipt(receipt, reader.read(second));
+
+        var awkward = awkwardReceipt();
+        assertSameReceipt(awkward, reader.read(writer.write(awkward)));
+        var totalsOnly = ReceiptResponse.builder().grandTotal(3.5).grandTotalMinor(350).pricingVersion(2).build();
+        assertSameReceipt(totalsOnly, reader.read(writer.write(totalsOnly)));
+    }
+
+    @Test
+    public void binaryStreamDecodesFrameByFrameAndWaitsForPartialFrames() throws Exception {
+        var receipts = List.of(pricedReceipt(), awkwardReceipt(), pricedReceipt());
+        // A table of two names forces literals once it fills, which the reader has to follow
+        var writer = new ReceiptBinaryWriter(2);
+        var bytes = new ByteArrayOutputStream();
+        var channel = Channels.newChannel(bytes);
+        for (var receipt : receipts) {
+            writer.write(receipt, channel);
+        }
+        var stream = bytes.toByteArray();
+
+        var reader = new ReceiptBinaryReader(2);
+        var in = ByteBuffer.allocateDirect(stream.length);
+        var decoded = new ArrayList<ReceiptResponse>();
+        // Feed the stream a few bytes at a time, as a socket would
+        for (int fed = 0; fed < stream.length; ) {
+            var chunk = Math.min(7, stream.length - fed);
+            in.put(stream, fed, chunk);
+            fed += chunk;
+            in.flip();
+            ReceiptResponse receipt;
+            while ((receipt = reader.read(in)) != null) {
+                decoded.add(receipt);
+            }
+            in.compact();
+        }
+        assertEquals(receipts.size(), decoded.size());
+        for (int i = 0; i < receipts.size(); i++) {
+            assertSameReceipt(receipts.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    public void failedFrameDoesNotLeaveNamesInTheTable() {
+        var writer = new ReceiptBinaryWriter();
+        var reader = new ReceiptBinaryReader();
+        var broken = ReceiptResponse.builder()
+                .productItems(Arrays.asList(ReceiptProductItem.builder().name("Fresh name").build(), null))
+                .build();
+        assertThrows(NullPointerException.class, () -> writer.write(broken));
+        assertEquals(0, writer.getInternedCount());
+
+        var receipt = pricedReceipt();
+        receipt.getProductItems().get(0).setName("Fresh name");
+        assertSameReceipt(receipt, reader.read(writer.write(receipt)));
+    }
+
+    @Test
+    public void corruptFramesAreRejected() {
+        var frame = new ReceiptBinaryWriter().write(pricedReceipt());
+        var bytes = new byte[frame.remaining()];
+        frame.get(bytes);
+        var truncatedLength = ByteBuffer.wrap(bytes.clone());
+        truncatedLength.putInt(0, bytes.length - 8);
+        assertThrows(IllegalArgumentException.class, () -> new ReceiptBinaryReader().read(truncatedLength));
+
+        var unknownReference = ByteBuffer.wrap(bytes.clone());
+        unknownReference.putInt(4 + 56 + 4, 9);
+        assertThrows(IllegalArgumentException.class, () -> new ReceiptBinaryReader().read(unknownReference));
+    }
+
+    @Test
+    public void jsonRoundTripsExactAmountsAndEscapedNames() {
+        var writer = new ReceiptJsonWriter();
+        var reader = new ReceiptJsonReader();
+        for (var receipt : List.of(pricedReceipt(), awkwardReceipt(), pricedReceipt(), new ReceiptResponse())) {
+            assertSameReceipt(receipt, reader.read(writer.write(receipt)));
+        }
+
+        var json = StandardCharsets.UTF_8.decode(writer.write(pricedReceipt())).toString();
+        assertTrue(json.startsWith("{\"pricingVersion\":1,\"productSubTotal\":9.898,\"savingsSubTotal\":-2.0,"), json);
+        assertTrue(json.contains("{\"name\":\"Oranges\",\"price\":0.398,\"quantity\":1,\"weighed\":true,\"weightKg\":0.2,\"pricePerKg\":1.99}"), json);
+        assertTrue(json.contains("{\"name\":\"Any 3 ales for £6\",\"count\":1,\"deduction\":-1.5}"), json);
+    }
+
+    @Test
+    public void jsonReaderToleratesWhitespaceOrderAndUnknownFields() {
+        var json = """
+                { "savingsItems" : [ { "deduction" : -5E-1, "name" : "Beans \\u0033 for 2", "count" : 1 } ],
+                  "extra" : { "nested" : [ 1, "two", null, true, { } ] },
+                  "productItems" : [ { "quantity" : 3, "name" : "Beans Tin", "price" : 1.50, "tag" : "x" } ],
+                  "grandTotal" : 1.0, "pricingVersion" : 7 }
+                """;
+        var receipt = new ReceiptJsonReader().read(json.getBytes(StandardCharsets.UTF_8));
+        assertEquals(7, receipt.getPricingVersion());
+        assertEquals(1.0, receipt.getGrandTotal());
+        assertEquals("Beans Tin", receipt.getProductItems().get(0).getName());
+        assertEquals(1.5, receipt.getProductItems().get(0).getPrice());
+        assertEquals(3, receipt.getProductItems().get(0).getQuantity());
+        assertEquals("Beans 3 for 2", receipt.getSavingsItems().get(0).getName());
+        assertEquals(-0.5, receipt.getSavingsItems().get(0).getDeduction());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new ReceiptJsonReader().read("{\"grandTotal\":}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ReceiptJsonWriter().write(ReceiptResponse.builder().grandTotal(Double.NaN).build()));
+    }
+
+    @Test
+    public void jsonAmountsMatchDoubleParsingForRandomValues() {
+        var random = new Random(22);
+        var writer = new ReceiptJsonWriter();
+        var reader = new ReceiptJsonReader();
+        for (int i = 0; i < 20_000; i++) {
+            var amount = switch (i % 3) {
+                case 0 -> Math.round(random.nextDouble() * 1e6) / 100.0;
+                case 1 -> random.nextGaussian() * Math.pow(10, random.nextInt(30) - 15);
+                default -> Double.longBitsToDouble(random.nextLong());
+            };
+            if (!Double.isFinite(amount)) {
+                continue;
+            }
+            var receipt = ReceiptResponse.builder().grandTotal(amount).build();
+            assertEquals(amount, reader.read(writer.write(receipt)).getGrandTotal());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import dto.request.CompactBasket;
+import entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import services.BasketCalculatorImpl;
+import services.RepricingPipeline;
+import services.TransactionLogWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RepricingPipelineTest {
+    @TempDir
+    Path tempDir;
+
+    private Map<Long, Product> products;
+    private BasketCalculatorImpl basketCalculator;
+
+    @BeforeEach
+    public void setUp() {
+        products = new HashMap<>();
+        for (var product : List.of(
+                Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build(),
+                Product.builder().id(2L).name("Coca-cola").Category(ProductCategory.DRINK).price(0.70).build(),
+                Product.builder().id(4L).name("Oranges").Category(ProductCategory.FOOD).measuredPerKg(true).price(1.99).build(),
+                Product.builder().id(5L).Category(ProductCategory.ALE).name("Bass Pale Ale").price(2.5).build(),
+                Product.builder().id(6L).Category(ProductCategory.ALE).name("Green King IPA").price(3).build())) {
+            products.put(product.getId(), product);
+        }
+        basketCalculator = new BasketCalculatorImpl(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build()),
+                        2L, List.of(PricingStructure.builder().name("Coke 2 for £1").quantity(2).price(1).build())),
+                Map.of(ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build()),
+                Map.of(ProductCategory.ALE, Set.of(5L, 6L)));
+    }
+
+    private List<CompactBasket> writeLog(Path path, TransactionLogFormat format, int count) throws IOException {
+        var random = new Random(23);
+        var baskets = new ArrayList<CompactBasket>();
+        try (var writer = new TransactionLogWriter(path, format)) {
+            for (int i = 0; i < count; i++) {
+                var basket = new CompactBasket();
+                for (var product : products.values()) {
+                    if (random.nextBoolean()) {
+                        basket.add(product, product.isMeasuredPerKg() ? random.nextInt(2_000) / 1_000.0 : 1 + random.nextInt(9));
+                    }
+                }
+                writer.append(1_000 + i, basket);
+                baskets.add(basket);
+            }
+        }
+        return baskets;
+    }
+
+    private void assertRepricesLog(TransactionLogFormat format) throws IOException {
+        var input = tempDir.resolve("log." + format);
+        var output = tempDir.resolve("summary.csv");
+        var baskets = writeLog(input, format, 2_000);
+        var progressCalls = new AtomicLong();
+        var pipeline = new RepricingPipeline(basketCalculator, products::get, 3, 2, 7, 0);
+
+        var summary = pipeline.run(input, format, output, (count, elapsedNanos, basketsPerSecond) -> progressCalls.incrementAndGet());
+
+        var lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+        assertEquals(RepricingPipeline.HEADER.trim(), lines.get(0));
+        assertEquals(baskets.size() + 1, lines.size());
+        var grandTotal = 0.0;
+        for (int i = 0; i < baskets.size(); i++) {
+            var receipt = basketCalculator.calculateBasketPrice(baskets.get(i));
+            var fields = lines.get(i + 1).split(",");
+            assertEquals(String.valueOf(1_000 + i), fields[0]);
+            assertEquals(String.valueOf(baskets.get(i).size()), fields[1]);
+            assertEquals(String.format(Locale.ENGLISH, "%.2f", receipt.getGrandTotal()), fields[4]);
+            grandTotal += receipt.getGrandTotal();
+        }
+        assertEquals(2_000, summary.getBasketCount());
+        assertEquals(0, summary.getRejectedBaskets());
+        assertEquals(grandTotal, summary.getGrandTotal(), 1e-6);
+        assertTrue(summary.getBasketsPerSecond() > 0);
+        assertTrue(progressCalls.get() > 1);
+    }
+
+    @Test
+    public void testRepricesTextLogInLogOrder() throws IOException {
+        assertRepricesLog(TransactionLogFormat.TEXT);
+    }
+
+    @Test
+    public void testRepricesBinaryLogInLogOrder() throws IOException {
+        assertRepricesLog(TransactionLogFormat.BINARY);
+    }
+
+    @Test
+    public void testTextLogSkipsCommentsAndRejectsUnknownProducts() throws IOException {
+        var input = tempDir.resolve("log.txt");
+        var output = tempDir.resolve("summary.csv");
+        Files.writeString(input, "# till 4, morning\r\n7 1:3 4:0.25\r\n\r\n8 1:1 99:2\n9 5:2,6:1");
+
+        var summary = new RepricingPipeline(basketCalculator, products::get).run(input, TransactionLogFormat.TEXT, output);
+
+        var lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+        assertEquals("7,2,2.00,-0.50,1.50,1", lines.get(1));
+        assertEquals("8,REJECTED,unknown product 99", lines.get(2));
+        assertEquals("9,2,8.00,-2.00,6.00,1", lines.get(3));
+        assertEquals(3, summary.getBasketCount());
+        assertEquals(1, summary.getRejectedBaskets());
+        assertEquals(4, summary.getLineCount());
+    }
+
+    @Test
+    public void testMalformedLogFailsTheRun() throws IOException {
+        var input = tempDir.resolve("log.txt");
+        Files.writeString(input, "7 1:3\n8 1-3\n");
+        var pipeline = new RepricingPipeline(basketCalculator, products::get);
+
+        var error = assertThrows(IOException.class, () -> pipeline.run(input, TransactionLogFormat.TEXT, tempDir.resolve("summary.csv")));
+        assertTrue(error.getMessage().contains("line 2"));
+        assertThrows(IOException.class, () -> pipeline.run(input, TransactionLogFormat.BINARY, tempDir.resolve("summary.csv")));
+    }
+
+    @Test
+    public void testSignWithoutDigitsIsMalformed() throws IOException {
+        var pipeline = new RepricingPipeline(basketCalculator, products::get);
+        for (var log : List.of("7 1:3\n- 1:3\n", "7 1:3\n8 -:3\n", "7 1:3\n8 1:-\n")) {
+            var input = tempDir.resolve("log.txt");
+            Files.writeString(input, log);
+
+            var error = assertThrows(IOException.class, () -> pipeline.run(input, TransactionLogFormat.TEXT, tempDir.resolve("summary.csv")), log);
+            assertTrue(error.getMessage().contains("line 2"), error.getMessage());
+        }
+    }
+}
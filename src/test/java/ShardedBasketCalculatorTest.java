@@ -0,0 +1,145 @@
+import dto.request.Basket;
+import dto.response.ReceiptResponse;
+import entity.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import services.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedBasketCalculatorTest {
+    private final Map<Long, Product> products = new HashMap<>();
+    private final Map<Long, List<PricingStructure>> uniProductPricing = new HashMap<>();
+    private final Map<ProductCategory, PricingStructure> categoryPricing = Map.of(
+            ProductCategory.ALE, PricingStructure.builder().name("Any 3 ales for £6").quantity(3).price(6).build());
+    // Spread over the id range, so the category deal and the named group both span shards
+    private final Map<ProductCategory, Set<Long>> categoryProductSet = Map.of(ProductCategory.ALE, Set.of(5L, 17L, 33L));
+    private final List<DealGroup> dealGroups = List.of(DealGroup.builder().name("meal-deal")
+            .pricing(PricingStructure.builder().name("Meal deal any 3 for £2").quantity(3).price(2).build())
+            .productIds(Set.of(2L, 20L, 38L)).build());
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    public ShardedBasketCalculatorTest() {
+        for (long id = 1; id <= 40; id++) {
+            var category = categoryProductSet.get(ProductCategory.ALE).contains(id) ? ProductCategory.ALE : ProductCategory.FOOD;
+            products.put(id, Product.builder().id(id).name("Product " + id).Category(category)
+                    .measuredPerKg(id % 9 == 0).price(0.25 + id * 0.37 % 3).build());
+            if (id % 4 == 1 && category != ProductCategory.ALE) {
+                uniProductPricing.put(id, List.of(PricingStructure.builder().name("3 for 2 on " + id).quantity(3).newQuantity(2).build()));
+            } else if (id % 4 == 2) {
+                uniProductPricing.put(id, List.of(PricingStructure.builder().name("2 for £1 on " + id).quantity(2).price(1).build()));
+            }
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testDealGroupsAreRoutedWholeToTheirHomeShard() {
+        var partition = partition(4);
+
+        assertEquals(4, partition.getShardCount());
+        assertEquals(partition.shardOf(products.get(5L)), partition.shardOf(products.get(33L)));
+        assertEquals(partition.shardOf(products.get(5L)), partition.shardOf(products.get(17L)));
+        assertEquals(partition.shardOf(products.get(2L)), partition.shardOf(products.get(38L)));
+        // Outside any group, a line goes to the shard that owns its id
+        assertNotEquals(partition.shardOf(products.get(3L)), partition.shardOf(products.get(39L)));
+        assertEquals(-1, partition.getShardCatalog(0).indexOf(39L));
+    }
+
+    @Test
+    public void testShardedReceiptsMatchSingleNodeInFixedPoint() {
+        var single = new BasketCalculatorImpl(new PricingCatalogStore(
+                PricingCatalog.compile(uniProductPricing, categoryPricing, categoryProductSet, dealGroups)), MoneyMode.FIXED_POINT);
+        var sharded = ShardedBasketCalculator.local(partition(4), MoneyMode.FIXED_POINT, executor);
+
+        var random = new Random(19);
+        for (int i = 0; i < 200; i++) {
+            var basket = randomBasket(random);
+            assertSameReceipt(single.calculateBasketPrice(basket), sharded.calculateBasketPrice(basket), 0);
+        }
+        assertTrue(sharded.getScatteredBaskets() > 0);
+    }
+
+    @Test
+    public void testShardedReceiptsMatchSingleNodeInDoubleMode() {
+        var single = new BasketCalculatorImpl(PricingCatalog.compile(uniProductPricing, categoryPricing, categoryProductSet, dealGroups));
+        var sharded = ShardedBasketCalculator.local(partition(3), MoneyMode.DOUBLE, executor);
+
+        var random = new Random(20);
+        for (int i = 0; i < 200; i++) {
+            var basket = randomBasket(random);
+            assertSameReceipt(single.calculateBasketPrice(basket), sharded.calculateBasketPrice(basket), 1e-9);
+        }
+    }
+
+    @Test
+    public void testRemoteShardOverHttpMatchesInJvmShard() throws IOException {
+        var partition = partition(2);
+        var local = ShardedBasketCalculator.local(partition, MoneyMode.FIXED_POINT, executor);
+        var remoteShard = new BasketCalculatorImpl(new PricingCatalogStore(partition.getShardCatalog(1)), MoneyMode.FIXED_POINT);
+
+        try (var server = new PricingServer(remoteShard, products::get, new InetSocketAddress("127.0.0.1", 0)).start()) {
+            var remote = new RemoteBasketCalculator(URI.create("http://127.0.0.1:" + server.getPort()), Duration.ofSeconds(10));
+            var shards = List.of(new BasketCalculatorImpl(new PricingCatalogStore(partition.getShardCatalog(0)), MoneyMode.FIXED_POINT), remote);
+            var sharded = new ShardedBasketCalculator(partition, shards, MoneyMode.FIXED_POINT, executor);
+
+            var random = new Random(21);
+            for (int i = 0; i < 20; i++) {
+                var basket = randomBasket(random);
+                assertSameReceipt(local.calculateBasketPrice(basket), sharded.calculateBasketPrice(basket), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testShardListMustMatchThePartition() {
+        var partition = partition(3);
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedBasketCalculator(partition, List.of(new BasketCalculatorImpl(partition.getShardCatalog(0))), MoneyMode.DOUBLE, executor));
+        assertThrows(IllegalArgumentException.class,
+                () -> CatalogPartition.withRanges(uniProductPricing, categoryPricing, categoryProductSet, dealGroups, new long[]{0L, 10L}));
+    }
+
+    private CatalogPartition partition(int shards) {
+        return CatalogPartition.byProductIdRange(uniProductPricing, categoryPricing, categoryProductSet, dealGroups, shards);
+    }
+
+    private Basket randomBasket(Random random) {
+        var basket = new Basket();
+        var lines = 1 + random.nextInt(12);
+        for (int i = 0; i < lines; i++) {
+            var product = products.get(1L + random.nextInt(40));
+            basket.put(product, product.isMeasuredPerKg() ? 0.125 * (1 + random.nextInt(20)) : 1 + random.nextInt(7));
+        }
+        return basket;
+    }
+
+    private static void assertSameReceipt(ReceiptResponse expected, ReceiptResponse actual, double delta) {
+        assertEquals(expected.getProductSubTotal(), actual.getProductSubTotal(), delta);
+        assertEquals(expected.getSavingsSubTotal(), actual.getSavingsSubTotal(), delta);
+        assertEquals(expected.getGrandTotal(), actual.getGrandTotal(), delta);
+        assertEquals(expected.getProductItems().size(), actual.getProductItems().size());
+        assertEquals(savingsOf(expected), savingsOf(actual));
+    }
+
+    private static List<String> savingsOf(ReceiptResponse receipt) {
+        var savings = new ArrayList<String>();
+        for (var item : receipt.getSavingsItems()) {
+            savings.add(item.getName() + " x" + item.getCount() + " " + item.getDeduction());
+        }
+        Collections.sort(savings);
+        return savings;
+    }
+}
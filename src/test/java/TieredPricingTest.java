@@ -0,0 +1,158 @@
+import dto.request.Basket;
+import dto.request.CompactBasket;
+import entity.*;
+import org.junit.jupiter.api.Test;
+import services.BasketCalculatorImpl;
+import services.PricingCatalogStore;
+import services.TieredBasketCalculator;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredPricingTest {
+    private static final int GOLD = 2;
+    private static final int STAFF = 7;
+    private static final int LONDON = 100;
+
+    private final Product beans = Product.builder().id(1L).name("Beans Tin").Category(ProductCategory.FOOD).price(0.50).build();
+    private final Product coke = Product.builder().id(2L).name("Coca-cola").Category(ProductCategory.DRINK).price(0.70).build();
+    private final Product oranges = Product.builder().id(4L).name("Oranges").Category(ProductCategory.FOOD).measuredPerKg(true).price(1.99).build();
+
+    private PriceBook priceBook() {
+        return PriceBook.compile(List.of(
+                        PriceOverride.builder().productId(1L).tier(GOLD).price(0.40).build(),
+                        PriceOverride.builder().productId(1L).storeId(LONDON).price(0.60).build(),
+                        PriceOverride.builder().productId(1L).storeId(LONDON).tier(GOLD).price(0.55).build(),
+                        PriceOverride.builder().productId(2L).price(0.65).build(),
+                        PriceOverride.builder().productId(4L).storeId(LONDON).price(2.49).build()),
+                Map.of(STAFF, 10.0));
+    }
+
+    @Test
+    public void mostSpecificOverrideWinsAndStaffDiscountAppliesOnTop() {
+        var book = priceBook();
+        assertEquals(0.50, book.resolve(beans, PriceBook.ANY, PriceBook.ANY));
+        assertEquals(0.40, book.resolve(beans, GOLD, PriceBook.ANY));
+        assertEquals(0.60, book.resolve(beans, PriceBook.ANY, LONDON));
+        assertEquals(0.55, book.resolve(beans, GOLD, LONDON));
+        // A tier with no price of its own at a store falls back to the store price, then to any-store prices
+        assertEquals(0.60, book.resolve(beans, 3, LONDON));
+        assertEquals(0.40, book.resolve(beans, GOLD, 101));
+        assertEquals(0.65, book.resolve(coke, GOLD, LONDON));
+        // 10% off 0.60 and 0.65, rounded half up to the penny
+        assertEquals(0.54, book.resolve(beans, STAFF, LONDON));
+        assertEquals(0.59, book.resolve(coke, STAFF, PriceBook.ANY));
+        assertEquals(1.79, book.resolve(oranges, STAFF, PriceBook.ANY));
+        assertEquals(3, book.getOverriddenProductCount());
+
+        assertThrows(IllegalArgumentException.class, () -> PriceBook.compile(
+                List.of(PriceOverride.builder().productId(1L).tier(PriceBook.MAX_TIER + 1).price(1).build()), Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> PriceBook.compile(List.of(), Map.of(GOLD, 120.0)));
+    }
+
+    @Test
+    public void calculatorPricesLinesAndOffersAtTheResolvedPrice() {
+        var inner = new BasketCalculatorImpl(
+                Map.of(1L, List.of(PricingStructure.builder().name("Beans 3 for 2").quantity(3).newQuantity(2).build())),
+                Map.of(), Map.of());
+        var calculator = new TieredBasketCalculator(inner, priceBook());
+
+        var basket = new Basket();
+        basket.put(beans, 3);
+        basket.put(oranges, 0.5);
+        basket.put(coke, 1);
+        var shelf = calculator.calculateBasketPrice(basket);
+        assertEquals(1.5 + 0.995 + 0.65 - 0.5, shelf.getGrandTotal(), 1e-9);
+
+        basket.setCustomerTier(GOLD);
+        basket.setStoreId(LONDON);
+        var gold = calculator.calculateBasketPrice(basket);
+        assertEquals(3 * 0.55 + 0.5 * 2.49 + 0.65 - 0.55, gold.getGrandTotal(), 1e-9);
+        assertEquals(-0.55, gold.getSavingsItems().get(0).getDeduction(), 1e-9);
+        // The caller's basket and products are left as they were
+        assertEquals(0.50, beans.getPrice());
+        assertTrue(basket.containsKey(beans));
+
+        var compact = CompactBasket.fromBasket(basket);
+        assertEquals(gold.getGrandTotal(), calculator.calculateBasketPrice(compact).getGrandTotal(), 1e-9);
+        assertEquals(gold.getGrandTotal(), calculator.calculateBasketTotals(basket).getGrandTotal(), 1e-9);
+
+        var fixedPoint = new TieredBasketCalculator(
+                new BasketCalculatorImpl(new PricingCatalogStore(PricingCatalog.compile(Map.of(), Map.of(), Map.of())), MoneyMode.FIXED_POINT),
+                priceBook());
+        basket.setCustomerTier(STAFF);
+        assertEquals(1.62 + 1.12 + 0.59, fixedPoint.calculateBasketPrice(basket).getGrandTotal(), 1e-9);
+    }
+
+    @Test
+    public void untouchedBasketIsPassedThroughWithoutCopying() {
+        var seen = new ArrayList<Basket>();
+        var calculator = new TieredBasketCalculator(basket -> {
+            seen.add(basket);
+            return new dto.response.ReceiptResponse();
+        }, priceBook());
+        var basket = new Basket();
+        basket.put(oranges, 1.0);
+        calculator.calculateBasketPrice(basket);
+        assertSame(basket, seen.get(0));
+
+        basket.setStoreId(LONDON);
+        calculator.calculateBasketPrice(basket);
+        assertNotSame(basket, seen.get(1));
+        assertEquals(2.49, seen.get(1).keySet().iterator().next().getPrice());
+        assertEquals(LONDON, seen.get(1).getStoreId());
+    }
+
+    @Test
+    public void resolutionMatchesLayeredMapsForRandomCombinations() {
+        var random = new Random(24);
+        var overrides = new ArrayList<PriceOverride>();
+        var expected = new HashMap<List<Long>, Double>();
+        for (int i = 0; i < 20_000; i++) {
+            var productId = (long) random.nextInt(2_000) * 7919 - 5_000_000;
+            var tier = random.nextInt(3) == 0 ? PriceBook.ANY : random.nextInt(12);
+            var storeId = random.nextInt(3) == 0 ? PriceBook.ANY : random.nextInt(500);
+            var price = random.nextInt(1_000) / 100.0;
+            overrides.add(PriceOverride.builder().productId(productId).tier(tier).storeId(storeId).price(price).build());
+            expected.put(List.of(productId, (long) tier, (long) storeId), price);
+        }
+        var discounts = Map.of(5, 12.5, 11, 33.0);
+        var book = PriceBook.compile(overrides, discounts);
+        var seen = new Product[1];
+        var calculator = new TieredBasketCalculator(basket -> {
+            seen[0] = basket.keySet().iterator().next();
+            return new dto.response.ReceiptResponse();
+        }, book);
+
+        for (int i = 0; i < 50_000; i++) {
+            var product = Product.builder().id((long) random.nextInt(2_500) * 7919 - 5_000_000)
+                    .price(1 + random.nextInt(500) / 100.0).build();
+            var tier = random.nextInt(13);
+            var storeId = random.nextInt(520);
+            Double price = null;
+            for (var key : List.of(List.of(product.getId(), (long) tier, (long) storeId), List.of(product.getId(), 0L, (long) storeId),
+                    List.of(product.getId(), (long) tier, 0L), List.of(product.getId(), 0L, 0L))) {
+                if (price == null && (key.get(1) == 0 || key.get(1) == tier) && (key.get(2) == 0 || key.get(2) == storeId)) {
+                    price = expected.get(key);
+                }
+            }
+            var resolved = price == null ? product.getPrice() : price;
+            if (discounts.containsKey(tier)) {
+                resolved = util.Money.toPounds(util.Money.toPence(resolved * (1 - discounts.get(tier) / 100)));
+            }
+            assertEquals(resolved, book.resolve(product, tier, storeId));
+
+            // Twice through the shared hot-SKU cache: once to fill the slot, once to read it back
+            var basket = new Basket();
+            basket.put(product, 1);
+            basket.setCustomerTier(tier);
+            basket.setStoreId(storeId);
+            for (int round = 0; round < 2; round++) {
+                calculator.calculateBasketPrice(basket);
+                assertEquals(resolved, seen[0].getPrice());
+                assertEquals(product.getId(), seen[0].getId());
+            }
+        }
+    }
+}